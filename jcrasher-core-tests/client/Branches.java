@@ -0,0 +1,72 @@
+/*
+ * Branches.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package client;
+
+/**
+ * Branches of each kind, to get covered by test cases.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class Branches {
+
+  /**
+   * Conditional branches.
+   */
+  public static int sign(int i) {
+    if (i < 0) {
+      return -1;
+    }
+    if (i == 0) {
+      return 0;
+    }
+    return 1;
+  }
+
+
+  /**
+   * Loop.
+   */
+  public static int sum(int n) {
+    int res = 0;
+    for (int i=0; i<n; i++) {
+      res += i;
+    }
+    return res;
+  }
+
+
+  /**
+   * Exception handler.
+   */
+  public static int first(final int[] a) {
+    try {
+      return a[0];
+    }
+    catch (RuntimeException e) {
+      return -1;
+    }
+  }
+
+
+  /**
+   * Crashes, for b == 0.
+   */
+  public static int divide(int a, int b) {
+    return a / b;
+  }
+
+
+  /**
+   * Switch.
+   */
+  public static String name(int i) {
+    switch (i) {
+      case 0: return "zero";
+      case 1: return "one";
+      default: return "many";
+    }
+  }
+}
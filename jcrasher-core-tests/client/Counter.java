@@ -0,0 +1,28 @@
+/*
+ * Counter.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package client;
+
+/**
+ * Static state, which crashes any test case that does not start from the
+ * initial state.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class Counter {
+
+  protected static int count = 0;
+
+  /**
+   * Crashes on all calls but the first.
+   */
+  public static int increment() {
+    count += 1;
+    if (count > 1) {
+      throw new IllegalStateException("count == " + count);
+    }
+    return count;
+  }
+}
@@ -0,0 +1,27 @@
+/*
+ * InterfaceCalls.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package client;
+
+import java.util.Comparator;
+
+/**
+ * Calls an interface method directly, which needs the Java 8 class file
+ * format.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class InterfaceCalls {
+
+  /**
+   * Calls static method Comparator.naturalOrder.
+   */
+  public static int compare(final String a, final String b) {
+    if (a == null) {
+      return -1;
+    }
+    return Comparator.<String>naturalOrder().compare(a, b);
+  }
+}
@@ -0,0 +1,39 @@
+/*
+ * LazyCounter.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package client;
+
+/**
+ * Static state in a class that only the first call loads, which crashes
+ * any test case that does not start from the initial state.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class LazyCounter {
+
+  /**
+   * Crashes on all calls but the first.
+   */
+  public static int increment() {
+    return LazyCounterState.increment();
+  }
+}
+
+
+/**
+ * Neither nested in nor part of any signature of LazyCounter, so crawling
+ * and planning LazyCounter do not load it.
+ */
+class LazyCounterState {
+  protected static int count = 0;
+
+  protected static int increment() {
+    count += 1;
+    if (count > 1) {
+      throw new IllegalStateException("count == " + count);
+    }
+    return count;
+  }
+}
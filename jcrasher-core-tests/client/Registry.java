@@ -0,0 +1,31 @@
+/*
+ * Registry.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Static state in a final field, changed in place, which crashes any test
+ * case that does not start from the initial state.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class Registry {
+
+  protected static final List<String> names = new ArrayList<String>();
+
+  /**
+   * Crashes on all calls but the first.
+   */
+  public static int register() {
+    names.add("name");
+    if (names.size() > 1) {
+      throw new IllegalStateException("size == " + names.size());
+    }
+    return names.size();
+  }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2007 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.gatech.cc.jcrasher;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests edu.gatech.cc.jcrasher.CrashSignatureStore
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class CrashSignatureStoreTest extends TestCase {
+
+  protected File file = null;
+  protected File index = null;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    file = File.createTempFile("jcrasher", ".known");
+    file.delete();
+    index = new File(file.getPath() + ".index");
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    file.delete();
+    index.delete();
+    super.tearDown();
+  }
+
+
+  protected static String getKey(int i) {
+    return CrashSignatureStore.getKey("java.lang.NullPointerException",
+        new String[]{"p.C.m:" + i, "p.C.n:20"});
+  }
+
+
+  /***/
+  public void testGetKey() {
+    assertEquals("p.E", CrashSignatureStore.getKey("p.E", new String[0]));
+    assertEquals("p.E at p.C.m:12 < p.C.n:20", CrashSignatureStore.getKey(
+        "p.E", new String[]{"p.C.m:12", "p.C.n:20"}));
+  }
+
+
+  /***/
+  public void testRecord() throws IOException {
+    final CrashSignatureStore store = new CrashSignatureStore(file);
+    assertFalse(store.contains(getKey(1)));
+    assertEquals(-1, store.getFirstSeen(getKey(1)));
+
+    assertTrue(store.record(getKey(1), 100));
+    assertFalse(store.record(getKey(1), 200));
+    assertFalse(store.record(getKey(1), 150));
+    assertTrue(store.contains(getKey(1)));
+    assertFalse(store.contains(getKey(2)));
+    assertEquals(100, store.getFirstSeen(getKey(1)));
+    assertEquals(200, store.getLastSeen(getKey(1)));
+    assertEquals(1, store.size());
+    store.close();
+  }
+
+
+  /**
+   * Only what runs before the current one found is known.
+   */
+  public void testKnownBeforeRunStart() throws IOException {
+    CrashSignatureStore store = new CrashSignatureStore(file, 150);
+    store.record(getKey(1), 100);
+    store.record(getKey(2), 200);
+    assertTrue(store.isKnown(getKey(1)));
+    assertFalse(store.isKnown(getKey(2)));
+    assertFalse(store.isKnown(getKey(3)));
+    store.close();
+
+    store = new CrashSignatureStore(file, 300);
+    assertTrue(store.isKnown(getKey(2)));
+    store.close();
+  }
+
+
+  /***/
+  public void testLocked() throws IOException {
+    final CrashSignatureStore store = new CrashSignatureStore(file);
+    try {
+      new CrashSignatureStore(file);
+      fail();
+    }
+    catch (IOException e) {
+      /* Expected */
+    }
+    store.close();
+    new CrashSignatureStore(file).close();
+  }
+
+
+  /***/
+  public void testRebuildMissingIndex() throws IOException {
+    final int n = 3000;   //rebuilds at several capacities.
+    CrashSignatureStore store = new CrashSignatureStore(file);
+    for (int i=0; i<n; i++) {
+      store.record(getKey(i), i);
+      store.record(getKey(i), 2*i);
+    }
+    store.close();
+    assertTrue(index.delete());
+
+    store = new CrashSignatureStore(file);
+    assertEquals(n, store.size());
+    for (int i=0; i<n; i++) {
+      assertEquals(i, store.getFirstSeen(getKey(i)));
+      assertEquals(2*i, store.getLastSeen(getKey(i)));
+    }
+    store.close();
+  }
+
+
+  /**
+   * A run that died after appending to the log but before updating the
+   * index, in the middle of appending its last record.
+   */
+  public void testReplayLogTail() throws IOException {
+    CrashSignatureStore store = new CrashSignatureStore(file);
+    store.record(getKey(1), 100);
+    store.close();
+
+    final RandomAccessFile log = new RandomAccessFile(file, "rw");
+    log.seek(log.length());
+    log.writeLong(CrashSignatureStore.hash(getKey(1)));
+    log.writeLong(50);
+    log.writeLong(CrashSignatureStore.hash(getKey(2)));
+    log.writeLong(300);
+    log.writeInt(7);    //torn record.
+    log.close();
+
+    store = new CrashSignatureStore(file);
+    assertEquals(2, store.size());
+    assertEquals(50, store.getFirstSeen(getKey(1)));
+    assertEquals(100, store.getLastSeen(getKey(1)));
+    assertEquals(300, store.getFirstSeen(getKey(2)));
+    assertTrue(store.record(getKey(3), 400));
+    store.close();
+
+    store = new CrashSignatureStore(file);
+    assertEquals(3, store.size());
+    assertEquals(400, store.getFirstSeen(getKey(3)));
+    store.close();
+  }
+
+
+  /**
+   * A run that died while rebuilding the index.
+   */
+  public void testRebuildDirtyIndex() throws IOException {
+    CrashSignatureStore store = new CrashSignatureStore(file);
+    store.record(getKey(1), 100);
+    store.markRebuilding();
+    store.buffer.putLong(CrashSignatureStore.INDEX_HEADER_SIZE, 0);
+    store.close();
+
+    store = new CrashSignatureStore(file);
+    assertEquals(1, store.size());
+    assertEquals(100, store.getFirstSeen(getKey(1)));
+    store.close();
+  }
+
+
+  /***/
+  public void testGrowAndReopen() throws IOException {
+    final int n = 5000;   //several times the initial capacity.
+    CrashSignatureStore store = new CrashSignatureStore(file);
+    for (int i=0; i<n; i++) {
+      assertTrue(store.record(getKey(i), i));
+    }
+    store.close();
+
+    store = new CrashSignatureStore(file);
+    assertEquals(n, store.size());
+    for (int i=0; i<n; i++) {
+      assertTrue(store.contains(getKey(i)));
+      assertEquals(i, store.getFirstSeen(getKey(i)));
+    }
+    assertFalse(store.contains(getKey(n)));
+    store.close();
+  }
+
+
+  /***/
+  public void testRejectOtherFile() throws IOException {
+    final FileWriter out = new FileWriter(file);
+    out.write("p.C.m()\n");
+    out.close();
+    try {
+      new CrashSignatureStore(file);
+      fail();
+    }
+    catch (IOException e) {
+      /* Expected */
+    }
+  }
+}
@@ -206,6 +206,28 @@ public class MethodCallTest extends TestCase {
     		loadeeForClient.staticMemberStaticMethod().execute());
   }
 
+  /**
+   * A plan executes the same way again.
+   */
+  public void testExecuteTwice() throws InstantiationException,
+  IllegalAccessException, InvocationTargetException {
+    final Expression<?> inner = loadeeForClient.innerMeth(
+        loadeeForClient.innerConstructor(loadeeForClient.constructor()));
+    assertEquals(Integer.valueOf(1), inner.execute());
+    assertEquals(Integer.valueOf(1), inner.execute());
+
+    final Expression<?> crash = loadeeForClient.staticMeth(7);
+    for (int i=0; i<2; i++) {
+      try {
+        crash.execute();
+        fail("Should have crashed");
+      }
+      catch(InvocationTargetException e) {  //expected
+        assertEquals("7", e.getCause().getMessage());
+      }
+    }
+  }
+
   /***/
   public void testText() {
     assertEquals(
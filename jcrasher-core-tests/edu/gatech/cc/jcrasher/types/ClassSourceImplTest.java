@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.gatech.cc.jcrasher.types;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+import edu.gatech.cc.jcrasher.types.InitReport.Failure;
+import edu.gatech.cc.jcrasher.types.InitReport.Phase;
+
+/**
+ * Tests edu.gatech.cc.jcrasher.types.ClassSourceImpl
+ * 
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class ClassSourceImplTest extends TestCase {
+
+  protected final ClassSource classSource = ClassSourceImpl.instance();
+  
+  protected boolean isReported(String className, Phase phase) {
+    List<Failure> failures = classSource.getReport().getFailures();
+    for (Failure failure: failures) {
+      if (failure.getClassName().equals(className)
+          && failure.getPhase().equals(phase)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Loading must not run the throwing class initializer.
+   */
+  public void testLoadDefersInitialization() {
+    String name = CannotInitEnclosing.class.getName() + "$Inner";
+    assertNotNull(classSource.load(name));
+    assertFalse(isReported(name, Phase.LOAD));
+  }
+
+  /***/
+  public void testLoadMissing() {
+    String name = "edu.gatech.cc.jcrasher.types.DoesNotExist";
+    assertNull(classSource.load(name));
+    assertTrue(isReported(name, Phase.LOAD));
+  }
+
+  /***/
+  public void testInitializeReported() {
+    String name = CannotInitEnclosing.class.getName();
+    Class<?> inner = classSource.load(name + "$Inner");
+    assertFalse(classSource.initializeDeep(inner));
+    assertTrue(isReported(name, Phase.INITIALIZE_ENCLOSING));
+  }
+}
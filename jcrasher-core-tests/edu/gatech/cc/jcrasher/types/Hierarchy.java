@@ -0,0 +1,20 @@
+package edu.gatech.cc.jcrasher.types;
+
+/***/
+public class Hierarchy {
+  /***/
+  public interface Top {
+    /* empty */
+  }
+  /***/
+  public static abstract class Middle implements Top {
+    /* empty */
+  }
+  /***/
+  public static class Bottom extends Middle {
+    /***/
+    public Bottom() {
+      /* empty */
+    }
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.gatech.cc.jcrasher.types;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import junit.framework.TestCase;
+import client.sub.Loadee;
+
+/**
+ * Tests edu.gatech.cc.jcrasher.types.ImmutableTypes
+ * 
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class ImmutableTypesTest extends TestCase {
+
+  /***/
+  public void testAllowed() {
+    assertTrue(ImmutableTypes.isImmutable(String.class));
+    assertTrue(ImmutableTypes.isPure(Integer.class));
+    assertFalse(ImmutableTypes.isImmutable(Loadee.class));
+    assertFalse(ImmutableTypes.isImmutable(int[].class));
+  }
+
+
+  /**
+   * The caches must not keep an analyzed class and its loader alive.
+   */
+  public void testReleasesLoader() throws Exception {
+    final URL bin = Loadee.class.getProtectionDomain().getCodeSource()
+      .getLocation();
+    ClassLoader loader = new URLClassLoader(new URL[]{bin}, null);
+    Class<?> c = loader.loadClass(Loadee.class.getName());
+    assertFalse(ImmutableTypes.isImmutable(c));
+    assertFalse(ImmutableTypes.isPure(c));
+
+    final WeakReference<ClassLoader> ref =
+      new WeakReference<ClassLoader>(loader);
+    loader = null;
+    c = null;
+    for (int i=0; i<20 && ref.get()!=null; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertNull(ref.get());
+  }
+}
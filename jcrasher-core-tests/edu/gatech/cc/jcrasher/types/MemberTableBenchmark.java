@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.gatech.cc.jcrasher.types;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Compares direct reflective member queries with MemberTable lookups,
+ * following the access pattern of planning: for each class, get all
+ * constructors and methods, and for each their modifiers and parameter types.
+ * 
+ * <p>
+ * Run via main; not part of the test suite.
+ * 
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class MemberTableBenchmark {
+
+  protected static final Class<?>[] classes = new Class[]{
+    java.util.ArrayList.class,
+    java.util.HashMap.class,
+    java.util.Hashtable.class,
+    java.util.Vector.class,
+    java.lang.String.class,
+    java.lang.StringBuilder.class,
+    java.math.BigInteger.class,
+    java.io.File.class
+  };
+
+  protected static int reflect() {
+    int res = 0;
+    for (Class<?> c: classes) {
+      for (Constructor<?> con: c.getDeclaredConstructors()) {
+        if (!Modifier.isPrivate(con.getModifiers())) {
+          res += con.getParameterTypes().length;
+        }
+      }
+      for (Method meth: c.getDeclaredMethods()) {
+        if (!Modifier.isPrivate(meth.getModifiers())) {
+          res += meth.getParameterTypes().length;
+        }
+      }
+    }
+    return res;
+  }
+
+  protected static int table() {
+    int res = 0;
+    for (Class<?> c: classes) {
+      MemberTable<?> table = MemberTable.get(c);
+      for (Constructor<?> con: table.getConstructors()) {
+        if (!Modifier.isPrivate(table.getModifiers(con))) {
+          res += table.getParameterTypes(con).length;
+        }
+      }
+      for (Method meth: table.getMethods()) {
+        if (!Modifier.isPrivate(table.getModifiers(meth))) {
+          res += table.getParameterTypes(meth).length;
+        }
+      }
+    }
+    return res;
+  }
+
+  protected static long time(boolean useTable, int rounds) {
+    int check = 0;
+    long start = System.nanoTime();
+    for (int i=0; i<rounds; i++) {
+      check += useTable? table() : reflect();
+    }
+    long res = (System.nanoTime() - start) / rounds;
+    if (check == 42) {  // keep JIT from dropping the loop.
+      System.out.print("");
+    }
+    return res;
+  }
+
+  /**
+   * @param args [rounds]
+   */
+  public static void main(String[] args) {
+    int rounds = (args.length > 0)? Integer.parseInt(args[0]) : 2000;
+    time(false, rounds);  // warm up
+    time(true, rounds);
+    System.out.println("reflection:  " + time(false, rounds) + " ns per round");
+    System.out.println("MemberTable: " + time(true, rounds) + " ns per round");
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.gatech.cc.jcrasher.types;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import junit.framework.TestCase;
+import client.sub.Loadee;
+
+/**
+ * Tests edu.gatech.cc.jcrasher.types.MemberTable
+ * 
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class MemberTableTest extends TestCase {
+
+  protected final MemberTable<Loadee> table = MemberTable.get(Loadee.class);
+
+  /***/
+  public void testGetCached() {
+    assertSame(table, MemberTable.get(Loadee.class));
+    assertSame(table.getMethods(), MemberTable.get(Loadee.class).getMethods());
+  }
+
+  /***/
+  public void testNrFunctions() {
+    assertEquals(
+        Loadee.class.getDeclaredConstructors().length
+        + Loadee.class.getDeclaredMethods().length,
+        table.getNrFunctions());
+  }
+
+  /***/
+  public void testParameterTypesShared() throws NoSuchMethodException {
+    Method meth = Loadee.class.getMethod("meth", new Class[]{int.class});
+    Class<?>[] params = MemberTable.paramsOf(meth);
+    assertEquals(1, params.length);
+    assertEquals(int.class, params[0]);
+    assertSame(params, table.getParameterTypes(meth));
+  }
+
+  /***/
+  public void testSignature() throws NoSuchMethodException {
+    Method meth = Loadee.class.getMethod("meth", new Class[]{int.class});
+    assertEquals("client.sub.Loadee.meth(int)", table.getSignature(meth));
+
+    Constructor<Loadee> con = Loadee.class.getConstructor(new Class[0]);
+    assertEquals("client.sub.Loadee.<init>()", table.getSignature(con));
+  }
+
+  /**
+   * A covariant override and its bridge method share a signature, so we
+   * order them by return type.
+   */
+  public void testBridgeOrder() {
+    final Method[] methods = MemberTable.get(Covariant.class).getMethods();
+    assertEquals(2, methods.length);
+    assertTrue(methods[0].isBridge());
+    assertEquals(Object.class, methods[0].getReturnType());
+    assertEquals(String.class, methods[1].getReturnType());
+    assertEquals(MemberTable.get(Covariant.class).getSignature(methods[0]),
+        MemberTable.get(Covariant.class).getSignature(methods[1]));
+  }
+
+  protected static class Covariant {
+    @Override
+    public String clone() {
+      return "";
+    }
+  }
+
+  /***/
+  public void testModifiers() throws NoSuchMethodException {
+    Method meth = Loadee.class.getMethod("staticMeth", new Class[]{int.class});
+    assertEquals(meth.getModifiers(), table.getModifiers(meth));
+    assertTrue(table.isPublicPublic(meth));
+  }
+
+  /***/
+  public void testInvoker() throws Exception {
+    Method meth = Loadee.class.getMethod("staticMeth", new Class[]{int.class});
+    Invoker invoker = MemberTable.invokerOf(meth);
+    assertSame(invoker, table.getInvoker(
+        Loadee.class.getMethod("staticMeth", new Class[]{int.class})));
+    assertTrue(invoker.isStatic());
+    try {
+      invoker.invoke(null, new Object[]{Integer.valueOf(7)});
+      fail("Should have crashed");
+    }
+    catch (InvocationTargetException e) {  //expected
+      assertEquals("7", e.getCause().getMessage());
+    }
+
+    Constructor<Loadee> con = Loadee.class.getConstructor(new Class[0]);
+    assertFalse(MemberTable.invokerOf(con).isStatic());
+    assertTrue(MemberTable.invokerOf(con).invoke(null, new Object[0])
+        instanceof Loadee);
+  }
+
+
+  /**
+   * Once its table is cleared, as under memory pressure, the table cache
+   * must not keep the class and its loader alive.
+   */
+  public void testReleasesLoader() throws Exception {
+    final URL bin = Loadee.class.getProtectionDomain().getCodeSource()
+      .getLocation();
+    ClassLoader loader = new URLClassLoader(new URL[]{bin}, null);
+    Class<?> c = loader.loadClass(Loadee.class.getName());
+    assertNotSame(Loadee.class, c);
+    assertEquals(table.getNrFunctions(), MemberTable.get(c).getNrFunctions());
+
+    final WeakReference<ClassLoader> ref =
+      new WeakReference<ClassLoader>(loader);
+    MemberTable.tables.get(c).clear();
+    loader = null;
+    c = null;
+    for (int i=0; i<20 && ref.get()!=null; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertNull(ref.get());
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.gatech.cc.jcrasher.types;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import edu.gatech.cc.jcrasher.Constants.Visibility;
+
+/**
+ * Tests edu.gatech.cc.jcrasher.types.SubtypeIndex
+ * 
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class SubtypeIndexTest extends TestCase {
+
+  protected TypeGraphImpl typeGraph = null;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    typeGraph = new TypeGraphImpl();
+    Set<Class<?>> classes = new HashSet<Class<?>>();
+    classes.add(Hierarchy.Bottom.class);
+    typeGraph.crawl(classes, Visibility.GLOBAL);
+  }
+
+  /**
+   * Direct children only record one level of the hierarchy.
+   */
+  public void testDirectChildren() {
+    List<?> children = typeGraph.getWrapper(Hierarchy.Top.class).getChildren();
+    assertEquals(1, children.size());
+    assertEquals(Hierarchy.Middle.class, children.get(0));
+  }
+
+  /***/
+  public void testGetSubtypesTransitive() {
+    List<Class<? extends Hierarchy.Top>> subtypes =
+      typeGraph.getSubtypes(Hierarchy.Top.class);
+    assertEquals(2, subtypes.size());
+    assertTrue(subtypes.contains(Hierarchy.Middle.class));
+    assertTrue(subtypes.contains(Hierarchy.Bottom.class));
+  }
+
+  /***/
+  public void testGetSubtypesLeaf() {
+    assertTrue(typeGraph.getSubtypes(Hierarchy.Bottom.class).isEmpty());
+  }
+
+  /***/
+  public void testGetSubtypesCached() {
+    assertSame(
+        typeGraph.getSubtypes(Hierarchy.Top.class),
+        typeGraph.getSubtypes(Hierarchy.Top.class));
+  }
+
+  /***/
+  public void testIsSubtype() {
+    SubtypeIndex index = typeGraph.subtypeIndex;
+    assertNotNull(index);
+    assertTrue(index.isSubtype(Hierarchy.Bottom.class, Hierarchy.Top.class));
+    assertFalse(index.isSubtype(Hierarchy.Top.class, Hierarchy.Bottom.class));
+    assertFalse(index.isSubtype(Hierarchy.Top.class, Hierarchy.Top.class));
+  }
+
+  /**
+   * Types created after the crawl are not indexed.
+   */
+  public void testGetSubtypesNotIndexed() {
+    assertEquals(-1, typeGraph.subtypeIndex.getId(Runnable.class));
+    assertTrue(typeGraph.getSubtypes(Runnable.class).isEmpty());
+  }
+}
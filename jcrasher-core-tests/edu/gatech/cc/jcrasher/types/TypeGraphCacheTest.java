@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.gatech.cc.jcrasher.types;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import edu.gatech.cc.jcrasher.Constants.Visibility;
+
+/**
+ * Tests edu.gatech.cc.jcrasher.types.TypeGraphCache
+ * 
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class TypeGraphCacheTest extends TestCase {
+
+  protected File file = null;
+  protected Set<Class<?>> classes = new HashSet<Class<?>>();
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    file = File.createTempFile("jcrasher", ".cache");
+    file.delete();
+    classes.add(Hierarchy.Bottom.class);
+
+    TypeGraphImpl typeGraph = new TypeGraphImpl();
+    typeGraph.crawl(classes, Visibility.GLOBAL);
+    new TypeGraphCache(file).save(typeGraph, Visibility.GLOBAL);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    file.delete();
+    super.tearDown();
+  }
+
+  /***/
+  public void testLoadRestoresSearchedTypes() {
+    TypeGraphImpl typeGraph = new TypeGraphImpl();
+    assertTrue(new TypeGraphCache(file).load(typeGraph, Visibility.GLOBAL) > 0);
+
+    ClassWrapperImpl<?> top =
+      (ClassWrapperImpl<?>) typeGraph.getWrapper(Hierarchy.Top.class);
+    assertTrue(top.isSearched());
+    assertEquals(1, top.getChildren().size());
+  }
+
+  /***/
+  public void testCrawlAfterLoad() {
+    TypeGraphImpl typeGraph = new TypeGraphImpl();
+    new TypeGraphCache(file).load(typeGraph, Visibility.GLOBAL);
+    typeGraph.crawl(classes, Visibility.GLOBAL);
+    assertEquals(2, typeGraph.getSubtypes(Hierarchy.Top.class).size());
+    assertEquals(1,
+        typeGraph.getWrapper(Hierarchy.Bottom.class).getConstrs(
+            Visibility.GLOBAL).size());
+  }
+
+  /**
+   * Rules depend on visibility.
+   */
+  public void testLoadOtherVisibility() {
+    TypeGraphImpl typeGraph = new TypeGraphImpl();
+    assertEquals(0, new TypeGraphCache(file).load(typeGraph, Visibility.PACKAGE));
+  }
+
+  /**
+   * Never trust an entry whose class file we cannot read.
+   */
+  public void testLoadUnreadable() throws IOException {
+    TypeGraphCache cache = new TypeGraphCache(file) {
+      @Override
+      protected long hash(final Class<?> c) {
+        return 0;
+      }
+    };
+    TypeGraphImpl typeGraph = new TypeGraphImpl();
+    typeGraph.crawl(classes, Visibility.GLOBAL);
+    cache.save(typeGraph, Visibility.GLOBAL);
+
+    typeGraph = new TypeGraphImpl();
+    assertEquals(0, cache.load(typeGraph, Visibility.GLOBAL));
+    assertFalse(((ClassWrapperImpl<?>) typeGraph.getWrapper(
+        Hierarchy.Top.class)).isSearched());
+  }
+}
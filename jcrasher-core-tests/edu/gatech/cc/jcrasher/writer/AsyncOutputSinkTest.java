@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2007 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.gatech.cc.jcrasher.writer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests edu.gatech.cc.jcrasher.writer.AsyncOutputSink
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class AsyncOutputSinkTest extends TestCase {
+
+  protected File root = null;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    root = File.createTempFile("jcrasher", ".out");
+    root.delete();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    delete(root);
+    super.tearDown();
+  }
+
+
+  protected static void delete(final File file) {
+    final File[] children = file.listFiles();
+    if (children != null) {
+      for (File child: children) {
+        delete(child);
+      }
+    }
+    file.delete();
+  }
+
+  protected static String read(final File file) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final InputStream in = new FileInputStream(file);
+    try {
+      final byte[] buffer = new byte[4096];
+      for (int n=in.read(buffer); n>=0; n=in.read(buffer)) {
+        out.write(buffer, 0, n);
+      }
+    }
+    finally {
+      in.close();
+    }
+    return new String(out.toByteArray(), "UTF-8");
+  }
+
+
+  /***/
+  public void testWritesAll() throws IOException {
+    final int n = 200;
+    final OutputSink sink = new AsyncOutputSink(new FileOutputSink(), 2, 4);
+    for (int i=0; i<n; i++) {
+      sink.write(new File(root, "p" + (i%7) + "/q/T" + i + ".java"),
+          "class T" + i + " {} // \u00e9\u4e2d");
+    }
+    sink.close();
+
+    for (int i=0; i<n; i++) {
+      assertEquals("class T" + i + " {} // \u00e9\u4e2d",
+          read(new File(root, "p" + (i%7) + "/q/T" + i + ".java")));
+    }
+  }
+
+
+  /**
+   * A directory deleted after its first file gets created again.
+   */
+  public void testDeletedDir() throws IOException {
+    final OutputSink target = new FileOutputSink();
+    target.write(new File(root, "p/T1.java"), "class T1 {}");
+    delete(new File(root, "p"));
+    target.write(new File(root, "p/T2.java"), "class T2 {}");
+    assertEquals("class T2 {}", read(new File(root, "p/T2.java")));
+  }
+
+
+  /***/
+  public void testReportsFailure() throws IOException {
+    final OutputSink target = new FileOutputSink();
+    target.write(new File(root, "F"), "");   //regular file.
+
+    final OutputSink sink = new AsyncOutputSink(target, 1, 4);
+    sink.write(new File(root, "F/T.java"), "class T {}");
+    try {
+      sink.close();
+      fail();
+    }
+    catch (IOException e) {
+      /* Expected */
+    }
+  }
+
+
+  /**
+   * Target that fails on each write with an error.
+   */
+  protected static class ErrorSink implements OutputSink {
+    public void write(File file, String content) {
+      throw new AssertionError("disk gone");
+    }
+    public void write(File file, byte[] content) {
+      throw new AssertionError("disk gone");
+    }
+    public void close() {
+      /* Empty */
+    }
+  }
+
+
+  /***/
+  public void testReportsError() throws IOException {
+    final OutputSink sink = new AsyncOutputSink(new ErrorSink(), 1, 4);
+    sink.write(new File(root, "T.java"), "class T {}");
+    try {
+      sink.close();
+      fail();
+    }
+    catch (IOException e) {
+      assertTrue(e.getCause() instanceof AssertionError);
+    }
+  }
+
+
+  /***/
+  public void testDeadWriter() throws Exception {
+    final AsyncOutputSink sink =
+      new AsyncOutputSink(new FileOutputSink(), 1, 1);
+    sink.threads[0].interrupt();
+    sink.threads[0].join();
+
+    sink.write(new File(root, "T0.java"), "class T0 {}");  //fills the queue.
+    try {
+      sink.write(new File(root, "T1.java"), "class T1 {}");
+      fail();
+    }
+    catch (IOException e) {
+      /* Expected */
+    }
+    try {
+      sink.close();
+      fail();
+    }
+    catch (IOException e) {
+      /* Expected */
+    }
+    assertFalse(new File(root, "T0.java").exists());
+  }
+}
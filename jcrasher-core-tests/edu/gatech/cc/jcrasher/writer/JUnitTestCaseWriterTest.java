@@ -438,4 +438,15 @@ public class JUnitTestCaseWriterTest extends TestCase {
                 blocks2[1].text()+             											NL,
         junitTestCaseWriter.getTestCases());        
   }
+  
+  
+  /**
+   * Blocks render into the given buffer what they return as text.
+   */
+  public void testRenderAppends() throws java.io.IOException {
+    final StringBuilder sb = new StringBuilder("x");
+    blocks2[0].render(sb);
+    blocks2[1].render(sb);
+    assertEquals("x" + blocks2[0].text() + blocks2[1].text(), sb.toString());
+  }
 }
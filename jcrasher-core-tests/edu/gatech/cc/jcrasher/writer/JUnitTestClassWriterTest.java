@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2007 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.gatech.cc.jcrasher.writer;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.math.BigInteger;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestFailure;
+import junit.framework.TestResult;
+import client.sub.Loadee;
+import edu.gatech.cc.jcrasher.RunConfig;
+import edu.gatech.cc.jcrasher.Constants.Visibility;
+import edu.gatech.cc.jcrasher.planner.ClassUnderTest;
+import edu.gatech.cc.jcrasher.planner.CutPlannerImpl;
+import edu.gatech.cc.jcrasher.plans.stmt.Block;
+import edu.gatech.cc.jcrasher.plans.stmt.BlockStatement;
+import edu.gatech.cc.jcrasher.types.TypeGraphImpl;
+
+/**
+ * Tests edu.gatech.cc.jcrasher.writer.JUnitTestClassWriter
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class JUnitTestClassWriterTest extends TestCase {
+
+  protected File root = null;
+  protected CutPlannerImpl planner = null;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    root = File.createTempFile("jcrasher", ".out");
+    root.delete();
+
+    final Set<Class<?>> classes = new HashSet<Class<?>>();
+    classes.add(Loadee.class);
+    classes.add(Loadee.Inner.class);
+    final TypeGraphImpl typeGraph = new TypeGraphImpl();
+    typeGraph.crawl(classes, Visibility.GLOBAL);
+    planner = new CutPlannerImpl(typeGraph, RunConfig.DEFAULT);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    AsyncOutputSinkTest.delete(root);
+    super.tearDown();
+  }
+
+
+  protected Block<?>[] plan(final Class<?> c) {
+    final ClassUnderTest<?> classNode = planner.getPlanSpace(c);
+    final Block<?>[] res = new Block[Math.min(50,
+        classNode.getPlanSpaceSize().intValue())];
+    for (int i=0; i<res.length; i++) {
+      res[i] = classNode.getBlock(BigInteger.valueOf(i));
+    }
+    return res;
+  }
+
+  protected <T> Class<?> write(
+      final Class<T> testee,
+      final Block<?>[] blocks,
+      boolean withSource) throws Exception
+  {
+    final File written = new JUnitTestClassWriter<T>(testee, "", false,
+        blocks, 1, null, 0, root, new FileOutputSink(), withSource).write();
+    assertTrue(written.getName().endsWith("Test1.class"));
+    assertEquals(withSource, new File(written.getParentFile(),
+        written.getName().replace(".class", ".java")).exists());
+
+    final ClassLoader loader = new URLClassLoader(
+        new URL[]{root.toURI().toURL()}, getClass().getClassLoader());
+    return loader.loadClass(testee.getPackage().getName() + "."
+        + testee.getSimpleName() + "Test1");
+  }
+
+  /**
+   * @return what executing block throws, null if nothing.
+   */
+  protected Class<?> getThrown(final Block<?> block) {
+    try {
+      block.execute();
+      return null;
+    }
+    catch (InvocationTargetException e) {
+      return e.getCause().getClass();
+    }
+    catch (Exception e) {
+      return e.getClass();
+    }
+  }
+
+  /**
+   * @return statement of block that throws, null if none.
+   */
+  protected BlockStatement<?> getThrowing(final Block<?> block) {
+    for (BlockStatement<?> stmt: block.getBlockStmts()) {
+      try {
+        stmt.execute();
+      }
+      catch (Exception e) {
+        return stmt;
+      }
+    }
+    return null;
+  }
+
+  protected TestResult run(final Class<?> testClass, int i) throws Exception {
+    final TestCase test = (TestCase) testClass
+      .getConstructor(new Class[]{String.class}).newInstance("test" + i);
+    return test.run();
+  }
+
+
+  /**
+   * Each generated test method does what its block does.
+   */
+  public void testSameOutcome() throws Exception {
+    for (Class<?> testee: new Class[]{Loadee.class, Loadee.Inner.class}) {
+      final Block<?>[] blocks = plan(testee);
+      final Class<?> testClass = write(testee, blocks, false);
+      assertEquals(blocks.length, ((Test) testClass.getMethod("suite")
+          .invoke(null)).countTestCases());
+
+      for (int i=0; i<blocks.length; i++) {
+        final Class<?> thrown = getThrown(blocks[i]);
+        final TestResult result = run(testClass, i);
+        assertEquals(0, result.failureCount());
+        if (thrown == null) {
+          assertEquals(blocks[i].text(), 0, result.errorCount());
+        }
+        else {
+          assertEquals(blocks[i].text(), 1, result.errorCount());
+          assertSame(thrown, ((TestFailure) result.errors().nextElement())
+              .thrownException().getClass());
+        }
+      }
+    }
+  }
+
+
+  /**
+   * A crash points to the line of the crashing statement in the source.
+   */
+  public void testLineNumbers() throws Exception {
+    final Block<?>[] blocks = plan(Loadee.class);
+    final Class<?> testClass = write(Loadee.class, blocks, true);
+    final String[] lines = AsyncOutputSinkTest.read(new File(
+        root, "client/sub/LoadeeTest1.java")).split("\n");
+
+    int nrCrashes = 0;
+    for (int i=0; i<blocks.length; i++) {
+      final TestResult result = run(testClass, i);
+      if (result.errorCount() == 0) {
+        continue;
+      }
+      nrCrashes += 1;
+      final Throwable thrown =
+        ((TestFailure) result.errors().nextElement()).thrownException();
+      int line = -1;
+      for (StackTraceElement frame: thrown.getStackTrace()) {
+        if (frame.getClassName().equals(testClass.getName())) {
+          assertEquals("test" + i, frame.getMethodName());
+          assertEquals("LoadeeTest1.java", frame.getFileName());
+          line = frame.getLineNumber();
+          break;
+        }
+      }
+      assertEquals(getThrowing(blocks[i]).text(), lines[line-1].trim());
+    }
+    assertTrue(nrCrashes > 0);
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2007 Google Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0 
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.gatech.cc.jcrasher.writer;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import edu.gatech.cc.jcrasher.Constants.Visibility;
+import edu.gatech.cc.jcrasher.RunConfig;
+import edu.gatech.cc.jcrasher.planner.ClassUnderTest;
+import edu.gatech.cc.jcrasher.planner.CutPlannerImpl;
+import edu.gatech.cc.jcrasher.plans.stmt.Block;
+import edu.gatech.cc.jcrasher.types.TypeGraphImpl;
+
+/**
+ * Compares the bytes allocated per rendered test case when appending each
+ * block's text to the file buffer with rendering each block into the
+ * buffer, for test cases planned for a few library classes.
+ * 
+ * <p>
+ * Run via main; not part of the test suite. Needs a JVM that measures
+ * allocation per thread.
+ * 
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class RenderBenchmark {
+
+  protected static final Class<?>[] classes = new Class[]{
+    java.util.ArrayList.class,
+    java.util.HashMap.class,
+    java.lang.StringBuilder.class,
+    java.math.BigInteger.class,
+    java.io.File.class
+  };
+
+  /**
+   * Maximum number of test cases we plan per class.
+   */
+  protected static final int BLOCKS_PER_CLASS = 200;
+
+  protected static Block<?>[] plan() {
+    final Set<Class<?>> crawl = new HashSet<Class<?>>();
+    for (Class<?> c: classes) {
+      crawl.add(c);
+    }
+    final TypeGraphImpl typeGraph = new TypeGraphImpl();
+    typeGraph.crawl(crawl, Visibility.GLOBAL);
+    final CutPlannerImpl planner =
+      new CutPlannerImpl(typeGraph, RunConfig.DEFAULT);
+
+    final List<Block<?>> res = new ArrayList<Block<?>>();
+    for (Class<?> c: classes) {
+      final ClassUnderTest<?> classNode = planner.getPlanSpace(c);
+      final int size = (int) Math.min(BLOCKS_PER_CLASS,
+          classNode.getPlanSpaceSize().longValue());
+      for (int i=0; i<size; i++) {
+        res.add(classNode.getBlock(BigInteger.valueOf(i)));
+      }
+    }
+    return res.toArray(new Block[res.size()]);
+  }
+
+  protected static long allocated() {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory
+        .getThreadMXBean()).getThreadAllocatedBytes(
+            Thread.currentThread().getId());
+  }
+
+  /**
+   * @return bytes allocated per block.
+   */
+  protected static long measure(
+      final Block<?>[] blocks, boolean render, int rounds)
+  throws IOException
+  {
+    final StringBuilder sb = new StringBuilder(1 << 20);
+    int check = 0;
+    final long start = allocated();
+    for (int r=0; r<rounds; r++) {
+      for (Block<?> block: blocks) {
+        sb.setLength(0);
+        if (render) {
+          block.render(sb);
+        }
+        else {
+          sb.append(block.text());
+        }
+        check += sb.length();
+      }
+    }
+    final long res = (allocated() - start) / ((long) rounds * blocks.length);
+    if (check == 42) {  // keep JIT from dropping the loop.
+      System.out.print("");
+    }
+    return res;
+  }
+
+  /**
+   * @param args [rounds]
+   */
+  public static void main(String[] args) throws IOException {
+    final int rounds = (args.length > 0)? Integer.parseInt(args[0]) : 50;
+    final Block<?>[] blocks = plan();
+    measure(blocks, false, rounds);  // warm up
+    measure(blocks, true, rounds);
+    System.out.println(blocks.length + " test cases");
+    System.out.println("text:   " + measure(blocks, false, rounds)
+        + " bytes per test case");
+    System.out.println("render: " + measure(blocks, true, rounds)
+        + " bytes per test case");
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2007 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.gatech.cc.jcrasher.writer;
+
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+import edu.gatech.cc.jcrasher.TestTimings;
+
+/**
+ * Tests edu.gatech.cc.jcrasher.writer.ShardedJUnitAll
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class ShardedJUnitAllTest extends TestCase {
+
+  protected final File root = new File("out" + File.separator + "tests");
+
+  protected MemoryOutputSink sink = null;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    sink = new MemoryOutputSink();
+  }
+
+
+  protected String read(final String name) {
+    final String res = sink.getSources().get(new File(root, name));
+    assertNotNull(name, res);
+    return res;
+  }
+
+
+  /**
+   * Largest first onto the cheapest shard: {7}, {5, 1}, {4, 3}.
+   */
+  public void testBalanceTests() {
+    final ShardedJUnitAll all =
+      new ShardedJUnitAll(sink, 3, new TestTimings());
+    all.create(root.getPath());
+    all.addTestSuite("p.ATest", 1);
+    all.addTestSuite("p.BTest", 5);
+    all.addTestSuite("p.CTest", 7);
+    all.addTestSuite("p.DTest", 3);
+    all.addTestSuite("p.ETest", 4);
+    all.finish();
+
+    assertEquals(5, sink.getSources().size());
+    assertTrue(read("JUnitAll_1.java").contains("class JUnitAll_1 "));
+    assertTrue(read("JUnitAll_1.java").contains("p.CTest.class"));
+    assertTrue(read("JUnitAll_2.java").contains("p.BTest.class"));
+    assertTrue(read("JUnitAll_2.java").contains("p.ATest.class"));
+    assertTrue(read("JUnitAll_3.java").contains("p.ETest.class"));
+    assertTrue(read("JUnitAll_3.java").contains("p.DTest.class"));
+
+    final String junitAll = read("JUnitAll.java");
+    for (int k=1; k<=3; k++) {
+      assertTrue(junitAll.contains("suite.addTest(JUnitAll_" + k + ".suite());"));
+    }
+    assertFalse(junitAll.contains("p.ATest"));
+
+    final String[] lines = read(ShardedJUnitAll.MANIFEST).split("\n");
+    assertEquals(4, lines.length);
+    assertEquals("JUnitAll_1\t7\tp.CTest", lines[1].trim());
+    assertEquals("JUnitAll_2\t6\tp.ATest p.BTest", lines[2].trim());
+    assertEquals("JUnitAll_3\t7\tp.DTest p.ETest", lines[3].trim());
+  }
+
+
+  /**
+   * Slow ATest gets a shard of its own, the untimed CTest costs the
+   * average: 100, 10, 40. Counting tests would pair ATest with CTest.
+   */
+  public void testBalanceTimings() {
+    final TestTimings timings = new TestTimings();
+    timings.add("p.ATest", 1, 100);
+    timings.add("p.BTest", 10, 10);
+    final ShardedJUnitAll all = new ShardedJUnitAll(sink, 2, timings);
+    all.create(root.getPath());
+    all.addTestSuite("p.ATest", 1);
+    all.addTestSuite("p.BTest", 10);
+    all.addTestSuite("p.CTest", 4);
+    all.finish();
+
+    final String[] lines = read(ShardedJUnitAll.MANIFEST).split("\n");
+    assertEquals("JUnitAll_1\t100.0\tp.ATest", lines[1].trim());
+    assertEquals("JUnitAll_2\t50.0\tp.BTest p.CTest", lines[2].trim());
+  }
+
+
+  /***/
+  public void testTimingsRoundTrip() throws IOException {
+    final TestTimings timings = new TestTimings();
+    timings.add("p.ATest", 2, 3.5);
+    timings.add("p.ATest", 2, 0.5);
+    timings.add("p.BTest", 0, 0);
+    final File file = File.createTempFile("jcrasher", ".timings");
+    try {
+      timings.write(file);
+      final TestTimings read = TestTimings.read(file);
+      assertEquals(2, read.size());
+      assertEquals(1.0, read.getMillisPerTest("p.ATest"), 1e-9);
+      assertTrue(read.getMillisPerTest("p.BTest") < 0);
+      assertTrue(read.getMillisPerTest("p.CTest") < 0);
+      assertEquals(1.0, read.getMillisPerTest(), 1e-9);
+    }
+    finally {
+      file.delete();
+    }
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2007 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.gatech.cc.jcrasher.writer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests edu.gatech.cc.jcrasher.writer.ZipOutputSink
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class ZipOutputSinkTest extends TestCase {
+
+  protected File archive = null;
+
+  /**
+   * Need not exist.
+   */
+  protected final File root = new File("out" + File.separator + "tests");
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    archive = File.createTempFile("jcrasher", ".zip");
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    archive.delete();
+    super.tearDown();
+  }
+
+
+  protected static byte[] read(final ZipFile zip, final String name)
+  throws IOException
+  {
+    final ZipEntry entry = zip.getEntry(name);
+    assertNotNull(name, entry);
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final InputStream in = zip.getInputStream(entry);
+    try {
+      final byte[] buffer = new byte[4096];
+      for (int n=in.read(buffer); n>=0; n=in.read(buffer)) {
+        out.write(buffer, 0, n);
+      }
+    }
+    finally {
+      in.close();
+    }
+    return out.toByteArray();
+  }
+
+
+  /***/
+  public void testWritesAll() throws IOException {
+    final int n = 100;
+    final OutputSink sink = new ZipOutputSink(archive, root, 9, false);
+    for (int i=0; i<n; i++) {
+      sink.write(new File(root, "p" + (i%7) + "/q/T" + i + ".java"),
+          "class T" + i + " {} // \u00e9\u4e2d");
+    }
+    sink.write(new File(root, "JUnitAll.java"), "class JUnitAll {}");
+    sink.write(new File(root, "p/C.class"), new byte[]{(byte) 0xCA, 0, 7});
+    sink.close();
+
+    final ZipFile zip = new ZipFile(archive);
+    assertEquals(n+2, zip.size());
+    for (int i=0; i<n; i++) {
+      assertEquals("class T" + i + " {} // \u00e9\u4e2d", new String(
+          read(zip, "p" + (i%7) + "/q/T" + i + ".java"), "UTF-8"));
+    }
+    assertEquals("class JUnitAll {}",
+        new String(read(zip, "JUnitAll.java"), "UTF-8"));
+    assertEquals(3, read(zip, "p/C.class").length);
+    zip.close();
+    assertFalse(root.exists());
+  }
+
+
+  /***/
+  public void testJar() throws IOException {
+    final OutputSink sink = new ZipOutputSink(archive, root, 0, true);
+    sink.write(new File(root, "p/T.java"), "class T {}");
+    sink.close();
+
+    final JarFile jar = new JarFile(archive);
+    assertNotNull(jar.getManifest());
+    assertEquals("class T {}", new String(read(jar, "p/T.java"), "UTF-8"));
+    jar.close();
+  }
+
+
+  /***/
+  public void testRejectOutsideRoot() throws IOException {
+    final OutputSink sink = new ZipOutputSink(archive, root, -1, false);
+    try {
+      sink.write(new File(root, "../T.java"), "class T {}");
+      fail();
+    }
+    catch (IOException e) {
+      /* Expected */
+    }
+    finally {
+      sink.close();
+    }
+  }
+}
@@ -5,13 +5,10 @@
  */
 package edu.gatech.cc.jcrasher;
 
-import java.io.File;
-
 /**
  * Project-wide constants.
  * 
- * ALL_CAP members may only be set during application setup.
- * They are user-defined constants.
+ * User-defined settings of a run are in RunConfig.
  * 
  * @author csallner@gatech.edu (Christoph Csallner)
  */
@@ -62,34 +59,6 @@ public abstract class Constants {
   }
 
   
-  /**
-   * Maximum number of test cases tried per testee class.
-   * This is a soft limit, MAX_NR_TEST_CLASSES is more important.
-   */
-  public static int MAX_TEST_CASES_TRIED_CLASS = 1000; 
-  
-	/**
-	 * How many test classes should be generated max?
-   * Default set to 200 to enable fast compiling.
-   * This will result in 100,000 test cases (given the
-   * default setting of 500 test cases per test class).
-   * The original JCrasher paper talked about two million.
-   * You can overwrite this setting with --files.
-	 */
-  public static int MAX_NR_TEST_CLASSES = 200;
-  
-	/**
-	 * How many test methods per generated test class:
-	 * 1000 and junitMultiCL will generate OutOfMemoryError
-	 */
-  public static int MAX_NR_TEST_METHS_PER_CLASS = 500;
-  
-  /**
-   * How much internal state shown to user.  
-   */
-  public static Verbose VERBOSE_LEVEL = Verbose.DEFAULT;
-
-
   /**
    * Library packages
    */
@@ -109,22 +78,6 @@ public abstract class Constants {
    */
   public final static int MAX_PLAN_RECURSION_DEFAULT = 3;
 
-  /**
-   * To be exclusively set at-most-once by JCrasher on startup: 
-   * TO BE USED AS A CONSTANT
-   */
-  public static int MAX_PLAN_RECURSION = 3;
-  
-  /**
-   * Make JUnit test cases subclass FilteringTestCase.
-   */
-  public static boolean JUNIT_FILTERING = false;
-
-  /**
-   * Include null literals in preset values.
-   */
-  public static boolean SUPPRESS_NULL_LITERALS = false;  
-  
   /**
    * Line separator
    */
@@ -145,21 +98,6 @@ public abstract class Constants {
    */
   public final static String TAB = "  ";
 
-  /**
-   * Directory in which to write generated test cases.
-   */
-  public static File OUT_DIR = null;
-  
-  /**
-   * Minimum visibility of tested methods.
-   */
-  public static Visibility VIS_TESTED = Visibility.GLOBAL;
-  
-  /**
-   * Minimum visibility of methods used to construct parameters.
-   */  
-  public static Visibility VIS_USED = Visibility.GLOBAL;
-  
 
   /**
    * @return null is included by this filter
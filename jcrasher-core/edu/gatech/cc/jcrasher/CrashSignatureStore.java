@@ -0,0 +1,422 @@
+/*
+ * CrashSignatureStore.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher;
+
+import static edu.gatech.cc.jcrasher.Assertions.check;
+import static edu.gatech.cc.jcrasher.Assertions.notNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+
+/**
+ * Crash signatures found by earlier runs, with the time each was first and
+ * last seen, in a file that survives the run.
+ *
+ * <p>
+ * A signature is the thrown class and the top testee frames, as text, see
+ * getKey. We keep a 64 bit hash of the text only. The file is a log we only
+ * ever append to, one record per signature and time it was seen at. Next to
+ * it, in file.index, we keep an open addressing hash table of fixed size
+ * slots that we memory-map, so that a lookup touches one or a few slots,
+ * however many signatures we store. The index only summarizes the log, so
+ * we rebuild it from the log whenever it is missing, stale, or was being
+ * rebuilt when a run died. We rebuild it at twice the size when it is half
+ * full. Two signatures may share a hash, which at a million signatures
+ * happens with a chance of about one in 30 million.
+ *
+ * <p>
+ * One run at a time may open a store, so we lock the log while open. A
+ * signature is known if a run before the current one found it, see
+ * isKnown, so that a run does not hide what it found itself.
+ *
+ * <p>
+ * Log header: magic, version, each an int. Log record: hash, time seen,
+ * each a long. Index header: magic, version, capacity, size, each an int,
+ * then the length of the log the index covers, a long, negative while we
+ * rebuild. Index slot: hash, first seen, last seen, each a long, hash zero
+ * for an empty slot.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class CrashSignatureStore {
+
+  protected static final int MAGIC = 0x4A43534C;        //JCSL
+  protected static final int INDEX_MAGIC = 0x4A435349;  //JCSI
+  protected static final int VERSION = 2;
+  protected static final int HEADER_SIZE = 8;
+  protected static final int RECORD_SIZE = 16;
+  protected static final int INDEX_HEADER_SIZE = 24;
+  protected static final int SLOT_SIZE = 24;
+  protected static final int MIN_CAPACITY = 1024;
+
+  protected final RandomAccessFile file;
+  protected final FileChannel channel;
+  protected final FileLock lock;
+  protected final RandomAccessFile indexFile;
+  protected final FileChannel indexChannel;
+  protected MappedByteBuffer buffer;
+
+  /**
+   * Time in ms the current run started.
+   */
+  protected final long runStart;
+
+  /**
+   * Number of log bytes, up to the last complete record.
+   */
+  protected long logLength;
+
+  /**
+   * Number of slots, a power of two.
+   */
+  protected int capacity;
+  protected int size;
+
+
+  /**
+   * Constructor, creates file if it does not exist yet. The current run
+   * starts now.
+   */
+  public CrashSignatureStore(final File file) throws IOException {
+    this(file, -1);
+  }
+
+  /**
+   * Constructor, creates file if it does not exist yet.
+   *
+   * @param runStart time in ms the current run started, negative for now.
+   * @throws IOException if file is no store or another run has it open.
+   */
+  public CrashSignatureStore(final File file, long runStart)
+  throws IOException
+  {
+    notNull(file);
+    this.runStart = (runStart < 0)? System.currentTimeMillis() : runStart;
+
+    this.file = new RandomAccessFile(file, "rw");
+    this.channel = this.file.getChannel();
+    FileLock locked = null;
+    try {
+      locked = channel.tryLock();
+    }
+    catch (OverlappingFileLockException e) {  //open in this JVM.
+      locked = null;
+    }
+    this.lock = locked;
+    if (lock == null) {
+      this.file.close();
+      throw new IOException("Crash signature store in use: " + file);
+    }
+
+    if (channel.size() == 0) {
+      final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      header.putInt(MAGIC).putInt(VERSION).flip();
+      write(header, 0);
+    }
+    final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    if (channel.read(header, 0) != HEADER_SIZE
+        || header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+    {
+      lock.release();
+      this.file.close();
+      throw new IOException("Not a crash signature store: " + file);
+    }
+    logLength = channel.size()
+      - (channel.size() - HEADER_SIZE) % RECORD_SIZE;  //drop a torn record.
+    channel.truncate(logLength);
+
+    this.indexFile = new RandomAccessFile(file.getPath() + ".index", "rw");
+    this.indexChannel = indexFile.getChannel();
+    openIndex();
+  }
+
+
+  /**
+   * @return text of a signature: "C at a.B.m:12 < a.B.n:20".
+   */
+  public static String getKey(final String className, final String[] frames) {
+    notNull(className);
+    notNull(frames);
+
+    final StringBuilder sb = new StringBuilder(className);
+    for (int i=0; i<frames.length; i++) {
+      sb.append((i==0)? " at " : " < ").append(frames[i]);
+    }
+    return sb.toString();
+  }
+
+
+  /**
+   * @return 64 bit FNV-1a hash of key, never zero.
+   */
+  protected static long hash(final String key) {
+    long res = 0xcbf29ce484222325L;
+    for (int i=0; i<key.length(); i++) {
+      res ^= key.charAt(i);
+      res *= 0x100000001b3L;
+    }
+    return (res == 0)? 1 : res;
+  }
+
+
+  /**
+   * Maps an existing index that covers a prefix of the log and adds the
+   * rest of the log to it, otherwise rebuilds the index.
+   */
+  protected void openIndex() throws IOException {
+    if (indexChannel.size() >= INDEX_HEADER_SIZE) {
+      final MappedByteBuffer header = indexChannel.map(
+          FileChannel.MapMode.READ_ONLY, 0, INDEX_HEADER_SIZE);
+      final int capacity = header.getInt(8);
+      final long covered = header.getLong(16);
+      if (header.getInt(0) == INDEX_MAGIC && header.getInt(4) == VERSION
+          && capacity >= MIN_CAPACITY && Integer.bitCount(capacity) == 1
+          && indexChannel.size() >= INDEX_HEADER_SIZE + (long) capacity * SLOT_SIZE
+          && covered >= HEADER_SIZE && covered <= logLength)
+      {
+        map(capacity);
+        size = buffer.getInt(12);
+        if (covered < logLength) {  //last run died before updating the index.
+          markRebuilding();
+          size = countSlots();
+          if (!replay(covered)) {
+            rebuild(2 * capacity);
+            return;
+          }
+          markCovered();
+        }
+        return;
+      }
+    }
+    rebuild(MIN_CAPACITY);
+  }
+
+
+  /**
+   * Maps the index with capacity slots, growing the index file if needed.
+   */
+  protected void map(int capacity) throws IOException {
+    check(capacity > 0 && Integer.bitCount(capacity) == 1);
+
+    this.capacity = capacity;
+    buffer = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+        INDEX_HEADER_SIZE + (long) capacity * SLOT_SIZE);
+  }
+
+
+  /**
+   * Replaces the index by one of at least capacity slots, holding each
+   * record of the log.
+   */
+  protected void rebuild(int capacity) throws IOException {
+    while (true) {
+      map(capacity);
+      markRebuilding();
+      buffer.putInt(0, INDEX_MAGIC);
+      buffer.putInt(4, VERSION);
+      buffer.putInt(8, capacity);
+      for (int i=0; i<capacity; i++) {
+        buffer.putLong(INDEX_HEADER_SIZE + i * SLOT_SIZE, 0);
+      }
+      size = 0;
+      if (replay(HEADER_SIZE)) {
+        markCovered();
+        return;
+      }
+      capacity *= 2;
+    }
+  }
+
+
+  /**
+   * Adds the log records from offset on to the index.
+   *
+   * @return false if the index got more than half full meanwhile.
+   */
+  protected boolean replay(long offset) throws IOException {
+    if (offset >= logLength) {
+      return true;
+    }
+    final MappedByteBuffer log = channel.map(
+        FileChannel.MapMode.READ_ONLY, offset, logLength - offset);
+    for (int i=0; i<log.limit(); i+=RECORD_SIZE) {
+      put(log.getLong(i), log.getLong(i + 8));
+      if (2 * size > capacity) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+
+  /**
+   * @return number of non-empty slots.
+   */
+  protected int countSlots() {
+    int res = 0;
+    for (int i=0; i<capacity; i++) {
+      if (buffer.getLong(INDEX_HEADER_SIZE + i * SLOT_SIZE) != 0) {
+        res += 1;
+      }
+    }
+    return res;
+  }
+
+
+  /**
+   * Marks the index as unusable until markCovered.
+   */
+  protected void markRebuilding() {
+    buffer.putLong(16, -1);
+  }
+
+  /**
+   * Marks the index as covering the entire log.
+   */
+  protected void markCovered() {
+    buffer.putInt(12, size);
+    buffer.putLong(16, logLength);
+  }
+
+
+  /**
+   * @return offset of the slot holding hash, or of the empty slot where it
+   * would go.
+   */
+  protected int find(long hash) {
+    int slot = (int) (hash ^ (hash >>> 32)) & (capacity-1);
+    while (true) {
+      final int offset = INDEX_HEADER_SIZE + slot * SLOT_SIZE;
+      final long stored = buffer.getLong(offset);
+      if (stored == 0 || stored == hash) {
+        return offset;
+      }
+      slot = (slot+1) & (capacity-1);
+    }
+  }
+
+
+  /**
+   * Adds hash seen at time to the index.
+   */
+  protected void put(long hash, long time) {
+    final int offset = find(hash);
+    if (buffer.getLong(offset) == 0) {
+      buffer.putLong(offset, hash);
+      buffer.putLong(offset + 8, time);
+      buffer.putLong(offset + 16, time);
+      size += 1;
+      return;
+    }
+    buffer.putLong(offset + 8, Math.min(time, buffer.getLong(offset + 8)));
+    buffer.putLong(offset + 16, Math.max(time, buffer.getLong(offset + 16)));
+  }
+
+
+  protected void write(final ByteBuffer bytes, long position)
+  throws IOException
+  {
+    while (bytes.hasRemaining()) {
+      position += channel.write(bytes, position);
+    }
+  }
+
+
+  /**
+   * @return whether an earlier record call stored key.
+   */
+  public synchronized boolean contains(final String key) {
+    return buffer.getLong(find(hash(notNull(key)))) != 0;
+  }
+
+  /**
+   * @return whether a run before the current one recorded key.
+   */
+  public synchronized boolean isKnown(final String key) {
+    final long firstSeen = getFirstSeen(key);
+    return firstSeen >= 0 && firstSeen < runStart;
+  }
+
+  /**
+   * @return time in ms key was first recorded, -1 if never.
+   */
+  public synchronized long getFirstSeen(final String key) {
+    final int offset = find(hash(notNull(key)));
+    return (buffer.getLong(offset) == 0)? -1 : buffer.getLong(offset + 8);
+  }
+
+  /**
+   * @return time in ms key was last recorded, -1 if never.
+   */
+  public synchronized long getLastSeen(final String key) {
+    final int offset = find(hash(notNull(key)));
+    return (buffer.getLong(offset) == 0)? -1 : buffer.getLong(offset + 16);
+  }
+
+  /**
+   * @return number of signatures stored.
+   */
+  public synchronized int size() {
+    return size;
+  }
+
+
+  /**
+   * Stores key as seen at time now, first in the log, then in the index.
+   *
+   * @return whether key is new, i.e., not stored before.
+   */
+  public synchronized boolean record(final String key, long now)
+  throws IOException
+  {
+    final long hash = hash(notNull(key));
+    final int offset = find(hash);
+    final boolean isNew = (buffer.getLong(offset) == 0);
+    if (!isNew && now >= buffer.getLong(offset + 8)
+        && now <= buffer.getLong(offset + 16))
+    {
+      return false;  //changes neither time.
+    }
+
+    final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+    record.putLong(hash).putLong(now).flip();
+    write(record, logLength);
+    logLength += RECORD_SIZE;
+
+    put(hash, now);
+    markCovered();
+    if (2 * size > capacity) {
+      rebuild(2 * capacity);
+    }
+    return isNew;
+  }
+
+
+  /**
+   * Writes all changes to the files and releases them.
+   */
+  public synchronized void close() throws IOException {
+    try {
+      channel.force(false);
+      if (buffer != null) {
+        buffer.force();
+      }
+      lock.release();
+    }
+    finally {
+      indexChannel.close();
+      indexFile.close();
+      channel.close();
+      file.close();
+    }
+  }
+}
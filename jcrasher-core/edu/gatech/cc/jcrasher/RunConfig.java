@@ -0,0 +1,753 @@
+/*
+ * RunConfig.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher;
+
+import static edu.gatech.cc.jcrasher.Assertions.check;
+import static edu.gatech.cc.jcrasher.Assertions.notNull;
+
+import java.io.File;
+
+import edu.gatech.cc.jcrasher.Constants.PlanFilter;
+import edu.gatech.cc.jcrasher.Constants.Verbose;
+import edu.gatech.cc.jcrasher.Constants.Visibility;
+
+/**
+ * User-defined settings of one generation run.
+ *
+ * <p>
+ * Immutable, so that several runs with different settings can share a JVM.
+ * Create instances via a Builder, which starts from the default values.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class RunConfig {
+
+  /**
+   * Default settings.
+   */
+  public static final RunConfig DEFAULT = new Builder().build();
+
+
+  protected final int maxTestCasesTriedClass;
+  protected final int maxNrTestClasses;
+  protected final int maxNrTestMethsPerClass;
+  protected final Verbose verbose;
+  protected final int maxPlanRecursion;
+  protected final boolean junitFiltering;
+  protected final boolean suppressNullLiterals;
+  protected final File outDir;
+  protected final Visibility visTested;
+  protected final Visibility visUsed;
+  protected final File typeGraphCache;
+  protected final int nrThreads;
+  protected final long timeoutMillis;
+  protected final int nrForks;
+  protected final int forkRecycle;
+  protected final boolean sharePrefixes;
+  protected final int maxCrashesPerSignature;
+  protected final int signatureDepth;
+  protected final boolean adaptiveSampling;
+  protected final boolean coverageGuided;
+  protected final int valuePoolSize;
+  protected final long slowMillis;
+  protected final File quarantineFile;
+  protected final long minimizeMillis;
+  protected final boolean reduceSuite;
+  protected final boolean isolateStatics;
+  protected final File knownFile;
+  protected final long startMillis;
+  protected final boolean emitClassFiles;
+  protected final boolean withSources;
+  protected final boolean pipeline;
+  protected final boolean reinit;
+  protected final File outArchive;
+  protected final boolean outJar;
+  protected final int archiveLevel;
+  protected final int nrShards;
+  protected final File timingsFile;
+
+
+  /**
+   * Constructor, via Builder only.
+   */
+  protected RunConfig(final Builder b) {
+    maxTestCasesTriedClass = b.maxTestCasesTriedClass;
+    maxNrTestClasses = b.maxNrTestClasses;
+    maxNrTestMethsPerClass = b.maxNrTestMethsPerClass;
+    verbose = b.verbose;
+    maxPlanRecursion = b.maxPlanRecursion;
+    junitFiltering = b.junitFiltering;
+    suppressNullLiterals = b.suppressNullLiterals;
+    outDir = b.outDir;
+    visTested = b.visTested;
+    visUsed = b.visUsed;
+    typeGraphCache = b.typeGraphCache;
+    nrThreads = b.nrThreads;
+    timeoutMillis = b.timeoutMillis;
+    nrForks = b.nrForks;
+    forkRecycle = b.forkRecycle;
+    sharePrefixes = b.sharePrefixes;
+    maxCrashesPerSignature = b.maxCrashesPerSignature;
+    signatureDepth = b.signatureDepth;
+    adaptiveSampling = b.adaptiveSampling;
+    coverageGuided = b.coverageGuided;
+    valuePoolSize = b.valuePoolSize;
+    slowMillis = b.slowMillis;
+    quarantineFile = b.quarantineFile;
+    minimizeMillis = b.minimizeMillis;
+    reduceSuite = b.reduceSuite;
+    isolateStatics = b.isolateStatics;
+    knownFile = b.knownFile;
+    startMillis = b.startMillis;
+    emitClassFiles = b.emitClassFiles;
+    withSources = b.withSources;
+    pipeline = b.pipeline;
+    reinit = b.reinit;
+    outArchive = b.outArchive;
+    outJar = b.outJar;
+    archiveLevel = b.archiveLevel;
+    nrShards = b.nrShards;
+    timingsFile = b.timingsFile;
+  }
+
+
+  /**
+   * Maximum number of test cases tried per testee class.
+   * This is a soft limit, getMaxNrTestClasses is more important.
+   */
+  public int getMaxTestCasesTriedClass() {
+    return maxTestCasesTriedClass;
+  }
+
+  /**
+   * How many test classes should be generated max?
+   * Default set to 200 to enable fast compiling.
+   * This will result in 100,000 test cases (given the
+   * default setting of 500 test cases per test class).
+   * The original JCrasher paper talked about two million.
+   */
+  public int getMaxNrTestClasses() {
+    return maxNrTestClasses;
+  }
+
+  /**
+   * How many test methods per generated test class:
+   * 1000 and junitMultiCL will generate OutOfMemoryError
+   */
+  public int getMaxNrTestMethsPerClass() {
+    return maxNrTestMethsPerClass;
+  }
+
+  /**
+   * How much internal state shown to user.
+   */
+  public Verbose getVerbose() {
+    return verbose;
+  }
+
+  /**
+   * How deep to search/ plan for each type?
+   */
+  public int getMaxPlanRecursion() {
+    return maxPlanRecursion;
+  }
+
+  /**
+   * Make JUnit test cases subclass FilteringTestCase.
+   */
+  public boolean isJunitFiltering() {
+    return junitFiltering;
+  }
+
+  /**
+   * Exclude null literals from preset values.
+   */
+  public boolean isSuppressNullLiterals() {
+    return suppressNullLiterals;
+  }
+
+  /**
+   * @return filter for the plans of the methods under test.
+   */
+  public PlanFilter getRootFilter() {
+    return suppressNullLiterals? PlanFilter.NON_NULL_TRANS : PlanFilter.ALL;
+  }
+
+  /**
+   * Directory in which to write generated test cases,
+   * null for next to the testee.
+   */
+  public File getOutDir() {
+    return outDir;
+  }
+
+  /**
+   * Minimum visibility of tested methods.
+   */
+  public Visibility getVisTested() {
+    return visTested;
+  }
+
+  /**
+   * Minimum visibility of methods used to construct parameters.
+   */
+  public Visibility getVisUsed() {
+    return visUsed;
+  }
+
+  /**
+   * File caching the type graph across runs, null for no caching.
+   */
+  public File getTypeGraphCache() {
+    return typeGraphCache;
+  }
+
+  /**
+   * Number of candidate test cases executed at once in execute mode.
+   * Candidates share the static state of the classes under test, so more
+   * than one is only safe if they execute in child JVMs or sandboxes.
+   */
+  public int getNrThreads() {
+    return nrThreads;
+  }
+
+  /**
+   * Time limit for executing one candidate test case in execute mode.
+   */
+  public long getTimeoutMillis() {
+    return timeoutMillis;
+  }
+
+  /**
+   * Number of child JVMs executing candidate test cases in execute mode,
+   * zero for executing them in this JVM.
+   */
+  public int getNrForks() {
+    return nrForks;
+  }
+
+  /**
+   * Number of candidate test cases after which a child JVM is replaced
+   * by a fresh one.
+   */
+  public int getForkRecycle() {
+    return forkRecycle;
+  }
+
+  /**
+   * Execute the pure leading declarations that several candidate test cases
+   * share only once, in this JVM. Ignored when forking or isolating statics.
+   */
+  public boolean isSharePrefixes() {
+    return sharePrefixes;
+  }
+
+  /**
+   * Number of crashing test cases kept per crash signature in execute mode,
+   * zero for keeping all.
+   */
+  public int getMaxCrashesPerSignature() {
+    return maxCrashesPerSignature;
+  }
+
+  /**
+   * Number of top testee stack frames in a crash signature.
+   */
+  public int getSignatureDepth() {
+    return signatureDepth;
+  }
+
+  /**
+   * Sample the plan space of a class in execute mode by what earlier
+   * executions found, instead of uniformly at random.
+   */
+  public boolean isAdaptiveSampling() {
+    return adaptiveSampling;
+  }
+
+  /**
+   * Also keep test cases that return normally in execute mode, if they take
+   * branches no earlier test case took. Needs the classes under test loaded
+   * by a CoverageClassLoader; ignored when forking.
+   */
+  public boolean isCoverageGuided() {
+    return coverageGuided;
+  }
+
+  /**
+   * Number of values per type that execute mode keeps for reuse by later
+   * test cases, zero for none. Ignored when forking, isolating statics, or
+   * sharing prefixes.
+   */
+  public int getValuePoolSize() {
+    return valuePoolSize;
+  }
+
+  /**
+   * Median wall time per test case in ms beyond which execute mode
+   * quarantines a member under test, zero for never.
+   */
+  public long getSlowMillis() {
+    return slowMillis;
+  }
+
+  /**
+   * File listing the quarantined members, read before and written after
+   * execute mode, null for none.
+   */
+  public File getQuarantineFile() {
+    return quarantineFile;
+  }
+
+  /**
+   * Execution time in ms execute mode spends per crashing test case on
+   * shrinking it, zero for not shrinking.
+   */
+  public long getMinimizeMillis() {
+    return minimizeMillis;
+  }
+
+  /**
+   * Drop test cases execute mode generated whose branches others take.
+   */
+  public boolean isReduceSuite() {
+    return reduceSuite;
+  }
+
+  /**
+   * Execute mode runs each worker thread on its own copy of the user
+   * classes, reset to their initial static state after each test case.
+   * Ignored when forking or coverage-guided.
+   */
+  public boolean isIsolateStatics() {
+    return isolateStatics;
+  }
+
+  /**
+   * CrashSignatureStore of the crash signatures earlier runs found, which
+   * execute mode does not export again and adds its new ones to, null for
+   * none.
+   */
+  public File getKnownFile() {
+    return knownFile;
+  }
+
+  /**
+   * Time in ms this run started, negative for when we open the known
+   * file. Crash signatures the known file first saw since then are not
+   * known.
+   */
+  public long getStartMillis() {
+    return startMillis;
+  }
+
+  /**
+   * Write test cases as class files instead of sources, which saves
+   * compiling them.
+   */
+  public boolean isEmitClassFiles() {
+    return emitClassFiles;
+  }
+
+  /**
+   * With class files, also write their sources, which the class files'
+   * line numbers refer to.
+   */
+  public boolean isWithSources() {
+    return withSources;
+  }
+
+  /**
+   * Compile and run the generated test cases in this JVM, right after
+   * generating them, keeping them in memory unless there is an out dir or
+   * an out archive.
+   */
+  public boolean isPipeline() {
+    return pipeline;
+  }
+
+  /**
+   * In pipeline mode, reset the static state of the classes under test
+   * before each test case, via CopyCLinitClassLoader.
+   */
+  public boolean isReinit() {
+    return reinit;
+  }
+
+  /**
+   * Zip or jar file to write all generated files to instead of the out dir,
+   * null for none. Entries are named by their path relative to the out dir.
+   */
+  public File getOutArchive() {
+    return outArchive;
+  }
+
+  /**
+   * Write the out archive as a jar, with a manifest.
+   */
+  public boolean isOutJar() {
+    return outJar;
+  }
+
+  /**
+   * Deflate level of the out archive, from 0 for storing entries as they
+   * are to 9, -1 for the default.
+   */
+  public int getArchiveLevel() {
+    return archiveLevel;
+  }
+
+  /**
+   * Number of suites JUnitAll_k the generated test classes are spread over,
+   * one for a single JUnitAll.
+   */
+  public int getNrShards() {
+    return nrShards;
+  }
+
+  /**
+   * TestTimings of an earlier run, by which we balance shards, and which a
+   * pipeline run replaces with its own, null for none.
+   */
+  public File getTimingsFile() {
+    return timingsFile;
+  }
+
+
+  /**
+   * Collects settings, starting from the defaults.
+   */
+  public static class Builder {
+    protected int maxTestCasesTriedClass = 1000;
+    protected int maxNrTestClasses = 200;
+    protected int maxNrTestMethsPerClass = 500;
+    protected Verbose verbose = Verbose.DEFAULT;
+    protected int maxPlanRecursion = Constants.MAX_PLAN_RECURSION_DEFAULT;
+    protected boolean junitFiltering = false;
+    protected boolean suppressNullLiterals = false;
+    protected File outDir = null;
+    protected Visibility visTested = Visibility.GLOBAL;
+    protected Visibility visUsed = Visibility.GLOBAL;
+    protected File typeGraphCache = null;
+    protected int nrThreads = 1;
+    protected long timeoutMillis = 1000;
+    protected int nrForks = 0;
+    protected int forkRecycle = 1000;
+    protected boolean sharePrefixes = false;
+    protected int maxCrashesPerSignature = 0;
+    protected int signatureDepth = 5;
+    protected boolean adaptiveSampling = false;
+    protected boolean coverageGuided = false;
+    protected int valuePoolSize = 0;
+    protected long slowMillis = 0;
+    protected File quarantineFile = null;
+    protected long minimizeMillis = 0;
+    protected boolean reduceSuite = false;
+    protected boolean isolateStatics = false;
+    protected File knownFile = null;
+    protected long startMillis = -1;
+    protected boolean emitClassFiles = false;
+    protected boolean withSources = false;
+    protected boolean pipeline = false;
+    protected boolean reinit = false;
+    protected File outArchive = null;
+    protected boolean outJar = false;
+    protected int archiveLevel = -1;
+    protected int nrShards = 1;
+    protected File timingsFile = null;
+
+    /**
+     * Constructor, default values.
+     */
+    public Builder() {
+      /* Empty */
+    }
+
+    /**
+     * Constructor, values of config.
+     */
+    public Builder(final RunConfig config) {
+      notNull(config);
+      maxTestCasesTriedClass = config.maxTestCasesTriedClass;
+      maxNrTestClasses = config.maxNrTestClasses;
+      maxNrTestMethsPerClass = config.maxNrTestMethsPerClass;
+      verbose = config.verbose;
+      maxPlanRecursion = config.maxPlanRecursion;
+      junitFiltering = config.junitFiltering;
+      suppressNullLiterals = config.suppressNullLiterals;
+      outDir = config.outDir;
+      visTested = config.visTested;
+      visUsed = config.visUsed;
+      typeGraphCache = config.typeGraphCache;
+      nrThreads = config.nrThreads;
+      timeoutMillis = config.timeoutMillis;
+      nrForks = config.nrForks;
+      forkRecycle = config.forkRecycle;
+      sharePrefixes = config.sharePrefixes;
+      maxCrashesPerSignature = config.maxCrashesPerSignature;
+      signatureDepth = config.signatureDepth;
+      adaptiveSampling = config.adaptiveSampling;
+      coverageGuided = config.coverageGuided;
+      valuePoolSize = config.valuePoolSize;
+      slowMillis = config.slowMillis;
+      quarantineFile = config.quarantineFile;
+      minimizeMillis = config.minimizeMillis;
+      reduceSuite = config.reduceSuite;
+      isolateStatics = config.isolateStatics;
+      knownFile = config.knownFile;
+      startMillis = config.startMillis;
+      emitClassFiles = config.emitClassFiles;
+      withSources = config.withSources;
+      pipeline = config.pipeline;
+      reinit = config.reinit;
+      outArchive = config.outArchive;
+      outJar = config.outJar;
+      archiveLevel = config.archiveLevel;
+      nrShards = config.nrShards;
+      timingsFile = config.timingsFile;
+    }
+
+    public Builder maxTestCasesTriedClass(int max) {
+      check(max > 0);
+      maxTestCasesTriedClass = max;
+      return this;
+    }
+
+    public Builder maxNrTestClasses(int max) {
+      check(max > 0);
+      maxNrTestClasses = max;
+      return this;
+    }
+
+    public Builder maxNrTestMethsPerClass(int max) {
+      check(max > 0);
+      maxNrTestMethsPerClass = max;
+      return this;
+    }
+
+    public Builder verbose(final Verbose level) {
+      verbose = notNull(level);
+      return this;
+    }
+
+    public Builder maxPlanRecursion(int depth) {
+      check(depth > 0);
+      maxPlanRecursion = depth;
+      return this;
+    }
+
+    public Builder junitFiltering(boolean doFilter) {
+      junitFiltering = doFilter;
+      return this;
+    }
+
+    public Builder suppressNullLiterals(boolean doSuppress) {
+      suppressNullLiterals = doSuppress;
+      return this;
+    }
+
+    /**
+     * @param dir null for next to the testee.
+     */
+    public Builder outDir(final File dir) {
+      outDir = dir;
+      return this;
+    }
+
+    public Builder visTested(final Visibility vis) {
+      visTested = notNull(vis);
+      return this;
+    }
+
+    public Builder visUsed(final Visibility vis) {
+      visUsed = notNull(vis);
+      return this;
+    }
+
+    /**
+     * @param file null for no caching.
+     */
+    public Builder typeGraphCache(final File file) {
+      typeGraphCache = file;
+      return this;
+    }
+
+    public Builder nrThreads(int nr) {
+      check(nr > 0);
+      nrThreads = nr;
+      return this;
+    }
+
+    public Builder timeoutMillis(long millis) {
+      check(millis > 0);
+      timeoutMillis = millis;
+      return this;
+    }
+
+    /**
+     * @param nr zero for executing in this JVM.
+     */
+    public Builder nrForks(int nr) {
+      check(nr >= 0);
+      nrForks = nr;
+      return this;
+    }
+
+    public Builder forkRecycle(int nr) {
+      check(nr > 0);
+      forkRecycle = nr;
+      return this;
+    }
+
+    public Builder sharePrefixes(boolean doShare) {
+      sharePrefixes = doShare;
+      return this;
+    }
+
+    /**
+     * @param max zero for keeping all.
+     */
+    public Builder maxCrashesPerSignature(int max) {
+      check(max >= 0);
+      maxCrashesPerSignature = max;
+      return this;
+    }
+
+    public Builder signatureDepth(int depth) {
+      check(depth >= 0);
+      signatureDepth = depth;
+      return this;
+    }
+
+    public Builder adaptiveSampling(boolean doAdapt) {
+      adaptiveSampling = doAdapt;
+      return this;
+    }
+
+    public Builder coverageGuided(boolean doCover) {
+      coverageGuided = doCover;
+      return this;
+    }
+
+    /**
+     * @param size zero for no pool.
+     */
+    public Builder valuePoolSize(int size) {
+      check(size >= 0);
+      valuePoolSize = size;
+      return this;
+    }
+
+    /**
+     * @param millis zero for never.
+     */
+    public Builder slowMillis(long millis) {
+      check(millis >= 0);
+      slowMillis = millis;
+      return this;
+    }
+
+    /**
+     * @param file null for none.
+     */
+    public Builder quarantineFile(final File file) {
+      quarantineFile = file;
+      return this;
+    }
+
+    /**
+     * @param millis zero for not shrinking.
+     */
+    public Builder minimizeMillis(long millis) {
+      check(millis >= 0);
+      minimizeMillis = millis;
+      return this;
+    }
+
+    public Builder reduceSuite(boolean doReduce) {
+      reduceSuite = doReduce;
+      return this;
+    }
+
+    public Builder isolateStatics(boolean doIsolate) {
+      isolateStatics = doIsolate;
+      return this;
+    }
+
+    /**
+     * @param file null for none.
+     */
+    public Builder knownFile(final File file) {
+      knownFile = file;
+      return this;
+    }
+
+    /**
+     * @param millis negative for when we open the known file.
+     */
+    public Builder startMillis(long millis) {
+      startMillis = millis;
+      return this;
+    }
+
+    public Builder emitClassFiles(boolean doEmit) {
+      emitClassFiles = doEmit;
+      return this;
+    }
+
+    public Builder withSources(boolean doWrite) {
+      withSources = doWrite;
+      return this;
+    }
+
+    public Builder pipeline(boolean doRun) {
+      pipeline = doRun;
+      return this;
+    }
+
+    public Builder reinit(boolean doReinit) {
+      reinit = doReinit;
+      return this;
+    }
+
+    /**
+     * @param file null for none.
+     * @param isJar write a jar instead of a zip file.
+     */
+    public Builder outArchive(final File file, boolean isJar) {
+      outArchive = file;
+      outJar = isJar;
+      return this;
+    }
+
+    public Builder archiveLevel(int level) {
+      check(level >= -1 && level <= 9);
+      archiveLevel = level;
+      return this;
+    }
+
+    public Builder nrShards(int nr) {
+      check(nr > 0);
+      nrShards = nr;
+      return this;
+    }
+
+    /**
+     * @param file null for none.
+     */
+    public Builder timingsFile(final File file) {
+      timingsFile = file;
+      return this;
+    }
+
+    /**
+     * @return new config holding the current values.
+     */
+    public RunConfig build() {
+      return new RunConfig(this);
+    }
+  }
+}
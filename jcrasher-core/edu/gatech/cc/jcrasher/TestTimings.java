@@ -0,0 +1,142 @@
+/*
+ * TestTimings.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher;
+
+import static edu.gatech.cc.jcrasher.Assertions.check;
+import static edu.gatech.cc.jcrasher.Assertions.notNull;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Time each test class took to run, which RaGTestRunner measures and a later
+ * run reads to balance the test classes it generates across shards.
+ *
+ * <p>
+ * File: one line per test class, "name TAB nr tests TAB ms", ms a decimal
+ * number.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class TestTimings {
+
+  /**
+   * Test class name --> {nr tests, ms}.
+   */
+  protected final Map<String, double[]> timings =
+    new LinkedHashMap<String, double[]>();
+
+  protected int nrTests = 0;
+  protected double millis = 0;
+
+
+  /**
+   * @return timings stored in file.
+   */
+  public static TestTimings read(final File file) throws IOException {
+    notNull(file);
+
+    final TestTimings res = new TestTimings();
+    final BufferedReader in = new BufferedReader(new FileReader(file));
+    try {
+      for (String line=in.readLine(); line!=null; line=in.readLine()) {
+        if (line.length() == 0 || line.startsWith("#")) {
+          continue;
+        }
+        final String[] fields = line.split("\t");
+        if (fields.length != 3) {
+          throw new IOException("Not a test timing: " + line);
+        }
+        try {
+          res.add(fields[0], Integer.parseInt(fields[1]),
+              Double.parseDouble(fields[2]));
+        }
+        catch (NumberFormatException e) {
+          throw new IOException("Not a test timing: " + line);
+        }
+      }
+    }
+    finally {
+      in.close();
+    }
+    return res;
+  }
+
+
+  /**
+   * Adds that nrTests tests of className took ms to run.
+   */
+  public synchronized void add(final String className, int nrTests, double ms) {
+    notNull(className);
+    check(nrTests >= 0);
+    check(ms >= 0);
+
+    double[] timing = timings.get(className);
+    if (timing == null) {
+      timing = new double[2];
+      timings.put(className, timing);
+    }
+    timing[0] += nrTests;
+    timing[1] += ms;
+    this.nrTests += nrTests;
+    this.millis += ms;
+  }
+
+
+  /**
+   * @return ms a test of className took on average, negative if we have
+   * no timing of className.
+   */
+  public synchronized double getMillisPerTest(final String className) {
+    final double[] timing = timings.get(notNull(className));
+    if (timing == null || timing[0] == 0) {
+      return -1;
+    }
+    return timing[1] / timing[0];
+  }
+
+  /**
+   * @return ms a test took on average, negative if we have no timings.
+   */
+  public synchronized double getMillisPerTest() {
+    return (nrTests == 0)? -1 : millis / nrTests;
+  }
+
+  /**
+   * @return number of test classes we have timings of.
+   */
+  public synchronized int size() {
+    return timings.size();
+  }
+
+
+  /**
+   * Writes all timings to file, replacing what it holds.
+   */
+  public synchronized void write(final File file) throws IOException {
+    notNull(file);
+
+    final PrintWriter out = new PrintWriter(new FileWriter(file));
+    try {
+      for (Map.Entry<String, double[]> entry: timings.entrySet()) {
+        out.println(entry.getKey() + "\t" + (int) entry.getValue()[0] + "\t"
+            + entry.getValue()[1]);
+      }
+    }
+    finally {
+      out.close();
+    }
+    if (out.checkError()) {
+      throw new IOException("Could not write " + file);
+    }
+  }
+}
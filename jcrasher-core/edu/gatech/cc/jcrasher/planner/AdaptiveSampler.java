@@ -0,0 +1,238 @@
+/*
+ * AdaptiveSampler.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher.planner;
+
+import static edu.gatech.cc.jcrasher.Assertions.check;
+import static edu.gatech.cc.jcrasher.Assertions.notNull;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Samples plan indices of a class under test, learning from feedback which
+ * alternatives are worth sampling.
+ *
+ * <p>
+ * Each type node, including the class under test, and each leaf node is a
+ * multi-armed bandit, whose arms are its alternatives, e.g., the methods
+ * under test, the constructors and methods returning a type, or the preset
+ * values, including null. To sample, we walk down from the class under test,
+ * let each bandit on the way pick an arm via UCB1, and pick each parameter of
+ * a chosen function independently. The reward of an executed sample is
+ * credited to each arm on its path, so later samples move away from
+ * alternatives that keep yielding invalid setups or nothing new. A sample we
+ * already drew earns nothing, which moves us away from exhausted subtrees.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class AdaptiveSampler {
+
+  /**
+   * Weight of exploration in UCB1.
+   */
+  protected static final double EXPLORATION = 1.0;
+
+  /**
+   * How often we try to draw a sample we have not drawn before.
+   */
+  protected static final int MAX_ATTEMPTS = 32;
+
+  protected final ClassUnderTest<?> root;
+  protected final Random random;
+
+  /**
+   * Type or leaf node --> statistics of its alternatives.
+   */
+  protected final Map<Object, Arms> arms = new IdentityHashMap<Object, Arms>();
+
+  protected final Set<BigInteger> drawn = new HashSet<BigInteger>();
+
+
+  /**
+   * Statistics of the alternatives of one node.
+   */
+  protected static class Arms {
+    protected final int[] pulls;
+    protected final double[] rewards;
+    protected int total = 0;
+
+    protected Arms(int size) {
+      pulls = new int[size];
+      rewards = new double[size];
+    }
+
+    protected void credit(int arm, double reward) {
+      pulls[arm] += 1;
+      rewards[arm] += reward;
+      total += 1;
+    }
+  }
+
+
+  /**
+   * A sampled plan index and the arms that chose it.
+   */
+  public static class Sample {
+    protected final BigInteger index;
+    protected final List<Arms> path;
+    protected final int[] chosen;
+
+    protected Sample(final BigInteger index, final List<Arms> path,
+        final List<Integer> chosen)
+    {
+      this.index = notNull(index);
+      this.path = notNull(path);
+      this.chosen = new int[chosen.size()];
+      for (int i=0; i<this.chosen.length; i++) {
+        this.chosen[i] = chosen.get(i).intValue();
+      }
+    }
+
+    /**
+     * @return plan index in the space of the class under test.
+     */
+    public BigInteger getIndex() {
+      return index;
+    }
+  }
+
+
+  /**
+   * Constructor
+   */
+  public AdaptiveSampler(final ClassUnderTest<?> root, final Random random) {
+    this.root = notNull(root);
+    this.random = notNull(random);
+    check(root.getPlanSpaceSize().signum() > 0);
+  }
+
+
+  /**
+   * Draws a sample, preferring one we have not drawn before. Credits
+   * each repeated draw with zero reward.
+   *
+   * @return null if we only drew samples drawn before.
+   */
+  public Sample next() {
+    for (int i=0; i<MAX_ATTEMPTS; i++) {
+      final List<Arms> path = new ArrayList<Arms>();
+      final List<Integer> chosen = new ArrayList<Integer>();
+      final BigInteger index = sampleType(root, path, chosen);
+      final Sample res = new Sample(index, path, chosen);
+      if (drawn.add(index)) {
+        return res;
+      }
+      reward(res, 0);
+    }
+    return null;
+  }
+
+
+  /**
+   * Credits each arm that chose sample.
+   *
+   * @param reward in [0..1].
+   */
+  public void reward(final Sample sample, double reward) {
+    notNull(sample);
+    check(reward >= 0 && reward <= 1);
+
+    for (int i=0; i<sample.chosen.length; i++) {
+      sample.path.get(i).credit(sample.chosen[i], reward);
+    }
+  }
+
+
+  protected BigInteger sampleType(
+      final TypeNode<?> node,
+      final List<Arms> path,
+      final List<Integer> chosen)
+  {
+    node.getPlanSpaceSize();  //fills cache.
+    final int child = choose(node, node.childSizes, path, chosen);
+    final BigInteger offset = (child==0)?
+        BigInteger.ZERO : node.childRanges[child-1].add(BigInteger.ONE);
+    return offset.add(sampleExpression(node.children[child], path, chosen));
+  }
+
+
+  protected BigInteger sampleExpression(
+      final ExpressionNode<?> node,
+      final List<Arms> path,
+      final List<Integer> chosen)
+  {
+    if (node instanceof FunctionNode) {
+      final FunctionNode<?> function = (FunctionNode<?>) node;
+      function.getPlanSpaceSize();  //fills cache.
+      BigInteger res = BigInteger.ZERO;
+      for (int i=0; i<function.parameters.length; i++) {
+        res = res.add(sampleType(function.parameters[i], path, chosen)
+            .multiply(function.canonicalSubSapceSizes[i]));
+      }
+      return res;
+    }
+
+    final int size = node.getPlanSpaceSize().intValue();
+    final BigInteger[] sizes = new BigInteger[size];
+    for (int i=0; i<size; i++) {
+      sizes[i] = BigInteger.ONE;
+    }
+    return BigInteger.valueOf(choose(node, sizes, path, chosen));
+  }
+
+
+  /**
+   * UCB1 over the alternatives of node with a non-empty plan space,
+   * trying each once first, in random order.
+   */
+  protected int choose(
+      final Object node,
+      final BigInteger[] sizes,
+      final List<Arms> path,
+      final List<Integer> chosen)
+  {
+    Arms stats = arms.get(node);
+    if (stats == null) {
+      stats = new Arms(sizes.length);
+      arms.put(node, stats);
+    }
+
+    int res = -1;
+    double best = Double.NEGATIVE_INFINITY;
+    int nrBest = 0;
+    for (int i=0; i<sizes.length; i++) {
+      if (sizes[i].signum() == 0) {
+        continue;
+      }
+      final double score = (stats.pulls[i]==0)?
+          Double.POSITIVE_INFINITY
+          : stats.rewards[i]/stats.pulls[i] + EXPLORATION *
+            Math.sqrt(2 * Math.log(stats.total) / stats.pulls[i]);
+      if (score > best) {
+        res = i;
+        best = score;
+        nrBest = 1;
+      }
+      else if (score == best) {  //reservoir-sample among ties.
+        nrBest += 1;
+        if (random.nextInt(nrBest) == 0) {
+          res = i;
+        }
+      }
+    }
+    check(res >= 0);
+
+    path.add(stats);
+    chosen.add(Integer.valueOf(res));
+    return res;
+  }
+}
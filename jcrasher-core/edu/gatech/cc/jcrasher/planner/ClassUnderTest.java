@@ -8,11 +8,20 @@ package edu.gatech.cc.jcrasher.planner;
 import java.math.BigInteger;
 
 import edu.gatech.cc.jcrasher.plans.stmt.Block;
+import edu.gatech.cc.jcrasher.types.TypeGraph;
 
 /**
  * @author csallner@gatech.edu (Christoph Csallner)
  */
 public abstract class ClassUnderTest<T> extends TypeNode<T> {
+
+  /**
+   * Constructor
+   */
+  protected ClassUnderTest(final TypeGraph typeGraph) {
+    super(typeGraph);
+  }
+
 	/**
    * Retrieve block with given index from the underlying class's plan space.
 	 * 
@@ -10,6 +10,7 @@ import static edu.gatech.cc.jcrasher.Assertions.notNull;
 import static edu.gatech.cc.jcrasher.Constants.TAB;
 
 import java.lang.reflect.Constructor;
+import java.lang.reflect.Member;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.math.BigInteger;
@@ -28,6 +29,9 @@ import edu.gatech.cc.jcrasher.plans.stmt.BlockImpl;
 import edu.gatech.cc.jcrasher.plans.stmt.BlockStatement;
 import edu.gatech.cc.jcrasher.plans.stmt.ExpressionStatement;
 import edu.gatech.cc.jcrasher.plans.stmt.LocalVariableDeclarationStatement;
+import edu.gatech.cc.jcrasher.types.MemberTable;
+import edu.gatech.cc.jcrasher.types.TypeGraph;
+import edu.gatech.cc.jcrasher.types.TypeGraphImpl;
 
 /**
  * Constructs a TypeNode a loaded class under test: extract all public
@@ -49,63 +53,53 @@ extends ClassUnderTest<T> {
    * code-creation API.
    */
   public ClassUnderTestImpl() {
-    /* Empty */
+    super(TypeGraphImpl.instance());
   }
 
   
   /**
    * Gives more flexibility - supportes non-public functions under test.
+   * 
+   * @param rootFilter filter for the parameters of the functions under test,
+   * PlanFilter.NON_NULL_TRANS to suppress all null literals.
    */
   public ClassUnderTestImpl(
       final Class<T> c,
       int remainingRecursion,
       final Visibility visTested,
-      final Visibility visUsed) {
+      final Visibility visUsed,
+      final PlanFilter rootFilter,
+      final TypeGraph typeGraph) {
     
+    super(typeGraph);
     notNull(c);
     notNull(visTested);
     notNull(visUsed);
+    notNull(rootFilter);
     check(remainingRecursion > 0);
 
     wrappedClass = c;
 
     /* collect sub plan spaces */
     List<FunctionNode<?>> childSpaces = new ArrayList<FunctionNode<?>>();
+    final MemberTable<T> table = MemberTable.get(c);
    
     /* Crash any declared public constructor iff class non-abstract */
-    if (Modifier.isAbstract(c.getModifiers()) == false) {
-      for (Constructor<T> con : (Constructor<T>[]) c.getDeclaredConstructors()) {// all declared
-        //TODO align with Java semantics
-        if (Visibility.PACKAGE.equals(visTested) &&
-            !Modifier.isPrivate(con.getModifiers())) {
-          childSpaces.add(new ConstructorNode<T>(con, remainingRecursion,
-            PlanFilter.ALL, visUsed));          
-        }
-        
-        if (Visibility.GLOBAL.equals(visTested) &&
-            Modifier.isPublic(con.getModifiers())) {
+    if (Modifier.isAbstract(table.getClassModifiers()) == false) {
+      for (Constructor<T> con : table.getConstructors()) {// all declared
+        if (isTestee(table, con, visTested)) {
           childSpaces.add(new ConstructorNode<T>(con, remainingRecursion,
-            PlanFilter.ALL, visUsed));
+            rootFilter, visUsed, typeGraph));          
         }
       }
     }
 
     /* Crash any declared public non-abstract method */
-    for (Method meth : c.getDeclaredMethods()) {
-      if (Modifier.isAbstract(meth.getModifiers())) {
-        continue;
-      }
-          
-      if (Visibility.PACKAGE.equals(visTested) &&
-          !Modifier.isPrivate(meth.getModifiers())) {
+    for (Method meth : table.getMethods()) {
+      if (isTestee(table, meth, visTested)) {
         childSpaces.add(
-            new MethodNode(meth, remainingRecursion, PlanFilter.ALL, visUsed));        
-      }
-      
-      if (Visibility.GLOBAL.equals(visTested) &&
-          Modifier.isPublic(meth.getModifiers())) {
-        childSpaces.add(
-            new MethodNode(meth, remainingRecursion, PlanFilter.ALL, visUsed));
+            new MethodNode(meth, remainingRecursion, rootFilter, visUsed,
+                typeGraph));        
       }
     }
 
@@ -114,6 +108,61 @@ extends ClassUnderTest<T> {
   }
   
 
+  /**
+   * Visibility filter shared by the constructor and hasTestees.
+   * Constructors of abstract classes are not filtered here.
+   * 
+   * @return whether we test the constructor or method member.
+   */
+  protected static boolean isTestee(
+      final MemberTable<?> table,
+      final Member member,
+      final Visibility visTested) {
+    
+    final int modifiers = table.getModifiers(member);
+    if (Modifier.isAbstract(modifiers)) {
+      return false;
+    }
+    
+    //TODO align with Java semantics
+    if (Visibility.PACKAGE.equals(visTested)) {
+      return !Modifier.isPrivate(modifiers);
+    }
+    if (Visibility.GLOBAL.equals(visTested)) {
+      return Modifier.isPublic(modifiers);
+    }
+    return false;
+  }
+  
+  
+  /**
+   * Decides on metadata only, i.e., without initializing c.
+   * 
+   * @return whether a ClassUnderTestImpl of c would have any function to test.
+   */
+  public static boolean hasTestees(
+      final Class<?> c,
+      final Visibility visTested) {
+    notNull(c);
+    notNull(visTested);
+    
+    final MemberTable<?> table = MemberTable.get(c);
+    if (Modifier.isAbstract(table.getClassModifiers()) == false) {
+      for (Constructor<?> con : table.getConstructors()) {
+        if (isTestee(table, con, visTested)) {
+          return true;
+        }
+      }
+    }
+    for (Method meth : table.getMethods()) {
+      if (isTestee(table, meth, visTested)) {
+        return true;
+      }
+    }
+    return false;
+  }
+  
+
   protected Class<T> getWrappedClass() {
     return wrappedClass;
   }
@@ -171,7 +220,7 @@ extends ClassUnderTest<T> {
 
     /* Keep track of new created local instances: all needed */
     final Variable<?>[] ids = new Variable[curPlans.length];
-    Class<?>[] paramsTypes = pCon.getParameterTypes();
+    Class<?>[] paramsTypes = MemberTable.paramsOf(pCon);
 
     /* Generate local variable for each needed instance (-plan) */
     for (int i = 0; i < curPlans.length; i++) {
@@ -255,7 +304,7 @@ extends ClassUnderTest<T> {
       paramPlans = curPlans;
     }
 
-    Class<?>[] paramsTypes = pMeth.getParameterTypes();
+    Class<?>[] paramsTypes = MemberTable.paramsOf(pMeth);
     Variable<?>[] paramIDs = new Variable[paramPlans.length];
 
     /* Generate local variable for each needed param instance (-plan) */
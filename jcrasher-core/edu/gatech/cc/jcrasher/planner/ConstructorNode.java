@@ -19,6 +19,8 @@ import edu.gatech.cc.jcrasher.Constants.Visibility;
 import edu.gatech.cc.jcrasher.plans.expr.ConstructorCall;
 import edu.gatech.cc.jcrasher.plans.expr.Expression;
 import edu.gatech.cc.jcrasher.types.ClassWrapperImpl;
+import edu.gatech.cc.jcrasher.types.MemberTable;
+import edu.gatech.cc.jcrasher.types.TypeGraph;
 
 /**
  * Node to access the plans of a constructor (sub-) plan space up to a given
@@ -40,13 +42,16 @@ public class ConstructorNode<T> extends FunctionNode<T> {
    * @param pCon constructor whose plan space is to be traversed
    * @param pMaxRecursion How deep should we traverse the sub-tree?
    * @param filter Are we allowed to use null?
+   * @param typeGraph of the run we plan for.
    */
   public ConstructorNode(
       final Constructor<T> pCon, 
       int pMaxRecursion,
       final PlanFilter filter,
-      final Visibility vis) {
+      final Visibility vis,
+      final TypeGraph typeGraph) {
     
+    super(typeGraph);
     check(pMaxRecursion >= 1); // this method eats up one step in depth
     notNull(vis);
     notNull(pCon);
@@ -58,7 +63,7 @@ public class ConstructorNode<T> extends FunctionNode<T> {
      * First, .. n-th dimesion: Add each parameter Inner class: Reflection
      * returns enclosing type as first parameter
      */
-    Class<?>[] paramsTypes = con.getParameterTypes();
+    Class<?>[] paramsTypes = MemberTable.paramsOf(con);
     for (int j = 0; j < paramsTypes.length; j++) {
       ClassWrapperImpl<?> paramWrapper = 
         (ClassWrapperImpl<?>) typeGraph.getWrapper(paramsTypes[j]);
@@ -69,7 +74,8 @@ public class ConstructorNode<T> extends FunctionNode<T> {
         && (typeGraph.getWrapper(con.getDeclaringClass()).isInnerClass() == true)) {
         planFilter = Constants.removeNull(filter);
       }
-      depNodes.add(new TypeNeededNode(paramWrapper, pMaxRecursion - 1, planFilter, vis));
+      depNodes.add(new TypeNeededNode(paramWrapper, pMaxRecursion - 1, planFilter, vis,
+          typeGraph));
     }
     setParams(depNodes.toArray(new TypeNeededNode[depNodes.size()]));
   }
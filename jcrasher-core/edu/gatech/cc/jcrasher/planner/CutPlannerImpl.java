@@ -5,21 +5,19 @@
  */
 package edu.gatech.cc.jcrasher.planner;
 
+import static edu.gatech.cc.jcrasher.Assertions.notNull;
 import static edu.gatech.cc.jcrasher.Constants.NL;
-import static edu.gatech.cc.jcrasher.Constants.VERBOSE_LEVEL;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.util.Hashtable;
 import java.util.Map;
 
-import edu.gatech.cc.jcrasher.Constants;
-import edu.gatech.cc.jcrasher.Constants.PlanFilter;
 import edu.gatech.cc.jcrasher.Constants.Verbose;
+import edu.gatech.cc.jcrasher.RunConfig;
 import edu.gatech.cc.jcrasher.plans.expr.Expression;
 import edu.gatech.cc.jcrasher.types.ClassWrapper;
 import edu.gatech.cc.jcrasher.types.TypeGraph;
-import edu.gatech.cc.jcrasher.types.TypeGraphImpl;
 
 
 /**
@@ -29,20 +27,15 @@ import edu.gatech.cc.jcrasher.types.TypeGraphImpl;
  */
 public class CutPlannerImpl implements CutPlanner {
   
-  protected static CutPlanner theInstance;
-  
   /**
-   * @return non-null singleton
+   * Type graph crawled for this run.
    */
-  public static CutPlanner instance() {
-  	if (theInstance==null)
-  		theInstance = new CutPlannerImpl();
-  	
-  	return theInstance; 
-  }
-
+  protected final TypeGraph typeGraph;
   
-  protected final TypeGraph typeGraph = TypeGraphImpl.instance();
+  /**
+   * Settings of this run.
+   */
+  protected final RunConfig config;
   
   /**
    * Cache constructed nodes
@@ -50,6 +43,15 @@ public class CutPlannerImpl implements CutPlanner {
   final protected Map<Class<?>, ClassUnderTest<?>> plans = 
     new Hashtable<Class<?>, ClassUnderTest<?>>();
 
+
+  /**
+   * Constructor
+   */
+  public CutPlannerImpl(final TypeGraph typeGraph, final RunConfig config) {
+    this.typeGraph = notNull(typeGraph);
+    this.config = notNull(config);
+  }
+
   
   /**
    * @return plan space of class T.
@@ -60,9 +62,11 @@ public class CutPlannerImpl implements CutPlanner {
   	
     final ClassUnderTest<T> classNode = new ClassUnderTestImpl<T>(
         c,
-        Constants.MAX_PLAN_RECURSION,
-        Constants.VIS_TESTED,
-        Constants.VIS_USED);
+        config.getMaxPlanRecursion(),
+        config.getVisTested(),
+        config.getVisUsed(),
+        config.getRootFilter(),
+        typeGraph);
     
     plans.put(c, classNode);
     return classNode;
@@ -82,7 +86,7 @@ public class CutPlannerImpl implements CutPlanner {
       }
 
       sb.append(NL + NL + wrapper.getWrappedClass().getCanonicalName());
-      for (Expression<?> value : wrapper.getPresetPlans(PlanFilter.ALL)) { // preset
+      for (Expression<?> value : wrapper.getPresetPlans(config.getRootFilter())) { // preset
                                                                   // values
         sb.append(NL + "\t" + value.text());
       }
@@ -112,7 +116,7 @@ public class CutPlannerImpl implements CutPlanner {
    */
   public void flush() {
 
-    if (Verbose.DEFAULT.equals(VERBOSE_LEVEL)) {
+    if (Verbose.DEFAULT.equals(config.getVerbose())) {
       return; // no output
     }
 
@@ -142,7 +146,7 @@ public class CutPlannerImpl implements CutPlanner {
     sb.append(NL + NL + NL + "*** Rules to create needed values:");
     sb.append(flushRules(true));
 
-    if (Verbose.ALL.equals(VERBOSE_LEVEL)) {
+    if (Verbose.ALL.equals(config.getVerbose())) {
       sb.append(NL + NL + NL + "*** Rules that were not needed:");
       sb.append(flushRules(false));
     }
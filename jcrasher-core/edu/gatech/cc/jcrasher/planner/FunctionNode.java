@@ -13,7 +13,6 @@ import java.math.BigInteger;
 
 import edu.gatech.cc.jcrasher.plans.expr.Expression;
 import edu.gatech.cc.jcrasher.types.TypeGraph;
-import edu.gatech.cc.jcrasher.types.TypeGraphImpl;
 
 /**
  * Node to access the plans of a method or constructor (sub-) plan space up to a
@@ -29,7 +28,10 @@ import edu.gatech.cc.jcrasher.types.TypeGraphImpl;
  */
 public abstract class FunctionNode<T> implements ExpressionNode<T> {
 
-	protected final TypeGraph typeGraph = TypeGraphImpl.instance();
+	/**
+	 * Type graph of the run we plan for.
+	 */
+	protected final TypeGraph typeGraph;
 	
   /**
    * Child types, i.e. receiver and param types up to our max depth - 1
@@ -57,6 +59,14 @@ public abstract class FunctionNode<T> implements ExpressionNode<T> {
    * E.g., for paramSizes (3, 5, 2) we get (5*2*1, 2*1, 1).
    */
   protected BigInteger[] canonicalSubSapceSizes;
+
+
+  /**
+   * Constructor
+   */
+  protected FunctionNode(final TypeGraph typeGraph) {
+    this.typeGraph = notNull(typeGraph);
+  }
   
   /**
    * Sets the function parameters.
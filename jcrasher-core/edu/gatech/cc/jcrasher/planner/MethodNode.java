@@ -20,6 +20,8 @@ import edu.gatech.cc.jcrasher.Constants.Visibility;
 import edu.gatech.cc.jcrasher.plans.expr.Expression;
 import edu.gatech.cc.jcrasher.plans.expr.MethodCall;
 import edu.gatech.cc.jcrasher.types.ClassWrapperImpl;
+import edu.gatech.cc.jcrasher.types.MemberTable;
+import edu.gatech.cc.jcrasher.types.TypeGraph;
 
 /**
  * Node to access the plans of a method (sub-) plan space up to a given maximal
@@ -34,6 +36,7 @@ import edu.gatech.cc.jcrasher.types.ClassWrapperImpl;
 public class MethodNode<T> extends FunctionNode<T> {
 
   protected Method meth = null; // wrapped method
+  protected final boolean isStatic;
 
 
   /**
@@ -41,32 +44,37 @@ public class MethodNode<T> extends FunctionNode<T> {
    * 
    * @param pMeth method, whose plan space is to be traversed
    * @param pMaxRecursion How deep should we traverse the sub-tree?
+   * @param typeGraph of the run we plan for.
    */
   public MethodNode(
       final Method pMeth, 
       int pMaxRecursion,
       final PlanFilter filter,
-      final Visibility vis) {
+      final Visibility vis,
+      final TypeGraph typeGraph) {
     
+    super(typeGraph);
     check(pMaxRecursion >= 1); // this method eats up one step in depth
     notNull(vis);
     notNull(pMeth);
 
     meth = pMeth;
+    final MemberTable<?> table = MemberTable.of(pMeth);
+    isStatic = Modifier.isStatic(table.getModifiers(pMeth));
     List<TypeNeededNode<?>> depNodes = new ArrayList<TypeNeededNode<?>>();
 
     /* First dimension: receiver instance */
-    if (Modifier.isStatic(pMeth.getModifiers()) == false) { // non-static method
+    if (isStatic == false) { // non-static method
       Class<?> decClass = pMeth.getDeclaringClass();
       ClassWrapperImpl<?> vW = (ClassWrapperImpl) typeGraph.getWrapper(decClass); // receiver
       depNodes.add(new TypeNeededNode(vW, pMaxRecursion - 1, Constants
-        .removeNull(filter), vis));
+        .removeNull(filter), vis, typeGraph));
     }
 
     /* Second, .. n-th dimesion: Add each parameter */
-    for (Class<?> paramType : pMeth.getParameterTypes()) {
+    for (Class<?> paramType : table.getParameterTypes(pMeth)) {
       ClassWrapperImpl<?> pW = (ClassWrapperImpl) typeGraph.getWrapper(paramType);
-      depNodes.add(new TypeNeededNode(pW, pMaxRecursion - 1, filter, vis));
+      depNodes.add(new TypeNeededNode(pW, pMaxRecursion - 1, filter, vis, typeGraph));
     }
 
     /* create iterators for each type dimension and set field in super class */
@@ -93,7 +101,7 @@ public class MethodNode<T> extends FunctionNode<T> {
 
     check(depPlans.length > 0); // at least one dimension non-empty
 
-    if (Modifier.isStatic(meth.getModifiers()) == false) { // first dim is
+    if (isStatic == false) { // first dim is
                                                               // receiver
       Expression<?>[] paramPlans = new Expression[depPlans.length - 1];
       for (int j = 0; j < paramPlans.length; j++) {
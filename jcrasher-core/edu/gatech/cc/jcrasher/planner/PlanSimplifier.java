@@ -0,0 +1,137 @@
+/*
+ * PlanSimplifier.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher.planner;
+
+import static edu.gatech.cc.jcrasher.Assertions.check;
+import static edu.gatech.cc.jcrasher.Assertions.isNonNeg;
+import static edu.gatech.cc.jcrasher.Assertions.notNull;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Proposes simpler variants of a plan of a class under test, each differing
+ * from the plan in a single sub-plan.
+ *
+ * <p>
+ * A plan index of a class under test decomposes into the function under
+ * test and, for each of its parameters, an index into the parameter's type
+ * node, which again picks a preset value or a function, and so on. A
+ * variant keeps the function under test and replaces the sub-plan of one
+ * needed type with an alternative from the same type node: each of its
+ * preset values, including null, or the first plan of each of its other
+ * functions, whose own parameters are preset values where the depth
+ * allows. Callers decide which variants are simpler, e.g., by the size of
+ * their blocks.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class PlanSimplifier {
+
+  protected final ClassUnderTest<?> root;
+
+
+  /**
+   * Constructor
+   */
+  public PlanSimplifier(final ClassUnderTest<?> root) {
+    this.root = notNull(root);
+  }
+
+
+  /**
+   * @return plan indices that differ from planIndex in one sub-plan of a
+   * needed type, each at most once.
+   */
+  public List<BigInteger> getVariants(final BigInteger planIndex) {
+    check(isNonNeg(planIndex));
+    check(planIndex.compareTo(root.getPlanSpaceSize()) < 0);
+
+    final List<BigInteger> res = new ArrayList<BigInteger>();
+    addVariants(root, planIndex, false, res);
+    return res;
+  }
+
+
+  /**
+   * Adds to res the variants of planIndex in node's plan space.
+   *
+   * @param isReplaceable whether we may pick another child of node, i.e.,
+   * node is not the class under test.
+   */
+  protected void addVariants(
+      final TypeNode<?> node,
+      final BigInteger planIndex,
+      boolean isReplaceable,
+      final List<BigInteger> res)
+  {
+    node.getPlanSpaceSize();  //fills cache.
+    final int child = node.getChildIndex(planIndex);
+    final BigInteger childIndex = node.getChildPlanIndex(child, planIndex);
+
+    if (isReplaceable) {
+      for (int i=0; i<node.children.length; i++) {
+        if (node.childSizes[i].signum() == 0) {
+          continue;
+        }
+        if (node.children[i] instanceof LeafNode) {  //each preset value.
+          for (int j=0; j<node.childSizes[i].intValue(); j++) {
+            if (i != child || j != childIndex.intValue()) {
+              res.add(getOffset(node, i).add(BigInteger.valueOf(j)));
+            }
+          }
+        }
+        else if (i != child || childIndex.signum() != 0) {  //first plan.
+          res.add(getOffset(node, i));
+        }
+      }
+    }
+
+    if (node.children[child] instanceof FunctionNode) {
+      final FunctionNode<?> function = (FunctionNode<?>) node.children[child];
+      final List<BigInteger> nested = new ArrayList<BigInteger>();
+      addVariants(function, childIndex, nested);
+      for (BigInteger variant: nested) {
+        res.add(getOffset(node, child).add(variant));
+      }
+    }
+  }
+
+
+  /**
+   * Adds to res the variants of planIndex in function's plan space, each
+   * varying one parameter.
+   */
+  protected void addVariants(
+      final FunctionNode<?> function,
+      final BigInteger planIndex,
+      final List<BigInteger> res)
+  {
+    function.getPlanSpaceSize();  //fills cache.
+    BigInteger rest = planIndex;
+    for (int i=0; i<function.parameters.length; i++) {
+      final BigInteger scale = function.canonicalSubSapceSizes[i];
+      final BigInteger paramIndex = rest.divide(scale);
+      rest = rest.subtract(paramIndex.multiply(scale));
+
+      final List<BigInteger> nested = new ArrayList<BigInteger>();
+      addVariants(function.parameters[i], paramIndex, true, nested);
+      for (BigInteger variant: nested) {
+        res.add(planIndex.add(variant.subtract(paramIndex).multiply(scale)));
+      }
+    }
+  }
+
+
+  /**
+   * @return first index of node's child.
+   */
+  protected BigInteger getOffset(final TypeNode<?> node, int child) {
+    return (child==0)?
+        BigInteger.ZERO : node.childRanges[child-1].add(BigInteger.ONE);
+  }
+}
@@ -18,6 +18,7 @@ import edu.gatech.cc.jcrasher.Constants.PlanFilter;
 import edu.gatech.cc.jcrasher.Constants.Visibility;
 import edu.gatech.cc.jcrasher.types.ClassWrapper;
 import edu.gatech.cc.jcrasher.types.ClassWrapperImpl;
+import edu.gatech.cc.jcrasher.types.TypeGraph;
 
 /**
  * Constructs a TypeNode from a ClassWrapper: extract all constructing functions
@@ -41,13 +42,16 @@ public class TypeNeededNode<T> extends TypeNode<T> {
    * @param pCW contains all values (and constructing functions)
    * @param remainingRecursion maximal length of function chain to be appended
    * @param filter is the invoking function interested i.e. in null?
+   * @param typeGraph of the run we plan for, which wraps pCW.
    */
   public TypeNeededNode(
       final ClassWrapper<T> pCW, 
       int remainingRecursion,
       final PlanFilter filter,
-      final Visibility visUsed) {
+      final Visibility visUsed,
+      final TypeGraph typeGraph) {
     
+    super(typeGraph);
     notNull(pCW);
     notNull(visUsed);
     check(remainingRecursion >= 0);
@@ -64,9 +68,12 @@ public class TypeNeededNode<T> extends TypeNode<T> {
     /* functions only iff wanted and additional chaining allowed */
     if (remainingRecursion > 0) {
 
-      /* same for class and all its implementing/ extending children */
+      /* same for class and all its transitive implementing/ extending children */
+      final List<Class<? extends T>> subtypes = 
+        typeGraph.getSubtypes(pCW.getWrappedClass());
       final List<Class<? extends T>> classes = 
-        new ArrayList<Class<? extends T>>(pCW.getChildren());
+        new ArrayList<Class<? extends T>>(subtypes.size() + 1);
+      classes.addAll(subtypes);
       classes.add(pCW.getWrappedClass());
 
       for (Class<? extends T> c : classes) {
@@ -77,7 +84,7 @@ public class TypeNeededNode<T> extends TypeNode<T> {
                                     // constructors
           for (Constructor<?> con : cw.getConstrs(visUsed)) {
             childSpaces.add(new ConstructorNode(
-                con, remainingRecursion, newFilter, visUsed));
+                con, remainingRecursion, newFilter, visUsed, typeGraph));
           }
         }
 
@@ -87,7 +94,8 @@ public class TypeNeededNode<T> extends TypeNode<T> {
          */
         for (Method meth : cw.getConMeths()) { // constructing methods
           childSpaces.add(
-              new MethodNode(meth, remainingRecursion, newFilter, visUsed));
+              new MethodNode(meth, remainingRecursion, newFilter, visUsed,
+                  typeGraph));
         }
       }
     }
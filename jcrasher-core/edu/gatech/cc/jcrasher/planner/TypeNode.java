@@ -13,7 +13,6 @@ import java.math.BigInteger;
 
 import edu.gatech.cc.jcrasher.plans.expr.Expression;
 import edu.gatech.cc.jcrasher.types.TypeGraph;
-import edu.gatech.cc.jcrasher.types.TypeGraphImpl;
 
 /**
  * Node to access the plans of a type (sub-) plan space up to a given maximal
@@ -30,7 +29,10 @@ import edu.gatech.cc.jcrasher.types.TypeGraphImpl;
  */
 public abstract class TypeNode<T> implements PlanSpaceNode<T> {
 
-	protected final TypeGraph typeGraph = TypeGraphImpl.instance();
+	/**
+	 * Type graph of the run we plan for.
+	 */
+	protected final TypeGraph typeGraph;
 	
   /**
    * Child types, i.e. receiver and param types up to our max depth - 1
@@ -61,6 +63,14 @@ public abstract class TypeNode<T> implements PlanSpaceNode<T> {
    */
   protected BigInteger[] childRanges;
 
+
+  /**
+   * Constructor
+   */
+  protected TypeNode(final TypeGraph typeGraph) {
+    this.typeGraph = notNull(typeGraph);
+  }
+
   /**
    * Sets the children. To be called by extending classes only.
    * 
@@ -0,0 +1,23 @@
+/*
+ * Renderable.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher.plans;
+
+import java.io.IOException;
+
+/**
+ * Code that can append its text to a buffer, rendering its children into
+ * the same buffer, instead of each node building a string that its parent
+ * copies again.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public interface Renderable {
+
+  /**
+   * Appends the text of this code to out.
+   */
+  public void render(Appendable out) throws IOException;
+}
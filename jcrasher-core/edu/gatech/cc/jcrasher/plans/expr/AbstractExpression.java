@@ -7,6 +7,8 @@ package edu.gatech.cc.jcrasher.plans.expr;
 
 import static edu.gatech.cc.jcrasher.Assertions.notNull;
 
+import java.io.IOException;
+
 /**
  * Shared expression functionality.
  * 
@@ -32,6 +34,14 @@ public abstract class AbstractExpression<T> implements Expression<T> {
 		return returnType;
 	}
 	
+	/**
+	 * Appends text(). Expressions with sub-expressions override this to
+	 * render them into out as well.
+	 */
+	public void render(final Appendable out) throws IOException {
+		out.append(text());
+	}
+	
   /**
    * @return the textual representation.
    */
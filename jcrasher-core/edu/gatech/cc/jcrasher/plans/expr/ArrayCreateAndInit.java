@@ -7,6 +7,7 @@ package edu.gatech.cc.jcrasher.plans.expr;
 
 import static edu.gatech.cc.jcrasher.Assertions.notNull;
 
+import java.io.IOException;
 import java.lang.reflect.Array;
 import java.lang.reflect.InvocationTargetException;
 
@@ -85,7 +86,7 @@ public class ArrayCreateAndInit<T> extends ReferenceTypeExpression<T> {
   /**
    * get plans for all components
    */
-  protected Expression<?>[] getComponentPlans() {
+  public Expression<?>[] getComponentPlans() {
     return notNull(componentPlans);
   }
 
@@ -100,13 +101,19 @@ public class ArrayCreateAndInit<T> extends ReferenceTypeExpression<T> {
   public T execute() throws InstantiationException,
   IllegalAccessException, InvocationTargetException
   {
-    T array = (T) Array.newInstance(
-      getReturnType().getComponentType(),
-      componentPlans.length
-    );
+    final Class<?> componentType = getReturnType().getComponentType();
+    T array = (T) Array.newInstance(componentType, componentPlans.length);
     
-    for (int i=0; i<componentPlans.length; i++) {
-      Array.set(array, i, componentPlans[i].execute());
+    if (componentType.isPrimitive()) {  //unbox each component.
+      for (int i=0; i<componentPlans.length; i++) {
+        Array.set(array, i, componentPlans[i].execute());
+      }
+    }
+    else {  //plain array store, which checks the component type.
+      final Object[] components = (Object[]) array;
+      for (int i=0; i<componentPlans.length; i++) {
+        components[i] = componentPlans[i].execute();
+      }
     }
     return notNull(array);
   }  
@@ -118,28 +125,31 @@ public class ArrayCreateAndInit<T> extends ReferenceTypeExpression<T> {
    * object as param. - Example: {{11,12}, {21,22}}
    */
   public String text() {
+    return CodeGenFct.text(this);
+  }
+  
+  
+  @Override
+  public void render(final Appendable res) throws IOException {
     
     /* Constructor */
-    final StringBuilder res = new StringBuilder();
-    res.append("new " + CodeGenFct.getName(leafType, testeeType));
+    res.append("new ").append(CodeGenFct.getName(leafType, testeeType));
 
     /* print dimensionality times [] */
     for (int d = 0; d < dimensionality; d++) {
       res.append("[]");
     }
 
-    res.append("{");
+    res.append('{');
 
     /* Recurse to parameters */
     for (int i = 0; i < componentPlans.length; i++) {
       if (i > 0) {
         res.append(", ");
       } // separator
-      res.append(componentPlans[i].text()); // value
+      componentPlans[i].render(res); // value
     }
 
-    /* return assembeled String */
-    res.append("}");
-    return notNull(res.toString());
+    res.append('}');
   }
-}
\ No newline at end of file
+}
\ No newline at end of file
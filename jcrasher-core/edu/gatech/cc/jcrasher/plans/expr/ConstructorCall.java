@@ -8,10 +8,13 @@ package edu.gatech.cc.jcrasher.plans.expr;
 import static edu.gatech.cc.jcrasher.Assertions.check;
 import static edu.gatech.cc.jcrasher.Assertions.notNull;
 
+import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Modifier;
 
+import edu.gatech.cc.jcrasher.types.Invoker;
+import edu.gatech.cc.jcrasher.types.MemberTable;
 import edu.gatech.cc.jcrasher.writer.CodeGenFct;
 
 /**
@@ -46,6 +49,11 @@ public class ConstructorCall<T> extends FunctionCall<T> {
    */
   protected Constructor<T> constructor = null;
 
+  /**
+   * Invoker of constructor, resolved on first execution.
+   */
+  protected Invoker invoker = null;
+
   /**
    * Check and init fields (except optional enclosing type). 
    */
@@ -137,27 +145,46 @@ public class ConstructorCall<T> extends FunctionCall<T> {
   public T execute() throws InstantiationException,
   IllegalAccessException, InvocationTargetException {
 
-    final Object[] args = new Object[paramPlans.length];
-    for (int i=0; i<args.length; i++) {
-      args[i] = paramPlans[i].execute();  
+    if (invoker == null) {
+      invoker = MemberTable.invokerOf(constructor);
     }
-    Object[] allArgs = args;  //optional enclosing instance included
-    
+
     /* If inner class: Add an enclosing instance */    
-    if (needsEnclosingInstance()) {
-      notNull(enclosedBy);
-      allArgs = new Object[args.length + 1];
+    final int offset = (enclosedBy != null)? 1 : 0;
+    final Object[] allArgs = new Object[paramPlans.length + offset];
+    if (offset > 0) {
       allArgs[0] = enclosedBy.execute();
-      for (int i=0; i<args.length; i++) {
-        allArgs[i+1] = args[i];  
-      }
     }
-     
-    constructor.setAccessible(true);  //we want to invoke non-public constr.
-    return notNull(constructor.newInstance(allArgs));
+    for (int i=0; i<paramPlans.length; i++) {
+      allArgs[i+offset] = paramPlans[i].execute();  
+    }
+    return notNull((T) invoker.invoke(null, allArgs));
   }  
   
   
+  /**
+   * @return the called constructor.
+   */
+  public Constructor<T> getConstructor() {
+    return constructor;
+  }
+
+  /**
+   * @return plans of the arguments, excluding any enclosing instance,
+   * shared array.
+   */
+  public Expression<?>[] getParamPlans() {
+    return paramPlans;
+  }
+
+  /**
+   * @return plan of the enclosing instance, null unless an inner class.
+   */
+  public Expression<?> getEnclosingPlan() {
+    return enclosedBy;
+  }
+  
+  
   /**
    * How to reproduce this value=object? Examples:
    * <ul>
@@ -165,14 +192,21 @@ public class ConstructorCall<T> extends FunctionCall<T> {
    * <li>(new Outer()).new Inner(1)
    */
   public String text() {
+    return CodeGenFct.text(this);
+  }
+  
+  
+  @Override
+  public void render(final Appendable res) throws IOException {
     notNull(testeeType);    
-    final StringBuilder res = new StringBuilder();
     
     /* Add enclosing instance -- if inner class */    
 
     if (needsEnclosingInstance()) {
       notNull(enclosedBy);
-      res.append("("+enclosedBy.text()+").");
+      res.append('(');
+      enclosedBy.render(res);
+      res.append(").");
     }
     
     /* Constructor call (without enclosing instance) */
@@ -184,9 +218,7 @@ public class ConstructorCall<T> extends FunctionCall<T> {
     /* Enc.Nested  -- fully qualified class-name */
     
     if (needsEnclosingInstance()) {  //Nested  --member name only
-      final String memberName = 
-          className.substring(className.lastIndexOf('.')+1);
-      res.append(memberName);
+      res.append(className, className.lastIndexOf('.')+1, className.length());
     }
     else {  //Enc.Nested    --entire simple name
       res.append(className);
@@ -194,15 +226,13 @@ public class ConstructorCall<T> extends FunctionCall<T> {
     
     /* Parameter tail: recurse */
     
-    res.append("(");    
+    res.append('(');    
     for (int i = 0; i < paramPlans.length; i++) {
       if (i > 0) {  //separator
         res.append(", ");
       }
-      res.append(paramPlans[i].text()); // value
+      paramPlans[i].render(res); // value
     }
-    res.append(")");
-    
-    return notNull(res.toString());
+    res.append(')');
   }
 }
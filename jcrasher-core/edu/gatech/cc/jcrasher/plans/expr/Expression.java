@@ -6,6 +6,7 @@
 package edu.gatech.cc.jcrasher.plans.expr;
 
 import edu.gatech.cc.jcrasher.plans.JavaCode;
+import edu.gatech.cc.jcrasher.plans.Renderable;
 
 /**
  * Used to create a value in a test case.
@@ -20,7 +21,7 @@ import edu.gatech.cc.jcrasher.plans.JavaCode;
  * @author csallner@gatech.edu (Christoph Csallner)
  * http://java.sun.com/docs/books/jls/third_edition/html/expressions.html
  */
-public interface Expression<T> extends JavaCode<T> {
+public interface Expression<T> extends JavaCode<T>, Renderable {
 
   /**
    * @return type of instance created by this plan
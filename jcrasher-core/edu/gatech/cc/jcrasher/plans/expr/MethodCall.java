@@ -7,10 +7,13 @@ package edu.gatech.cc.jcrasher.plans.expr;
 
 import static edu.gatech.cc.jcrasher.Assertions.notNull;
 
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 
+import edu.gatech.cc.jcrasher.types.Invoker;
+import edu.gatech.cc.jcrasher.types.MemberTable;
 import edu.gatech.cc.jcrasher.writer.CodeGenFct;
 
 /**
@@ -45,6 +48,11 @@ public class MethodCall<T> extends FunctionCall<T> {
    */
   protected Method meth = null;
 
+  /**
+   * Invoker of meth, resolved on first execution.
+   */
+  protected Invoker invoker = null;
+
   
   protected void initBase(Method pMeth, Expression<?>[] pConstrParams){
     notNull(pMeth);
@@ -117,9 +125,13 @@ public class MethodCall<T> extends FunctionCall<T> {
   public T execute() throws InstantiationException,
   IllegalAccessException, InvocationTargetException {
     
+    if (invoker == null) {
+      invoker = MemberTable.invokerOf(meth);
+    }
+    
     /* instance meth needs a receiver */
     Object receiver = null;
-    if (Modifier.isStatic(meth.getModifiers()) == false) {
+    if (invoker.isStatic() == false) {
       receiver = receiverPlan.execute(); 
     }
         
@@ -129,37 +141,62 @@ public class MethodCall<T> extends FunctionCall<T> {
     }
 
     /* passing null receiver for static method is ok */
-    meth.setAccessible(true);   //we want to call non-public methods.
-    return (T) meth.invoke(receiver, args);
+    return (T) invoker.invoke(receiver, args);
   }  
   
   
+  /**
+   * @return the called method.
+   */
+  public Method getMethod() {
+    return meth;
+  }
+
+  /**
+   * @return plans of the arguments, shared array.
+   */
+  public Expression<?>[] getParamPlans() {
+    return paramPlans;
+  }
+
+  /**
+   * @return plan of the receiver, null for a static method.
+   */
+  public Expression<?> getReceiverPlan() {
+    return receiverPlan;
+  }
+  
+  
   /**
    * How to reproduce this value=object? For example:
    * <ul>
    * <il>new A(new B(1), null)
    */
   public String text() {
-    
-    /* Fully qualified class-name: Enc.Nested */
-    final String className = 
-        CodeGenFct.getName(meth.getDeclaringClass(), testeeType);
-    final StringBuilder res = new StringBuilder();
+    return CodeGenFct.text(this);
+  }
+  
+  
+  @Override
+  public void render(final Appendable res) throws IOException {
 
     /* ClassName.staticMeth( */
     if (Modifier.isStatic(meth.getModifiers())) {
-      res.append(className + "." + meth.getName() + "(");
+      /* Fully qualified class-name: Enc.Nested */
+      res.append(CodeGenFct.getName(meth.getDeclaringClass(), testeeType));
     }
 
     else { // (new Receiver()).instanceMeth(
       if (receiverPlan instanceof ConstructorCall) {
-        res.append("(" + receiverPlan.text() + ")." + meth.getName()
-            + "(");
+        res.append('(');
+        receiverPlan.render(res);
+        res.append(')');
       }
       else { // A.b().conMeth(
-        res.append(receiverPlan.text() + "." + meth.getName() + "(");
+        receiverPlan.render(res);
       }
     }
+    res.append('.').append(meth.getName()).append('(');
 
 
     /* Parameter tail: recurse */
@@ -167,11 +204,9 @@ public class MethodCall<T> extends FunctionCall<T> {
       if (i > 0) {
         res.append(", ");
       } // separator
-      res.append(paramPlans[i].text()); // value
+      paramPlans[i].render(res); // value
     }
 
-    /* return assembeled String */
-    res.append(")");
-    return notNull(res.toString());
+    res.append(')');
   }  
 }
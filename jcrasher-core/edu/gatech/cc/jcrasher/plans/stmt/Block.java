@@ -58,4 +58,10 @@ public interface Block<T> extends Statement<T> {
    * @param blockStatements (empty) list, but never null
    */
   public void setBlockStmts(final List<BlockStatement> blockStatements);
+
+
+  /**
+   * @return statements of this block, in order, unmodifiable.
+   */
+  public List<BlockStatement> getBlockStmts();
 }
@@ -9,12 +9,15 @@ import static edu.gatech.cc.jcrasher.Assertions.notNull;
 import static edu.gatech.cc.jcrasher.Constants.NL;
 import static edu.gatech.cc.jcrasher.Constants.TAB;
 
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Member;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import edu.gatech.cc.jcrasher.plans.expr.Variable;
+import edu.gatech.cc.jcrasher.writer.CodeGenFct;
 
 /**
  * Hides a code block intended to crash some method or constructor:
@@ -71,6 +74,11 @@ public class BlockImpl<T> implements Block<T> {
   }
 
 
+  public List<BlockStatement> getBlockStmts() {
+    return Collections.unmodifiableList(blockStmts);
+  }
+
+
 
   /**
    * To be called from above, like CodeWriter
@@ -83,19 +91,21 @@ public class BlockImpl<T> implements Block<T> {
    * </pre>
    */
   public String text() {
-    StringBuilder sb = new StringBuilder("{");
+    return CodeGenFct.text(this);
+  }
+  
+  
+  // TODO make context (current package) known in test case
+  // so its element can strip the package name themselves
+  public void render(final Appendable out) throws IOException {
+    out.append('{');
 
-    /* Get sequence of stmt strings */
+    /* Sequence of stmts */
     for (BlockStatement blockStmt : blockStmts) {
-      sb.append(NL);
-      sb.append(spaces+TAB+blockStmt.text());
+      out.append(NL).append(spaces).append(TAB);
+      blockStmt.render(out);
     }
-    sb.append(NL);
-    sb.append(spaces+"}");
-
-    return sb.toString();
-    // TODO make context (current package) known in test case
-    // so its element can strip the package name themselves
+    out.append(NL).append(spaces).append('}');
   }
   
   
@@ -6,6 +6,7 @@
 package edu.gatech.cc.jcrasher.plans.stmt;
 
 import edu.gatech.cc.jcrasher.plans.JavaCode;
+import edu.gatech.cc.jcrasher.plans.Renderable;
 
 /**
  * A statement, sequence of statements, or block.
@@ -18,6 +19,6 @@ import edu.gatech.cc.jcrasher.plans.JavaCode;
  * @author csallner@gatech.edu (Christoph Csallner)
  * http://java.sun.com/docs/books/jls/third_edition/html/statements.html#14.2
  */
-public interface BlockStatement<T> extends JavaCode<T> {	
+public interface BlockStatement<T> extends JavaCode<T>, Renderable {	
   //empty
 }
@@ -7,10 +7,12 @@ package edu.gatech.cc.jcrasher.plans.stmt;
 
 import static edu.gatech.cc.jcrasher.Assertions.notNull;
 
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 
 import edu.gatech.cc.jcrasher.plans.expr.Expression;
 import edu.gatech.cc.jcrasher.plans.expr.FunctionCall;
+import edu.gatech.cc.jcrasher.writer.CodeGenFct;
 
 /**
  * Hides a code statement to invoke a function (maybe causing side-effect).
@@ -59,6 +61,14 @@ public class ExpressionStatement<T> implements Statement<T> {
   }  
   
   
+  /**
+   * @return the function call this statement consists of.
+   */
+  public Expression<T> getExpression() {
+    return fctPlan;
+  }
+  
+  
   /**
    * @return a specialized representation of the statement like:
    * <ul>
@@ -66,7 +76,12 @@ public class ExpressionStatement<T> implements Statement<T> {
    * <li>new A();
    */
   public String text() {
-  	return fctPlan.toString()+";";
+  	return CodeGenFct.text(this);
+  }
+  
+  public void render(final Appendable out) throws IOException {
+    fctPlan.render(out);
+    out.append(';');
   }
 
   @Override
@@ -8,10 +8,12 @@ package edu.gatech.cc.jcrasher.plans.stmt;
 import static edu.gatech.cc.jcrasher.Assertions.check;
 import static edu.gatech.cc.jcrasher.Assertions.notNull;
 
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 
 import edu.gatech.cc.jcrasher.plans.expr.Expression;
 import edu.gatech.cc.jcrasher.plans.expr.Variable;
+import edu.gatech.cc.jcrasher.writer.CodeGenFct;
 
 /**
  * Hides a code statement to generate a needed instance.
@@ -68,6 +70,14 @@ public class LocalVariableDeclarationStatement<V> implements BlockStatement<V> {
   }
 
 
+  /**
+   * @return plan that initializes our variable.
+   */
+  public Expression<? extends V> getInitPlan() {
+    return varInitPlan;
+  }
+
+
   /**
    * @return true.
    */
@@ -86,7 +96,13 @@ public class LocalVariableDeclarationStatement<V> implements BlockStatement<V> {
    * <li>B b = a.m(0);
    */
   public String text() {    
-    return var.textDeclaration()+" = "+varInitPlan.text()+";";
+    return CodeGenFct.text(this);
+  }
+  
+  public void render(final Appendable out) throws IOException {
+    out.append(var.textDeclaration()).append(" = ");
+    varInitPlan.render(out);
+    out.append(';');
   }
   
   
@@ -97,4 +113,4 @@ public class LocalVariableDeclarationStatement<V> implements BlockStatement<V> {
   public String toString() {
     return text();
   }
-}
\ No newline at end of file
+}
\ No newline at end of file
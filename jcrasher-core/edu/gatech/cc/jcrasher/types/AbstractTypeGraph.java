@@ -7,6 +7,7 @@ package edu.gatech.cc.jcrasher.types;
 
 import java.util.Collection;
 import java.util.Hashtable;
+import java.util.List;
 import java.util.Set;
 
 
@@ -27,6 +28,13 @@ public abstract class AbstractTypeGraph implements TypeGraph {
       new Hashtable<String, ClassWrapper<?>>();
 
 
+  /**
+   * Transitive child-of relation, built at the end of a crawl.
+   * Null while crawling.
+   */
+  protected SubtypeIndex subtypeIndex = null;
+
+
   /**
    * Set user-specified types.
    * 
@@ -51,6 +59,31 @@ public abstract class AbstractTypeGraph implements TypeGraph {
 
 
 
+  /**
+   * Snapshot the transitive child-of relation of all current wrappers.
+   * To be called once crawling has finished.
+   */
+  protected void buildSubtypeIndex() {
+    subtypeIndex = new SubtypeIndex(getWrappers());
+  }
+
+
+  /**
+   * @return all transitive subtypes of pClass found during the last crawl,
+   *         or pClass's direct children if pClass was not indexed.
+   */
+  public <T> List<Class<? extends T>> getSubtypes(final Class<T> pClass) {
+    final SubtypeIndex index = subtypeIndex;
+    if (index != null) {
+      final List<Class<? extends T>> res = index.getSubtypes(pClass);
+      if (res != null) {
+        return res;
+      }
+    }
+    return getWrapper(pClass).getChildren();
+  }
+
+
   /**
    * @return wrapper of class: create & insert if not done yet
    */
@@ -52,4 +52,30 @@ public interface ClassSource {
    * if it is an inner class).
    */
   public Class<?> initializeDeep(final String pClassName); 
+  
+  
+  /**
+   * Locates and loads, but does not initialize, the class of the given name.
+   * Allows filtering classes on their metadata before running any of their
+   * static initializers.
+   * 
+   * @param pClassName JVM-internal name as defined in 
+   * {@link Class#getName()}.
+   * 
+   * @return class of given name or null if we could not locate or load it,
+   * or if it is anonymous.
+   */
+  public Class<?> load(final String pClassName);
+  
+  
+  /**
+   * Like {@link #load(String)}, but via the given class loader.
+   */
+  public Class<?> load(final String pClassName, final ClassLoader pLoader);
+  
+  
+  /**
+   * @return classes we could not load or initialize so far.
+   */
+  public InitReport getReport();
 }
@@ -16,9 +16,12 @@
 package edu.gatech.cc.jcrasher.types;
 
 import java.lang.reflect.Modifier;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
+import edu.gatech.cc.jcrasher.types.InitReport.Phase;
+
 /**
  * Loads a Java runtime class, given a BCEL class or class name.
  * Does not throw any exceptions or errors but indicates problems
@@ -33,7 +36,15 @@ public class ClassSourceImpl implements ClassSource {
   protected static final String NULL_CLASS_NAME =
       "<fb-crasher received a null class name>";
   
-  protected final Set<String> couldNotDeepInit = new HashSet<String>();
+  protected final Set<String> couldNotDeepInit =
+    Collections.synchronizedSet(new HashSet<String>());
+  
+  protected final InitReport report = new InitReport();
+  
+  /**
+   * Loads classes given by name.
+   */
+  protected final ClassLoader loader = ClassSourceImpl.class.getClassLoader();
   
   /**
    * @return singleton instance.
@@ -50,16 +61,21 @@ public class ClassSourceImpl implements ClassSource {
   }
 
 
-  protected void logCouldNotInit(final String className) {
+  protected void logCouldNotInit(final String className, final Throwable t) {
     couldNotDeepInit.add(className);
-    System.out.println(
-        "fb-crasher could not initialize class "+className+", skipping it."); 
+    report.add(className, Phase.INITIALIZE, t); 
   }
 
-  protected void logCouldNotInitEnclosing(final String className) {
+  protected void logCouldNotInitEnclosing(
+      final String className,
+      final Throwable t) {
     couldNotDeepInit.add(className);
-    System.out.println(
-        "fb-crasher could not initialize enclosing class "+className+".");
+    report.add(className, Phase.INITIALIZE_ENCLOSING, t);
+  }
+  
+  
+  public InitReport getReport() {
+    return report;
   }
   
   
@@ -103,15 +119,15 @@ public class ClassSourceImpl implements ClassSource {
     }
     
     try {
-      Class.forName(className); //initializes class className.
+      Class.forName(className, true, c.getClassLoader()); //initializes c.
     }
     /* Might crash while locating, loading, linking, or initializing */
     catch (Throwable t) {
       if (isUserClass) {
-        logCouldNotInit(className);
+        logCouldNotInit(className, t);
       }
       else {
-        logCouldNotInitEnclosing(className);
+        logCouldNotInitEnclosing(className, t);
       }
       return false;
     }
@@ -130,7 +146,7 @@ public class ClassSourceImpl implements ClassSource {
       return initializeDeep(enclosingClass, false);  
     }
     catch (Throwable e) {                       //accessing enclosing class.
-      logCouldNotInitEnclosing(className);
+      logCouldNotInitEnclosing(className, e);
       return false;
     }
   }
@@ -168,11 +184,11 @@ public class ClassSourceImpl implements ClassSource {
     
     Class<?> res = null;    
     try {
-      res = Class.forName(className);   //attempts to initialize class!
+      res = Class.forName(className, true, loader); //attempts to initialize!
     } 
     /* Might crash while locating, loading, linking, or initializing */
     catch (Throwable t) {
-      logCouldNotInit(className);
+      logCouldNotInit(className, t);
       return null;
     }
     
@@ -200,4 +216,36 @@ public class ClassSourceImpl implements ClassSource {
     }
     return res;
   }
+  
+  
+  public Class<?> load(final String pClassName) {
+    return load(pClassName, loader);
+  }
+  
+  
+  public Class<?> load(final String pClassName, final ClassLoader pLoader) {
+    String className = NULL_CLASS_NAME;
+    if (pClassName!=null) {
+      className = pClassName;
+    }
+    if (couldNotDeepInit.contains(className)) {
+      return null;
+    }    
+
+    Class<?> res = null;
+    try {
+      res = Class.forName(className, false, pLoader);  //no initialization.
+    }
+    /* Might crash while locating or loading */
+    catch (Throwable t) {
+      couldNotDeepInit.add(className);
+      report.add(className, Phase.LOAD, t);
+      return null;
+    }
+    
+    if (isAnonymous(res)) {
+      return null;  //We do not like anonymous classes.
+    }  
+    return res;
+  }
 }
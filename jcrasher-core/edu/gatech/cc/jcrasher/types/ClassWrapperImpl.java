@@ -13,6 +13,7 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.List;
@@ -80,6 +81,13 @@ public class ClassWrapperImpl<T> implements ClassWrapper<T> {
   protected boolean isNeeded = false;
 
 
+  /**
+   * Visibility --> constructors filtered by getConstrs.
+   */
+  protected final EnumMap<Visibility, List<Constructor<T>>> constrsByVis =
+    new EnumMap<Visibility, List<Constructor<T>>>(Visibility.class);
+
+
 
   /**
    * Constructor
@@ -94,14 +102,23 @@ public class ClassWrapperImpl<T> implements ClassWrapper<T> {
 
 
   public boolean isLibraryType() {
-    notNull(wrappedClass);
+    return isLibraryType(wrappedClass);
+  }
+
+
+  /**
+   * @return whether c is defined by the JDK. This includes all
+   *         simple types and all arrays.
+   */
+  public static boolean isLibraryType(final Class<?> c) {
+    notNull(c);
 
-    if (wrappedClass.isPrimitive() || wrappedClass.isArray()) {
+    if (c.isPrimitive() || c.isArray()) {
       return true;
     }
 
     for (int i = 0; i < Constants.LIBRARY_TYPES.length; i++) {
-      if (wrappedClass.getName().indexOf(Constants.LIBRARY_TYPES[i]) >= 0) {
+      if (c.getName().indexOf(Constants.LIBRARY_TYPES[i]) >= 0) {
         /*
          * Changed startsWith to (indexOf >= 0) to suppress arrays and inner
          * types as well.
@@ -203,31 +220,26 @@ public class ClassWrapperImpl<T> implements ClassWrapper<T> {
    * @return each constuctor X(P*) according to pVisibility or an empty list if
    *         abstract class.
    */
-  public List<Constructor<T>> getConstrs(final Visibility visUsed) {
+  public synchronized List<Constructor<T>> getConstrs(final Visibility visUsed) {
     notNull(visUsed);    
-    List<Constructor<T>> res = new ArrayList<Constructor<T>>();
+    List<Constructor<T>> res = constrsByVis.get(visUsed);
+    if (res != null) {  // cache hit
+      return res;
+    }
+    res = new ArrayList<Constructor<T>>();
 
-    if (Modifier.isAbstract(wrappedClass.getModifiers())) {
+    final MemberTable<T> table = MemberTable.get(wrappedClass);
+    if (Modifier.isAbstract(table.getClassModifiers())) {
       /* Abstract type does not have any constructors. */
+      constrsByVis.put(visUsed, res);
       return notNull(res);
     }
     
-    Constructor[] constructors = new Constructor[0];    
-    try {
-      constructors = wrappedClass.getDeclaredConstructors();
-    }
-    catch(NoClassDefFoundError e) {
-      /* reflection could not load some needed class. */
-      return notNull(res);
-    }
-
-    
-    for (Constructor<T> con : constructors) { // Filter for visibility
+    for (Constructor<T> con : table.getConstructors()) { // Filter for visibility
       
       /* public-public */
       if ((Visibility.GLOBAL.equals(visUsed))
-          && Modifier.isPublic(con.getModifiers())
-          && Modifier.isPublic(con.getDeclaringClass().getModifiers())) {
+          && table.isPublicPublic(con)) {
           
         /* TODO(csallner): protected method visible in our package */
         res.add(con);
@@ -235,11 +247,12 @@ public class ClassWrapperImpl<T> implements ClassWrapper<T> {
 
       /* protected, default, public */
       if ((Visibility.PACKAGE.equals(visUsed))
-          && (Modifier.isPrivate(con.getModifiers())==false)) {
+          && (Modifier.isPrivate(table.getModifiers(con))==false)) {
         res.add(con);
       }
     }
 
+    constrsByVis.put(visUsed, res);
     return notNull(res);
   }
 
@@ -262,9 +275,6 @@ public class ClassWrapperImpl<T> implements ClassWrapper<T> {
    */
   public List<Expression<T>> getPresetPlans(final PlanFilter planFilter) {
 
-    if (Constants.SUPPRESS_NULL_LITERALS)
-      return presetPlans; //suppress all null literals.
-    
     if (wrappedClass.isPrimitive()) { // no null for primitive
       return presetPlans;
     }
@@ -313,18 +323,18 @@ public class ClassWrapperImpl<T> implements ClassWrapper<T> {
   protected void addConstrMeth(final Method pMeth, final Visibility visUsed) {
     notNull(pMeth);
     notNull(visUsed);
-    check(Modifier.isAbstract(pMeth.getModifiers()) == false);
+    final MemberTable<?> table = MemberTable.of(pMeth);
+    check(Modifier.isAbstract(table.getModifiers(pMeth)) == false);
 
     /* Public-public */
     if (Visibility.GLOBAL.equals(visUsed)
-        && Modifier.isPublic(pMeth.getModifiers())
-        && Modifier.isPublic(pMeth.getDeclaringClass().getModifiers())) {
+        && table.isPublicPublic(pMeth)) {
       constrMeth.add(pMeth);
     }
 
     /* Protected */
     if (Visibility.PACKAGE.equals(visUsed)
-          && !Modifier.isPrivate(pMeth.getModifiers())) {
+          && !Modifier.isPrivate(table.getModifiers(pMeth))) {
       constrMeth.add(pMeth);
     }
   }
@@ -0,0 +1,181 @@
+/*
+ * ImmutableTypes.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher.types;
+
+import static edu.gatech.cc.jcrasher.Assertions.notNull;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Conservative immutability and purity analysis of types.
+ *
+ * <p>
+ * A type is immutable if it is primitive, on our allow-list, or a final
+ * class whose instance fields, including inherited ones, are all final and
+ * of immutable types. A class is pure if it is on our allow-list, or
+ * immutable and its static fields are all final and of immutable types.
+ * Calling a pure class's members can therefore neither change their
+ * arguments nor leave state behind in the class. This ignores what the
+ * members do to other classes.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class ImmutableTypes {
+
+  /**
+   * JDK types we know to be immutable and pure, which the analysis would
+   * reject due to caches or serialization fields.
+   */
+  protected static final Class<?>[] ALLOWED = new Class[]{
+    String.class,
+    Boolean.class,
+    Byte.class,
+    Character.class,
+    Short.class,
+    Integer.class,
+    Long.class,
+    Float.class,
+    Double.class,
+    BigInteger.class,
+    BigDecimal.class
+  };
+
+  /**
+   * Class --> whether it is immutable. Keyed weakly, so that we do not keep
+   * the classes of a discarded class loader, e.g., of a sandbox, alive.
+   */
+  protected static final Map<Class<?>, Boolean> immutable =
+    Collections.synchronizedMap(new WeakHashMap<Class<?>, Boolean>());
+
+  /**
+   * Class --> whether it is pure, keyed weakly as well.
+   */
+  protected static final Map<Class<?>, Boolean> pure =
+    Collections.synchronizedMap(new WeakHashMap<Class<?>, Boolean>());
+
+  static {
+    for (Class<?> c: ALLOWED) {
+      immutable.put(c, Boolean.TRUE);
+      pure.put(c, Boolean.TRUE);
+    }
+  }
+
+
+  /**
+   * @return whether no value of type c can change after construction.
+   */
+  public static boolean isImmutable(final Class<?> c) {
+    notNull(c);
+    return isImmutable(c, new HashSet<Class<?>>());
+  }
+
+
+  /**
+   * Assumes the types we are analyzing to be immutable, so we only cache
+   * true results that do not depend on such assumptions.
+   *
+   * @param analyzing types whose analysis is in progress.
+   */
+  protected static boolean isImmutable(
+      final Class<?> c,
+      final Set<Class<?>> analyzing)
+  {
+    if (c.isPrimitive()) {
+      return true;
+    }
+    final Boolean cached = immutable.get(c);
+    if (cached != null) {
+      return cached.booleanValue();
+    }
+    if (!analyzing.add(c)) {
+      return true;
+    }
+    final boolean res = analyzeImmutable(c, analyzing);
+    analyzing.remove(c);
+    if (!res || analyzing.isEmpty()) {
+      immutable.put(c, Boolean.valueOf(res));
+    }
+    return res;
+  }
+
+
+  /**
+   * @return whether calling members of class c leaves no state behind in c
+   * or in their arguments.
+   */
+  public static boolean isPure(final Class<?> c) {
+    notNull(c);
+
+    Boolean res = pure.get(c);
+    if (res == null) {
+      res = Boolean.valueOf(isImmutable(c) && hasImmutableStatics(c));
+      pure.put(c, res);
+    }
+    return res.booleanValue();
+  }
+
+
+  protected static boolean analyzeImmutable(
+      final Class<?> c,
+      final Set<Class<?>> analyzing)
+  {
+    if (c.isArray() || c.isInterface() || !Modifier.isFinal(c.getModifiers())) {
+      return false;  //arrays are mutable, subtypes may be.
+    }
+    for (Class<?> k = c; k != null && k != Object.class; k = k.getSuperclass()) {
+      final Field[] fields;
+      try {
+        fields = k.getDeclaredFields();
+      }
+      catch (Throwable e) {  //Java reflection crashed.
+        return false;
+      }
+      for (Field field: fields) {
+        if (Modifier.isStatic(field.getModifiers())) {
+          continue;
+        }
+        if (!Modifier.isFinal(field.getModifiers())
+            || !isImmutable(field.getType(), analyzing))
+        {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+
+  protected static boolean hasImmutableStatics(final Class<?> c) {
+    for (Class<?> k = c; k != null && k != Object.class; k = k.getSuperclass()) {
+      final Field[] fields;
+      try {
+        fields = k.getDeclaredFields();
+      }
+      catch (Throwable e) {  //Java reflection crashed.
+        return false;
+      }
+      for (Field field: fields) {
+        if (!Modifier.isStatic(field.getModifiers())) {
+          continue;
+        }
+        if (!Modifier.isFinal(field.getModifiers())
+            || !isImmutable(field.getType()))
+        {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+}
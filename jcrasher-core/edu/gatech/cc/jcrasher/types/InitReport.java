@@ -0,0 +1,140 @@
+/*
+ * InitReport.java
+ * 
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher.types;
+
+import static edu.gatech.cc.jcrasher.Assertions.notNull;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Classes that ClassSource could not load or initialize, with the reason.
+ * Collected instead of printed, so that the caller decides how to present them.
+ * 
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class InitReport {
+
+  /**
+   * What we tried to do with the class.
+   */
+  public static enum Phase {
+    /** locate and load, without initializing */
+    LOAD,
+    /** initialize a class we want to use */
+    INITIALIZE,
+    /** initialize a class enclosing a class we want to use */
+    INITIALIZE_ENCLOSING
+  }
+
+
+  /**
+   * One failed attempt.
+   */
+  public static class Failure {
+    protected final String className;
+    protected final Phase phase;
+    protected final String cause;
+
+    protected Failure(
+        final String className,
+        final Phase phase,
+        final Throwable cause)
+    {
+      this.className = notNull(className);
+      this.phase = notNull(phase);
+      this.cause = (cause==null)? null : cause.toString();
+    }
+
+    /**
+     * @return name of the class we could not use.
+     */
+    public String getClassName() {
+      return className;
+    }
+
+    /**
+     * @return what failed.
+     */
+    public Phase getPhase() {
+      return phase;
+    }
+
+    /**
+     * @return toString of the throwable that made us fail, or null.
+     */
+    public String getCause() {
+      return cause;
+    }
+
+    @Override
+    public String toString() {
+      return phase + " " + className + ((cause==null)? "" : ": " + cause);
+    }
+  }
+
+
+  protected final List<Failure> failures = new ArrayList<Failure>();
+
+
+  /**
+   * Record a failure.
+   */
+  public synchronized void add(
+      final String className,
+      final Phase phase,
+      final Throwable cause)
+  {
+    failures.add(new Failure(className, phase, cause));
+  }
+
+
+  /**
+   * @return copy of the failures recorded so far, in order.
+   */
+  public synchronized List<Failure> getFailures() {
+    return new ArrayList<Failure>(failures);
+  }
+
+
+  /**
+   * @return number of failures recorded so far.
+   */
+  public synchronized int size() {
+    return failures.size();
+  }
+
+
+  /**
+   * Print one line per failure, preceded by a summary line.
+   * Prints nothing if there were no failures.
+   */
+  public void print(final PrintStream out) {
+    print(out, true);
+  }
+
+
+  /**
+   * Print a summary line, followed by one line per failure if withDetails.
+   * Prints nothing if there were no failures.
+   */
+  public synchronized void print(final PrintStream out, boolean withDetails) {
+    notNull(out);
+    if (failures.isEmpty()) {
+      return;
+    }
+
+    if (!withDetails) {
+      out.println("Could not use " + failures.size() + " class(es).");
+      return;
+    }
+    out.println("Could not use " + failures.size() + " class(es):");
+    for (Failure failure: failures) {
+      out.println("  " + failure);
+    }
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Invoker.java
+ * 
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher.types;
+
+import static edu.gatech.cc.jcrasher.Assertions.notNull;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Invokes one constructor or method, resolved once per member.
+ * 
+ * <p>
+ * Suppresses Java language access checks once, when created, instead of
+ * on every execution of a plan. Obtain instances via MemberTable.invokerOf,
+ * which caches one invoker per member.
+ * 
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class Invoker {
+
+  /**
+   * Invoked method, null if we invoke a constructor.
+   */
+  protected final Method method;
+
+  /**
+   * Invoked constructor, null if we invoke a method.
+   */
+  protected final Constructor<?> constructor;
+
+  protected final boolean isStatic;
+
+
+  /**
+   * Constructor
+   * 
+   * @param member a Method or Constructor.
+   */
+  protected Invoker(final Member member) {
+    notNull(member);
+
+    if (member instanceof Method) {
+      method = (Method) member;
+      constructor = null;
+    }
+    else {
+      method = null;
+      constructor = (Constructor<?>) member;
+    }
+    isStatic = Modifier.isStatic(member.getModifiers());
+
+    try {
+      /* we want to invoke non-public members */
+      if (method != null) {
+        method.setAccessible(true);
+      }
+      else {
+        constructor.setAccessible(true);
+      }
+    }
+    catch (RuntimeException e) {
+      /* not permitted: invoke reports IllegalAccessException */
+    }
+  }
+
+
+  /**
+   * @return whether we invoke a static method.
+   */
+  public boolean isStatic() {
+    return isStatic;
+  }
+
+
+  /**
+   * @param receiver null for a static method or a constructor.
+   * @param args including an enclosing instance first, if any.
+   * @return value returned by the method, or the created instance.
+   */
+  public Object invoke(final Object receiver, final Object[] args)
+  throws InstantiationException, IllegalAccessException,
+  InvocationTargetException
+  {
+    if (method != null) {
+      return method.invoke(receiver, args);
+    }
+    return constructor.newInstance(args);
+  }
+}
@@ -0,0 +1,307 @@
+/*
+ * MemberTable.java
+ * 
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher.types;
+
+import static edu.gatech.cc.jcrasher.Assertions.notNull;
+
+import java.lang.ref.SoftReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Hashtable;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Reflective member metadata of one class, computed once and shared.
+ * 
+ * <p>
+ * Class.getDeclaredConstructors(), getDeclaredMethods(), and
+ * getParameterTypes() clone their result on every call. A MemberTable calls
+ * each of them once per class and member and hands out the cached arrays.
+ * Callers must not modify the returned arrays.
+ * 
+ * <p>
+ * The table sorts constructors and methods by signature, and methods of
+ * equal signature, i.e., a covariant override and its bridge method, by
+ * return type. The JVM returns them in no particular order, which can
+ * differ between runs and class loaders, but plan indices must denote the
+ * same test case wherever we plan them, e.g., in a child JVM or a sandbox.
+ * 
+ * <p>
+ * If reflection crashes, e.g., because some referenced class cannot be
+ * loaded, the table treats the class as declaring no constructors or methods,
+ * like the call sites did before.
+ * 
+ * @param <T> the described class.
+ * 
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class MemberTable<T> {
+
+  /* Static members */
+
+  /**
+   * Class --> its table. A table references its class, so we hold it
+   * softly, which lets the garbage collector drop the classes of a
+   * discarded class loader, e.g., of a sandbox, together with their tables.
+   */
+  protected static final Map<Class<?>, SoftReference<MemberTable<?>>> tables =
+    Collections.synchronizedMap(
+        new WeakHashMap<Class<?>, SoftReference<MemberTable<?>>>());
+
+  /**
+   * @return non-null table of pClass, computed on first request.
+   */
+  public static <T> MemberTable<T> get(final Class<T> pClass) {
+    notNull(pClass);
+
+    final SoftReference<MemberTable<?>> ref = tables.get(pClass);
+    MemberTable<T> res = (ref == null)? null : (MemberTable<T>) ref.get();
+    if (res == null) {
+      res = new MemberTable<T>(pClass);
+      // racing threads compute equal tables.
+      tables.put(pClass, new SoftReference<MemberTable<?>>(res));
+    }
+    return res;
+  }
+
+
+  /* Instance members */
+
+  protected final Class<T> wrappedClass;
+  protected final int modifiers;
+  protected final Constructor<T>[] constructors;
+  protected final Method[] methods;
+
+  /**
+   * Constructor or method handed out by this table --> cached information.
+   * Filled by the constructor only, hence safe for concurrent reads.
+   */
+  protected final IdentityHashMap<Member, MemberInfo> infos =
+    new IdentityHashMap<Member, MemberInfo>();
+
+  /**
+   * Equal members obtained elsewhere, e.g., via Class.getMethod
+   * --> cached information.
+   */
+  protected final Hashtable<Member, MemberInfo> otherInfos =
+    new Hashtable<Member, MemberInfo>();
+
+
+  /**
+   * Per-member cache.
+   */
+  protected static class MemberInfo {
+    protected final Class<?>[] paramTypes;
+    protected final int modifiers;
+    protected final String signature;
+    protected volatile Invoker invoker = null;  // created on first use.
+
+    protected MemberInfo(
+        final Member member,
+        final Class<?>[] paramTypes)
+    {
+      this.paramTypes = paramTypes;
+      this.modifiers = member.getModifiers();
+      this.signature = createSignature(member, paramTypes);
+    }
+  }
+
+
+  /**
+   * Constructor.
+   */
+  protected MemberTable(final Class<T> pClass) {
+    wrappedClass = notNull(pClass);
+    modifiers = pClass.getModifiers();
+
+    Constructor<T>[] cons = new Constructor[0];
+    try {
+      cons = (Constructor<T>[]) pClass.getDeclaredConstructors();
+    }
+    catch(Throwable e) {
+      /* reflection crashed as some class is not loadable */
+    }
+    constructors = cons;
+
+    Method[] meths = new Method[0];
+    try {
+      meths = pClass.getDeclaredMethods();
+    }
+    catch(Throwable e) {
+      /* reflection crashed as some class is not loadable */
+    }
+    methods = meths;
+
+    for (Constructor<T> con: constructors) {
+      infos.put(con, new MemberInfo(con, con.getParameterTypes()));
+    }
+    for (Method meth: methods) {
+      infos.put(meth, new MemberInfo(meth, meth.getParameterTypes()));
+    }
+
+    final Comparator<Member> bySignature = new Comparator<Member>() {
+      public int compare(final Member a, final Member b) {
+        final int res =
+          infos.get(a).signature.compareTo(infos.get(b).signature);
+        if (res != 0 || !(a instanceof Method)) {
+          return res;
+        }
+        return ((Method) a).getReturnType().getName().compareTo(
+            ((Method) b).getReturnType().getName());
+      }
+    };
+    Arrays.sort(constructors, bySignature);
+    Arrays.sort(methods, bySignature);
+  }
+
+
+  /**
+   * @return declared constructors, shared array.
+   */
+  public Constructor<T>[] getConstructors() {
+    return constructors;
+  }
+
+  /**
+   * @return declared methods, shared array.
+   */
+  public Method[] getMethods() {
+    return methods;
+  }
+
+  /**
+   * @return number of declared constructors and methods.
+   */
+  public int getNrFunctions() {
+    return constructors.length + methods.length;
+  }
+
+  /**
+   * @return modifiers of the described class.
+   */
+  public int getClassModifiers() {
+    return modifiers;
+  }
+
+
+  /**
+   * @return cached info of member declared by this table's class.
+   */
+  protected MemberInfo getInfo(final Member member) {
+    notNull(member);
+
+    MemberInfo res = infos.get(member);
+    if (res != null) {  // common case: member taken from this table.
+      return res;
+    }
+
+    res = otherInfos.get(member);
+    if (res == null) {
+      Class<?>[] params = (member instanceof Method)?
+          ((Method) member).getParameterTypes() :
+          ((Constructor<?>) member).getParameterTypes();
+      res = new MemberInfo(member, params);
+      otherInfos.put(member, res);
+    }
+    return res;
+  }
+
+
+  /**
+   * @return parameter types of member, shared array.
+   */
+  public Class<?>[] getParameterTypes(final Member member) {
+    return getInfo(member).paramTypes;
+  }
+
+  /**
+   * @return modifiers of member.
+   */
+  public int getModifiers(final Member member) {
+    return getInfo(member).modifiers;
+  }
+
+  /**
+   * @return whether member is declared public and by a public class.
+   */
+  public boolean isPublicPublic(final Member member) {
+    return Modifier.isPublic(getModifiers(member)) && Modifier.isPublic(modifiers);
+  }
+
+  /**
+   * @return canonical signature, e.g., "p.C.foo(int,java.lang.String)" or
+   *         "p.C.<init>()".
+   */
+  public String getSignature(final Member member) {
+    return getInfo(member).signature;
+  }
+
+
+  /**
+   * @return invoker of member, created on first request.
+   */
+  public Invoker getInvoker(final Member member) {
+    final MemberInfo info = getInfo(member);
+    Invoker res = info.invoker;
+    if (res == null) {
+      res = new Invoker(member);
+      info.invoker = res;  // racing threads create equivalent invokers.
+    }
+    return res;
+  }
+
+
+  /**
+   * @return table of the class that declares member.
+   */
+  public static MemberTable<?> of(final Member member) {
+    return get(notNull(member).getDeclaringClass());
+  }
+
+  /**
+   * @return cached parameter types of member, shared array.
+   */
+  public static Class<?>[] paramsOf(final Member member) {
+    return of(member).getParameterTypes(member);
+  }
+
+  /**
+   * @return cached invoker of member.
+   */
+  public static Invoker invokerOf(final Member member) {
+    return of(member).getInvoker(member);
+  }
+
+
+  /**
+   * @return canonical signature of member with given parameter types.
+   */
+  protected static String createSignature(
+      final Member member,
+      final Class<?>[] paramTypes)
+  {
+    final StringBuilder sb = new StringBuilder();
+    sb.append(member.getDeclaringClass().getName());
+    sb.append('.');
+    sb.append((member instanceof Constructor)? "<init>" : member.getName());
+    sb.append('(');
+    for (int i=0; i<paramTypes.length; i++) {
+      if (i>0) {
+        sb.append(',');
+      }
+      sb.append(paramTypes[i].getName());
+    }
+    sb.append(')');
+    return sb.toString();
+  }
+}
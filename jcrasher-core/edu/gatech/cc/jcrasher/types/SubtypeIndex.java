@@ -0,0 +1,176 @@
+/*
+ * SubtypeIndex.java
+ * 
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher.types;
+
+import static edu.gatech.cc.jcrasher.Assertions.notNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Hashtable;
+import java.util.List;
+
+/**
+ * Transitive closure of the child-of relation of a crawled type graph.
+ * 
+ * <p>
+ * Each wrapper gets a dense id, ordered by class name to keep the order of
+ * plan-space children independent of hashing. For each id we store a bit set of
+ * the ids of all direct and indirect subtypes. The class lists handed out are
+ * computed once per type and cached.
+ * 
+ * <p>
+ * An index is a snapshot: it does not see children added after it was built.
+ * 
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class SubtypeIndex {
+
+  /**
+   * id --> class
+   */
+  protected final Class<?>[] types;
+
+  /**
+   * Class.getName() --> id
+   */
+  protected final Hashtable<String, Integer> ids = new Hashtable<String, Integer>();
+
+  /**
+   * id --> ids of all transitive subtypes, excluding the type itself.
+   */
+  protected final BitSet[] closure;
+
+  /**
+   * id --> cached unmodifiable list of subtypes, ordered by id.
+   */
+  protected final List<Class<?>>[] subtypeLists;
+
+
+  /**
+   * Constructor, computes the closure eagerly.
+   *
+   * @param wrappers all wrappers of a fully crawled type graph.
+   */
+  public SubtypeIndex(final ClassWrapper<?>[] wrappers) {
+    notNull(wrappers);
+
+    final ClassWrapper<?>[] sorted = wrappers.clone();
+    Arrays.sort(sorted, new Comparator<ClassWrapper<?>>() {
+      public int compare(ClassWrapper<?> a, ClassWrapper<?> b) {
+        return a.getWrappedClass().getName().compareTo(
+            b.getWrappedClass().getName());
+      }
+    });
+
+    types = new Class[sorted.length];
+    for (int id = 0; id < sorted.length; id++) {
+      types[id] = sorted[id].getWrappedClass();
+      ids.put(types[id].getName(), id);
+    }
+
+    /* Direct children as ids. */
+    final int[][] direct = new int[sorted.length][];
+    for (int id = 0; id < sorted.length; id++) {
+      final List<? extends Class<?>> children = sorted[id].getChildren();
+      final int[] childIds = new int[children.size()];
+      int nrIds = 0;
+      for (Class<?> child : children) {
+        Integer childId = ids.get(child.getName());
+        if (childId != null) {
+          childIds[nrIds++] = childId;
+        }
+      }
+      direct[id] = new int[nrIds];
+      System.arraycopy(childIds, 0, direct[id], 0, nrIds);
+    }
+
+    closure = new BitSet[sorted.length];
+    for (int id = 0; id < sorted.length; id++) {
+      close(id, direct);
+    }
+    subtypeLists = new List[sorted.length];
+  }
+
+
+  /**
+   * Memoized depth-first closure. The child-of relation is acyclic.
+   */
+  protected BitSet close(final int id, final int[][] direct) {
+    if (closure[id] != null) {
+      return closure[id];
+    }
+
+    final BitSet res = new BitSet(types.length);
+    for (int child : direct[id]) {
+      res.set(child);
+      res.or(close(child, direct));
+    }
+    closure[id] = res;
+    return res;
+  }
+
+
+  /**
+   * @return dense id of pClass or -1 if pClass was not known when this
+   *         index was built.
+   */
+  public int getId(final Class<?> pClass) {
+    notNull(pClass);
+
+    final Integer id = ids.get(pClass.getName());
+    if (id == null || types[id] != pClass) {
+      return -1;
+    }
+    return id;
+  }
+
+
+  /**
+   * @return number of indexed types.
+   */
+  public int size() {
+    return types.length;
+  }
+
+
+  /**
+   * @return whether sub is a transitive subtype of sup, according to the
+   *         crawled child-of relation.
+   */
+  public boolean isSubtype(final Class<?> sub, final Class<?> sup) {
+    final int subId = getId(sub);
+    final int supId = getId(sup);
+    return (subId >= 0) && (supId >= 0) && closure[supId].get(subId);
+  }
+
+
+  /**
+   * @return all transitive subtypes of pClass, ordered by id, excluding pClass;
+   *         null if pClass is not indexed.
+   */
+  public <T> List<Class<? extends T>> getSubtypes(final Class<T> pClass) {
+    final int id = getId(pClass);
+    if (id < 0) {
+      return null;
+    }
+
+    synchronized (subtypeLists) {
+      if (subtypeLists[id] == null) {
+        final BitSet bits = closure[id];
+        final List<Class<?>> res = new ArrayList<Class<?>>(bits.cardinality());
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+          res.add(types[i]);
+        }
+        subtypeLists[id] = Collections.unmodifiableList(res);
+      }
+    }
+
+    return (List) subtypeLists[id];
+  }
+}
@@ -5,6 +5,7 @@
  */
 package edu.gatech.cc.jcrasher.types;
 
+import java.util.List;
 import java.util.Set;
 
 import edu.gatech.cc.jcrasher.Constants.Visibility;
@@ -40,4 +41,15 @@ public interface TypeGraph {
    * @return all class-wrappers
    */
   public ClassWrapper<?>[] getWrappers();
+
+
+  /**
+   * Transitive child-of relation, as indexed at the end of the last crawl.
+   * For types not known at that time this falls back to the direct children
+   * of the type's wrapper.
+   * 
+   * @return all classes S with S (transitively) implementing or extending
+   *         pClass, excluding pClass; never null.
+   */
+  public <T> List<Class<? extends T>> getSubtypes(final Class<T> pClass);
 }
@@ -0,0 +1,468 @@
+/*
+ * TypeGraphCache.java
+ * 
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher.types;
+
+import static edu.gatech.cc.jcrasher.Assertions.notNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.List;
+
+import edu.gatech.cc.jcrasher.Constants.Visibility;
+
+/**
+ * Persists a crawled type graph, to be reused by later runs.
+ * 
+ * <p>
+ * For each wrapper we store the constructing methods, children, and number of
+ * preset plans, together with a hash of the wrapped class. For a JDK type
+ * the hash is the one of the JDK version; for any other type it is the hash of
+ * its class file.
+ * 
+ * <p>
+ * On load we only restore information about valid types, i.e., types
+ * whose hash has not changed. A valid type counts as searched, so the crawl
+ * skips it. Its rules that stem from invalid types are dropped and come back
+ * when the crawl searches these new or modified types again.
+ * 
+ * <p>
+ * Plan-space sizes are not stored, as they depend on depth and null filter and
+ * the planner computes them while building its plan-space nodes.
+ * 
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class TypeGraphCache {
+
+  protected static final int MAGIC = 0x4A435447;  // "JCTG"
+  protected static final int VERSION = 1;
+
+  protected static final Hashtable<String, Class<?>> primitives =
+    new Hashtable<String, Class<?>>();
+  static {
+    for (Class<?> c: new Class[]{boolean.class, byte.class, char.class,
+        short.class, int.class, long.class, float.class, double.class,
+        void.class}) {
+      primitives.put(c.getName(), c);
+    }
+  }
+
+  /**
+   * Cache file.
+   */
+  protected final File file;
+
+  /**
+   * Class.getName() --> hash, computed at most once per run.
+   */
+  protected final Hashtable<String, Long> hashes = new Hashtable<String, Long>();
+
+
+  /**
+   * Constructor
+   */
+  public TypeGraphCache(final File file) {
+    this.file = notNull(file);
+  }
+
+
+  /**
+   * Restores all valid types stored in our file into typeGraph.
+   * Does nothing if the file does not exist, is corrupt, or was written for
+   * a different visibility.
+   *
+   * @return number of types restored.
+   */
+  public int load(final AbstractTypeGraph typeGraph, final Visibility visUsed) {
+    notNull(typeGraph);
+    notNull(visUsed);
+
+    if (!file.isFile()) {
+      return 0;
+    }
+
+    final List<Entry> entries = new ArrayList<Entry>();
+    DataInputStream in = null;
+    try {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      if (in.readInt() != MAGIC || in.readInt() != VERSION
+          || !visUsed.name().equals(in.readUTF())) {
+        return 0;
+      }
+      final int nrEntries = in.readInt();
+      for (int i=0; i<nrEntries; i++) {
+        entries.add(Entry.read(in));
+      }
+    }
+    catch (IOException e) {
+      return 0;   // unusable cache: crawl everything.
+    }
+    finally {
+      close(in);
+    }
+
+    /* Determine valid types */
+    final Hashtable<String, Class<?>> valid = new Hashtable<String, Class<?>>();
+    for (Entry entry: entries) {
+      final Class<?> c = resolve(entry.name);
+      if (c == null) {
+        continue;   // removed: forget it.
+      }
+      final long hash = hash(c);
+      if (hash != 0   // 0: cannot validate, crawl again.
+          && entry.hash == hash
+          && entry.nrPresets == PresetValues.getPreset(c).length) {
+        valid.put(entry.name, c);
+      }
+      else {
+        /* Modified: queue it for the crawl, as valid types referring to it
+         * will not be searched again. */
+        typeGraph.getWrapper(c);
+      }
+    }
+
+    /* Restore rules stemming from valid types */
+    int res = 0;
+    for (Entry entry: entries) {
+      final Class<?> c = valid.get(entry.name);
+      if (c == null) {
+        continue;
+      }
+      final ClassWrapperImpl<?> cw = (ClassWrapperImpl<?>) typeGraph.getWrapper(c);
+      res += 1;
+
+      for (MethodRef ref: entry.conMeths) {
+        final Class<?> declaring = valid.get(ref.declaringClass);
+        if (declaring != null) {
+          final Method meth = ref.find(declaring);
+          if (meth != null && !cw.constrMeth.contains(meth)) {
+            cw.constrMeth.add(meth);
+          }
+        }
+      }
+      for (String child: entry.children) {
+        final Class<?> childClass = valid.get(child);
+        if (childClass != null) {
+          ((ClassWrapperImpl) cw).addChild(childClass);
+        }
+      }
+      if (entry.isSearched) {
+        cw.setIsSearched();
+      }
+    }
+    return res;
+  }
+
+
+  /**
+   * Writes all wrappers of typeGraph to our file, replacing its content.
+   */
+  public void save(final TypeGraph typeGraph, final Visibility visUsed)
+  throws IOException {
+    notNull(typeGraph);
+    notNull(visUsed);
+
+    final ClassWrapper<?>[] wrappers = typeGraph.getWrappers();
+    final File tmp = new File(file.getPath() + ".tmp");
+    final DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(new FileOutputStream(tmp)));
+    try {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeUTF(visUsed.name());
+      out.writeInt(wrappers.length);
+      for (ClassWrapper<?> wrapper: wrappers) {
+        final ClassWrapperImpl<?> cw = (ClassWrapperImpl<?>) wrapper;
+        final Class<?> c = cw.getWrappedClass();
+        out.writeUTF(c.getName());
+        out.writeLong(hash(c));
+        out.writeBoolean(cw.isSearched());
+        out.writeInt(cw.presetPlans.size());
+
+        out.writeInt(cw.getConMeths().size());
+        for (Method meth: cw.getConMeths()) {
+          out.writeUTF(meth.getDeclaringClass().getName());
+          out.writeUTF(meth.getName());
+          final Class<?>[] params = MemberTable.paramsOf(meth);
+          out.writeInt(params.length);
+          for (Class<?> param: params) {
+            out.writeUTF(param.getName());
+          }
+        }
+
+        final List<? extends Class<?>> children = cw.getChildren();
+        out.writeInt(children.size());
+        for (Class<?> child: children) {
+          out.writeUTF(child.getName());
+        }
+      }
+    }
+    finally {
+      out.close();
+    }
+
+    if (file.exists() && !file.delete()) {
+      throw new IOException("Could not replace " + file);
+    }
+    if (!tmp.renameTo(file)) {
+      throw new IOException("Could not rename " + tmp + " to " + file);
+    }
+  }
+
+
+  /**
+   * Rebuilds the wrappers of source in target, over the classes of the same
+   * names that loader loads, so that crawling target finds nothing new.
+   * Drops what refers to a class loader cannot load.
+   */
+  public static void copy(
+      final TypeGraph source,
+      final AbstractTypeGraph target,
+      final ClassLoader loader)
+  {
+    notNull(source);
+    notNull(target);
+    notNull(loader);
+
+    final ClassWrapper<?>[] wrappers = source.getWrappers();
+    final Hashtable<String, Class<?>> copies = new Hashtable<String, Class<?>>();
+    for (ClassWrapper<?> wrapper: wrappers) {
+      final String name = wrapper.getWrappedClass().getName();
+      final Class<?> c = resolve(name, loader);
+      if (c != null) {
+        copies.put(name, c);
+      }
+    }
+
+    for (ClassWrapper<?> wrapper: wrappers) {
+      final ClassWrapperImpl<?> from = (ClassWrapperImpl<?>) wrapper;
+      final Class<?> c = copies.get(from.getWrappedClass().getName());
+      if (c == null) {
+        continue;
+      }
+      final ClassWrapperImpl<?> cw = (ClassWrapperImpl<?>) target.getWrapper(c);
+
+      for (Method meth: from.getConMeths()) {
+        final String declaringName = meth.getDeclaringClass().getName();
+        Class<?> declaring = copies.get(declaringName);
+        if (declaring == null) {
+          declaring = resolve(declaringName, loader);
+        }
+        final Method copy =
+          (declaring == null)? null : MethodRef.of(meth).find(declaring);
+        if (copy != null && !cw.constrMeth.contains(copy)) {
+          cw.constrMeth.add(copy);
+        }
+      }
+      for (Class<?> child: from.getChildren()) {
+        final Class<?> copy = copies.get(child.getName());
+        if (copy != null) {
+          ((ClassWrapperImpl) cw).addChild(copy);
+        }
+      }
+      if (from.isSearched()) {
+        cw.setIsSearched();
+      }
+    }
+  }
+
+
+  /**
+   * @return class of given name, without initializing it, or null.
+   */
+  protected Class<?> resolve(final String name) {
+    return resolve(name, TypeGraphCache.class.getClassLoader());
+  }
+
+  /**
+   * @return class of given name loader loads, without initializing it, or
+   * null.
+   */
+  protected static Class<?> resolve(final String name, final ClassLoader loader) {
+    final Class<?> primitive = primitives.get(name);
+    if (primitive != null) {
+      return primitive;
+    }
+    try {
+      return Class.forName(name, false, loader);
+    }
+    catch (Throwable t) {
+      return null;  // removed or no longer loadable.
+    }
+  }
+
+
+  /**
+   * @return hash of the JDK version for library types, hash of the class
+   * file otherwise, or 0 if the class file cannot be read.
+   */
+  protected long hash(final Class<?> c) {
+    final String name = c.getName();
+    final Long cached = hashes.get(name);
+    if (cached != null) {
+      return cached;
+    }
+
+    long res = 0;
+    if (ClassWrapperImpl.isLibraryType(c)) {
+      res = digest(System.getProperty("java.version").getBytes());
+    }
+    else {
+      final ClassLoader loader = (c.getClassLoader()==null)?
+          ClassLoader.getSystemClassLoader() : c.getClassLoader();
+      final InputStream in =
+        loader.getResourceAsStream(name.replace('.', '/') + ".class");
+      if (in != null) {
+        try {
+          final byte[] buffer = new byte[4096];
+          final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+          for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+            bytes.write(buffer, 0, n);
+          }
+          res = digest(bytes.toByteArray());
+        }
+        catch (IOException e) {
+          res = 0;
+        }
+        finally {
+          close(in);
+        }
+      }
+    }
+    hashes.put(name, res);
+    return res;
+  }
+
+
+  /**
+   * @return first eight bytes of the MD5 digest of bytes.
+   */
+  protected static long digest(final byte[] bytes) {
+    try {
+      final byte[] md5 = MessageDigest.getInstance("MD5").digest(bytes);
+      long res = 0;
+      for (int i=0; i<8; i++) {
+        res = (res << 8) | (md5[i] & 0xFF);
+      }
+      return res;
+    }
+    catch (Exception e) {
+      throw new IllegalStateException(e);  // every JRE provides MD5.
+    }
+  }
+
+
+  protected static void close(final Closeable c) {
+    if (c != null) {
+      try {
+        c.close();
+      }
+      catch (IOException e) {
+        /* ignore */
+      }
+    }
+  }
+
+
+  /**
+   * Stored method.
+   */
+  protected static class MethodRef {
+    protected String declaringClass;
+    protected String name;
+    protected String[] params;
+
+    /**
+     * @return reference to meth.
+     */
+    protected static MethodRef of(final Method meth) {
+      final MethodRef res = new MethodRef();
+      res.declaringClass = meth.getDeclaringClass().getName();
+      res.name = meth.getName();
+      final Class<?>[] types = MemberTable.paramsOf(meth);
+      res.params = new String[types.length];
+      for (int i=0; i<types.length; i++) {
+        res.params[i] = types[i].getName();
+      }
+      return res;
+    }
+
+    /**
+     * @return method declared by c, matching this reference, or null.
+     */
+    protected Method find(final Class<?> c) {
+      final MemberTable<?> table = MemberTable.get(c);
+      for (Method meth: table.getMethods()) {
+        if (!meth.getName().equals(name)) {
+          continue;
+        }
+        final Class<?>[] types = table.getParameterTypes(meth);
+        if (types.length != params.length) {
+          continue;
+        }
+        boolean matches = true;
+        for (int i=0; i<types.length && matches; i++) {
+          matches = types[i].getName().equals(params[i]);
+        }
+        if (matches) {
+          return meth;
+        }
+      }
+      return null;
+    }
+  }
+
+
+  /**
+   * Stored wrapper.
+   */
+  protected static class Entry {
+    protected String name;
+    protected long hash;
+    protected boolean isSearched;
+    protected int nrPresets;
+    protected final List<MethodRef> conMeths = new ArrayList<MethodRef>();
+    protected final List<String> children = new ArrayList<String>();
+
+    protected static Entry read(final DataInputStream in) throws IOException {
+      final Entry res = new Entry();
+      res.name = in.readUTF();
+      res.hash = in.readLong();
+      res.isSearched = in.readBoolean();
+      res.nrPresets = in.readInt();
+
+      final int nrConMeths = in.readInt();
+      for (int i=0; i<nrConMeths; i++) {
+        final MethodRef ref = new MethodRef();
+        ref.declaringClass = in.readUTF();
+        ref.name = in.readUTF();
+        ref.params = new String[in.readInt()];
+        for (int j=0; j<ref.params.length; j++) {
+          ref.params[j] = in.readUTF();
+        }
+        res.conMeths.add(ref);
+      }
+
+      final int nrChildren = in.readInt();
+      for (int i=0; i<nrChildren; i++) {
+        res.children.add(in.readUTF());
+      }
+      return res;
+    }
+  }
+}
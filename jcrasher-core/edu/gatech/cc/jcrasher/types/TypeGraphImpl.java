@@ -41,10 +41,13 @@ public class TypeGraphImpl extends AbstractTypeGraph {
 
 
   /**
-   * Constructor to be called only from class initializer.
+   * Constructor
+   * 
+   * Each generation run crawls its own graph, so that runs do not see each
+   * other's wrappers. The singleton serves users of the code-creation API.
    */
-  protected TypeGraphImpl() {
-    /* Limit visibility */
+  public TypeGraphImpl() {
+    /* Empty */
   }
 
   /**
@@ -117,15 +120,9 @@ public class TypeGraphImpl extends AbstractTypeGraph {
      * Methods: store and queue params, return types for search for each
      * non-abstract declared (incl. overridden) method do
      */
-    Method[] methods = new Method[0];
-    try {
-      methods = cw.getWrappedClass().getDeclaredMethods();
-    }
-    catch(Throwable e) {
-      /* reflection crashed as some class is not loadable */
-    }
+    final MemberTable<T> table = MemberTable.get(cw.getWrappedClass());
     
-    for (Method meth: methods) {
+    for (Method meth: table.getMethods()) {
       Class<?> returnType = meth.getReturnType();        
       if (!ClassSourceImpl.instance().initializeDeep(returnType)) {
         continue;   //skip class we cannot fully initialize.
@@ -133,12 +130,12 @@ public class TypeGraphImpl extends AbstractTypeGraph {
 
       ClassWrapperImpl rW = (ClassWrapperImpl) getWrapper(returnType);
       
-      if ((Modifier.isAbstract(meth.getModifiers())==false) &&
+      if ((Modifier.isAbstract(table.getModifiers(meth))==false) &&
           (rW.getWrappedClass().isPrimitive()==false)) {
         rW.addConstrMeth(meth, visUsed); //found rule for return type
       }
 
-      for (Class<?> paramType : meth.getParameterTypes()) {
+      for (Class<?> paramType : table.getParameterTypes(meth)) {
         
         if (ClassSourceImpl.instance().initializeDeep(paramType)) {
           getWrapper(paramType); // Queue param types even for non-public meths
@@ -149,16 +146,8 @@ public class TypeGraphImpl extends AbstractTypeGraph {
 
     /* Constructors: Queue params for search */
     
-    Constructor[] constructors = new Constructor[0];
-    try {
-      constructors = cw.getWrappedClass().getDeclaredConstructors();
-    }
-    catch(Throwable e) {
-      /* reflection crashed as some class is not loadable */
-    }
-    
-    for (Constructor<T> con: constructors) {
-      for (Class<?> paramType : con.getParameterTypes()) {
+    for (Constructor<T> con: table.getConstructors()) {
+      for (Class<?> paramType : table.getParameterTypes(con)) {
         
         if (ClassSourceImpl.instance().initializeDeep(paramType)) {
           getWrapper(paramType); // Create wrapper for each param-type
@@ -200,6 +189,7 @@ public class TypeGraphImpl extends AbstractTypeGraph {
     notNull(pClasses);
     notNull(visUsed);
     
+    subtypeIndex = null;  // crawl may add children.
     init(pClasses); // add classes specified by the user
 
     /* Iteratively extract functions and queue up found referenced types. Follow
@@ -219,5 +209,7 @@ public class TypeGraphImpl extends AbstractTypeGraph {
         }
       }
     }
+    
+    buildSubtypeIndex();
   } 
 }
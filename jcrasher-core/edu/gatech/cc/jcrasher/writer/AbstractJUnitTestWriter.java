@@ -9,10 +9,6 @@ import static edu.gatech.cc.jcrasher.Assertions.notNull;
 import static edu.gatech.cc.jcrasher.Constants.NL;
 import static edu.gatech.cc.jcrasher.Constants.TAB;
 
-import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
-
 /**
  * Provides basic JUnit test case writing functions
  * for the wrapped type.
@@ -117,61 +113,4 @@ public abstract class AbstractJUnitTestWriter<T> {
         content.replaceAll("(?m)^", tabs+" * ")+        NL+
         tabs+" */"+                                     NL;    
   }
-  
-  
-  /**
-   * @return a file writer that writes to file.
-   * null if it failed.
-   */
-  protected FileWriter createFileWriter(final File file) {
-    notNull(file);
-    
-    FileWriter fileWriter = null;
-    try {
-      fileWriter = new FileWriter(file);
-    }
-    catch (IOException e) {
-      e.printStackTrace();
-    }
-    return fileWriter;
-  }
-  
-  
-  /**
-   * @return success of writing content to fileWriter.
-   */
-  protected boolean writeToFileWriter(
-      final FileWriter fileWriter, 
-      final String content) {
-    
-    notNull(fileWriter);
-    notNull(content);    
-    
-    try {
-      fileWriter.write(content);
-    }
-    catch (IOException e) {
-      e.printStackTrace();
-      return false;
-    }
-    return true;
-  }
-  
-  
-  /**
-   * @return success of closing fileWriter.
-   */
-  protected boolean closeFileWriter(final FileWriter fileWriter) {
-    notNull(fileWriter);
-    
-    try {
-      fileWriter.close();
-    }
-    catch (IOException e) {
-      e.printStackTrace();
-      return false;
-    }
-    
-    return true;
-  }  
 }
@@ -0,0 +1,252 @@
+/*
+ * AsyncOutputSink.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher.writer;
+
+import static edu.gatech.cc.jcrasher.Assertions.check;
+import static edu.gatech.cc.jcrasher.Assertions.notNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands each file to background threads that write it to another sink, so
+ * that the caller can plan the next test class while we write.
+ *
+ * <p>
+ * The queue is bounded, so a caller that renders faster than the disk
+ * takes waits for a free slot instead of holding all sources in memory.
+ * We report the first failed write from the next write or from close.
+ * Once no thread is left to take from the queue, write and close fail
+ * instead of waiting for a slot that never frees.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class AsyncOutputSink implements OutputSink {
+
+  /**
+   * Queued after the last file, once per thread.
+   */
+  protected static final Entry END = new Entry(null, null, null);
+
+  /**
+   * How long we wait for a free slot before we check that a thread still
+   * takes from the queue.
+   */
+  protected static final long POLL_MILLIS = 100;
+
+  protected final OutputSink target;
+  protected final BlockingQueue<Entry> queue;
+  protected final Thread[] threads;
+
+  /**
+   * First failed write, null if none.
+   */
+  protected IOException failure = null;
+  protected boolean isClosed = false;
+
+  /**
+   * Number of threads that have not returned from drain yet.
+   */
+  protected int nrRunning;
+
+
+  /**
+   * Constructor, starts nrThreads threads.
+   *
+   * @param capacity number of files waiting to be written, beyond which
+   * write blocks.
+   */
+  public AsyncOutputSink(final OutputSink target, int nrThreads, int capacity) {
+    check(nrThreads > 0);
+    check(capacity > 0);
+
+    this.target = notNull(target);
+    this.queue = new ArrayBlockingQueue<Entry>(capacity);
+    this.threads = new Thread[nrThreads];
+    this.nrRunning = nrThreads;
+    for (int i=0; i<nrThreads; i++) {
+      threads[i] = new Thread("JCrasher writer " + i) {
+        @Override
+        public void run() {
+          drain();
+        }
+      };
+      threads[i].setDaemon(true);
+      threads[i].start();
+    }
+  }
+
+
+  /**
+   * Writes queued files until we take END. A file target fails on, with
+   * whatever throwable, becomes the failure we report.
+   */
+  protected void drain() {
+    try {
+      while (true) {
+        Entry entry = null;
+        try {
+          entry = queue.take();
+        }
+        catch (InterruptedException e) {
+          return;
+        }
+        if (entry == END) {
+          return;
+        }
+        try {
+          if (entry.bytes != null) {
+            target.write(entry.file, entry.bytes);
+          }
+          else {
+            target.write(entry.file, entry.content);
+          }
+        }
+        catch (IOException e) {
+          fail(e);
+        }
+        catch (Throwable e) {
+          final IOException failed =
+            new IOException("Could not write " + entry.file + ": " + e);
+          failed.initCause(e);
+          fail(failed);
+        }
+      }
+    }
+    finally {
+      synchronized (this) {
+        nrRunning -= 1;
+      }
+    }
+  }
+
+
+  protected synchronized void fail(final IOException e) {
+    if (failure == null) {
+      failure = e;
+    }
+  }
+
+  protected synchronized void checkFailure() throws IOException {
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  protected synchronized boolean isRunning() {
+    return nrRunning > 0;
+  }
+
+
+  /**
+   * Waits for a free slot and queues entry there.
+   *
+   * @return false if no thread is left to take entry.
+   */
+  protected boolean offer(final Entry entry) throws InterruptedException {
+    while (!queue.offer(entry, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+      if (!isRunning()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+
+  /**
+   * Queues file, waiting for a free slot.
+   */
+  public void write(final File file, final String content) throws IOException {
+    put(new Entry(notNull(file), notNull(content), null));
+  }
+
+  /**
+   * Queues file, waiting for a free slot.
+   */
+  public void write(final File file, final byte[] content) throws IOException {
+    put(new Entry(notNull(file), null, notNull(content)));
+  }
+
+
+  protected void put(final Entry entry) throws IOException {
+    synchronized (this) {
+      check(!isClosed);
+    }
+    checkFailure();
+
+    boolean isQueued = false;
+    try {
+      isQueued = offer(entry);
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while queueing " + entry.file);
+    }
+    if (!isQueued) {
+      checkFailure();
+      throw new IOException("No writer thread left to write " + entry.file);
+    }
+  }
+
+
+  /**
+   * Waits until we have written all queued files, then closes target.
+   * Files still queued once all threads have returned count as failed.
+   */
+  public void close() throws IOException {
+    synchronized (this) {
+      if (isClosed) {
+        return;
+      }
+      isClosed = true;
+    }
+    try {
+      for (int i=0; i<threads.length; i++) {
+        if (!offer(END)) {
+          break;
+        }
+      }
+      for (Thread thread: threads) {
+        thread.join();
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while writing queued files");
+    }
+    int nrLost = 0;
+    for (Entry entry: queue) {
+      if (entry != END) {
+        nrLost += 1;
+      }
+    }
+    if (nrLost > 0) {
+      fail(new IOException("No writer thread left to write " + nrLost
+          + " queued files"));
+    }
+    target.close();
+    checkFailure();
+  }
+
+
+  /**
+   * File and what to write to it, a source or bytes.
+   */
+  protected static class Entry {
+    protected final File file;
+    protected final String content;
+    protected final byte[] bytes;
+
+    protected Entry(final File file, final String content, final byte[] bytes) {
+      this.file = file;
+      this.content = content;
+      this.bytes = bytes;
+    }
+  }
+}
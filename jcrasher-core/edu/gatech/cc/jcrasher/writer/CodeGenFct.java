@@ -7,6 +7,12 @@ package edu.gatech.cc.jcrasher.writer;
 
 import static edu.gatech.cc.jcrasher.Assertions.notNull;
 
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import edu.gatech.cc.jcrasher.plans.Renderable;
+
 /**
  * Functions commonly used to produce proper java code
  * 
@@ -14,6 +20,35 @@ import static edu.gatech.cc.jcrasher.Assertions.notNull;
  */
 public class CodeGenFct {
 
+  /**
+   * Names we cache before starting over, so that the cache does not keep
+   * the classes of many class loaders alive.
+   */
+  protected static final int MAX_NAMES = 4096;
+  
+  /**
+   * (type, testee) --> getName(type, testee).
+   */
+  protected static final Map<NameKey, String> names =
+    new HashMap<NameKey, String>();
+  
+
+  /**
+   * @return text code renders.
+   */
+  public static String text(final Renderable code) {
+    notNull(code);
+    
+    final StringBuilder sb = new StringBuilder();
+    try {
+      code.render(sb);
+    }
+    catch (IOException e) {  //StringBuilder does not throw.
+      throw new IllegalStateException(e);
+    }
+    return sb.toString();
+  }
+
 
   /**
    * java.lang.Class --> java source name
@@ -79,8 +114,28 @@ public class CodeGenFct {
    * TODO(csallner) test this for nested testee type.
    */
   public static String getName(final Class<?> type, final Class<?> testee) {
-    notNull(type);
-    notNull(testee);
+    final NameKey key = new NameKey(notNull(type), notNull(testee));
+    synchronized (names) {
+      final String res = names.get(key);
+      if (res != null) {
+        return res;
+      }
+    }
+    
+    final String res = computeName(type, testee);
+    synchronized (names) {
+      if (names.size() >= MAX_NAMES) {
+        names.clear();
+      }
+      names.put(key, res);
+    }
+    return res;
+  }
+  
+  
+  protected static String computeName(
+      final Class<?> type, final Class<?> testee)
+  {
 
     /*
      * Generally stripping java.lang from types in java.lang is a bad idea: If
@@ -113,4 +168,32 @@ public class CodeGenFct {
 
     return className;
   }
+  
+  
+  /**
+   * Pair of classes, compared by identity.
+   */
+  protected static class NameKey {
+    protected final Class<?> type;
+    protected final Class<?> testee;
+    
+    protected NameKey(final Class<?> type, final Class<?> testee) {
+      this.type = type;
+      this.testee = testee;
+    }
+    
+    @Override
+    public boolean equals(final Object obj) {
+      if (!(obj instanceof NameKey)) {
+        return false;
+      }
+      final NameKey other = (NameKey) obj;
+      return type == other.type && testee == other.testee;
+    }
+    
+    @Override
+    public int hashCode() {
+      return 31 * type.hashCode() + testee.hashCode();
+    }
+  }
 }
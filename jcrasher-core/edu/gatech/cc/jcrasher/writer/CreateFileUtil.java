@@ -10,8 +10,6 @@ import static edu.gatech.cc.jcrasher.Assertions.notNull;
 import java.io.File;
 import java.net.URLDecoder;
 
-import edu.gatech.cc.jcrasher.Constants;
-
 /**
  * @author csallner@gatech.edu (Christoph Csallner)
  */
@@ -77,11 +75,20 @@ public class CreateFileUtil {
    * @return /c:/my/project/bin
    */
   public static String getTestRoot(final Class<?> pClass) {
+    return getTestRoot(pClass, null);
+  }
+
+
+  /**
+   * @param outDir user-specified output directory or null.
+   * @see CreateFileUtil#getTestRoot(Class)
+   */
+  public static String getTestRoot(final Class<?> pClass, final File outDir) {
     notNull(pClass);
     String testRoot = null; // /c:/my/project/test-root/
 
-    if (Constants.OUT_DIR != null) {
-      testRoot = Constants.OUT_DIR.getPath();
+    if (outDir != null) {
+      testRoot = outDir.getPath();
     } else {
       testRoot = getBinRoot(pClass);
       if (testRoot == null) { // found the class packaged in a jar.
@@ -92,12 +99,28 @@ public class CreateFileUtil {
   }
 
 
+  /**
+   * Creates dir and its parents, unless dir exists.
+   * 
+   * @return whether dir exists.
+   */
+  public static boolean mkdirs(final File dir) {
+    notNull(dir);
+    
+    if (!dir.isDirectory()) {
+      dir.mkdirs();
+    }
+    return dir.isDirectory();
+  }
+
+
   /**
    * @param pathAbsolute location in file system
    * @param simpleTypeName name of the java class to be generated
-   * @return handle to /<pathAbsolute>/<typeName>.java
+   * @return handle to /<pathAbsolute>/<typeName>.java, without creating
+   * any directory.
    */
-  public static File createOutFile(
+  public static File getOutFile(
       final String pathAbsolute,
       final String simpleTypeName) {
     
@@ -108,15 +131,26 @@ public class CreateFileUtil {
      * TODO: check if file already created --> change own name to avoid
      * replacement
      */
-    File res = new File(pathAbsolute + "/" + simpleTypeName + ".java");
+    return new File(pathAbsolute + "/" + simpleTypeName + ".java");
+  }
+
+
+  /**
+   * @param pathAbsolute location in file system
+   * @param simpleTypeName name of the java class to be generated
+   * @return handle to /<pathAbsolute>/<typeName>.java
+   */
+  public static File createOutFile(
+      final String pathAbsolute,
+      final String simpleTypeName) {
+    
+    File res = getOutFile(pathAbsolute, simpleTypeName);
 
     /* Create sub-dir structure */
-    if (res.getParentFile().exists() == false) {
-      try {
-        res.getParentFile().mkdirs();
-      } catch (Throwable t) {
-        t.printStackTrace();
-      }
+    try {
+      mkdirs(res.getParentFile());
+    } catch (Throwable t) {
+      t.printStackTrace();
     }
 
     return notNull(res);
@@ -136,11 +170,39 @@ public class CreateFileUtil {
       final Class<?> pClass, 
       final String simpleTypeName) {
     
+    return createOutFile(pClass, simpleTypeName, null);
+  }
+
+
+  /**
+   * @param outDir user-specified output directory or null.
+   * @see CreateFileUtil#createOutFile(Class, String)
+   */
+  public static File createOutFile(
+      final Class<?> pClass, 
+      final String simpleTypeName,
+      final File outDir) {
+    
+    final File res = getOutFile(pClass, simpleTypeName, outDir);
+    return createOutFile(res.getParent(), simpleTypeName);
+  }
+
+
+  /**
+   * @param outDir user-specified output directory or null.
+   * @return handle to /abspath/<package>.<Class>Test.java, without creating
+   * any directory.
+   */
+  public static File getOutFile(
+      final Class<?> pClass, 
+      final String simpleTypeName,
+      final File outDir) {
+    
     notNull(pClass);
     notNull(simpleTypeName);
 
-    String pathAbsolute = CreateFileUtil.getTestRoot(pClass) + "/"
+    String pathAbsolute = CreateFileUtil.getTestRoot(pClass, outDir) + "/"
       + getPackagePath(pClass);
-    return createOutFile(pathAbsolute, simpleTypeName);
+    return getOutFile(pathAbsolute, simpleTypeName);
   }
 }
@@ -0,0 +1,100 @@
+/*
+ * FileOutputSink.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher.writer;
+
+import static edu.gatech.cc.jcrasher.Assertions.notNull;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Writes each file at once, in the calling thread, through a FileChannel.
+ * Encodes sources as UTF-8.
+ *
+ * <p>
+ * We create each directory once per sink. If a directory we created has
+ * gone when we open a file in it, we create it again.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class FileOutputSink implements OutputSink {
+
+  /**
+   * Encoding of the sources we write.
+   */
+  public static final Charset UTF8 = Charset.forName("UTF-8");
+
+  /**
+   * Directories we created or found.
+   */
+  protected final Set<File> dirs =
+    Collections.synchronizedSet(new HashSet<File>());
+
+
+  public void write(final File file, final String content) throws IOException {
+    write(notNull(file), UTF8.encode(notNull(content)));
+  }
+
+
+  public void write(final File file, final byte[] content) throws IOException {
+    write(notNull(file), ByteBuffer.wrap(notNull(content)));
+  }
+
+
+  protected void write(final File file, final ByteBuffer bytes)
+  throws IOException
+  {
+    final File dir = file.getParentFile();
+    mkdirs(dir);
+    FileOutputStream out = null;
+    try {
+      out = new FileOutputStream(file);
+    }
+    catch (FileNotFoundException e) {
+      if (dir == null || !dirs.remove(dir)) {
+        throw e;
+      }
+      mkdirs(dir);  //someone deleted it since we created it.
+      out = new FileOutputStream(file);
+    }
+    try {
+      final FileChannel channel = out.getChannel();
+      while (bytes.hasRemaining()) {
+        channel.write(bytes);
+      }
+    }
+    finally {
+      out.close();
+    }
+  }
+
+
+  /**
+   * Creates dir, unless we did so before.
+   */
+  protected void mkdirs(final File dir) throws IOException {
+    if (dir == null || dirs.contains(dir)) {
+      return;
+    }
+    if (!CreateFileUtil.mkdirs(dir)) {
+      throw new IOException("Could not create " + dir);
+    }
+    dirs.add(dir);
+  }
+
+
+  public void close() {
+    /* Empty: we write each file at once. */
+  }
+}
@@ -77,6 +77,15 @@ public interface JUnitAll {
 	public void addTestSuite(String test);
 	
 	
+	/**
+	 * Append invocation of test suite.
+	 * 
+	 * @param nrTests number of testX() methods of test, which lets
+	 * implementations weigh test suites.
+	 */
+	public void addTestSuite(String test, int nrTests);
+	
+	
 	/**
 	 * Write closing code of JUnitAll.java.
 	 */
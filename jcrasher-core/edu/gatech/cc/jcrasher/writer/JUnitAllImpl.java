@@ -10,14 +10,35 @@ import static edu.gatech.cc.jcrasher.Constants.NL;
 import static edu.gatech.cc.jcrasher.Constants.TAB;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 /**
+ * Collects the suite in memory and hands it to our sink at finish, as one
+ * file, instead of writing each line to disk as we learn it.
+ * 
  * @author csallner@gatech.edu (Christoph Csallner)
  */
 public class JUnitAllImpl implements JUnitAll {
 
-	protected FileWriter fw;  //file not yet created in file system
+	protected final OutputSink sink;
+	protected File file;  //null = not yet created.
+	protected final StringBuilder content = new StringBuilder();
+	
+	
+	/**
+	 * Constructor, writes at once.
+	 */
+	public JUnitAllImpl() {
+		this(new FileOutputSink());
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param sink writes JUnitAll.java, e.g., in the background.
+	 */
+	public JUnitAllImpl(final OutputSink sink) {
+		this.sink = notNull(sink);
+	}
 	
 	
 	/**
@@ -25,18 +46,12 @@ public class JUnitAllImpl implements JUnitAll {
 	 * @param testRoot directory in which JUnitAll.java should be created.
 	 */
 	public void create(String testRoot) {
-		if (fw!=null) {return;}	//Already created.
+		if (file!=null) {return;}	//Already created.
 		
 		notNull(testRoot);
 		
-		File f = CreateFileUtil.createOutFile(testRoot, "JUnitAll");  //default package
-		try {
-			fw = new FileWriter(f);
-	    fw.write(junitAllHeader);	//contents up until calls to test suites.
-		}
-		catch(IOException e) {
-			e.printStackTrace();
-		}
+		file = CreateFileUtil.getOutFile(testRoot, "JUnitAll");  //default package
+		content.append(junitAllHeader);	//contents up until calls to test suites.
 	}
 
 	
@@ -46,7 +61,7 @@ public class JUnitAllImpl implements JUnitAll {
 	 * in case no out-directory has been set explicitly.
 	 */
 	public void create(Class<?> c) {
-		if (fw!=null) {return;}	//Already created.
+		if (file!=null) {return;}	//Already created.
 		
 		notNull(c);
 		create(CreateFileUtil.getTestRoot(c));
@@ -60,19 +75,22 @@ public class JUnitAllImpl implements JUnitAll {
 	 * adds to the TestSuite
 	 */
 	public void addTestSuite(String test) {
-		notNull(fw);
+		notNull(file);
 		notNull(test);
 		
-		try {
-	    fw.write(TAB+TAB+"suite.addTestSuite(" +test +".class);"+NL);
-		}
-		catch(IOException e) {
-			e.printStackTrace();
-		}				
+		content.append(TAB+TAB+"suite.addTestSuite(" +test +".class);"+NL);
 	}	
 	
 	
 		
+	/**
+	 * Append invocation of test suite, regardless of its size.
+	 */
+	public void addTestSuite(String test, int nrTests) {
+		addTestSuite(test);
+	}
+	
+	
 	/**
 	 * Append invocation of test suite.
 	 * 
@@ -80,15 +98,10 @@ public class JUnitAllImpl implements JUnitAll {
 	 * @see junit.runner.BaseTestRunner#getTest(java.lang.String) 
 	 */
 	public void addTest(String test) {
-		notNull(fw);
+		notNull(file);
 		notNull(test);
 		
-		try {
-	    fw.write(TAB+TAB+"suite.addTest(" +test +".suite());"+NL);
-		}
-		catch(IOException e) {
-			e.printStackTrace();
-		}		
+		content.append(TAB+TAB+"suite.addTest(" +test +".suite());"+NL);
 	}	
 	
 	
@@ -107,15 +120,17 @@ public class JUnitAllImpl implements JUnitAll {
 	 * Write closing code of JUnitAll.java.
 	 */
 	public void finish() {
-		if (fw==null) {return;}  //nothing to finish
+		if (file==null) {return;}  //nothing to finish
 		
+		content.append(junitAllFooter);
 		try {
-	    fw.write(junitAllFooter);
-	    fw.close();
+			sink.write(file, content.toString());
 		}
 		catch(IOException e) {
 			e.printStackTrace();
 		}		
+		file = null;
+		content.setLength(0);
 	}
 
 }
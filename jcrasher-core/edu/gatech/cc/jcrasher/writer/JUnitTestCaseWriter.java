@@ -10,7 +10,7 @@ import static edu.gatech.cc.jcrasher.Constants.NL;
 import static edu.gatech.cc.jcrasher.Constants.TAB;
 
 import java.io.File;
-import java.io.FileWriter;
+import java.io.IOException;
 import java.lang.reflect.Constructor;
 
 import edu.gatech.cc.jcrasher.plans.stmt.Block;
@@ -24,11 +24,19 @@ public class JUnitTestCaseWriter<T>
 extends AbstractJUnitTestWriter<T>
 implements TestCaseWriter 
 {
+  /**
+   * Expected number of characters outside and per test case.
+   */
+  protected static final int HEADER_SIZE = 2048;
+  protected static final int BLOCK_SIZE = 256;
+  
 	protected final boolean doFilter;
 	protected final int fileNr;					//-1 = no number.
 	protected final Block<?>[] blocks;
   protected Class<? extends Throwable> expectThrown = null;
   protected int expectedThrowingLineNumber = 0;
+  protected final File outDir;				//null = next to testee.
+  protected final OutputSink sink;
 	
 	/** 
    * Constructor
@@ -64,6 +72,48 @@ implements TestCaseWriter
       Class<? extends Throwable> expectThrown,
       int expectedThrowingLineNumber) {
 	
+    this(testeeClass, comment, doFilter, blocks, fileNr, expectThrown,
+        expectedThrowingLineNumber, null);
+	}
+
+
+  /**
+	 * Constructor.
+	 * 
+	 * @param outDir directory to write to, null for next to the testee.
+	 */
+	public JUnitTestCaseWriter(
+			final Class<T> testeeClass,
+			final String comment,
+      boolean doFilter,
+      final Block<?>[] blocks,
+      int fileNr,
+      Class<? extends Throwable> expectThrown,
+      int expectedThrowingLineNumber,
+      final File outDir) {
+	
+    this(testeeClass, comment, doFilter, blocks, fileNr, expectThrown,
+        expectedThrowingLineNumber, outDir, new FileOutputSink());
+	}
+
+
+  /**
+	 * Constructor.
+	 * 
+	 * @param outDir directory to write to, null for next to the testee.
+	 * @param sink writes the file, e.g., in the background.
+	 */
+	public JUnitTestCaseWriter(
+			final Class<T> testeeClass,
+			final String comment,
+      boolean doFilter,
+      final Block<?>[] blocks,
+      int fileNr,
+      Class<? extends Throwable> expectThrown,
+      int expectedThrowingLineNumber,
+      final File outDir,
+      final OutputSink sink) {
+	
 		super(notNull(testeeClass), notNull(comment));
 		
 		this.doFilter = doFilter;
@@ -71,6 +121,8 @@ implements TestCaseWriter
 		this.fileNr = fileNr;
     this.expectThrown = expectThrown;
     this.expectedThrowingLineNumber = expectedThrowingLineNumber;
+    this.outDir = outDir;
+    this.sink = notNull(sink);
 	}
 	
 
@@ -270,11 +322,20 @@ implements TestCaseWriter
    * </pre>
    */
   protected String getTestCases() {
+    final StringBuilder sb = new StringBuilder();
+    renderTestCases(sb);
+    return sb.toString();
+  }
+  
+  
+  /**
+   * Appends getTestCases() to sb, rendering each block into sb directly.
+   */
+  protected void renderTestCases(final StringBuilder sb) {
     
     notNull(testeeClass);
     notNull(blocks);
-    
-    final StringBuilder sb = new StringBuilder();
+    notNull(sb);
 
     for (int i = 0; i < blocks.length; i++) {
       sb.append(                                                        NL+
@@ -285,8 +346,13 @@ implements TestCaseWriter
           TAB+TAB+"try");
       }
       
-      sb.append(
-          blocks[i].text()+     																				NL);
+      try {
+        blocks[i].render(sb);
+      }
+      catch (IOException e) {  //StringBuilder does not throw.
+        throw new IllegalStateException(e);
+      }
+      sb.append(NL);
       
       if(doFilter) {
         sb.append(
@@ -294,44 +360,43 @@ implements TestCaseWriter
           TAB+"}"+                                                      NL);
       }
     }
-    
-    return sb.toString();    
   }
 
   
   /**
-   * Creates the test case.
+   * @return source of the test class.
    */
-  public File write() {
+  protected String getContent() {
     
     notNull(testeeClass);
     notNull(blocks);
     
+    /* Render into one buffer, sized for typical test cases */
+    final StringBuilder content = 
+      new StringBuilder(HEADER_SIZE + BLOCK_SIZE * blocks.length);
+    content.append(getPackageHeader());
+    content.append(getJavaDocComment(comment, ""));
+    content.append(getHeader());
+    renderTestCases(content);
+    content.append(TAB).append(NL).append(TAB).append(NL);
+    content.append(getFooter());
+    content.append('}');
+    return content.toString();
+  }
+
+  
+  /**
+   * Creates the test case, handing it to our sink.
+   */
+  public File write() {
     final File outFile = 
-    	CreateFileUtil.createOutFile(testeeClass, getSimpleTestName());    
-    final FileWriter outWriter = createFileWriter(outFile);
-    if (outWriter==null) {
-      return null;
-    }
+    	CreateFileUtil.getOutFile(testeeClass, getSimpleTestName(), outDir);
     
-    String content = 
-        getPackageHeader()+                                  
-        getJavaDocComment(comment, "")+
-        getHeader()+
-        getTestCases()+
-        TAB+                                                            NL+
-        TAB+                                                            NL+
-        getFooter()+
-        "}";
-    
-    boolean success = false;
-    success = writeToFileWriter(outWriter, content);
-    if (!success) {
-      return null;
+    try {
+      sink.write(outFile, getContent());
     }
-    
-    success = closeFileWriter(outWriter);
-    if (!success) {
+    catch (IOException e) {
+      e.printStackTrace();
       return null;
     }
 
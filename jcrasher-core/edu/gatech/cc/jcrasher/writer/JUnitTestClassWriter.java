@@ -0,0 +1,650 @@
+/*
+ * JUnitTestClassWriter.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher.writer;
+
+import static edu.gatech.cc.jcrasher.Assertions.check;
+import static edu.gatech.cc.jcrasher.Assertions.notNull;
+import static edu.gatech.cc.jcrasher.Constants.TAB;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.bcel.Constants;
+import org.apache.bcel.generic.ArrayType;
+import org.apache.bcel.generic.ClassGen;
+import org.apache.bcel.generic.ConstantPoolGen;
+import org.apache.bcel.generic.GOTO;
+import org.apache.bcel.generic.InstructionConstants;
+import org.apache.bcel.generic.InstructionFactory;
+import org.apache.bcel.generic.InstructionHandle;
+import org.apache.bcel.generic.InstructionList;
+import org.apache.bcel.generic.LDC;
+import org.apache.bcel.generic.LocalVariableGen;
+import org.apache.bcel.generic.MethodGen;
+import org.apache.bcel.generic.ObjectType;
+import org.apache.bcel.generic.PUSH;
+import org.apache.bcel.generic.ReferenceType;
+import org.apache.bcel.generic.Type;
+
+import edu.gatech.cc.jcrasher.plans.expr.ArrayCreateAndInit;
+import edu.gatech.cc.jcrasher.plans.expr.ConstructorCall;
+import edu.gatech.cc.jcrasher.plans.expr.DotClass;
+import edu.gatech.cc.jcrasher.plans.expr.Expression;
+import edu.gatech.cc.jcrasher.plans.expr.MethodCall;
+import edu.gatech.cc.jcrasher.plans.expr.Variable;
+import edu.gatech.cc.jcrasher.plans.expr.literals.NullLiteral;
+import edu.gatech.cc.jcrasher.plans.expr.literals.PrimitiveLiteral;
+import edu.gatech.cc.jcrasher.plans.expr.literals.StringLiteral;
+import edu.gatech.cc.jcrasher.plans.stmt.Block;
+import edu.gatech.cc.jcrasher.plans.stmt.BlockStatement;
+import edu.gatech.cc.jcrasher.plans.stmt.ExpressionStatement;
+import edu.gatech.cc.jcrasher.plans.stmt.LocalVariableDeclarationStatement;
+
+/**
+ * Generates a JUnit test case as a class file, which JUnit can run without
+ * compiling a source first.
+ *
+ * <p>
+ * The class has the members of the source our superclass writes. Each
+ * testN method performs the statements of block N like the class file javac
+ * would produce from that source, including the try and throwIf around them
+ * when filtering. We write the source only if asked to, for debugging. Then
+ * the class file maps the instructions of each test method to the lines of
+ * its statements in that source.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class JUnitTestClassWriter<T> extends JUnitTestCaseWriter<T> {
+
+  protected static final String TEST_CASE = "junit.framework.TestCase";
+  protected static final String FILTERING_TEST_CASE =
+    "edu.gatech.cc.junit.FilteringTestCase";
+  protected static final String CLASS_REGISTRY =
+    "edu.gatech.cc.junit.reinit.ClassRegistry";
+  protected static final String TEST_SUITE = "junit.framework.TestSuite";
+  protected static final String TEST_RUNNER = "junit.textui.TestRunner";
+
+  protected static final ObjectType TEST =
+    new ObjectType("junit.framework.Test");
+  protected static final ObjectType CLASS =
+    new ObjectType(Class.class.getName());
+
+  /**
+   * Primitive type --> its wrapper class.
+   */
+  protected static final Map<Class<?>, Class<?>> boxes =
+    new HashMap<Class<?>, Class<?>>();
+  static {
+    boxes.put(Boolean.TYPE, Boolean.class);
+    boxes.put(Byte.TYPE, Byte.class);
+    boxes.put(Character.TYPE, Character.class);
+    boxes.put(Short.TYPE, Short.class);
+    boxes.put(Integer.TYPE, Integer.class);
+    boxes.put(Long.TYPE, Long.class);
+    boxes.put(Float.TYPE, Float.class);
+    boxes.put(Double.TYPE, Double.class);
+  }
+
+  protected final boolean withSource;
+
+
+  /**
+   * Constructor.
+   *
+   * @param outDir directory to write to, null for next to the testee.
+   * @param sink writes the files, e.g., in the background.
+   * @param withSource also write the source, which our line numbers refer
+   * to.
+   */
+  public JUnitTestClassWriter(
+      final Class<T> testeeClass,
+      final String comment,
+      boolean doFilter,
+      final Block<?>[] blocks,
+      int fileNr,
+      Class<? extends Throwable> expectThrown,
+      int expectedThrowingLineNumber,
+      final File outDir,
+      final OutputSink sink,
+      boolean withSource)
+  {
+    super(testeeClass, comment, doFilter, blocks, fileNr, expectThrown,
+        expectedThrowingLineNumber, outDir, sink);
+    this.withSource = withSource;
+  }
+
+
+  /**
+   * @return fully qualified name of the generated class.
+   */
+  protected String getTestName() {
+    final String testeeName = testeeClass.getName();
+    final int dot = testeeName.lastIndexOf('.');
+    if (dot < 0) {
+      return getSimpleTestName();
+    }
+    return testeeName.substring(0, dot+1) + getSimpleTestName();
+  }
+
+
+  /**
+   * Creates the test class, and its source if requested, handing them to
+   * our sink.
+   *
+   * @return class file.
+   */
+  @Override
+  public File write() {
+    final File sourceFile =
+      CreateFileUtil.getOutFile(testeeClass, getSimpleTestName(), outDir);
+    final File classFile =
+      new File(sourceFile.getParentFile(), getSimpleTestName() + ".class");
+
+    try {
+      int[] lines = null;
+      if (withSource) {
+        final String source = getContent();
+        lines = getTestLines(source);
+        sink.write(sourceFile, source);
+      }
+      sink.write(classFile, getClassFile(lines));
+    }
+    catch (IOException e) {
+      e.printStackTrace();
+      return null;
+    }
+    return classFile;
+  }
+
+
+  /**
+   * @return line of each test method header in source, counting from one.
+   */
+  protected int[] getTestLines(final String source) {
+    notNull(source);
+
+    final int[] res = new int[blocks.length];
+    int test = 0;
+    String header = TAB + "public void test0()";
+    int line = 1;
+    for (int start=0; test<res.length && start<source.length(); line++) {
+      if (source.startsWith(header, start)) {
+        res[test] = line;
+        test += 1;
+        header = TAB + "public void test" + test + "()";
+      }
+      final int end = source.indexOf('\n', start);
+      start = (end < 0)? source.length() : end+1;
+    }
+    check(test == res.length);
+    return res;
+  }
+
+
+  /**
+   * @param lines of the test method headers in the source, null for none.
+   * @return class file of the test class.
+   */
+  protected byte[] getClassFile(final int[] lines) {
+    notNull(testeeClass);
+    notNull(blocks);
+
+    final String className = getTestName();
+    final String superName = doFilter? FILTERING_TEST_CASE : TEST_CASE;
+    final ClassGen classGen = new ClassGen(
+        className,
+        superName,
+        getSimpleTestName() + ".java",
+        Constants.ACC_PUBLIC | Constants.ACC_SUPER,
+        new String[0]);
+    classGen.setMajor(Constants.MAJOR_1_5);
+    classGen.setMinor(Constants.MINOR_1_5);
+    final ConstantPoolGen cp = classGen.getConstantPool();
+    final InstructionFactory factory = new InstructionFactory(classGen);
+
+    /* setUp, tearDown */
+    InstructionList il = new InstructionList();
+    if (doFilter) {
+      il.append(factory.createInvoke(CLASS_REGISTRY, "resetClasses",
+          Type.VOID, Type.NO_ARGS, Constants.INVOKESTATIC));
+    }
+    il.append(InstructionConstants.RETURN);
+    addMethod(classGen, Constants.ACC_PROTECTED, Type.VOID, Type.NO_ARGS,
+        "setUp", il, null);
+
+    il = new InstructionList();
+    il.append(InstructionConstants.ALOAD_0);
+    il.append(factory.createInvoke(superName, "tearDown",
+        Type.VOID, Type.NO_ARGS, Constants.INVOKESPECIAL));
+    il.append(InstructionConstants.RETURN);
+    addMethod(classGen, Constants.ACC_PROTECTED, Type.VOID, Type.NO_ARGS,
+        "tearDown", il, "java.lang.Exception");
+
+    /* testN */
+    for (int i=0; i<blocks.length; i++) {
+      addTest(classGen, i, (lines == null)? 0 : lines[i]);
+    }
+
+    /* Footer */
+    final String testedMethName = getTestedMethName();
+    if (doFilter && (testedMethName != null)) {
+      il = new InstructionList();
+      il.append(new PUSH(cp, testeeClass.getName() + "." + testedMethName));
+      il.append(InstructionConstants.ARETURN);
+      addMethod(classGen, Constants.ACC_PROTECTED, Type.STRING, Type.NO_ARGS,
+          "getNameOfTestedMeth", il, null);
+    }
+    if (doFilter && (expectThrown != null)) {
+      il = new InstructionList();
+      il.append(new LDC(cp.addClass(expectThrown.getName())));
+      il.append(InstructionConstants.ARETURN);
+      addMethod(classGen, Constants.ACC_PROTECTED, CLASS, Type.NO_ARGS,
+          "getExpectedThrowable", il, null);
+    }
+    if (doFilter && (expectedThrowingLineNumber > 0)) {
+      il = new InstructionList();
+      il.append(new PUSH(cp, expectedThrowingLineNumber));
+      il.append(InstructionConstants.IRETURN);
+      addMethod(classGen, Constants.ACC_PROTECTED, Type.INT, Type.NO_ARGS,
+          "getExpectedThrowingLineNumber", il, null);
+    }
+
+    il = new InstructionList();
+    il.append(InstructionConstants.ALOAD_0);
+    il.append(InstructionConstants.ALOAD_1);
+    il.append(factory.createInvoke(superName, "<init>",
+        Type.VOID, new Type[]{Type.STRING}, Constants.INVOKESPECIAL));
+    il.append(InstructionConstants.RETURN);
+    addMethod(classGen, Constants.ACC_PUBLIC, Type.VOID,
+        new Type[]{Type.STRING}, "<init>", il, null);
+
+    il = new InstructionList();
+    il.append(factory.createNew(TEST_SUITE));
+    il.append(InstructionConstants.DUP);
+    il.append(new LDC(cp.addClass(className)));
+    il.append(factory.createInvoke(TEST_SUITE, "<init>",
+        Type.VOID, new Type[]{CLASS}, Constants.INVOKESPECIAL));
+    il.append(InstructionConstants.ARETURN);
+    addMethod(classGen, Constants.ACC_PUBLIC | Constants.ACC_STATIC, TEST,
+        Type.NO_ARGS, "suite", il, null);
+
+    il = new InstructionList();
+    il.append(new LDC(cp.addClass(className)));
+    il.append(factory.createInvoke(TEST_RUNNER, "run",
+        Type.VOID, new Type[]{CLASS}, Constants.INVOKESTATIC));
+    il.append(InstructionConstants.RETURN);
+    addMethod(classGen, Constants.ACC_PUBLIC | Constants.ACC_STATIC, Type.VOID,
+        new Type[]{new ArrayType(Type.STRING, 1)}, "main", il, null);
+
+    return classGen.getJavaClass().getBytes();
+  }
+
+
+  /**
+   * Adds a method without debug information.
+   *
+   * @param thrown declared exception, null for none.
+   */
+  protected void addMethod(
+      final ClassGen classGen,
+      int access,
+      final Type returnType,
+      final Type[] argTypes,
+      final String name,
+      final InstructionList il,
+      final String thrown)
+  {
+    final MethodGen methodGen = new MethodGen(access, returnType, argTypes,
+        null, name, classGen.getClassName(), il, classGen.getConstantPool());
+    if (thrown != null) {
+      methodGen.addException(thrown);
+    }
+    methodGen.removeLocalVariables();
+    methodGen.setMaxStack();
+    methodGen.setMaxLocals();
+    classGen.addMethod(methodGen.getMethod());
+    il.dispose();
+  }
+
+
+  /**
+   * Adds method testN for block N.
+   *
+   * @param line of the method header in the source, zero for no source.
+   */
+  protected void addTest(final ClassGen classGen, int n, int line) {
+    final InstructionList il = new InstructionList();
+    final MethodGen methodGen = new MethodGen(
+        Constants.ACC_PUBLIC,
+        Type.VOID,
+        Type.NO_ARGS,
+        null,
+        "test" + n,
+        classGen.getClassName(),
+        il,
+        classGen.getConstantPool());
+    methodGen.addException(Throwable.class.getName());
+
+    /* Statements, one per line below the header and the try */
+    final BlockEmitter emitter = new BlockEmitter(classGen, methodGen, il);
+    final List<BlockStatement> stmts = blocks[n].getBlockStmts();
+    final int firstLine = line + (doFilter? 2 : 1);
+    for (int i=0; i<stmts.size(); i++) {
+      final InstructionHandle last = il.getEnd();
+      emitter.emitStatement(stmts.get(i));
+      if (line > 0) {
+        methodGen.addLineNumber(
+            (last == null)? il.getStart() : last.getNext(), firstLine + i);
+      }
+    }
+
+    /* try {..} catch (Throwable throwable) {throwIf(throwable);} */
+    if (doFilter && !il.isEmpty()) {
+      final InstructionHandle tryStart = il.getStart();
+      final InstructionHandle tryEnd = il.getEnd();
+      final GOTO skip = new GOTO(null);
+      il.append(skip);
+      final LocalVariableGen throwable = methodGen.addLocalVariable(
+          "throwable", Type.THROWABLE, null, null);
+      final InstructionHandle handler = il.append(
+          InstructionFactory.createStore(Type.THROWABLE, throwable.getIndex()));
+      il.append(InstructionConstants.ALOAD_0);
+      il.append(InstructionFactory.createLoad(
+          Type.THROWABLE, throwable.getIndex()));
+      il.append(emitter.factory.createInvoke(classGen.getClassName(), "throwIf",
+          Type.VOID, new Type[]{Type.THROWABLE}, Constants.INVOKEVIRTUAL));
+      methodGen.addExceptionHandler(tryStart, tryEnd, handler, Type.THROWABLE);
+      if (line > 0) {
+        methodGen.addLineNumber(handler, firstLine + stmts.size() + 1);
+      }
+      skip.setTarget(il.append(InstructionConstants.RETURN));
+    }
+    else {
+      il.append(InstructionConstants.RETURN);
+    }
+    if (line > 0) {
+      methodGen.addLineNumber(il.getEnd(),
+          firstLine + stmts.size() + (doFilter? 2 : 0));
+    }
+    else {
+      methodGen.removeLocalVariables();
+    }
+
+    methodGen.setMaxStack();
+    methodGen.setMaxLocals();
+    classGen.addMethod(methodGen.getMethod());
+    il.dispose();
+  }
+
+
+  /**
+   * Emits the statements of a block into a method, in the order of
+   * evaluation of their source.
+   */
+  protected static class BlockEmitter {
+    protected final ConstantPoolGen cp;
+    protected final InstructionFactory factory;
+    protected final MethodGen methodGen;
+    protected final InstructionList il;
+
+    /**
+     * Declared variable --> its local.
+     */
+    protected final Map<Variable<?>, LocalVariableGen> locals =
+      new IdentityHashMap<Variable<?>, LocalVariableGen>();
+
+    protected BlockEmitter(
+        final ClassGen classGen,
+        final MethodGen methodGen,
+        final InstructionList il)
+    {
+      this.cp = classGen.getConstantPool();
+      this.factory = new InstructionFactory(classGen);
+      this.methodGen = notNull(methodGen);
+      this.il = notNull(il);
+    }
+
+
+    protected void emitStatement(final BlockStatement<?> stmt) {
+      if (stmt instanceof ExpressionStatement) {
+        final Expression<?> expr =
+          ((ExpressionStatement<?>) stmt).getExpression();
+        emit(expr);
+        emitPop(expr.getReturnType());
+        return;
+      }
+      if (stmt instanceof LocalVariableDeclarationStatement) {
+        final LocalVariableDeclarationStatement<?> decl =
+          (LocalVariableDeclarationStatement<?>) stmt;
+        final Variable<?> var = decl.getVariable();
+        final Type varType = type(var.getReturnType());
+        emitValue(decl.getInitPlan(), var.getReturnType());
+        final LocalVariableGen local =
+          methodGen.addLocalVariable(var.text(), varType, null, null);
+        il.append(InstructionFactory.createStore(varType, local.getIndex()));
+        locals.put(var, local);
+        return;
+      }
+      throw new IllegalArgumentException("Cannot compile " + stmt);
+    }
+
+
+    /**
+     * Leave value of expr on the stack, as its return type.
+     */
+    protected void emit(final Expression<?> expr) {
+      if (expr instanceof NullLiteral) {
+        il.append(InstructionConstants.ACONST_NULL);
+        return;
+      }
+      if (expr instanceof PrimitiveLiteral || expr instanceof StringLiteral) {
+        final Object value = valueOf(expr);
+        if (value instanceof Boolean) {
+          il.append(new PUSH(cp, ((Boolean) value).booleanValue()));
+        }
+        else if (value instanceof Character) {
+          il.append(new PUSH(cp, ((Character) value).charValue()));
+        }
+        else if (value instanceof String) {
+          il.append(new PUSH(cp, (String) value));
+        }
+        else {
+          il.append(new PUSH(cp, (Number) value));
+        }
+        return;
+      }
+      if (expr instanceof DotClass) {
+        il.append(new LDC(cp.addClass(((Class<?>) valueOf(expr)).getName())));
+        return;
+      }
+      if (expr instanceof Variable) {
+        final LocalVariableGen local = notNull(locals.get(expr));
+        il.append(InstructionFactory.createLoad(
+            local.getType(), local.getIndex()));
+        return;
+      }
+      if (expr instanceof MethodCall) {
+        emitCall((MethodCall<?>) expr);
+        return;
+      }
+      if (expr instanceof ConstructorCall) {
+        emitCall((ConstructorCall<?>) expr);
+        return;
+      }
+      if (expr instanceof ArrayCreateAndInit) {
+        emitArray((ArrayCreateAndInit<?>) expr);
+        return;
+      }
+      throw new IllegalArgumentException("Cannot compile " + expr);
+    }
+
+    protected Object valueOf(final Expression<?> literal) {
+      try {
+        return literal.execute();
+      }
+      catch (Exception e) {  //literals do not throw.
+        throw new IllegalStateException(e);
+      }
+    }
+
+
+    /**
+     * Leave value of plan on the stack, converted to type.
+     */
+    protected void emitValue(final Expression<?> plan, final Class<?> type) {
+      emit(plan);
+      emitConversion(plan.getReturnType(), type);
+    }
+
+    protected void emitValues(
+        final Expression<?>[] plans,
+        final Class<?>[] params,
+        int offset)
+    {
+      check(plans.length + offset == params.length);
+      for (int i=0; i<plans.length; i++) {
+        emitValue(plans[i], params[i+offset]);
+      }
+    }
+
+
+    /**
+     * Converts the value on the stack like an assignment from a variable of
+     * type from to one of type to.
+     */
+    protected void emitConversion(final Class<?> from, final Class<?> to) {
+      if (from.equals(to)) {
+        return;
+      }
+      if (from.isPrimitive() && to.isPrimitive()) {
+        il.append(factory.createCast(type(from), type(to)));
+        return;
+      }
+      if (from.isPrimitive()) {  //box
+        final Class<?> box = notNull(boxes.get(from));
+        il.append(factory.createInvoke(box.getName(), "valueOf",
+            type(box), new Type[]{type(from)}, Constants.INVOKESTATIC));
+        emitConversion(box, to);
+        return;
+      }
+      if (to.isPrimitive()) {  //unbox
+        final Class<?> box = notNull(boxes.get(to));
+        emitConversion(from, box);
+        il.append(factory.createInvoke(box.getName(), to.getName() + "Value",
+            type(to), Type.NO_ARGS, Constants.INVOKEVIRTUAL));
+        return;
+      }
+      if (!to.isAssignableFrom(from)) {
+        il.append(factory.createCheckCast((ReferenceType) type(to)));
+      }
+    }
+
+
+    protected void emitPop(final Class<?> type) {
+      if (type.equals(Void.TYPE)) {
+        return;
+      }
+      if (type.equals(Long.TYPE) || type.equals(Double.TYPE)) {
+        il.append(InstructionConstants.POP2);
+        return;
+      }
+      il.append(InstructionConstants.POP);
+    }
+
+
+    /**
+     * Receiver, arguments, call, with the receiver's static type as the
+     * qualifying type, like javac.
+     */
+    protected void emitCall(final MethodCall<?> call) {
+      final Method meth = call.getMethod();
+      final Class<?>[] params = meth.getParameterTypes();
+      final boolean isStatic = Modifier.isStatic(meth.getModifiers());
+
+      Class<?> owner = meth.getDeclaringClass();
+      if (!isStatic) {
+        final Expression<?> receiver = call.getReceiverPlan();
+        final Class<?> receiverType = receiver.getReturnType();
+        if (owner.isAssignableFrom(receiverType) && !receiverType.isArray()) {
+          owner = receiverType;
+        }
+        emitValue(receiver, owner);
+      }
+      emitValues(call.getParamPlans(), params, 0);
+
+      short kind = Constants.INVOKEVIRTUAL;
+      if (isStatic) {
+        kind = Constants.INVOKESTATIC;
+      }
+      else if (owner.isInterface()) {
+        kind = Constants.INVOKEINTERFACE;
+      }
+      il.append(factory.createInvoke(owner.getName(), meth.getName(),
+          type(meth.getReturnType()), types(params), kind));
+    }
+
+
+    /**
+     * New, enclosing instance, arguments, constructor call, like javac.
+     */
+    protected void emitCall(final ConstructorCall<?> call) {
+      final Constructor<?> con = call.getConstructor();
+      final Class<?>[] params = con.getParameterTypes();
+      final String className = con.getDeclaringClass().getName();
+
+      il.append(factory.createNew(className));
+      il.append(InstructionConstants.DUP);
+      int offset = 0;
+      if (call.getEnclosingPlan() != null) {  //null check of outer.new Inner
+        emitValue(call.getEnclosingPlan(), params[0]);
+        il.append(InstructionConstants.DUP);
+        il.append(factory.createInvoke("java.lang.Object", "getClass",
+            CLASS, Type.NO_ARGS, Constants.INVOKEVIRTUAL));
+        il.append(InstructionConstants.POP);
+        offset = 1;
+      }
+      emitValues(call.getParamPlans(), params, offset);
+      il.append(factory.createInvoke(className, "<init>",
+          Type.VOID, types(params), Constants.INVOKESPECIAL));
+    }
+
+
+    protected void emitArray(final ArrayCreateAndInit<?> array) {
+      final Class<?> componentType = array.getReturnType().getComponentType();
+      final Type component = type(componentType);
+      final Expression<?>[] components = array.getComponentPlans();
+
+      il.append(new PUSH(cp, components.length));
+      il.append(factory.createNewArray(component, (short) 1));
+      for (int i=0; i<components.length; i++) {
+        il.append(InstructionConstants.DUP);
+        il.append(new PUSH(cp, i));
+        emitValue(components[i], componentType);
+        il.append(InstructionFactory.createArrayStore(component));
+      }
+    }
+  }
+
+
+  protected static Type type(final Class<?> c) {
+    return Type.getType(c);
+  }
+
+  protected static Type[] types(final Class<?>[] classes) {
+    final Type[] res = new Type[classes.length];
+    for (int i=0; i<res.length; i++) {
+      res[i] = type(classes[i]);
+    }
+    return res;
+  }
+}
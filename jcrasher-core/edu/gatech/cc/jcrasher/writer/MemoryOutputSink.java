@@ -0,0 +1,88 @@
+/*
+ * MemoryOutputSink.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher.writer;
+
+import static edu.gatech.cc.jcrasher.Assertions.notNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the sources and class files in memory, in the order written, for
+ * compiling and running them in this JVM. Also hands each file to a target
+ * sink, if any, to have them on disk as well.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class MemoryOutputSink implements OutputSink {
+
+  protected final OutputSink target;
+
+  protected final Map<File, String> sources = new LinkedHashMap<File, String>();
+  protected final Map<File, byte[]> classFiles =
+    new LinkedHashMap<File, byte[]>();
+
+
+  /**
+   * Constructor, keeps files in memory only.
+   */
+  public MemoryOutputSink() {
+    this(null);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param target also writes each file, null for none.
+   */
+  public MemoryOutputSink(final OutputSink target) {
+    this.target = target;
+  }
+
+
+  public void write(final File file, final String content) throws IOException {
+    synchronized (this) {
+      sources.put(notNull(file), notNull(content));
+    }
+    if (target != null) {
+      target.write(file, content);
+    }
+  }
+
+
+  public void write(final File file, final byte[] content) throws IOException {
+    synchronized (this) {
+      classFiles.put(notNull(file), notNull(content));
+    }
+    if (target != null) {
+      target.write(file, content);
+    }
+  }
+
+
+  /**
+   * @return copy of file --> source, in the order first written.
+   */
+  public synchronized Map<File, String> getSources() {
+    return new LinkedHashMap<File, String>(sources);
+  }
+
+  /**
+   * @return copy of file --> class file, in the order first written.
+   */
+  public synchronized Map<File, byte[]> getClassFiles() {
+    return new LinkedHashMap<File, byte[]>(classFiles);
+  }
+
+
+  public void close() throws IOException {
+    if (target != null) {
+      target.close();
+    }
+  }
+}
@@ -0,0 +1,35 @@
+/*
+ * OutputSink.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher.writer;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Where writers put the sources and class files they generate.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public interface OutputSink {
+
+  /**
+   * Writes content to file, replacing what it holds, creating its
+   * directories as needed. May return before content reaches the disk.
+   */
+  public void write(File file, String content) throws IOException;
+
+  /**
+   * Writes content to file, like write(File, String), as is.
+   */
+  public void write(File file, byte[] content) throws IOException;
+
+  /**
+   * Completes all writes, then releases our resources.
+   *
+   * @throws IOException if a write failed, including an earlier one.
+   */
+  public void close() throws IOException;
+}
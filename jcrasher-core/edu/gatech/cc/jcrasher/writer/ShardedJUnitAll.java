@@ -0,0 +1,237 @@
+/*
+ * ShardedJUnitAll.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher.writer;
+
+import static edu.gatech.cc.jcrasher.Assertions.check;
+import static edu.gatech.cc.jcrasher.Assertions.notNull;
+import static edu.gatech.cc.jcrasher.Constants.NL;
+import static edu.gatech.cc.jcrasher.Constants.TAB;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+import edu.gatech.cc.jcrasher.TestTimings;
+
+/**
+ * Spreads the test suites over shards JUnitAll_1 to JUnitAll_n, which can
+ * run concurrently, on several cores or machines. JUnitAll still runs all
+ * shards, and JUnitAll.shards lists the test suites of each shard.
+ *
+ * <p>
+ * We learn the size of each test suite as it is generated, so we assign them
+ * at finish: largest first, each to the shard that costs least so far. A
+ * test suite costs the ms per test an earlier run measured for it, times its
+ * number of tests. Without a timing we assume the average ms per test of all
+ * timings, or, if there are none, count tests.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class ShardedJUnitAll implements JUnitAll {
+
+  /**
+   * Name of the file listing the test suites of each shard, next to
+   * JUnitAll.java. One line per shard: "name TAB cost TAB test suites",
+   * test suites separated by spaces.
+   */
+  public static final String MANIFEST = "JUnitAll.shards";
+
+  protected final OutputSink sink;
+  protected final int nrShards;
+  protected final TestTimings timings;
+
+  protected String testRoot = null;  //null = not yet created.
+  protected final List<Suite> suites = new ArrayList<Suite>();
+
+
+  /**
+   * Constructor
+   *
+   * @param timings of an earlier run, possibly empty.
+   */
+  public ShardedJUnitAll(
+      final OutputSink sink,
+      int nrShards,
+      final TestTimings timings)
+  {
+    check(nrShards > 0);
+    this.sink = notNull(sink);
+    this.nrShards = nrShards;
+    this.timings = notNull(timings);
+  }
+
+
+  public void create(final String testRoot) {
+    if (this.testRoot != null) {return;}  //Already created.
+    this.testRoot = notNull(testRoot);
+  }
+
+  public void create(final Class<?> c) {
+    if (testRoot != null) {return;}  //Already created.
+    create(CreateFileUtil.getTestRoot(notNull(c)));
+  }
+
+
+  public void addTest(final Class<?> c) {
+    addTest(notNull(c).getName() + "Test");
+  }
+
+  public void addTest(final String test) {
+    add(test, "suite.addTest(" + test + ".suite());", 1);
+  }
+
+  public void addTestSuite(final String test) {
+    addTestSuite(test, 1);
+  }
+
+  public void addTestSuite(final String test, int nrTests) {
+    add(test, "suite.addTestSuite(" + test + ".class);", nrTests);
+  }
+
+  protected void add(final String test, final String call, int nrTests) {
+    notNull(testRoot);
+    notNull(test);
+    check(nrTests >= 0);
+
+    suites.add(new Suite(test, call, nrTests, getCost(test, nrTests)));
+  }
+
+
+  /**
+   * @return ms nrTests tests of test will take to run, or nrTests if we
+   * have no timings.
+   */
+  protected double getCost(final String test, int nrTests) {
+    double millisPerTest = timings.getMillisPerTest(test);
+    if (millisPerTest < 0) {
+      millisPerTest = timings.getMillisPerTest();
+    }
+    return (millisPerTest < 0)? nrTests : millisPerTest * nrTests;
+  }
+
+
+  /**
+   * @return name of shard k, counting from zero: JUnitAll_1
+   */
+  public static String getShardName(int k) {
+    return "JUnitAll_" + (k+1);
+  }
+
+
+  /**
+   * Assigns the test suites to shards, costliest first, each to the shard
+   * with the least cost, and the fewest tests among equally cheap ones.
+   *
+   * @return shard of each test suite.
+   */
+  protected int[] assign() {
+    final Integer[] order = new Integer[suites.size()];
+    for (int i=0; i<order.length; i++) {
+      order[i] = Integer.valueOf(i);
+    }
+    Arrays.sort(order, new Comparator<Integer>() {  //stable.
+      public int compare(final Integer a, final Integer b) {
+        return Double.compare(
+            suites.get(b.intValue()).cost, suites.get(a.intValue()).cost);
+      }
+    });
+
+    final double[] costs = new double[nrShards];
+    final int[] nrTests = new int[nrShards];
+    final int[] res = new int[suites.size()];
+    for (Integer i: order) {
+      int best = 0;
+      for (int k=1; k<nrShards; k++) {
+        if (costs[k] < costs[best]
+            || (costs[k] == costs[best] && nrTests[k] < nrTests[best]))
+        {
+          best = k;
+        }
+      }
+      final Suite suite = suites.get(i.intValue());
+      res[i.intValue()] = best;
+      costs[best] += suite.cost;
+      nrTests[best] += suite.nrTests;
+    }
+    return res;
+  }
+
+
+  /**
+   * Writes the shards, JUnitAll.java calling them, and the manifest.
+   */
+  public void finish() {
+    if (testRoot == null) {return;}  //nothing to finish
+
+    final int[] shards = assign();
+    final String unit = (timings.size()==0)? "nr tests" : "ms";
+    final StringBuilder manifest =
+      new StringBuilder("# shard\t" + unit + "\ttest suites" + NL);
+    final StringBuilder all = new StringBuilder(junitAllHeader);
+    try {
+      for (int k=0; k<nrShards; k++) {
+        final String name = getShardName(k);
+        final StringBuilder shard = new StringBuilder(junitAllHeader
+            .replace("all test cases generated for all classes",
+                "shard " + (k+1) + " of " + nrShards + " of the test cases")
+            .replace("JUnitAll", name));
+        final StringBuilder tests = new StringBuilder();
+        double cost = 0;
+        for (int i=0; i<suites.size(); i++) {
+          if (shards[i] == k) {
+            shard.append(TAB+TAB + suites.get(i).call + NL);
+            tests.append((tests.length()==0)? "" : " ");
+            tests.append(suites.get(i).name);
+            cost += suites.get(i).cost;
+          }
+        }
+        shard.append(junitAllFooter);
+        sink.write(CreateFileUtil.getOutFile(testRoot, name), shard.toString());
+
+        all.append(TAB+TAB+"suite.addTest(" + name + ".suite());"+NL);
+        manifest.append(name + "\t"
+            + String.format(Locale.US, (timings.size()==0)? "%.0f" : "%.1f", cost)
+            + "\t" + tests + NL);
+      }
+      all.append(junitAllFooter);
+      sink.write(
+          CreateFileUtil.getOutFile(testRoot, "JUnitAll"), all.toString());
+      sink.write(new File(testRoot, MANIFEST), manifest.toString());
+    }
+    catch (IOException e) {
+      e.printStackTrace();
+    }
+    testRoot = null;
+    suites.clear();
+  }
+
+
+  /**
+   * Test suite and how to call it.
+   */
+  protected static class Suite {
+    protected final String name;
+    protected final String call;
+    protected final int nrTests;
+    protected final double cost;
+
+    protected Suite(
+        final String name,
+        final String call,
+        int nrTests,
+        double cost)
+    {
+      this.name = name;
+      this.call = call;
+      this.nrTests = nrTests;
+      this.cost = cost;
+    }
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * ZipOutputSink.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher.writer;
+
+import static edu.gatech.cc.jcrasher.Assertions.check;
+import static edu.gatech.cc.jcrasher.Assertions.notNull;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streams all files into one zip or jar archive, instead of creating each
+ * file and its directories on disk. Names each entry by the path of its
+ * file relative to a root directory, which need not exist, so that the
+ * archive unpacks to the tree FileOutputSink would have written below root.
+ *
+ * <p>
+ * An archive holds each file once, so writing the same file again fails.
+ * We write the central directory on close, the archive is unreadable
+ * before.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class ZipOutputSink implements OutputSink {
+
+  /**
+   * Bytes we buffer before writing to the archive file.
+   */
+  protected static final int BUFFER_SIZE = 64 * 1024;
+
+  protected final ZipOutputStream out;
+
+  /**
+   * Absolute path of the root directory, ending in '/'.
+   */
+  protected final String root;
+
+  protected boolean isClosed = false;
+
+
+  /**
+   * Constructor, creates or replaces archive.
+   *
+   * @param root entries are named relative to root.
+   * @param level deflate level from 0 to 9, -1 for the default.
+   * @param isJar write a jar, starting with a manifest.
+   */
+  public ZipOutputSink(
+      final File archive,
+      final File root,
+      int level,
+      boolean isJar)
+  throws IOException
+  {
+    notNull(archive);
+    check(level >= -1 && level <= 9);
+
+    final String path = getPath(notNull(root));
+    this.root = path.endsWith("/")? path : path + "/";
+    final OutputStream file =
+      new BufferedOutputStream(new FileOutputStream(archive), BUFFER_SIZE);
+    if (isJar) {
+      final Manifest manifest = new Manifest();
+      manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+      manifest.getMainAttributes().putValue("Created-By", "JCrasher");
+      out = new JarOutputStream(file, manifest);
+    }
+    else {
+      out = new ZipOutputStream(file);
+    }
+    out.setLevel(level);
+  }
+
+
+  /**
+   * @return absolute path of file, with '/' as separator.
+   */
+  protected static String getPath(final File file) {
+    return file.getAbsoluteFile().toURI().normalize().getPath();
+  }
+
+  /**
+   * @return name of the entry of file: a/b/C.java
+   * @throws IOException if file is not below root.
+   */
+  protected String getEntryName(final File file) throws IOException {
+    final String path = getPath(file);
+    if (!path.startsWith(root) || path.length() == root.length()) {
+      throw new IOException(file + " is not below " + root);
+    }
+    return path.substring(root.length());
+  }
+
+
+  public void write(final File file, final String content) throws IOException {
+    write(file, notNull(content).getBytes("UTF-8"));
+  }
+
+
+  public synchronized void write(final File file, final byte[] content)
+  throws IOException
+  {
+    notNull(file);
+    notNull(content);
+    if (isClosed) {
+      throw new IOException("Archive closed already, cannot add " + file);
+    }
+
+    out.putNextEntry(new ZipEntry(getEntryName(file)));
+    out.write(content);
+    out.closeEntry();
+  }
+
+
+  /**
+   * Writes the central directory and closes the archive file.
+   */
+  public synchronized void close() throws IOException {
+    if (isClosed) {
+      return;
+    }
+    isClosed = true;
+    out.close();
+  }
+}
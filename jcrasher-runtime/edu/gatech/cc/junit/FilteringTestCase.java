@@ -1,14 +1,14 @@
 package edu.gatech.cc.junit;
-
+
 import static edu.gatech.cc.jcrasher.Assertions.check;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
-import java.util.List;
-import java.util.Vector;
 
 import junit.framework.TestCase;
+import junit.framework.TestResult;
+import edu.gatech.cc.junit.framework.GroupedTestResult;
 
 /**
  * TestCase that 
@@ -62,13 +62,11 @@ public class FilteringTestCase extends TestCase {
     TEST_OTHER_CLASS
   }
   
-  	
-	public static final List<String> ANNOTATED_LIST = new Vector<String>();
-	public static boolean DIRECT_CALL_ONLY = false;
-  public static boolean THROWN_BY_TESTED_METHOD_ONLY = false;
-  public static FilterMode FILTER_MODE = 
-    FilterMode.CLASSCAST_ARITHMETIC_ARRAYEXCEPTIONS;
-	public static boolean SUPPRESS_ERRORS = false;	//hide java.lang.Error
+  	
+	/**
+	 * Settings of the runner we run with.
+	 */
+	protected RunnerConfig config = RunnerConfig.DEFAULT;
 
 	
 	/**
@@ -126,6 +124,18 @@ public class FilteringTestCase extends TestCase {
 		super(name);
 	}
 
+	
+	/**
+	 * Picks up the settings of the runner that created result.
+	 */
+	@Override
+	public void run(TestResult result) {
+		if (result instanceof GroupedTestResult) {
+			config = ((GroupedTestResult) result).getConfig();
+		}
+		super.run(result);
+	}
+
   
   protected Class<? extends Throwable> getExpectedThrowable() {
     return null;
@@ -386,7 +396,7 @@ public class FilteringTestCase extends TestCase {
         throw new IntendedException(e);
         
 			case TEST_TESTED_CLASS:
-        if (THROWN_BY_TESTED_METHOD_ONLY)
+        if (config.isThrownByTestedMethodOnly())
           return;
         throw new AccidentException(e);
       
@@ -462,12 +472,12 @@ public class FilteringTestCase extends TestCase {
 		if (stack.length <= stackLengthOfTest) {
 			return;
 		}
-		
-		/* Suppress if throwable has been thrown by some method called by the
-		 * method under test. */
-		if (DIRECT_CALL_ONLY) {
+		
+		/* Suppress if throwable has been thrown by some method called by the
+		 * method under test. */
+		if (config.isDirectCallOnly()) {
 			if (stack.length > stackLengthOfTest + 1) {
-				return;
+				return;
 			}
 		}
 		
@@ -476,9 +486,10 @@ public class FilteringTestCase extends TestCase {
 		}
 		
 		/* Treat unchecked (runtime) exceptions */
-		RuntimeException e = (RuntimeException) throwable;
+		RuntimeException e = (RuntimeException) throwable;
 		
-		if (FILTER_MODE==FilterMode.CLASSIC_SPE && !ANNOTATED_LIST.isEmpty()) {
+		if (config.getFilterMode()==FilterMode.CLASSIC_SPE
+				&& !config.getAnnotatedList().isEmpty()) {
 			/* Bypass heuristic iff we have Daikon-inferred preconditions 
 			 * for the method that caused the exception */
 			StackTraceElement calledMeth = stack[stack.length-stackLengthOfTest-1];
@@ -487,7 +498,7 @@ public class FilteringTestCase extends TestCase {
 					calledMeth.getLineNumber(),
 					true);  //TODO use fully qualified param type name to remove imprecision
 	
-			if (ANNOTATED_LIST.contains(methSig)) {
+			if (config.getAnnotatedList().contains(methSig)) {
 				throw e;
 			}
 		}
@@ -501,7 +512,7 @@ public class FilteringTestCase extends TestCase {
 		 * --> meaningless */
 		if (publicToPublicSliceHeight == 0) {return;}
 			
-		switch (FILTER_MODE) {
+		switch (config.getFilterMode()) {
     
     case ALL:       //report any RuntimeException, regardless who called.
       throwIfTested(e);
@@ -0,0 +1,235 @@
+/*
+ * RunnerConfig.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.junit;
+
+import static edu.gatech.cc.jcrasher.Assertions.check;
+import static edu.gatech.cc.jcrasher.Assertions.notNull;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import edu.gatech.cc.junit.FilteringTestCase.FilterMode;
+import edu.gatech.cc.junit.textui.RaGTestRunner.GroupMode;
+
+/**
+ * Settings of one RaGTestRunner run: how to filter and group exceptions.
+ *
+ * <p>
+ * Immutable, so that several runners with different settings can share a JVM.
+ * FilteringTestCase obtains the settings from the GroupedTestResult it runs
+ * with. Create instances via a Builder, which starts from the default values.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class RunnerConfig {
+
+  /**
+   * Default settings.
+   */
+  public static final RunnerConfig DEFAULT = new Builder().build();
+
+
+  protected final List<String> annotatedList;
+  protected final boolean directCallOnly;
+  protected final boolean thrownByTestedMethodOnly;
+  protected final FilterMode filterMode;
+  protected final boolean suppressErrors;
+  protected final GroupMode groupMode;
+  protected final boolean reinit;
+  protected final File knownFile;
+  protected final long knownSince;
+  protected final int signatureDepth;
+  protected final File timingsFile;
+
+
+  /**
+   * Constructor, via Builder only.
+   */
+  protected RunnerConfig(final Builder b) {
+    annotatedList = Collections.unmodifiableList(
+        new ArrayList<String>(b.annotatedList));
+    directCallOnly = b.directCallOnly;
+    thrownByTestedMethodOnly = b.thrownByTestedMethodOnly;
+    filterMode = b.filterMode;
+    suppressErrors = b.suppressErrors;
+    groupMode = b.groupMode;
+    reinit = b.reinit;
+    knownFile = b.knownFile;
+    knownSince = b.knownSince;
+    signatureDepth = b.signatureDepth;
+    timingsFile = b.timingsFile;
+  }
+
+
+  /**
+   * Methods with inferred preconditions, whose exceptions bypass the
+   * heuristic in CLASSIC_SPE mode.
+   */
+  public List<String> getAnnotatedList() {
+    return annotatedList;
+  }
+
+  /**
+   * Restrict reporting to exceptions thrown by the testee.
+   */
+  public boolean isDirectCallOnly() {
+    return directCallOnly;
+  }
+
+  /**
+   * Restrict reporting to exceptions caused by the tested method.
+   */
+  public boolean isThrownByTestedMethodOnly() {
+    return thrownByTestedMethodOnly;
+  }
+
+  public FilterMode getFilterMode() {
+    return filterMode;
+  }
+
+  /**
+   * Hide java.lang.Error.
+   */
+  public boolean isSuppressErrors() {
+    return suppressErrors;
+  }
+
+  public GroupMode getGroupMode() {
+    return groupMode;
+  }
+
+  /**
+   * Re-initialize static state between tests.
+   */
+  public boolean isReinit() {
+    return reinit;
+  }
+
+  /**
+   * CrashSignatureStore of the crash signatures earlier runs found, which
+   * we report separately and add new ones to, null for none.
+   */
+  public File getKnownFile() {
+    return knownFile;
+  }
+
+  /**
+   * Time in ms this run started, negative for when we open the known file.
+   * Crash signatures the known file first saw since then, e.g., because
+   * the JCrasher run that generated our tests found them, are not known.
+   */
+  public long getKnownSince() {
+    return knownSince;
+  }
+
+  /**
+   * Maximum number of testee frames per crash signature.
+   */
+  public int getSignatureDepth() {
+    return signatureDepth;
+  }
+
+  /**
+   * Where we write the TestTimings of this run, by which JCrasher balances
+   * the shards it generates next, null for nowhere.
+   */
+  public File getTimingsFile() {
+    return timingsFile;
+  }
+
+
+  /**
+   * Collects settings, starting from the defaults.
+   */
+  public static class Builder {
+    protected final List<String> annotatedList = new ArrayList<String>();
+    protected boolean directCallOnly = false;
+    protected boolean thrownByTestedMethodOnly = false;
+    protected FilterMode filterMode =
+      FilterMode.CLASSCAST_ARITHMETIC_ARRAYEXCEPTIONS;
+    protected boolean suppressErrors = false;
+    protected GroupMode groupMode = GroupMode.GROUP_CLASSIC;
+    protected boolean reinit = false;
+    protected File knownFile = null;
+    protected long knownSince = -1;
+    protected int signatureDepth = 5;
+    protected File timingsFile = null;
+
+    public Builder addAnnotated(final String methSig) {
+      annotatedList.add(notNull(methSig));
+      return this;
+    }
+
+    public Builder directCallOnly(boolean b) {
+      directCallOnly = b;
+      return this;
+    }
+
+    public Builder thrownByTestedMethodOnly(boolean b) {
+      thrownByTestedMethodOnly = b;
+      return this;
+    }
+
+    public Builder filterMode(final FilterMode mode) {
+      filterMode = notNull(mode);
+      return this;
+    }
+
+    public Builder suppressErrors(boolean b) {
+      suppressErrors = b;
+      return this;
+    }
+
+    public Builder groupMode(final GroupMode mode) {
+      groupMode = notNull(mode);
+      return this;
+    }
+
+    public Builder reinit(boolean b) {
+      reinit = b;
+      return this;
+    }
+
+    /**
+     * @param file null for none.
+     */
+    public Builder knownFile(final File file) {
+      knownFile = file;
+      return this;
+    }
+
+    /**
+     * @param millis negative for when we open the known file.
+     */
+    public Builder knownSince(long millis) {
+      knownSince = millis;
+      return this;
+    }
+
+    public Builder signatureDepth(int depth) {
+      check(depth >= 0);
+      signatureDepth = depth;
+      return this;
+    }
+
+    /**
+     * @param file null for none.
+     */
+    public Builder timingsFile(final File file) {
+      timingsFile = file;
+      return this;
+    }
+
+    /**
+     * @return new config holding the current values.
+     */
+    public RunnerConfig build() {
+      return new RunnerConfig(this);
+    }
+  }
+}
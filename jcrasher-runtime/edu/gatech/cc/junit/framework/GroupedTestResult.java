@@ -7,17 +7,23 @@ package edu.gatech.cc.junit.framework;
 
 import static edu.gatech.cc.jcrasher.Assertions.notNull;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Vector;
 
 import junit.framework.AssertionFailedError;
 import junit.framework.Test;
 import junit.framework.TestResult;
+import edu.gatech.cc.jcrasher.CrashSignatureStore;
 import edu.gatech.cc.junit.AccidentException;
 import edu.gatech.cc.junit.FilteringTestCase;
 import edu.gatech.cc.junit.IntendedException;
+import edu.gatech.cc.junit.RunnerConfig;
 import edu.gatech.cc.junit.Wrapper;
-import edu.gatech.cc.junit.textui.RaGTestRunner;
 import edu.gatech.cc.junit.textui.RaGTestRunner.GroupMode;
 
 /**
@@ -27,6 +33,64 @@ import edu.gatech.cc.junit.textui.RaGTestRunner.GroupMode;
  */
 public class GroupedTestResult extends TestResult {
 
+  /**
+   * Settings of the runner that created us.
+   */
+  protected final RunnerConfig config;
+
+  /**
+   * Crash signatures found by earlier runs, null if we report all.
+   */
+  protected final CrashSignatureStore known;
+
+  /**
+   * Crash signature found in this run --> whether an earlier run found it.
+   */
+  protected final Map<String, Boolean> isKnown =
+    new LinkedHashMap<String, Boolean>();
+
+  /**
+   * Number of errors not reported so far, as an earlier run found their
+   * signature.
+   */
+  protected int knownCount = 0;
+
+
+  /**
+   * Constructor, default settings.
+   */
+  public GroupedTestResult() {
+    this(RunnerConfig.DEFAULT);
+  }
+
+  /**
+   * Constructor
+   */
+  public GroupedTestResult(final RunnerConfig config) {
+    this(config, null);
+  }
+
+  /**
+   * Constructor
+   * 
+   * @param known null to report all errors.
+   */
+  public GroupedTestResult(
+      final RunnerConfig config,
+      final CrashSignatureStore known)
+  {
+    this.config = notNull(config);
+    this.known = known;
+  }
+
+  /**
+   * @return settings of the runner that created us.
+   */
+  public RunnerConfig getConfig() {
+    return config;
+  }
+
+
   /**
    * FIXME: This will never be called, right?
    */
@@ -138,7 +202,7 @@ public class GroupedTestResult extends TestResult {
         return prototypeFailure;     
 			
       
-			switch (RaGTestRunner.GROUP_MODE) {
+			switch (config.getGroupMode()) {
 			  /* new CnC mode: agressive grouping. */
 				case GROUP_FOCUSED:
 					if (hasSameTop(prototypeThrowable.getStackTrace(), throwable.getStackTrace())) {
@@ -158,12 +222,84 @@ public class GroupedTestResult extends TestResult {
 					}
 			}
 		}
-		if (RaGTestRunner.GROUP_MODE==GroupMode.GROUP_FOCUSED) {
+		if (config.getGroupMode()==GroupMode.GROUP_FOCUSED) {
 			return candidate;
 		}
 		return null;  //could not find a prototype exception in failure list.
 	}
 
+  /**
+   * @return number of errors not reported, as an earlier run found their
+   * signature.
+   */
+  public synchronized int knownFailureCount() {
+    return knownCount;
+  }
+
+  /**
+   * @return signatures of the errors not reported, as an earlier run found
+   * them, in order of first occurrence.
+   */
+  public synchronized List<String> getKnownSignatures() {
+    final List<String> res = new ArrayList<String>();
+    for (Map.Entry<String, Boolean> entry: isKnown.entrySet()) {
+      if (entry.getValue().booleanValue()) {
+        res.add(entry.getKey());
+      }
+    }
+    return res;
+  }
+
+
+  /**
+   * @return crash signature of throwable, thrown by test: its class and
+   * the top frames above test's class, as ExecutingCutPlanner computes it
+   * while generating.
+   */
+  protected String getSignature(final Test test, final Throwable throwable) {
+    final String testName = test.getClass().getName();
+    final List<String> frames = new ArrayList<String>();
+    final StackTraceElement[] stack = throwable.getStackTrace();
+    for (int i=0; stack!=null && i<stack.length
+        && frames.size()<config.getSignatureDepth(); i++)
+    {
+      if (stack[i].getClassName().equals(testName)) {
+        break;
+      }
+      frames.add(stack[i].getClassName() + "." + stack[i].getMethodName()
+          + ":" + stack[i].getLineNumber());
+    }
+    return CrashSignatureStore.getKey(throwable.getClass().getName(),
+        frames.toArray(new String[frames.size()]));
+  }
+
+
+  /**
+   * Records the signature of throwable in our store, on its first
+   * occurrence in this run.
+   * 
+   * @return whether an earlier run found the signature of throwable.
+   */
+  protected boolean isKnown(final Test test, final Throwable throwable) {
+    if (known == null) {
+      return false;
+    }
+    final String signature = getSignature(test, throwable);
+    Boolean res = isKnown.get(signature);
+    if (res == null) {
+      try {
+        known.record(signature, System.currentTimeMillis());
+        res = Boolean.valueOf(known.isKnown(signature));
+      }
+      catch (IOException e) {
+        res = Boolean.FALSE;
+      }
+      isKnown.put(signature, res);
+    }
+    return res.booleanValue();
+  }
+
+
 	/**
 	 * Gets the number of detected failures.
 	 */
@@ -194,13 +330,21 @@ public class GroupedTestResult extends TestResult {
     /* Moved Error check here from FilteringTestCase.
      * Calling dispatchError might generate another stack overflow error.
      * Which would end up here regardless of any filtering in dispatchError. */
-    if ((FilteringTestCase.SUPPRESS_ERRORS) && (throwable instanceof Error))
+    if ((config.isSuppressErrors()) && (throwable instanceof Error))
       return;
     
+    /* Report known crash signatures separately, via knownFailureCount. */
+    final Throwable unwrapped = (throwable instanceof Wrapper)?
+        ((Wrapper)throwable).unwrap() : throwable;
+    if (isKnown(test, unwrapped)) {
+      knownCount += 1;
+      return;
+    }
+    
 		GroupedTestFailure prototype = getPrototype(throwable);
 		GroupedTestFailure failure = null;
 		
-		if (RaGTestRunner.GROUP_MODE==GroupMode.GROUP_FOCUSED && prototype!=null &&
+		if (config.getGroupMode()==GroupMode.GROUP_FOCUSED && prototype!=null &&
 				isMoreFocused(throwable, prototype.thrownException())) // unwrap after isMoreFocused
 		{	/* make failure the new protype */
 			if (throwable instanceof Wrapper)
@@ -57,7 +57,7 @@ public class CopyCLinitClassLoader
 
 	/* exclude classes of list of packages from being modified */
 	private final static String[] ignoredPackages = new String[] {
-		"java.", "sun.", "junit.", 
+		"java.", "javax.", "sun.", "jdk.", "junit.", 
 		"edu.gatech.cc.jcrasher.testall.runtime."
 	};
 
@@ -71,6 +71,16 @@ public class CopyCLinitClassLoader
 		super(ignoredPackages);	//will be loaded with system class-loader
 	}
 	
+	/**
+	 * Constructor
+	 * 
+	 * Reads class files via deferTo, which also loads the ignored packages.
+	 * This lets us copy classes that exist in memory only.
+	 */
+	public CopyCLinitClassLoader(final ClassLoader deferTo) {
+		super(notNull(deferTo), ignoredPackages);
+	}
+	
 	
 	
 	/**
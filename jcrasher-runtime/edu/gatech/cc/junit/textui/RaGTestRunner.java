@@ -5,20 +5,29 @@
  */
 package edu.gatech.cc.junit.textui;
 
+import static edu.gatech.cc.jcrasher.Assertions.notNull;
+
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.PrintStream;
 
+import junit.framework.AssertionFailedError;
 import junit.framework.Test;
 import junit.framework.TestResult;
+import junit.framework.TestSuite;
 import junit.runner.TestSuiteLoader;
 import junit.runner.Version;
 import junit.textui.ResultPrinter;
 import junit.textui.TestRunner;
-import edu.gatech.cc.junit.FilteringTestCase;
+import edu.gatech.cc.jcrasher.CrashSignatureStore;
+import edu.gatech.cc.jcrasher.TestTimings;
 import edu.gatech.cc.junit.NoExitSecurityManager;
+import edu.gatech.cc.junit.RunnerConfig;
 import edu.gatech.cc.junit.FilteringTestCase.FilterMode;
+import edu.gatech.cc.junit.framework.GroupedTestFailure;
+import edu.gatech.cc.junit.framework.GroupedTestListener;
 import edu.gatech.cc.junit.framework.GroupedTestResult;
 import edu.gatech.cc.junit.reinit.CopyCLinitClassLoader;
 
@@ -54,25 +63,60 @@ public class RaGTestRunner extends TestRunner {
 	public static final String ANNOTATED_LIST_FILENAME = "annotated.txt";
 	
 	/**
-	 * Reinit?
+	 * Reinit, grouping, filtering.
 	 */
-	public static boolean DO_REINIT = false;
-
+	protected final RunnerConfig config;
+	
+	/**
+	 * Crash signatures found by earlier runs, opened by the first test
+	 * result, null if none.
+	 */
+	protected CrashSignatureStore known = null;
 	
 	/**
-	 * Classic grouping
+	 * Loads test classes, null for the system class-loader.
 	 */
-	public static GroupMode GROUP_MODE = GroupMode.GROUP_CLASSIC;
+	protected final ClassLoader parent;
 	
+	/**
+	 * Time each test class took, null if we do not measure.
+	 */
+	protected TestTimings timings = null;
 	
 	
 	/**
 	 * Constructor
 	 * 
-	 * Called third, calls super.
+	 * Called fifth, calls super.
+	 * 
+	 * @param parent loads test classes, null for the system class-loader.
 	 */
-	public RaGTestRunner(ResultPrinter printer) {
+	public RaGTestRunner(
+			ResultPrinter printer,
+			final RunnerConfig config,
+			final ClassLoader parent)
+	{
 		super(printer);
+		this.config = notNull(config);
+		this.parent = parent;
+	}	
+	
+	/**
+	 * Constructor
+	 * 
+	 * Called fourth.
+	 */
+	public RaGTestRunner(ResultPrinter printer, final RunnerConfig config) {
+		this(printer, config, null);
+	}	
+	
+	/**
+	 * Constructor
+	 * 
+	 * Called third.
+	 */
+	public RaGTestRunner(ResultPrinter printer) {
+		this(printer, RunnerConfig.DEFAULT);
 	}	
 	
 	/**
@@ -93,20 +137,86 @@ public class RaGTestRunner extends TestRunner {
 		this(System.out);												// default out-print-stream
 	}
 	
+	/**
+	 * Constructor 
+	 *
+	 * Called by main.
+	 */
+	public RaGTestRunner(final RunnerConfig config) {
+		this(new GroupedResultPrinter(System.out), config);
+	}
+	
 	
 	@Override
 	protected GroupedTestResult createTestResult() {
-		return new GroupedTestResult();
+		if (known == null && config.getKnownFile() != null) {
+			try {
+				known = new CrashSignatureStore(
+						config.getKnownFile(), config.getKnownSince());
+			}
+			catch (IOException e) {
+				System.err.println("Could not open known crash signatures: " + e);
+			}
+		}
+		final GroupedTestResult res = new GroupedTestResult(config, known);
+		if (config.getTimingsFile() != null) {
+			if (timings == null) {
+				timings = new TestTimings();
+			}
+			res.addListener(new Timer(timings));
+		}
+		return res;
+	}
+	
+	
+	/**
+	 * Adds the time each test takes to the timings of its class.
+	 * Tests run one after another.
+	 */
+	protected static class Timer implements GroupedTestListener {
+		protected final TestTimings timings;
+		protected long start = 0;
+		
+		protected Timer(final TestTimings timings) {
+			this.timings = notNull(timings);
+		}
+		public void startTest(Test test) {
+			start = System.nanoTime();
+		}
+		public void endTest(Test test) {
+			timings.add(test.getClass().getName(), 1,
+					Math.max(0, System.nanoTime()-start) / 1000000.0);
+		}
+		public void addError(Test test, Throwable t) {
+			/* Empty */
+		}
+		public void addError(Test test, Throwable t, GroupedTestFailure parent) {
+			/* Empty */
+		}
+		public void addFailure(Test test, AssertionFailedError t) {
+			/* Empty */
+		}
 	}
 
 
 	@Override
 	public TestSuiteLoader getLoader() {
-		/* Added check for global flag.
+		/* Added check for reinit setting.
 		 * Old version always returned CopyCLinitClassLoader. */
-		if (DO_REINIT) 
-			return new CopyCLinitClassLoader();
+		if (config.isReinit()) 
+			return (parent==null)?
+					new CopyCLinitClassLoader() : new CopyCLinitClassLoader(parent);
 		
+		if (parent != null) {
+			return new TestSuiteLoader() {
+				public Class load(String className) throws ClassNotFoundException {
+					return Class.forName(className, true, parent);
+				}
+				public Class reload(Class aClass) {
+					return aClass;
+				}
+			};
+		}
 		return super.getLoader();
 	}
 	
@@ -145,13 +255,77 @@ public class RaGTestRunner extends TestRunner {
 		/* Test run time measurement. */
 		long endTime= System.currentTimeMillis();
 		long runTime= endTime-startTime;
-				
+		
+		report(args[0], r, runTime);
+	}
+	
+	
+	/**
+	 * Runs the test classes of the given names as one suite.
+	 */
+	protected void runAll(final String[] classNames) {
+		setPrinter(new GroupedResultPrinter(getExceptionsStream()));
+		
+		/* Test run time measurement. */
+		long startTime= System.currentTimeMillis();
+		
+		final TestSuite suite = new TestSuite();
+		for (String className: classNames) {
+			final Test test = getTest(className);
+			if (test != null) {
+				suite.addTest(test);
+			}
+		}
+		final GroupedTestResult r = (GroupedTestResult) doRun(suite, false);
+		
+		/* Test run time measurement. */
+		long runTime= System.currentTimeMillis()-startTime;
+		
+		report((classNames.length==1)?
+				classNames[0] : classNames.length +" test classes", r, runTime);
+	}
+	
+	
+	/**
+	 * Print summary of r, then release known crash signatures.
+	 * 
+	 * @param r null if the run failed.
+	 */
+	protected void report(
+			final String suiteName,
+			final GroupedTestResult r,
+			long runTime)
+	{
 		//test-class; #tests run; #filtered errors or exceptions; #total reported e or e; exe [ms];	
-		getResultsStream().println("Suite name: " +args[0]);
+		getResultsStream().println("Suite name: " +suiteName);
 		if (r!=null) {
 			//getResultsStream().println("Test cases run: " +r.runCount());
 			getResultsStream().println("Exceptions and Errors after filtering (E): " +r.prototypeFailureCount());
 			getResultsStream().println("Exceptions and Errors total (e):  " +r.errorCount());
+			if (known != null) {
+				getResultsStream().println("Exceptions and Errors known from earlier runs (k): " +r.knownFailureCount());
+				for (String signature: r.getKnownSignatures()) {
+					getResultsStream().println("  " +signature);
+				}
+			}
+		}
+		if (timings != null) {
+			try {
+				timings.write(config.getTimingsFile());
+			}
+			catch (IOException e) {
+				System.err.println("Could not write test timings: " + e);
+			}
+			timings = null;
+		}
+		if (known != null) {
+			try {
+				known.close();
+			}
+			catch (IOException e) {
+				System.err.println("Could not write known crash signatures: " + e);
+			}
+			known = null;
 		}
 		getResultsStream().println("Run time: " +runTime +"ms");
 //		getResultsStream().println(
@@ -187,13 +361,13 @@ public class RaGTestRunner extends TestRunner {
 	 * Read annotated.txt
 	 * Convert param type to simple names
 	 */
-	protected static void parseAnnotatedList() {
+	protected static void parseAnnotatedList(final RunnerConfig.Builder config) {
 		try {
 			BufferedReader file = new BufferedReader(
 					new FileReader(ANNOTATED_LIST_FILENAME));
 			String line = file.readLine();
 			while (line != null) {
-				FilteringTestCase.ANNOTATED_LIST.add(simpleParamTypes(line));
+				config.addAnnotated(simpleParamTypes(line));
 				line = file.readLine();
 			}
 		}
@@ -209,6 +383,38 @@ public class RaGTestRunner extends TestRunner {
 	public static void main(String args[]) {
 		System.setSecurityManager(new NoExitSecurityManager()); //forbid System.exit(int)
 		
+		final RunnerConfig.Builder config = new RunnerConfig.Builder();
+		args = parseOptions(args, config);
+		new RaGTestRunner(config.build()).run(args);
+	}
+	
+	
+	/**
+	 * Runs the test classes of the given names in this JVM, like main, 
+	 * loading them via loader. Lets JCrasher run the test cases it 
+	 * compiled in memory.
+	 * 
+	 * @param args options as for main, then test class names.
+	 */
+	public static void run(final ClassLoader loader, String[] args) {
+		final RunnerConfig.Builder config = new RunnerConfig.Builder();
+		args = parseOptions(args, config);
+		new RaGTestRunner(
+				new GroupedResultPrinter(System.out),
+				config.build(),
+				notNull(loader)).runAll(args);
+	}
+	
+	
+	/**
+	 * Sets config as the leading options in args say.
+	 * 
+	 * @return remaining args.
+	 */
+	protected static String[] parseOptions(
+			String args[],
+			final RunnerConfig.Builder config)
+	{
 		/* we interpret first arguments only. */
 		boolean foundArg = true;
 		
@@ -218,42 +424,58 @@ public class RaGTestRunner extends TestRunner {
 			/* parse annotated.txt and don't use heuristic for these methods */
 			if (args[0].equals("-annotated")) {
 				foundArg = true;
-				parseAnnotatedList();
-			}
+				parseAnnotatedList(config);
+			}
 			if (args[0].equals("-directCallOnly")) {  //restrict reporting to exceptions thrown by testee
-				FilteringTestCase.DIRECT_CALL_ONLY = true;
+				config.directCallOnly(true);
 				foundArg = true;
 			}						
 			if (args[0].equals("-reinit")) {
-				DO_REINIT = true;  //turn on reinitialization
+				config.reinit(true);  //turn on reinitialization
 				foundArg = true;
-			}
+			}
       if (args[0].equals("-testedOnly")) {  //restrict reporting to exception caused by tested method
-        FilteringTestCase.THROWN_BY_TESTED_METHOD_ONLY = true;
+        config.thrownByTestedMethodOnly(true);
         foundArg = true;
       }     			
 			if (args[0].equals("-focus")) {
-				GROUP_MODE = GroupMode.GROUP_FOCUSED;
+				config.groupMode(GroupMode.GROUP_FOCUSED);
 				foundArg = true;
 			}			
 			if (args[0].equals("-reportAllExceptions")) {
-				FilteringTestCase.FILTER_MODE = FilterMode.ALL;
+				config.filterMode(FilterMode.ALL);
 				foundArg = true;
 			}			
 			if (args[0].equals("-reportSpeExceptions")) {
-				FilteringTestCase.FILTER_MODE = FilterMode.CLASSIC_SPE;
+				config.filterMode(FilterMode.CLASSIC_SPE);
 				foundArg = true;
 			}
 			if (args[0].equals("-suppressErrors")) {  //hide java.lang.Error from user
-				FilteringTestCase.SUPPRESS_ERRORS = true;
+				config.suppressErrors(true);
 				foundArg = true;
 			}		
+			int nrArgs = 1;
+			if (args[0].equals("-known") && args.length>1) {  //report signatures of earlier runs separately
+				config.knownFile(new File(args[1]));
+				foundArg = true;
+				nrArgs = 2;
+			}
+			if (args[0].equals("-since") && args.length>1) {  //ms -known counts as this run
+				config.knownSince(Long.parseLong(args[1]));
+				foundArg = true;
+				nrArgs = 2;
+			}
+			if (args[0].equals("-timings") && args.length>1) {  //write time per test class, for balancing shards
+				config.timingsFile(new File(args[1]));
+				foundArg = true;
+				nrArgs = 2;
+			}
 			if (foundArg) {  //remove from list.
 				String[] allArgs = args;
-				args = new String[allArgs.length-1];
-				System.arraycopy(allArgs, 1, args, 0, args.length);				
+				args = new String[allArgs.length-nrArgs];
+				System.arraycopy(allArgs, nrArgs, args, 0, args.length);				
 			}
 		}
-		new RaGTestRunner().run(args);
+		return args;
 	}
 }
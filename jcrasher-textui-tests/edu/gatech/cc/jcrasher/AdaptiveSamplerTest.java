@@ -0,0 +1,190 @@
+/*
+ * AdaptiveSamplerTest.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import edu.gatech.cc.jcrasher.planner.AdaptiveSampler;
+import edu.gatech.cc.jcrasher.planner.ClassUnderTest;
+import edu.gatech.cc.jcrasher.planner.CutPlannerImpl;
+import edu.gatech.cc.jcrasher.types.TypeGraph;
+import edu.gatech.cc.jcrasher.types.TypeGraphImpl;
+
+/**
+ * Adaptive sampling must stay within the plan space and find more unique
+ * crashes than uniform sampling, when most alternatives are unproductive.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class AdaptiveSamplerTest extends TestCase {
+
+  /**
+   * Testee, with one method crashing differently for different arguments,
+   * and many that only throw checked exceptions.
+   */
+  public static class Testee {
+    /***/
+    public static void crash(int a, int b) {
+      switch (3*Integer.signum(a) + Integer.signum(b)) {
+        case -4: throw new IllegalStateException();
+        case -3: throw new IllegalStateException();
+        case -2: throw new IllegalStateException();
+        case -1: throw new IllegalStateException();
+        case 0: throw new IllegalStateException();
+        case 1: throw new IllegalStateException();
+        case 2: throw new IllegalStateException();
+        case 3: throw new IllegalStateException();
+        default: throw new IllegalStateException();
+      }
+    }
+
+    /***/
+    public static void boring0(int a, int b) throws IOException {
+      throw new IOException();
+    }
+
+    /***/
+    public static void boring1(int a, int b) throws IOException {
+      throw new IOException();
+    }
+
+    /***/
+    public static void boring2(int a, int b) throws IOException {
+      throw new IOException();
+    }
+
+    /***/
+    public static void boring3(int a, int b) throws IOException {
+      throw new IOException();
+    }
+
+    /***/
+    public static void boring4(int a, int b) throws IOException {
+      throw new IOException();
+    }
+
+    /***/
+    public static void boring5(int a, int b) throws IOException {
+      throw new IOException();
+    }
+
+    /***/
+    public static void boring6(int a, int b) throws IOException {
+      throw new IOException();
+    }
+  }
+
+  protected static final int BUDGET = 20;
+
+  /**
+   * Unique crashes uniform and adaptive sampling find with BUDGET samples,
+   * for seeds 0, 1, ..
+   */
+  protected static final int[] UNIFORM = new int[]{2, 3, 1, 4, 2};
+  protected static final int[] ADAPTIVE = new int[]{3, 5, 5, 5, 3};
+
+  protected ClassUnderTest<?> classNode;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    final RunConfig config = new RunConfig.Builder().build();
+    final TypeGraph typeGraph = new TypeGraphImpl();
+    typeGraph.crawl(
+        Collections.<Class<?>>singleton(Testee.class), config.getVisUsed());
+    classNode =
+      new CutPlannerImpl(typeGraph, config).getPlanSpace(Testee.class);
+  }
+
+
+  /**
+   * @return whether executing the test case at index crashed with a new
+   * signature.
+   */
+  protected boolean execute(final BigInteger index,
+      final Set<CrashSignature> signatures)
+  {
+    Throwable thrown = null;
+    try {
+      classNode.getBlock(index).execute();
+    }
+    catch (Throwable e) {
+      thrown = e;
+    }
+    final ExecutionResult result = ExecutionResult.of(thrown, 0);
+    return result.getKind() == ExecutionResult.Kind.CRASH
+      && signatures.add(CrashSignature.of(result.getThrown(), 5));
+  }
+
+
+  /**
+   * The expected numbers of crashes depend on this order, which follows
+   * the sorted member names.
+   */
+  public void testPlanOrder() {
+    assertEquals(73, classNode.getPlanSpaceSize().intValue());
+    assertTrue(classNode.getBlock(BigInteger.valueOf(0)).text()
+        .indexOf("new AdaptiveSamplerTest.Testee()") >= 0);
+    assertTrue(classNode.getBlock(BigInteger.valueOf(1)).text()
+        .indexOf("Testee.boring0(") >= 0);
+    assertTrue(classNode.getBlock(BigInteger.valueOf(63)).text()
+        .indexOf("Testee.boring6(") >= 0);
+    assertTrue(classNode.getBlock(BigInteger.valueOf(64)).text()
+        .indexOf("Testee.crash(") >= 0);
+  }
+
+
+  /***/
+  public void testDistinctIndicesInSpace() {
+    final BigInteger size = classNode.getPlanSpaceSize();
+    final AdaptiveSampler sampler = new AdaptiveSampler(classNode, new Random(0));
+    final Set<BigInteger> drawn = new HashSet<BigInteger>();
+    for (AdaptiveSampler.Sample sample = sampler.next();
+        sample != null;
+        sample = sampler.next())
+    {
+      assertTrue(sample.getIndex().signum() >= 0);
+      assertTrue(sample.getIndex().compareTo(size) < 0);
+      assertTrue(drawn.add(sample.getIndex()));
+      sampler.reward(sample, 0.5);
+    }
+    assertTrue(drawn.size() > size.intValue()/2);
+  }
+
+
+  /***/
+  public void testMoreUniqueCrashes() {
+    final int size = classNode.getPlanSpaceSize().intValue();
+    int nrUniform = 0;
+    int nrAdaptive = 0;
+    for (int seed=0; seed<UNIFORM.length; seed++) {
+      final Random random = new Random(seed);
+      final Set<CrashSignature> uniform = new HashSet<CrashSignature>();
+      for (int i=0; i<BUDGET; i++) {
+        execute(BigInteger.valueOf(random.nextInt(size)), uniform);
+      }
+      assertEquals("seed " + seed, UNIFORM[seed], uniform.size());
+      nrUniform += uniform.size();
+
+      final AdaptiveSampler sampler =
+        new AdaptiveSampler(classNode, new Random(seed));
+      final Set<CrashSignature> adaptive = new HashSet<CrashSignature>();
+      for (int i=0; i<BUDGET; i++) {
+        final AdaptiveSampler.Sample sample = sampler.next();
+        sampler.reward(sample, execute(sample.getIndex(), adaptive)? 1 : 0);
+      }
+      assertEquals("seed " + seed, ADAPTIVE[seed], adaptive.size());
+      nrAdaptive += adaptive.size();
+    }
+    assertTrue(nrAdaptive + " vs " + nrUniform, nrAdaptive > nrUniform);
+  }
+}
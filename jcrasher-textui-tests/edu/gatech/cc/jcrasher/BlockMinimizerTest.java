@@ -0,0 +1,135 @@
+/*
+ * BlockMinimizerTest.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher;
+
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+import edu.gatech.cc.jcrasher.planner.ClassUnderTest;
+import edu.gatech.cc.jcrasher.planner.CutPlannerImpl;
+import edu.gatech.cc.jcrasher.planner.PlanSimplifier;
+import edu.gatech.cc.jcrasher.plans.stmt.Block;
+import edu.gatech.cc.jcrasher.types.TypeGraph;
+import edu.gatech.cc.jcrasher.types.TypeGraphImpl;
+
+/**
+ * Shrunk test cases must be shorter and crash with the same signature.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class BlockMinimizerTest extends TestCase {
+
+  /**
+   * Needed type, which takes chaining to construct.
+   */
+  public static class Needed {
+    /***/
+    public Needed(int a, int b) {
+      /* Empty */
+    }
+
+    /***/
+    public static Needed wrap(final Needed needed, int c) {
+      return new Needed(c, c);
+    }
+  }
+
+  /**
+   * Testee, crashing whatever its first argument.
+   */
+  public static class Testee {
+    /***/
+    public static void crash(final Needed needed, int i) {
+      if (i != 0) {
+        throw new IllegalStateException();
+      }
+    }
+  }
+
+  protected ClassUnderTest<?> classNode;
+  protected CandidateExecutor executor;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    final RunConfig config =
+      new RunConfig.Builder().nrThreads(2).maxPlanRecursion(3).build();
+    final TypeGraph typeGraph = new TypeGraphImpl();
+    typeGraph.crawl(
+        Collections.<Class<?>>singleton(Testee.class), config.getVisUsed());
+    classNode =
+      new CutPlannerImpl(typeGraph, config).getPlanSpace(Testee.class);
+    executor = new CandidateExecutor(
+        config.getNrThreads(), config.getTimeoutMillis());
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    executor.shutdown();
+    super.tearDown();
+  }
+
+
+  /**
+   * @return index of the longest block that crashes.
+   */
+  protected BigInteger getLongestCrash() throws InterruptedException {
+    BigInteger res = null;
+    int longest = -1;
+    for (int i=0; i<classNode.getPlanSpaceSize().intValue(); i++) {
+      final Block<?> block = classNode.getBlock(BigInteger.valueOf(i));
+      final ExecutionResult result = executor.executeAll(new Block[]{block})[0];
+      if (result.getKind() == ExecutionResult.Kind.CRASH
+          && block.text().length() > longest)
+      {
+        res = BigInteger.valueOf(i);
+        longest = block.text().length();
+      }
+    }
+    return res;
+  }
+
+
+  /***/
+  public void testVariantsInSpace() {
+    final PlanSimplifier simplifier = new PlanSimplifier(classNode);
+    final BigInteger size = classNode.getPlanSpaceSize();
+    int nrVariants = 0;
+    for (int i=0; i<size.intValue(); i+=7) {
+      final List<BigInteger> variants =
+        simplifier.getVariants(BigInteger.valueOf(i));
+      nrVariants += variants.size();
+      for (BigInteger variant: variants) {
+        assertTrue(variant.signum() >= 0 && variant.compareTo(size) < 0);
+        assertFalse(variant.intValue() == i);
+      }
+    }
+    assertTrue(nrVariants > 0);
+  }
+
+
+  /***/
+  public void testShorterSameSignature() throws InterruptedException {
+    final BigInteger index = getLongestCrash();
+    assertNotNull(index);
+    final Block<?> block = classNode.getBlock(index);
+    final CrashSignature signature = CrashSignature.of(
+        executor.executeAll(new Block[]{block})[0].getThrown(), 5);
+
+    final BlockMinimizer minimizer = new BlockMinimizer(executor, 5, 10000);
+    final Block<?> shrunk = minimizer.minimize(classNode,
+        Collections.singletonList(new BlockMinimizer.Target(index, signature)))[0];
+    assertTrue(shrunk.text().length() < block.text().length());
+    assertTrue(shrunk.text().indexOf("wrap") < 0);
+    assertEquals(1, minimizer.getNrMinimized());
+
+    final ExecutionResult result = executor.executeAll(new Block[]{shrunk})[0];
+    assertEquals(ExecutionResult.Kind.CRASH, result.getKind());
+    assertEquals(signature, CrashSignature.of(result.getThrown(), 5));
+  }
+}
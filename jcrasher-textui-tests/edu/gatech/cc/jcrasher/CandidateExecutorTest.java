@@ -0,0 +1,109 @@
+/*
+ * CandidateExecutorTest.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+
+import junit.framework.TestCase;
+import edu.gatech.cc.jcrasher.ExecutionResult.Kind;
+import edu.gatech.cc.jcrasher.plans.JavaCode;
+
+/**
+ * Candidates execute in parallel, results keep candidate order, and a
+ * candidate that does not terminate does not block the others.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class CandidateExecutorTest extends TestCase {
+
+  protected static class Candidate implements JavaCode<Object> {
+    protected final Throwable cause;
+    protected final boolean loop;
+
+    protected Candidate(final Throwable cause, boolean loop) {
+      this.cause = cause;
+      this.loop = loop;
+    }
+
+    public Object execute() throws InvocationTargetException {
+      while (loop && !released) {
+        /* Ignore interrupts, as a testee may */
+      }
+      if (cause != null) {
+        throw new InvocationTargetException(cause);
+      }
+      return null;
+    }
+
+    public String text() {
+      return "candidate";
+    }
+  }
+
+  /**
+   * Lets abandoned candidates terminate after each test.
+   */
+  protected static volatile boolean released = false;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    released = false;
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    released = true;
+    super.tearDown();
+  }
+
+  protected final JavaCode<?> normal = new Candidate(null, false);
+  protected final JavaCode<?> crash =
+    new Candidate(new IllegalStateException(), false);
+  protected final JavaCode<?> expected = new Candidate(new IOException(), false);
+  protected final JavaCode<?> hung = new Candidate(null, true);
+
+
+  /***/
+  public void testKindsInOrder() throws InterruptedException {
+    final CandidateExecutor executor = new CandidateExecutor(2, 200);
+    try {
+      final ExecutionResult[] res = executor.executeAll(
+          new JavaCode[]{normal, hung, crash, hung, expected, normal});
+      assertEquals(6, res.length);
+      assertEquals(Kind.NORMAL, res[0].getKind());
+      assertEquals(Kind.HUNG, res[1].getKind());
+      assertEquals(Kind.CRASH, res[2].getKind());
+      assertTrue(res[2].getThrown() instanceof IllegalStateException);
+      assertEquals(Kind.HUNG, res[3].getKind());
+      assertEquals(Kind.EXPECTED, res[4].getKind());
+      assertEquals(Kind.NORMAL, res[5].getKind());
+    }
+    finally {
+      executor.shutdown();
+    }
+  }
+
+
+  /**
+   * More hung candidates than threads.
+   */
+  public void testAllHung() throws InterruptedException {
+    final CandidateExecutor executor = new CandidateExecutor(1, 50);
+    try {
+      final ExecutionResult[] res =
+        executor.executeAll(new JavaCode[]{hung, hung, hung, normal});
+      for (int i=0; i<3; i++) {
+        assertEquals(Kind.HUNG, res[i].getKind());
+      }
+      assertEquals(Kind.NORMAL, res[3].getKind());
+    }
+    finally {
+      executor.shutdown();
+    }
+  }
+}
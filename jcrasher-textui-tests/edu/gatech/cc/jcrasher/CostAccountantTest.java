@@ -0,0 +1,156 @@
+/*
+ * CostAccountantTest.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher;
+
+import java.io.File;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+import edu.gatech.cc.jcrasher.types.TypeGraph;
+import edu.gatech.cc.jcrasher.types.TypeGraphImpl;
+
+/**
+ * Members must get quarantined by the median of their wall times, and the
+ * quarantine must carry over to the next run.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class CostAccountantTest extends TestCase {
+
+  protected static int nrSlow = 0;
+  protected static int nrFast = 0;
+
+  /**
+   * Testee, with one slow and one fast method.
+   */
+  public static class Testee {
+    /***/
+    public static void slow(int i) throws InterruptedException {
+      nrSlow += 1;
+      Thread.sleep(20);
+    }
+
+    /***/
+    public static void fast(int i) {
+      nrFast += 1;
+    }
+  }
+
+  protected File file;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    file = File.createTempFile("quarantine", ".txt");
+    file.delete();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    file.delete();
+    super.tearDown();
+  }
+
+
+  /***/
+  public void testGetKey() throws Exception {
+    assertEquals(Testee.class.getName() + ".slow(int)",
+        CostAccountant.getKey(Testee.class.getMethod("slow", int.class)));
+    assertEquals(Testee.class.getName() + ".<init>()",
+        CostAccountant.getKey(Testee.class.getConstructor()));
+  }
+
+
+  /***/
+  public void testMedian() {
+    final CostAccountant costs = new CostAccountant(10);
+    costs.add("m", ExecutionResult.of(null, 50000000));
+    costs.add("m", ExecutionResult.of(null, 50000000));
+    assertFalse(costs.isQuarantined("m"));  //too few samples.
+    costs.add("m", ExecutionResult.of(null, 1000));
+    assertTrue(costs.isQuarantined("m"));
+    assertEquals(50000000, costs.getMedianNanos("m"));
+
+    /* A single outlier does not count */
+    costs.add("n", ExecutionResult.of(null, 1000));
+    costs.add("n", ExecutionResult.of(null, 50000000));
+    costs.add("n", ExecutionResult.of(null, 1000));
+    assertFalse(costs.isQuarantined("n"));
+    assertEquals(1, costs.getNrQuarantined());
+  }
+
+
+  /***/
+  public void testSaveLoad() throws Exception {
+    assertEquals(0, new CostAccountant(0).load(file));
+
+    final CostAccountant costs = new CostAccountant(10);
+    for (int i=0; i<3; i++) {
+      costs.add("m", ExecutionResult.of(null, 50000000));
+    }
+    costs.save(file);
+
+    final CostAccountant loaded = new CostAccountant(0);
+    assertEquals(1, loaded.load(file));
+    assertTrue(loaded.isQuarantined("m"));
+  }
+
+
+  /**
+   * A loaded member gets released once its recent test cases are fast, and
+   * is no longer saved.
+   */
+  public void testRelease() throws Exception {
+    final CostAccountant costs = new CostAccountant(10);
+    costs.quarantined.add("fast");
+    costs.quarantined.add("slow");
+    for (int i=0; i<CostAccountant.RECHECK_SAMPLES; i++) {
+      costs.add("fast", ExecutionResult.of(null, 1000));
+      costs.add("slow", ExecutionResult.of(null, 50000000));
+    }
+    assertFalse(costs.isQuarantined("fast"));
+    assertTrue(costs.isQuarantined("slow"));
+    assertEquals(1, costs.getNrReleased());
+    costs.save(file);
+
+    final CostAccountant loaded = new CostAccountant(0);
+    assertEquals(1, loaded.load(file));
+    assertTrue(loaded.isQuarantined("slow"));
+
+    /* Without a threshold we keep what we loaded */
+    for (int i=0; i<CostAccountant.RECHECK_SAMPLES; i++) {
+      loaded.add("slow", ExecutionResult.of(null, 1000));
+    }
+    assertTrue(loaded.isQuarantined("slow"));
+  }
+
+
+  /**
+   * A quarantined member gets at most the quota of executed test cases.
+   */
+  public void testQuota() throws Exception {
+    final CostAccountant costs = new CostAccountant(0);
+    costs.quarantined.add(
+        CostAccountant.getKey(Testee.class.getMethod("slow", int.class)));
+    costs.save(file);
+
+    final RunConfig config = new RunConfig.Builder()
+        .nrThreads(1).quarantineFile(file).build();
+    final TypeGraph typeGraph = new TypeGraphImpl();
+    typeGraph.crawl(
+        Collections.<Class<?>>singleton(Testee.class), config.getVisUsed());
+    final ExecutingCutPlanner planner = new ExecutingCutPlanner(
+        new Class[]{Testee.class}, typeGraph, config);
+    nrSlow = 0;
+    nrFast = 0;
+    planner.getBlocks(Testee.class, 100);
+    planner.shutdown();
+
+    assertTrue(nrFast > ExecutingCutPlanner.QUARANTINE_QUOTA);
+    assertTrue(nrSlow <= ExecutingCutPlanner.QUARANTINE_QUOTA);
+    assertTrue(planner.getNrSkipped() > 0);
+  }
+}
@@ -0,0 +1,161 @@
+/*
+ * CoverageClassLoaderTest.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.BitSet;
+
+import junit.framework.TestCase;
+import client.Branches;
+import client.InterfaceCalls;
+import edu.gatech.cc.jcrasher.plans.JavaCode;
+
+/**
+ * Instrumented classes must behave as before, and report each branch the
+ * first time a test case takes it.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class CoverageClassLoaderTest extends TestCase {
+
+  protected CoverageClassLoader loader;
+  protected Class<?> branches;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    loader = new CoverageClassLoader(getClass().getClassLoader());
+    branches = loader.loadClass(Branches.class.getName());
+  }
+
+
+  /**
+   * @return whether calling name(arg) on the instrumented class hit a new
+   * branch, after checking that it returns what the original class returns.
+   */
+  protected boolean isNew(final String name, final Object arg)
+  throws Exception
+  {
+    final Method original = getMethod(Branches.class, name);
+    final Method instrumented = getMethod(branches, name);
+    final Coverage.CoveringCode code = new Coverage.CoveringCode(
+        loader.getCoverage(),
+        new JavaCode<Object>() {
+          public Object execute() throws IllegalAccessException,
+          InvocationTargetException
+          {
+            return instrumented.invoke(null, new Object[]{arg});
+          }
+          public String text() {
+            return name;
+          }
+        });
+    assertEquals(original.invoke(null, new Object[]{arg}), code.execute());
+    return code.isNew();
+  }
+
+  protected Method getMethod(final Class<?> c, final String name) {
+    for (Method meth: c.getMethods()) {
+      if (meth.getName().equals(name)) {
+        return meth;
+      }
+    }
+    fail(name);
+    return null;
+  }
+
+
+  /***/
+  public void testLoad() throws Exception {
+    assertSame(loader, branches.getClassLoader());
+    assertEquals(1, loader.getNrInstrumented());
+    assertSame(String.class, loader.loadClass(String.class.getName()));
+    assertSame(Coverage.class, loader.loadClass(Coverage.class.getName()));
+    assertSame(branches, loader.loadClass(Branches.class.getName()));
+    assertEquals(1, loader.getNrInstrumented());
+  }
+
+
+  /***/
+  public void testNewBranches() throws Exception {
+    final int nrProbes = loader.getCoverage().getNrProbes();
+    assertTrue(isNew("sign", Integer.valueOf(-1)));
+    assertFalse(isNew("sign", Integer.valueOf(-5)));
+    assertTrue(isNew("sign", Integer.valueOf(0)));
+    assertTrue(isNew("sign", Integer.valueOf(7)));
+    assertFalse(isNew("sign", Integer.valueOf(9)));
+
+    assertTrue(isNew("sum", Integer.valueOf(0)));
+    assertTrue(isNew("sum", Integer.valueOf(3)));
+    assertFalse(isNew("sum", Integer.valueOf(4)));
+
+    assertTrue(isNew("first", new int[]{4}));
+    assertTrue(isNew("first", null));
+    assertFalse(isNew("first", new int[0]));
+
+    assertTrue(isNew("name", Integer.valueOf(0)));
+    assertTrue(isNew("name", Integer.valueOf(1)));
+    assertTrue(isNew("name", Integer.valueOf(2)));
+    assertFalse(isNew("name", Integer.valueOf(1)));
+
+    assertEquals(nrProbes, loader.getCoverage().getNrProbes());  //no new classes.
+  }
+
+
+  /**
+   * We cannot emit a class that calls an interface method directly in the
+   * Java 5 class file format, so we load it unchanged.
+   */
+  public void testInterfaceCall() throws Exception {
+    final Class<?> calls = loader.loadClass(InterfaceCalls.class.getName());
+    assertSame(loader, calls.getClassLoader());
+    assertEquals(1, loader.getNrInstrumented());
+    assertEquals(Integer.valueOf(0), getMethod(calls, "compare").invoke(
+        null, new Object[]{"a", "a"}));
+  }
+
+
+  /**
+   * Probes beyond a probe map get their own slots, and hits stored into a
+   * map before it grew still count.
+   */
+  public void testGrow() {
+    final Coverage coverage = new Coverage();
+    final boolean[] before = coverage.probes();
+    final int first = coverage.newProbe();
+    int last = first;
+    while (last < first + 2*before.length) {
+      last = coverage.newProbe();
+    }
+    final boolean[] after = coverage.probes();
+    assertTrue(after.length > last);
+    before[first % before.length] = true;
+    after[last] = true;
+
+    final BitSet hits = coverage.collectHits();
+    assertTrue(hits.get(first % before.length));
+    assertTrue(hits.get(last));
+    assertEquals(2, hits.cardinality());
+    assertTrue(coverage.collectHits().isEmpty());
+  }
+
+
+  /**
+   * Each loader counts the probes of its own classes.
+   */
+  public void testOwnCoverage() throws Exception {
+    final CoverageClassLoader other =
+      new CoverageClassLoader(getClass().getClassLoader());
+    getMethod(other.loadClass(Branches.class.getName()), "sign").invoke(
+        null, new Object[]{Integer.valueOf(1)});
+    assertTrue(other.getCoverage().collect());
+    assertEquals(loader.getCoverage().getNrProbes(),
+        other.getCoverage().getNrProbes());
+    assertEquals(0, loader.getCoverage().getNrCovered());
+    assertTrue(isNew("sign", Integer.valueOf(1)));
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * CrashDeduplicatorTest.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import junit.framework.TestCase;
+
+/**
+ * Crashes thrown at the same testee site share a signature, others do not.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class CrashDeduplicatorTest extends TestCase {
+
+  /**
+   * Testee with two crash sites.
+   */
+  public static class Testee {
+    /***/
+    public static void first(int i) {
+      throw new IllegalStateException("first " + i);
+    }
+
+    /***/
+    public static void second(int i) {
+      if (i >= 0) {
+        throw new IllegalStateException("second " + i);
+      }
+      throw new IllegalArgumentException("second " + i);
+    }
+  }
+
+
+  /**
+   * @return what the testee threw when we called it reflectively.
+   */
+  protected Throwable crash(final String name, int arg) throws Exception {
+    final Method meth = Testee.class.getMethod(name, Integer.TYPE);
+    try {
+      meth.invoke(null, Integer.valueOf(arg));
+    }
+    catch (InvocationTargetException e) {
+      return e.getCause();
+    }
+    fail();
+    return null;
+  }
+
+
+  /***/
+  public void testSignature() throws Exception {
+    final CrashSignature first = CrashSignature.of(crash("first", 1), 5);
+    assertEquals(first, CrashSignature.of(crash("first", 2), 5));
+    assertFalse(first.equals(CrashSignature.of(crash("second", 1), 5)));
+    assertFalse(CrashSignature.of(crash("second", 1), 5).equals(
+        CrashSignature.of(crash("second", -1), 5)));
+
+    assertEquals(IllegalStateException.class.getName(), first.getClassName());
+    assertEquals(1, first.getFrames().length);  //stops at Method.invoke.
+    assertTrue(first.getFrames()[0].startsWith(Testee.class.getName() + ".first:"));
+    assertEquals(0, CrashSignature.of(crash("first", 1), 0).getFrames().length);
+  }
+
+
+  /***/
+  public void testKeep() throws Exception {
+    final CrashDeduplicator deduplicator = new CrashDeduplicator(2, 5);
+    for (int i=0; i<5; i++) {
+      assertEquals(i<2, deduplicator.keep(crash("first", i)));
+    }
+    assertTrue(deduplicator.keep(crash("second", 0)));
+    assertTrue(deduplicator.keep(null));
+    assertEquals(3, deduplicator.getNrSignatures());
+    assertEquals(3, deduplicator.getNrDropped());
+    assertEquals(5, deduplicator.getCount(crash("first", 9)));
+
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    deduplicator.report(new PrintStream(bytes, true));
+    final String report = bytes.toString();
+    assertTrue(report, report.startsWith("5 crash(es), kept 2: "
+        + IllegalStateException.class.getName() + " at "
+        + Testee.class.getName() + ".first:"));
+  }
+}
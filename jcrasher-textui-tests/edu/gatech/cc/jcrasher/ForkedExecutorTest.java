@@ -0,0 +1,181 @@
+/*
+ * ForkedExecutorTest.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+import edu.gatech.cc.jcrasher.ExecutionResult.Kind;
+import edu.gatech.cc.jcrasher.planner.ClassUnderTest;
+import edu.gatech.cc.jcrasher.planner.CutPlannerImpl;
+import edu.gatech.cc.jcrasher.plans.stmt.Block;
+import edu.gatech.cc.jcrasher.types.TypeGraph;
+import edu.gatech.cc.jcrasher.types.TypeGraphImpl;
+
+/**
+ * A candidate that exits or hangs only takes down its child JVM,
+ * which is replaced for the next candidate.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class ForkedExecutorTest extends TestCase {
+
+  /**
+   * Testee, whose methods each yield a single test case.
+   */
+  public static class Testee {
+    /***/
+    public static void fine() {
+      /* Empty */
+    }
+
+    /***/
+    public static void crash() {
+      throw new IllegalStateException("crash");
+    }
+
+    /***/
+    public static void exit() {
+      System.exit(1);
+    }
+
+    /***/
+    public static void loop() {
+      while (true) {
+        /* Empty */
+      }
+    }
+  }
+
+  protected final Class<?>[] classes = new Class[]{Testee.class};
+
+  protected RunConfig config;
+  protected ForkedExecutor executor;
+  protected int[] indices;
+  protected Block<?>[] blocks;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    config = new RunConfig.Builder()
+      .nrForks(2)
+      .forkRecycle(3)
+      .timeoutMillis(500)
+      .build();
+    executor = new ForkedExecutor(classes, config);
+
+    final TypeGraph typeGraph = new TypeGraphImpl();
+    typeGraph.crawl(
+        Collections.<Class<?>>singleton(Testee.class), config.getVisUsed());
+    final ClassUnderTest<?> classNode =
+      new CutPlannerImpl(typeGraph, config).getPlanSpace(Testee.class);
+    final int size = classNode.getPlanSpaceSize().intValue();
+    indices = new int[size];
+    blocks = new Block[size];
+    for (int i=0; i<size; i++) {
+      indices[i] = i;
+      blocks[i] = classNode.getBlock(BigInteger.valueOf(i));
+    }
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    executor.shutdown();
+    super.tearDown();
+  }
+
+
+  protected Kind expected(final Block<?> block) {
+    final String name = block.getTestee().getName();
+    if (name.equals("crash")) {
+      return Kind.CRASH;
+    }
+    if (name.equals("exit")) {
+      return Kind.DIED;
+    }
+    if (name.equals("loop")) {
+      return Kind.HUNG;
+    }
+    return Kind.NORMAL;
+  }
+
+
+  /***/
+  public void testKinds() throws InterruptedException {
+    for (int round=0; round<2; round++) {
+      final ExecutionResult[] res =
+        executor.executeAll(Testee.class, indices, blocks);
+      assertEquals(blocks.length, res.length);
+      for (int i=0; i<res.length; i++) {
+        assertEquals(expected(blocks[i]), res[i].getKind());
+        if (res[i].getKind() == Kind.CRASH) {
+          final ForkedWorker.RemoteThrowable thrown =
+            (ForkedWorker.RemoteThrowable) res[i].getThrown();
+          assertEquals(
+              IllegalStateException.class.getName(), thrown.getClassName());
+          assertEquals("crash", thrown.getMessage());
+          assertEquals("crash", thrown.getStackTrace()[0].getMethodName());
+        }
+      }
+    }
+    assertTrue(executor.getNrStarts() > 2);  //replaced children.
+    assertEquals(0, executor.getNrUnexecuted());
+  }
+
+
+  /**
+   * Candidate whose text differs from what the child plans.
+   */
+  public void testMismatch() throws InterruptedException {
+    final ExecutionResult[] res = executor.executeAll(
+        Testee.class, new int[]{0}, new Block[]{blocks[1]});
+    assertEquals(Kind.INVALID, res[0].getKind());
+    assertEquals(1, executor.getNrUnexecuted());
+  }
+
+
+  /**
+   * A child that does not start once is started again.
+   */
+  public void testRetryStart() throws InterruptedException {
+    executor.shutdown();
+    executor = new ForkedExecutor(classes, config) {
+      protected boolean failed = false;
+      @Override
+      protected Process startProcess() throws IOException {
+        if (!failed) {
+          failed = true;
+          throw new IOException("transient");
+        }
+        return super.startProcess();
+      }
+    };
+    final ExecutionResult[] res = executor.executeAll(
+        Testee.class, new int[]{indices[0]}, new Block[]{blocks[0]});
+    assertEquals(expected(blocks[0]), res[0].getKind());
+    assertEquals(1, executor.getNrStartFailures());
+    assertEquals(1, executor.getNrStarts());
+    assertEquals(0, executor.getNrUnexecuted());
+  }
+
+
+  /**
+   * Members are planned in the same order in every class loader and JVM.
+   */
+  public void testFingerprint() throws Exception {
+    final URL bin =
+      Testee.class.getProtectionDomain().getCodeSource().getLocation();
+    final Class<?> other = new URLClassLoader(new URL[]{bin}, null)
+      .loadClass(Testee.class.getName());
+    assertNotSame(Testee.class, other);
+    assertEquals(ForkedWorker.fingerprint(classes),
+        ForkedWorker.fingerprint(new Class[]{other}));
+  }
+}
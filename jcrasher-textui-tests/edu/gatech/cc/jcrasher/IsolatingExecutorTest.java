@@ -0,0 +1,144 @@
+/*
+ * IsolatingExecutorTest.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+import client.Counter;
+import client.LazyCounter;
+import client.Registry;
+import edu.gatech.cc.jcrasher.planner.ClassUnderTest;
+import edu.gatech.cc.jcrasher.planner.CutPlannerImpl;
+import edu.gatech.cc.jcrasher.plans.stmt.Block;
+import edu.gatech.cc.jcrasher.types.TypeGraph;
+import edu.gatech.cc.jcrasher.types.TypeGraphImpl;
+
+/**
+ * Isolated test cases must not see the static state earlier ones left
+ * behind, while reusing class loaders.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class IsolatingExecutorTest extends TestCase {
+
+  protected static final int NR_EXECUTIONS = 20;
+
+  protected RunConfig config;
+  protected Class<?> counter;
+  protected TypeGraph typeGraph;
+  protected CandidateExecutor executor;
+  protected Block<?>[] blocks;
+  protected List<Integer> indices;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    config = new RunConfig.Builder().nrThreads(2).build();
+    executor = new CandidateExecutor(
+        config.getNrThreads(), config.getTimeoutMillis());
+    counter = plan(Counter.class);
+  }
+
+  /**
+   * Fills blocks and indices with each plan of testee, several times.
+   *
+   * @return own copy of testee, as other tests may have called it already.
+   */
+  protected Class<?> plan(final Class<?> testee) throws ClassNotFoundException {
+    final Class<?> res = new IsolatingClassLoader(getClass().getClassLoader())
+      .loadClass(testee.getName());
+    typeGraph = new TypeGraphImpl();
+    typeGraph.crawl(
+        Collections.<Class<?>>singleton(res), config.getVisUsed());
+    final ClassUnderTest<?> classNode =
+      new CutPlannerImpl(typeGraph, config).getPlanSpace(res);
+
+    final int size = classNode.getPlanSpaceSize().intValue();
+    blocks = new Block[NR_EXECUTIONS];
+    indices = new ArrayList<Integer>();
+    for (int i=0; i<blocks.length; i++) {
+      blocks[i] = classNode.getBlock(BigInteger.valueOf(i % size));
+      indices.add(Integer.valueOf(i % size));
+    }
+    return res;
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    executor.shutdown();
+    super.tearDown();
+  }
+
+
+  protected int getNrCrashes(final ExecutionResult[] results) {
+    int res = 0;
+    for (ExecutionResult result: results) {
+      if (result.getKind() == ExecutionResult.Kind.CRASH) {
+        res += 1;
+      }
+    }
+    return res;
+  }
+
+
+  /***/
+  public void testShared() throws InterruptedException {
+    assertTrue(getNrCrashes(executor.executeAll(blocks)) > 0);
+  }
+
+
+  /***/
+  public void testIsolated() throws InterruptedException {
+    final IsolatingExecutor isolating = new IsolatingExecutor(executor,
+        getClass().getClassLoader(), new Class[]{counter}, typeGraph, config);
+    final ExecutionResult[] results =
+      isolating.executeAll(counter, indices, blocks);
+    assertEquals(0, getNrCrashes(results));
+    for (ExecutionResult result: results) {
+      assertFalse(result.getKind() == ExecutionResult.Kind.INVALID);
+    }
+    assertTrue(isolating.getNrResets() > 0);
+    assertTrue(isolating.getNrSandboxes() <= config.getNrThreads());
+  }
+
+
+  /**
+   * Comparing references misses changes inside the referenced object, so
+   * we restore the collection itself, and keep the sandbox.
+   */
+  public void testFinalCollection() throws Exception {
+    final Class<?> registry = plan(Registry.class);
+    assertTrue(getNrCrashes(executor.executeAll(blocks)) > 0);
+
+    final IsolatingExecutor isolating = new IsolatingExecutor(executor,
+        getClass().getClassLoader(), new Class[]{registry}, typeGraph, config);
+    assertEquals(0,
+        getNrCrashes(isolating.executeAll(registry, indices, blocks)));
+    assertTrue(isolating.getNrResets() > 0);
+    assertTrue(isolating.getNrSandboxes() <= config.getNrThreads());
+  }
+
+
+  /**
+   * A class the candidate loaded itself has no record of its initial
+   * state, so we must not reuse such a sandbox. Later sandboxes load the
+   * class up front, so we need only a few.
+   */
+  public void testLazilyLoadedClass() throws Exception {
+    final Class<?> lazy = plan(LazyCounter.class);
+    assertTrue(getNrCrashes(executor.executeAll(blocks)) > 0);
+
+    final IsolatingExecutor isolating = new IsolatingExecutor(executor,
+        getClass().getClassLoader(), new Class[]{lazy}, typeGraph, config);
+    assertEquals(0,
+        getNrCrashes(isolating.executeAll(lazy, indices, blocks)));
+    assertTrue(isolating.getNrSandboxes() <= 2 * config.getNrThreads());
+  }
+}
@@ -5,8 +5,6 @@
  */
 package edu.gatech.cc.jcrasher;
 
-import static edu.gatech.cc.jcrasher.Constants.MAX_NR_TEST_CLASSES;
-import static edu.gatech.cc.jcrasher.Constants.MAX_NR_TEST_METHS_PER_CLASS;
 import static edu.gatech.cc.jcrasher.Constants.TAB;
 
 import java.math.BigInteger;
@@ -31,14 +29,12 @@ public class NonExecutingCrasherTest extends TestCase {
   final NonExecutingCrasher crasher =
     new NonExecutingCrasher(new Class[]{Client.class, MiniClient.class});
   
-  final int MAX_NR_TEST_CLASSES_ORIG = MAX_NR_TEST_CLASSES;
-  
-  @Override
-  protected void tearDown() throws Exception {
-    super.tearDown();
-    
-    MAX_NR_TEST_CLASSES = MAX_NR_TEST_CLASSES_ORIG;
-    crasher.planner.choosePlans();
+  /**
+   * @return planner over the crasher's type graph with the given settings.
+   */
+  protected NonExecutingCutPlanner createPlanner(final RunConfig config) {
+    return new NonExecutingCutPlanner(
+        crasher.classes, crasher.typeGraph, config);
   }
   
   /**
@@ -85,41 +81,47 @@ public class NonExecutingCrasherTest extends TestCase {
   
   
   public void testChooseLimit2000() {
-    MAX_NR_TEST_CLASSES = 4;
-    int maxNrTestMethods = MAX_NR_TEST_CLASSES * MAX_NR_TEST_METHS_PER_CLASS;
+    final RunConfig config =
+      new RunConfig.Builder().maxNrTestClasses(4).build();
+    int maxNrTestMethods =
+      config.getMaxNrTestClasses() * config.getMaxNrTestMethsPerClass();
     assertEquals(2000, maxNrTestMethods);
-        
-    crasher.planner.choosePlans();
-    int[] testMethodsPicked = crasher.planner.getChosenPlans();
-    crasher.planner.printStatistics();
-    assertEquals(false, crasher.planner.isEveryAvailablePlan());
+    
+    final NonExecutingCutPlanner planner = createPlanner(config);        
+    int[] testMethodsPicked = planner.getChosenPlans();
+    planner.printStatistics();
+    assertEquals(false, planner.isEveryAvailablePlan());
     assertTrue(testMethodsPicked[0] < maxNrTestMethods);
     assertEquals(1, testMethodsPicked[1]);
   }
   
 
   public void testChooseLimit1000() {
-    MAX_NR_TEST_CLASSES = 2;
-    int maxNrTestMethods = MAX_NR_TEST_CLASSES * MAX_NR_TEST_METHS_PER_CLASS;
+    final RunConfig config =
+      new RunConfig.Builder().maxNrTestClasses(2).build();
+    int maxNrTestMethods =
+      config.getMaxNrTestClasses() * config.getMaxNrTestMethsPerClass();
     assertEquals(1000, maxNrTestMethods);
     
-    crasher.planner.choosePlans();
-    int[] testMethodsPicked = crasher.planner.getChosenPlans();
-    crasher.planner.printStatistics();
-    assertEquals(false, crasher.planner.isEveryAvailablePlan());
+    final NonExecutingCutPlanner planner = createPlanner(config);    
+    int[] testMethodsPicked = planner.getChosenPlans();
+    planner.printStatistics();
+    assertEquals(false, planner.isEveryAvailablePlan());
     assertTrue(testMethodsPicked[0] < maxNrTestMethods);
     assertEquals(1, testMethodsPicked[1]);
   }
   
   public void testChooseLimit500() {
-    MAX_NR_TEST_CLASSES = 1;
-    int maxNrTestMethods = MAX_NR_TEST_CLASSES * MAX_NR_TEST_METHS_PER_CLASS;
+    final RunConfig config =
+      new RunConfig.Builder().maxNrTestClasses(1).build();
+    int maxNrTestMethods =
+      config.getMaxNrTestClasses() * config.getMaxNrTestMethsPerClass();
     assertEquals(500, maxNrTestMethods);
-   
-    crasher.planner.choosePlans();
-    int[] testMethodsPicked = crasher.planner.getChosenPlans();
-    crasher.planner.printStatistics();
-    assertEquals(false, crasher.planner.isEveryAvailablePlan());
+    
+    final NonExecutingCutPlanner planner = createPlanner(config);   
+    int[] testMethodsPicked = planner.getChosenPlans();
+    planner.printStatistics();
+    assertEquals(false, planner.isEveryAvailablePlan());
     assertTrue(testMethodsPicked[0] < maxNrTestMethods);
     assertEquals(1, testMethodsPicked[1]);
   }
@@ -0,0 +1,201 @@
+/*
+ * ParallelRunsTest.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Map;
+import java.util.TreeMap;
+
+import junit.framework.TestCase;
+import client.Client;
+import client.MiniClient;
+import client.sub.Loadee;
+
+/**
+ * Two differently configured runs in one JVM, concurrently, must write the
+ * same files as the same runs one after the other.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class ParallelRunsTest extends TestCase {
+
+  /**
+   * Testee with a reference parameter, which may be null.
+   */
+  public static class Taker {
+    /***/
+    public static int take(final Loadee loadee) {
+      return loadee.fieldInt;
+    }
+  }
+
+  protected final Class<?>[] classes =
+    new Class[]{Client.class, MiniClient.class, Loadee.class, Taker.class};
+
+  protected File root;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    root = File.createTempFile("jcrasher", "");
+    assertTrue(root.delete());
+    assertTrue(root.mkdir());
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    delete(root);
+    super.tearDown();
+  }
+
+
+  protected File dir(final String name) {
+    final File res = new File(root, name);
+    assertTrue(res.mkdir());
+    return res;
+  }
+
+  protected RunConfig deep(final File outDir) {
+    return new RunConfig.Builder()
+      .maxPlanRecursion(2)
+      .outDir(outDir)
+      .build();
+  }
+
+  protected RunConfig shallowNonNull(final File outDir) {
+    return new RunConfig.Builder()
+      .maxPlanRecursion(1)
+      .suppressNullLiterals(true)
+      .outDir(outDir)
+      .build();
+  }
+
+  protected void run(final RunConfig config) {
+    new NonExecutingCrasher(classes, config).crashClasses();
+  }
+
+
+  /***/
+  public void testConcurrentEqualsSequential() throws Throwable {
+    final File deepSeq = dir("deepSeq");
+    final File shallowSeq = dir("shallowSeq");
+    run(deep(deepSeq));
+    run(shallowNonNull(shallowSeq));
+
+    final File deepPar = dir("deepPar");
+    final File shallowPar = dir("shallowPar");
+    final Throwable[] failures = new Throwable[2];
+    final Thread[] threads = new Thread[]{
+      new Thread() {
+        @Override
+        public void run() {
+          try {
+            ParallelRunsTest.this.run(deep(deepPar));
+          }
+          catch (Throwable t) {
+            failures[0] = t;
+          }
+        }
+      },
+      new Thread() {
+        @Override
+        public void run() {
+          try {
+            ParallelRunsTest.this.run(shallowNonNull(shallowPar));
+          }
+          catch (Throwable t) {
+            failures[1] = t;
+          }
+        }
+      }
+    };
+    for (Thread thread: threads) {
+      thread.start();
+    }
+    for (Thread thread: threads) {
+      thread.join();
+    }
+    for (Throwable failure: failures) {
+      if (failure != null) {
+        throw failure;
+      }
+    }
+
+    final Map<String, String> deepFiles = read(deepSeq);
+    final Map<String, String> shallowFiles = read(shallowSeq);
+    assertFalse(deepFiles.isEmpty());
+    assertFalse(deepFiles.equals(shallowFiles));  // settings did matter.
+    assertEquals(deepFiles, read(deepPar));
+    assertEquals(shallowFiles, read(shallowPar));
+  }
+
+
+  /***/
+  public void testSuppressNull() throws IOException {
+    final File deep = dir("deep");
+    run(deep(deep));
+    boolean foundNull = false;
+    for (String content: read(deep).values()) {
+      foundNull |= content.indexOf("(client.sub.Loadee)null") >= 0;
+    }
+    assertTrue(foundNull);
+
+    final File shallow = dir("shallow");
+    run(shallowNonNull(shallow));
+    for (String content: read(shallow).values()) {
+      assertEquals(-1, content.indexOf("null"));
+    }
+  }
+
+
+  /**
+   * @return relative path --> content of each file below dir.
+   */
+  protected Map<String, String> read(final File dir) throws IOException {
+    final Map<String, String> res = new TreeMap<String, String>();
+    read(dir, "", res);
+    return res;
+  }
+
+  protected void read(
+      final File dir,
+      final String prefix,
+      final Map<String, String> res) throws IOException
+  {
+    for (File file: dir.listFiles()) {
+      final String path = prefix + "/" + file.getName();
+      if (file.isDirectory()) {
+        read(file, path, res);
+        continue;
+      }
+      final StringBuilder sb = new StringBuilder();
+      final Reader reader = new FileReader(file);
+      try {
+        final char[] buffer = new char[4096];
+        for (int n = reader.read(buffer); n >= 0; n = reader.read(buffer)) {
+          sb.append(buffer, 0, n);
+        }
+      }
+      finally {
+        reader.close();
+      }
+      res.put(path, sb.toString());
+    }
+  }
+
+  protected void delete(final File file) {
+    final File[] children = file.listFiles();
+    if (children != null) {
+      for (File child: children) {
+        delete(child);
+      }
+    }
+    file.delete();
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * PrefixSharingTest.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher;
+
+import java.math.BigInteger;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+import edu.gatech.cc.jcrasher.planner.ClassUnderTest;
+import edu.gatech.cc.jcrasher.planner.CutPlannerImpl;
+import edu.gatech.cc.jcrasher.plans.JavaCode;
+import edu.gatech.cc.jcrasher.plans.stmt.Block;
+import edu.gatech.cc.jcrasher.types.ImmutableTypes;
+import edu.gatech.cc.jcrasher.types.TypeGraph;
+import edu.gatech.cc.jcrasher.types.TypeGraphImpl;
+
+/**
+ * Shared prefixes must save executions of pure declarations only, without
+ * changing results.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class PrefixSharingTest extends TestCase {
+
+  protected static int nrValues = 0;
+  protected static int nrBoxes = 0;
+
+  /**
+   * Immutable and pure.
+   */
+  public static final class Value {
+    protected final int value;
+
+    /***/
+    public Value(int value) {
+      this.value = value;
+      nrValues += 1;
+    }
+  }
+
+  /**
+   * Mutable.
+   */
+  public static class Box {
+    protected int value;
+
+    /***/
+    public Box(int value) {
+      this.value = value;
+      nrBoxes += 1;
+    }
+  }
+
+  /**
+   * Testee, taking shareable and non-shareable receivers and arguments.
+   */
+  public static class Testee {
+    /***/
+    public static int use(final Value v, int i) {
+      return v.value / i;
+    }
+
+    /***/
+    public static int change(final Box box, int i) {
+      box.value += 1;
+      return box.value / i;
+    }
+  }
+
+  protected RunConfig config;
+  protected Block<?>[] blocks;
+  protected CandidateExecutor executor;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    config = new RunConfig.Builder().nrThreads(1).build();
+    final TypeGraph typeGraph = new TypeGraphImpl();
+    typeGraph.crawl(
+        Collections.<Class<?>>singleton(Testee.class), config.getVisUsed());
+    final ClassUnderTest<?> classNode =
+      new CutPlannerImpl(typeGraph, config).getPlanSpace(Testee.class);
+    blocks = new Block[classNode.getPlanSpaceSize().intValue()];
+    for (int i=0; i<blocks.length; i++) {
+      blocks[i] = classNode.getBlock(BigInteger.valueOf(i));
+    }
+    executor = new CandidateExecutor(
+        config.getNrThreads(), config.getTimeoutMillis());
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    executor.shutdown();
+    super.tearDown();
+  }
+
+
+  /***/
+  public void testAnalysis() {
+    assertTrue(ImmutableTypes.isImmutable(Integer.TYPE));
+    assertTrue(ImmutableTypes.isImmutable(String.class));
+    assertTrue(ImmutableTypes.isImmutable(Value.class));
+    assertTrue(ImmutableTypes.isPure(Value.class));
+    assertFalse(ImmutableTypes.isImmutable(Box.class));
+    assertFalse(ImmutableTypes.isImmutable(int[].class));
+    assertFalse(ImmutableTypes.isImmutable(Object.class));
+    assertFalse(ImmutableTypes.isPure(PrefixSharingTest.class));
+  }
+
+
+  /***/
+  public void testSameResultsFewerValues() throws InterruptedException {
+    nrValues = 0;
+    nrBoxes = 0;
+    final ExecutionResult[] expected = executor.executeAll(blocks);
+    final int valuesExpected = nrValues;
+    final int boxesExpected = nrBoxes;
+
+    nrValues = 0;
+    nrBoxes = 0;
+    final PrefixSharing sharing = new PrefixSharing();
+    final JavaCode<?>[] candidates = sharing.share(blocks);
+    final ExecutionResult[] res = executor.executeAll(candidates);
+    for (int i=0; i<res.length; i++) {
+      assertEquals(blocks[i].text(), candidates[i].text());
+      assertEquals(blocks[i].text(), expected[i].getKind(), res[i].getKind());
+      if (blocks[i].text().indexOf("Box") >= 0) {
+        assertSame(blocks[i], candidates[i]);
+      }
+    }
+    assertTrue(sharing.getNrShared() > 0);
+    assertTrue(nrValues < valuesExpected);
+    assertEquals(boxesExpected, nrBoxes);
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * SuiteReducerTest.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import client.Branches;
+import edu.gatech.cc.jcrasher.planner.ClassUnderTest;
+import edu.gatech.cc.jcrasher.planner.CutPlannerImpl;
+import edu.gatech.cc.jcrasher.plans.stmt.Block;
+import edu.gatech.cc.jcrasher.types.TypeGraph;
+import edu.gatech.cc.jcrasher.types.TypeGraphImpl;
+
+/**
+ * A reduced suite must be smaller, take the same branches, and crash with
+ * the same signatures.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class SuiteReducerTest extends TestCase {
+
+  protected ClassUnderTest<?> classNode;
+  protected Coverage coverage;
+  protected CandidateExecutor executor;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    final CoverageClassLoader loader =
+      new CoverageClassLoader(getClass().getClassLoader());
+    final Class<?> branches = loader.loadClass(Branches.class.getName());
+    coverage = loader.getCoverage();
+    final RunConfig config = new RunConfig.Builder().nrThreads(2).build();
+    final TypeGraph typeGraph = new TypeGraphImpl();
+    typeGraph.crawl(
+        Collections.<Class<?>>singleton(branches), config.getVisUsed());
+    classNode = new CutPlannerImpl(typeGraph, config).getPlanSpace(branches);
+    executor = new CandidateExecutor(
+        config.getNrThreads(), config.getTimeoutMillis());
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    executor.shutdown();
+    super.tearDown();
+  }
+
+
+  /**
+   * Adds to hits the probes blocks hit, and to signatures the signatures
+   * they crash with.
+   */
+  protected void execute(
+      final List<Block> blocks,
+      final BitSet hits,
+      final Set<CrashSignature> signatures)
+  throws InterruptedException
+  {
+    final Coverage.RecordingCode[] codes = new Coverage.RecordingCode[blocks.size()];
+    for (int i=0; i<codes.length; i++) {
+      codes[i] = new Coverage.RecordingCode(coverage, blocks.get(i));
+    }
+    final ExecutionResult[] results = executor.executeAll(codes);
+    for (int i=0; i<codes.length; i++) {
+      hits.or(codes[i].getHits());
+      if (results[i].getKind() == ExecutionResult.Kind.CRASH) {
+        signatures.add(CrashSignature.of(results[i].getThrown(), 5));
+      }
+    }
+  }
+
+
+  /***/
+  public void testSameCoverageFewer() throws InterruptedException {
+    final List<Block> blocks = new ArrayList<Block>();
+    for (int i=0; i<classNode.getPlanSpaceSize().intValue(); i++) {
+      blocks.add(classNode.getBlock(BigInteger.valueOf(i)));
+    }
+
+    final SuiteReducer reducer = new SuiteReducer(executor, coverage, 5);
+    final List<Block> reduced = reducer.reduce(blocks);
+    assertTrue(reduced.size() < blocks.size() / 2);
+    assertEquals(blocks.size(), reducer.getNrGiven());
+    assertEquals(reduced.size(), reducer.getNrKept());
+
+    final BitSet hits = new BitSet();
+    final Set<CrashSignature> signatures = new HashSet<CrashSignature>();
+    execute(blocks, hits, signatures);
+    final BitSet reducedHits = new BitSet();
+    final Set<CrashSignature> reducedSignatures = new HashSet<CrashSignature>();
+    execute(reduced, reducedHits, reducedSignatures);
+
+    assertFalse(hits.isEmpty());
+    assertEquals(hits, reducedHits);
+    assertFalse(signatures.isEmpty());
+    assertEquals(signatures, reducedSignatures);
+  }
+}
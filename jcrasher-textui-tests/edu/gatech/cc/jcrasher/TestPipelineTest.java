@@ -0,0 +1,73 @@
+/*
+ * TestPipelineTest.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+import edu.gatech.cc.jcrasher.writer.MemoryOutputSink;
+
+/**
+ * Tests edu.gatech.cc.jcrasher.TestPipeline
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class TestPipelineTest extends TestCase {
+
+  protected final TestPipeline pipeline =
+    new TestPipeline(getClass().getClassLoader(), RunConfig.DEFAULT);
+
+
+  /**
+   * Last source refers to a class of an earlier batch.
+   */
+  public void testCompileBatches() throws Exception {
+    final int n = TestPipeline.BATCH_SIZE + 10;
+    final MemoryOutputSink sink = new MemoryOutputSink();
+    for (int i=0; i<n; i++) {
+      sink.write(new File("p/C" + i + ".java"),
+          "package p;\npublic class C" + i + " {\n" +
+          "  public static int get() {return " + i + ";}\n}\n");
+    }
+    sink.write(new File("JUnitAll.java"),
+        "public class JUnitAll {\n" +
+        "  public static int get() {return p.C0.get() + p.C" + (n-1) + ".get();}\n}\n");
+
+    final MemoryClassLoader loader = pipeline.compile(sink);
+    assertEquals(n+1, loader.getClassNames().length);
+    assertEquals(Integer.valueOf(n-1),
+        loader.loadClass("JUnitAll").getMethod("get").invoke(null));
+    assertSame(loader, loader.loadClass("p.C3").getClassLoader());
+    assertNotNull(loader.getResourceAsStream("p/C3.class"));
+    assertTrue(Arrays.equals(new String[]{"JUnitAll"},
+        pipeline.getTestNames(loader)));
+  }
+
+
+  /***/
+  public void testCompileError() {
+    final MemoryOutputSink sink = new MemoryOutputSink();
+    try {
+      sink.write(new File("p/D.java"), "package p;\npublic class D {");
+      pipeline.compile(sink);
+      fail();
+    }
+    catch (IOException e) {
+      assertTrue(e.getMessage().indexOf("D.java") > 0);
+    }
+  }
+
+
+  /***/
+  public void testGetClassName() {
+    assertEquals("p.q.E", TestPipeline.getClassName(new File("x/E.java"),
+        "/* header */\npackage p.q;\n\npublic class E {}"));
+    assertEquals("E", TestPipeline.getClassName(new File("E.java"),
+        "public class E {}"));
+  }
+}
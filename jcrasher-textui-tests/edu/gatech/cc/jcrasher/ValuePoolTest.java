@@ -0,0 +1,190 @@
+/*
+ * ValuePoolTest.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher;
+
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import edu.gatech.cc.jcrasher.planner.ClassUnderTest;
+import edu.gatech.cc.jcrasher.planner.CutPlannerImpl;
+import edu.gatech.cc.jcrasher.plans.JavaCode;
+import edu.gatech.cc.jcrasher.plans.stmt.Block;
+import edu.gatech.cc.jcrasher.types.TypeGraph;
+import edu.gatech.cc.jcrasher.types.TypeGraphImpl;
+
+/**
+ * Pooled values must save calls of pure plans only, and test cases that
+ * take a value produced by another plan must emit that plan.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class ValuePoolTest extends TestCase {
+
+  protected static int nrValues = 0;
+  protected static int nrBoxes = 0;
+
+  /**
+   * Immutable and pure.
+   */
+  public static final class Value {
+    protected final int value;
+
+    /***/
+    public Value(int value) {
+      this.value = value;
+      nrValues += 1;
+    }
+  }
+
+  /**
+   * Mutable.
+   */
+  public static class Box {
+    protected int value;
+
+    /***/
+    public Box(int value) {
+      this.value = value;
+      nrBoxes += 1;
+    }
+  }
+
+  /**
+   * Testee, taking poolable and non-poolable arguments.
+   */
+  public static class Testee {
+    /***/
+    public static int use(final Value v, int i) {
+      return v.value / i;
+    }
+
+    /***/
+    public static int change(final Box box, int i) {
+      box.value += 1;
+      return box.value / i;
+    }
+  }
+
+  protected ClassUnderTest<?> classNode;
+  protected CandidateExecutor executor;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    final RunConfig config = new RunConfig.Builder().nrThreads(1).build();
+    final TypeGraph typeGraph = new TypeGraphImpl();
+    typeGraph.crawl(
+        Collections.<Class<?>>singleton(Testee.class), config.getVisUsed());
+    classNode =
+      new CutPlannerImpl(typeGraph, config).getPlanSpace(Testee.class);
+    executor = new CandidateExecutor(
+        config.getNrThreads(), config.getTimeoutMillis());
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    executor.shutdown();
+    super.tearDown();
+  }
+
+
+  /**
+   * @return fresh block of each plan index.
+   */
+  protected Block<?>[] getBlocks() {
+    final Block<?>[] res = new Block[classNode.getPlanSpaceSize().intValue()];
+    for (int i=0; i<res.length; i++) {
+      res[i] = classNode.getBlock(BigInteger.valueOf(i));
+    }
+    return res;
+  }
+
+
+  /***/
+  public void testSameResultsFewerValues() throws InterruptedException {
+    final Block<?>[] blocks = getBlocks();
+    nrValues = 0;
+    nrBoxes = 0;
+    final ExecutionResult[] expected = executor.executeAll(blocks);
+    final int valuesExpected = nrValues;
+    final int boxesExpected = nrBoxes;
+    assertTrue(valuesExpected > 0);
+
+    final ValuePool pool = new ValuePool(100, new Random(0));
+    final JavaCode<?>[] first = pool.draw(Testee.class, getBlocks());
+    pool.harvest(first, executor.executeAll(first));
+    assertEquals(0, pool.getNrReused());
+    assertTrue(pool.getNrPooled(Value.class) > 0);
+    assertEquals(0, pool.getNrPooled(Box.class));
+
+    nrValues = 0;
+    nrBoxes = 0;
+    final JavaCode<?>[] second = pool.draw(Testee.class, getBlocks());
+    final ExecutionResult[] res = executor.executeAll(second);
+    for (int i=0; i<res.length; i++) {
+      assertEquals(blocks[i].text(), second[i].text());
+      assertEquals(blocks[i].text(), expected[i].getKind(), res[i].getKind());
+    }
+    assertTrue(pool.getNrReused() > 0);
+    assertEquals(0, pool.getNrReplaced());  //each plan was pooled.
+    assertTrue(nrValues < valuesExpected);
+    assertEquals(boxesExpected, nrBoxes);
+  }
+
+
+  /**
+   * Pool the values of one block only, so others take values produced by
+   * another plan.
+   */
+  public void testReplacedPlanRebuildsValue() throws InterruptedException {
+    final ValuePool pool = new ValuePool(100, new Random(0));
+    Block<?> source = null;
+    for (Block<?> block: getBlocks()) {
+      if (source == null && block.text().indexOf("new ValuePoolTest.Value(") >= 0) {
+        source = block;
+      }
+    }
+    final JavaCode<?>[] first = pool.draw(Testee.class, new Block[]{source});
+    pool.harvest(first, executor.executeAll(first));
+    assertEquals(1, pool.getNrPooled());
+
+    final Block<?>[] fresh = getBlocks();
+    final JavaCode<?>[] second = pool.draw(Testee.class, getBlocks());
+    final ExecutionResult[] res = executor.executeAll(second);
+    assertTrue(pool.getNrReplaced() > 0);
+    int nrReplaced = 0;
+    for (int i=0; i<second.length; i++) {
+      if (!(second[i] instanceof ValuePool.PooledBlock)
+          || !((ValuePool.PooledBlock) second[i]).isReplaced())
+      {
+        assertEquals(fresh[i].text(), second[i].text());
+        continue;
+      }
+      nrReplaced += 1;
+      final Block<?> replaced = ((ValuePool.PooledBlock) second[i]).getBlock();
+      assertFalse(fresh[i].text().equals(replaced.text()));
+
+      /* The emitted source alone rebuilds the pooled value */
+      final ExecutionResult rebuilt =
+        executor.executeAll(new Block[]{replaced})[0];
+      assertEquals(replaced.text(), res[i].getKind(), rebuilt.getKind());
+    }
+    assertEquals(pool.getNrReplaced(), nrReplaced);
+    assertEquals(0, pool.getNrPooled(Box.class));
+  }
+
+
+  /***/
+  public void testBounded() throws InterruptedException {
+    final ValuePool pool = new ValuePool(1, new Random(0));
+    final JavaCode<?>[] candidates = pool.draw(Testee.class, getBlocks());
+    pool.harvest(candidates, executor.executeAll(candidates));
+    assertEquals(1, pool.getNrPooled(Value.class));
+    assertEquals(1, pool.getNrPooled());
+  }
+}
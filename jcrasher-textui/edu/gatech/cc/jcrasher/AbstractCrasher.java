@@ -8,11 +8,21 @@ package edu.gatech.cc.jcrasher;
 import static edu.gatech.cc.jcrasher.Assertions.check;
 import static edu.gatech.cc.jcrasher.Assertions.notNull;
 
+import java.io.IOException;
 import java.util.HashSet;
 import java.util.Set;
 
+import edu.gatech.cc.jcrasher.plans.stmt.Block;
+import edu.gatech.cc.jcrasher.types.AbstractTypeGraph;
 import edu.gatech.cc.jcrasher.types.TypeGraph;
+import edu.gatech.cc.jcrasher.types.TypeGraphCache;
 import edu.gatech.cc.jcrasher.types.TypeGraphImpl;
+import edu.gatech.cc.jcrasher.writer.AsyncOutputSink;
+import edu.gatech.cc.jcrasher.writer.FileOutputSink;
+import edu.gatech.cc.jcrasher.writer.JUnitTestCaseWriter;
+import edu.gatech.cc.jcrasher.writer.JUnitTestClassWriter;
+import edu.gatech.cc.jcrasher.writer.OutputSink;
+import edu.gatech.cc.jcrasher.writer.TestCaseWriter;
 
 /**
  * Crawls classes to be tested. This populates our type graph.
@@ -22,23 +32,59 @@ import edu.gatech.cc.jcrasher.types.TypeGraphImpl;
  */
 public abstract class AbstractCrasher implements Crasher {
 	
+	/**
+	 * Number of threads writing generated sources to disk.
+	 */
+	protected static final int NR_WRITERS = 2;
+	
+	/**
+	 * Number of generated sources waiting for a writer, beyond which
+	 * planning waits.
+	 */
+	protected static final int WRITER_QUEUE = 64;
+	
 	/**
 	 * Database holding the relation needed for planning how to obtain
 	 * an object via combinations of functions in type-space
 	 */
-	protected final TypeGraph typeGraph = TypeGraphImpl.instance();
+	protected final TypeGraph typeGraph = new TypeGraphImpl();
 	
 	/**
 	 * Classes to crash.
 	 */
 	protected Class<?>[] classes;
 	
+	/**
+	 * Settings of this run.
+	 */
+	protected final RunConfig config;
+	
+	/**
+	 * Where we write generated test cases to.
+	 */
+	protected final OutputSink sink;
+	
+	
+	/**
+	 * Constructor, writes to disk.
+	 */
+	protected AbstractCrasher(Class<?>[] classes, final RunConfig config) {
+		this(classes, config, createSink());
+	}
 	
 	/**
 	 * Constructor
+	 * 
+	 * @param sink where we write generated test cases to.
 	 */
-	protected AbstractCrasher(Class<?>[] classes) {
+	protected AbstractCrasher(
+			Class<?>[] classes,
+			final RunConfig config,
+			final OutputSink sink)
+	{
 		this.classes = notNull(classes);
+		this.config = notNull(config);
+		this.sink = notNull(sink);
 		check(classes.length>0);
 		
 
@@ -49,6 +95,61 @@ public abstract class AbstractCrasher implements Crasher {
 		for (Class<?> c : classes) {
 			classSet.add(c);
 		}		
-		typeGraph.crawl(classSet, Constants.VIS_USED);
+		if (config.getTypeGraphCache() == null) {
+			typeGraph.crawl(classSet, config.getVisUsed());
+			return;
+		}
+		
+		/* Reuse types crawled by a previous run, crawl only new or modified ones */
+		final TypeGraphCache cache = new TypeGraphCache(config.getTypeGraphCache());
+		cache.load((AbstractTypeGraph) typeGraph, config.getVisUsed());
+		typeGraph.crawl(classSet, config.getVisUsed());
+		try {
+			cache.save(typeGraph, config.getVisUsed());
+		}
+		catch (IOException e) {
+			System.err.println("Could not write type graph cache: " + e);
+		}
+	}
+	
+	
+	/**
+	 * @return sink that writes generated sources to disk in the background,
+	 * while we plan the next.
+	 */
+	protected static OutputSink createSink() {
+		return new AsyncOutputSink(new FileOutputSink(), NR_WRITERS, WRITER_QUEUE);
+	}
+	
+	
+	/**
+	 * @return writer of blocks as a source or, if configured, a class file.
+	 */
+	protected <T> TestCaseWriter createWriter(
+			final Class<T> testee,
+			final String comment,
+			boolean doFilter,
+			final Block<?>[] blocks,
+			int fileNr)
+	{
+		if (config.isEmitClassFiles()) {
+			return new JUnitTestClassWriter<T>(testee, comment, doFilter, blocks,
+					fileNr, null, 0, config.getOutDir(), sink, config.isWithSources());
+		}
+		return new JUnitTestCaseWriter<T>(testee, comment, doFilter, blocks,
+				fileNr, null, 0, config.getOutDir(), sink);
+	}
+	
+	
+	/**
+	 * Waits until the generated sources are on disk.
+	 */
+	protected void closeSink() {
+		try {
+			sink.close();
+		}
+		catch (IOException e) {
+			System.err.println("Could not write test cases: " + e);
+		}
 	}
 }
@@ -0,0 +1,276 @@
+/*
+ * BlockMinimizer.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher;
+
+import static edu.gatech.cc.jcrasher.Assertions.check;
+import static edu.gatech.cc.jcrasher.Assertions.notNull;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import edu.gatech.cc.jcrasher.planner.ClassUnderTest;
+import edu.gatech.cc.jcrasher.planner.PlanSimplifier;
+import edu.gatech.cc.jcrasher.plans.stmt.Block;
+
+/**
+ * Shrinks crashing test cases to smaller ones that crash with the same
+ * signature.
+ *
+ * <p>
+ * Starting from the plan index of a crashing block, each step asks
+ * PlanSimplifier for the variants that replace one sub-plan with a preset
+ * value, null, or another function of the same needed type, keeps those
+ * whose blocks are shorter, and executes the shortest few. We move to the
+ * shortest variant that still crashes with the same signature, until no
+ * variant does or the block has used up its time budget, measured as the
+ * execution time of its variants. Each step executes the variants of all
+ * blocks still shrinking at once, so our executor spreads the blocks over
+ * its threads.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class BlockMinimizer {
+
+  /**
+   * Number of variants per block we execute in one step.
+   */
+  protected static final int MAX_VARIANTS = 16;
+
+  protected final CandidateExecutor executor;
+  protected final int signatureDepth;
+  protected final long budgetNanos;
+
+  protected int nrMinimized = 0;
+  protected long nrCharsBefore = 0;
+  protected long nrCharsAfter = 0;
+
+
+  /**
+   * A crashing block to shrink.
+   */
+  public static class Target {
+    protected final BigInteger index;
+    protected final CrashSignature signature;
+
+    /**
+     * @param index plan index of the crashing block.
+     * @param signature of the crash to keep.
+     */
+    public Target(final BigInteger index, final CrashSignature signature) {
+      this.index = notNull(index);
+      this.signature = notNull(signature);
+    }
+  }
+
+
+  /**
+   * Shrinking state of one target.
+   */
+  protected static class State {
+    protected final Target target;
+    protected final Set<BigInteger> tried = new HashSet<BigInteger>();
+    protected final int initialSize;
+    protected BigInteger index;
+    protected int size;
+    protected long spentNanos = 0;
+    protected boolean isDone = false;
+    protected List<Variant> variants = new ArrayList<Variant>();
+
+    protected State(final Target target, final Block<?> block) {
+      this.target = target;
+      this.index = target.index;
+      this.size = block.text().length();
+      this.initialSize = size;
+      tried.add(index);
+    }
+  }
+
+
+  /**
+   * Variant of a state's current block.
+   */
+  protected static class Variant {
+    protected final BigInteger index;
+    protected final Block<?> block;
+    protected final int size;
+
+    protected Variant(final BigInteger index, final Block<?> block) {
+      this.index = index;
+      this.block = block;
+      this.size = block.text().length();
+    }
+  }
+
+
+  /**
+   * Constructor
+   *
+   * @param budgetMillis execution time we spend per block.
+   */
+  public BlockMinimizer(
+      final CandidateExecutor executor,
+      int signatureDepth,
+      long budgetMillis)
+  {
+    check(signatureDepth > 0);
+    check(budgetMillis > 0);
+    this.executor = notNull(executor);
+    this.signatureDepth = signatureDepth;
+    this.budgetNanos = budgetMillis * 1000000;
+  }
+
+
+  /**
+   * @return smallest block found for each target, in order, which crashes
+   * with the target's signature.
+   */
+  public Block<?>[] minimize(
+      final ClassUnderTest<?> classNode,
+      final List<Target> targets)
+  throws InterruptedException
+  {
+    notNull(classNode);
+    notNull(targets);
+
+    final PlanSimplifier simplifier = new PlanSimplifier(classNode);
+    final List<State> states = new ArrayList<State>(targets.size());
+    for (Target target: targets) {
+      states.add(new State(target, classNode.getBlock(target.index)));
+    }
+
+    boolean isShrinking = true;
+    while (isShrinking) {
+      /* Shortest variants of each block still shrinking */
+      final List<Block<?>> candidates = new ArrayList<Block<?>>();
+      for (State state: states) {
+        if (!state.isDone) {
+          state.variants = getVariants(classNode, simplifier, state);
+          state.isDone = state.variants.isEmpty();
+          for (Variant variant: state.variants) {
+            candidates.add(variant.block);
+          }
+        }
+      }
+      if (candidates.isEmpty()) {
+        break;
+      }
+
+      final ExecutionResult[] results =
+        executor.executeAll(candidates.toArray(new Block[candidates.size()]));
+
+      /* Move each block to its shortest variant that still crashes alike */
+      isShrinking = false;
+      int next = 0;
+      for (State state: states) {
+        if (state.isDone) {
+          continue;
+        }
+        Variant shrunk = null;
+        for (Variant variant: state.variants) {
+          final ExecutionResult result = results[next++];
+          state.spentNanos += result.getNanos();
+          if (shrunk == null && reproduces(state.target, result)) {
+            shrunk = variant;
+          }
+        }
+        if (shrunk != null) {
+          state.index = shrunk.index;
+          state.size = shrunk.size;
+        }
+        state.isDone = (shrunk == null) || state.spentNanos >= budgetNanos;
+        isShrinking |= !state.isDone;
+      }
+    }
+
+    final Block<?>[] res = new Block[states.size()];
+    for (int i=0; i<res.length; i++) {
+      final State state = states.get(i);
+      res[i] = classNode.getBlock(state.index);   //fresh, not executed.
+      synchronized (this) {
+        nrCharsBefore += state.initialSize;
+        nrCharsAfter += state.size;
+        if (!state.index.equals(state.target.index)) {
+          nrMinimized += 1;
+        }
+      }
+    }
+    return res;
+  }
+
+
+  /**
+   * @return up to MAX_VARIANTS variants of state's block not tried before,
+   * which are shorter, shortest first. Marks them as tried.
+   */
+  protected List<Variant> getVariants(
+      final ClassUnderTest<?> classNode,
+      final PlanSimplifier simplifier,
+      final State state)
+  {
+    final List<Variant> res = new ArrayList<Variant>();
+    for (BigInteger index: simplifier.getVariants(state.index)) {
+      if (state.tried.contains(index)) {
+        continue;
+      }
+      try {
+        final Variant variant = new Variant(index, classNode.getBlock(index));
+        if (variant.size < state.size) {
+          res.add(variant);
+        }
+      }
+      catch(Throwable e) {
+        /* Tried to access some non-initializable class or interface */
+        continue;
+      }
+    }
+    Collections.sort(res, new Comparator<Variant>() {
+      public int compare(final Variant a, final Variant b) {
+        return a.size - b.size;
+      }
+    });
+    final List<Variant> shortest = (res.size() > MAX_VARIANTS)?
+        new ArrayList<Variant>(res.subList(0, MAX_VARIANTS)) : res;
+    for (Variant variant: shortest) {
+      state.tried.add(variant.index);
+    }
+    return shortest;
+  }
+
+
+  protected boolean reproduces(final Target target, final ExecutionResult result) {
+    return result.getKind() == ExecutionResult.Kind.CRASH
+      && result.getThrown() != null
+      && target.signature.equals(
+          CrashSignature.of(result.getThrown(), signatureDepth));
+  }
+
+
+  /**
+   * @return number of blocks we shrank so far.
+   */
+  public synchronized int getNrMinimized() {
+    return nrMinimized;
+  }
+
+  /**
+   * @return total length of the source of all blocks given so far.
+   */
+  public synchronized long getNrCharsBefore() {
+    return nrCharsBefore;
+  }
+
+  /**
+   * @return total length of the source of all blocks returned so far.
+   */
+  public synchronized long getNrCharsAfter() {
+    return nrCharsAfter;
+  }
+}
@@ -0,0 +1,238 @@
+/*
+ * CandidateExecutor.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher;
+
+import static edu.gatech.cc.jcrasher.Assertions.check;
+import static edu.gatech.cc.jcrasher.Assertions.notNull;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import edu.gatech.cc.jcrasher.plans.JavaCode;
+
+/**
+ * Executes candidate test cases on a bounded number of worker threads, each
+ * candidate with a time limit.
+ *
+ * <p>
+ * A watchdog marks a candidate that exceeds its limit as HUNG, interrupts its
+ * worker, and gives the worker's slot to the next candidate. Java cannot stop
+ * the abandoned worker, so it keeps running as a daemon thread and no longer
+ * counts against the bound. Hence executeAll always terminates.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class CandidateExecutor {
+
+  protected final int nrThreads;
+  protected final long timeoutMillis;
+
+  /**
+   * Reuses idle workers, creates new ones for abandoned ones.
+   */
+  protected final ExecutorService workers =
+    Executors.newCachedThreadPool(new DaemonFactory("jcrasher-candidate"));
+
+  protected final ScheduledExecutorService watchdog =
+    Executors.newSingleThreadScheduledExecutor(
+        new DaemonFactory("jcrasher-watchdog"));
+
+  /**
+   * Counts the bytes each thread allocates, null if this JVM cannot.
+   */
+  protected static final com.sun.management.ThreadMXBean allocations =
+    getAllocations();
+
+
+  /**
+   * Constructor
+   *
+   * @param nrThreads maximum number of candidates executing at once.
+   * @param timeoutMillis time limit per candidate.
+   */
+  public CandidateExecutor(int nrThreads, long timeoutMillis) {
+    check(nrThreads > 0);
+    check(timeoutMillis > 0);
+
+    this.nrThreads = nrThreads;
+    this.timeoutMillis = timeoutMillis;
+  }
+
+
+  /**
+   * Executes each candidate once.
+   *
+   * @return result of candidates[i] at index i.
+   */
+  public ExecutionResult[] executeAll(final JavaCode<?>[] candidates)
+  throws InterruptedException {
+    notNull(candidates);
+
+    final ExecutionResult[] res = new ExecutionResult[candidates.length];
+    final Semaphore slots = new Semaphore(nrThreads);
+    final CountDownLatch done = new CountDownLatch(candidates.length);
+
+    for (int i=0; i<candidates.length; i++) {
+      slots.acquire();
+      final Execution execution =
+        new Execution(notNull(candidates[i]), i, res, slots, done);
+      watchdog.schedule(new Runnable() {
+        public void run() {
+          execution.abandon();
+        }
+      }, timeoutMillis, TimeUnit.MILLISECONDS);
+      workers.execute(execution);
+    }
+
+    done.await();
+    return res;
+  }
+
+
+  protected static com.sun.management.ThreadMXBean getAllocations() {
+    try {
+      final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+      if (threads instanceof com.sun.management.ThreadMXBean
+          && ((com.sun.management.ThreadMXBean) threads)
+              .isThreadAllocatedMemorySupported())
+      {
+        final com.sun.management.ThreadMXBean res =
+          (com.sun.management.ThreadMXBean) threads;
+        res.setThreadAllocatedMemoryEnabled(true);
+        return res;
+      }
+    }
+    catch (Throwable e) {  //not a HotSpot JVM.
+      /* Empty */
+    }
+    return null;
+  }
+
+  /**
+   * @return bytes the current thread allocated so far, -1 if unknown.
+   */
+  protected static long getAllocatedBytes() {
+    return (allocations==null)?
+        -1 : allocations.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+
+  /**
+   * Stops the workers and the watchdog once they are idle.
+   * Does not wait for abandoned workers.
+   */
+  public void shutdown() {
+    workers.shutdown();
+    watchdog.shutdownNow();
+  }
+
+
+  /**
+   * Execution of one candidate. Whoever finishes first, the worker or the
+   * watchdog, records the result and frees the slot.
+   */
+  protected static class Execution implements Runnable {
+    protected final JavaCode<?> candidate;
+    protected final int index;
+    protected final ExecutionResult[] results;
+    protected final Semaphore slots;
+    protected final CountDownLatch done;
+
+    protected final AtomicBoolean finished = new AtomicBoolean(false);
+    protected Thread worker = null;  // guarded by this.
+    protected volatile long start = System.nanoTime();
+
+    protected Execution(
+        final JavaCode<?> candidate,
+        int index,
+        final ExecutionResult[] results,
+        final Semaphore slots,
+        final CountDownLatch done)
+    {
+      this.candidate = candidate;
+      this.index = index;
+      this.results = results;
+      this.slots = slots;
+      this.done = done;
+    }
+
+    public void run() {
+      synchronized (this) {
+        worker = Thread.currentThread();
+      }
+      final long allocated = getAllocatedBytes();
+      start = System.nanoTime();
+      Throwable thrown = null;
+      try {
+        candidate.execute();
+      }
+      catch (Throwable t) {
+        thrown = t;
+      }
+      final long nanos = System.nanoTime() - start;
+      finish(ExecutionResult.of(thrown, nanos).withBytes(
+          (allocated<0)? -1 : getAllocatedBytes() - allocated));
+      synchronized (this) {
+        worker = null;
+        Thread.interrupted();  // clear a late interrupt before the pool reuses us.
+      }
+    }
+
+    /**
+     * Called by the watchdog.
+     */
+    protected void abandon() {
+      if (finish(new ExecutionResult(
+          ExecutionResult.Kind.HUNG, null, System.nanoTime() - start))) {
+        synchronized (this) {
+          if (worker != null) {
+            worker.interrupt();
+          }
+        }
+      }
+    }
+
+    /**
+     * @return whether we recorded result.
+     */
+    protected boolean finish(final ExecutionResult result) {
+      if (!finished.compareAndSet(false, true)) {
+        return false;
+      }
+      results[index] = result;
+      slots.release();
+      done.countDown();
+      return true;
+    }
+  }
+
+
+  /**
+   * Daemon threads, which do not keep the JVM alive.
+   */
+  protected static class DaemonFactory implements ThreadFactory {
+    protected final String name;
+    protected int nr = 0;
+
+    protected DaemonFactory(final String name) {
+      this.name = name;
+    }
+
+    public synchronized Thread newThread(final Runnable r) {
+      final Thread res = new Thread(r, name + "-" + (nr++));
+      res.setDaemon(true);
+      return res;
+    }
+  }
+}
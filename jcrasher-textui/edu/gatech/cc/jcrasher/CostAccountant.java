@@ -0,0 +1,313 @@
+/*
+ * CostAccountant.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher;
+
+import static edu.gatech.cc.jcrasher.Assertions.check;
+import static edu.gatech.cc.jcrasher.Assertions.notNull;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.reflect.Member;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import edu.gatech.cc.jcrasher.plans.expr.ConstructorCall;
+import edu.gatech.cc.jcrasher.plans.expr.Expression;
+import edu.gatech.cc.jcrasher.plans.expr.MethodCall;
+import edu.gatech.cc.jcrasher.plans.stmt.Block;
+import edu.gatech.cc.jcrasher.plans.stmt.BlockStatement;
+import edu.gatech.cc.jcrasher.plans.stmt.ExpressionStatement;
+import edu.gatech.cc.jcrasher.plans.stmt.LocalVariableDeclarationStatement;
+import edu.gatech.cc.jcrasher.types.MemberTable;
+
+/**
+ * Execution cost of each member under test, and the members too slow to
+ * execute.
+ *
+ * <p>
+ * We quarantine a member once the median wall time of its recent test
+ * cases exceeds a threshold. The quarantine can be loaded from and saved
+ * to a file, one member per line, so that the next run skips the member
+ * from the start.
+ *
+ * <p>
+ * The planner still executes a few test cases of a quarantined member,
+ * see RECHECK_SAMPLES. Once the median of its recent test cases is back
+ * under the threshold, e.g., as a member loaded from the file got faster,
+ * we release the member, and save no longer writes it.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class CostAccountant {
+
+  /**
+   * Number of test cases of a member we execute before judging it.
+   */
+  protected static final int MIN_SAMPLES = 3;
+
+  /**
+   * Number of recent test cases of a member we take the median of.
+   */
+  protected static final int MAX_SAMPLES = 32;
+
+  /**
+   * Number of test cases of a quarantined member we execute before we
+   * judge it again.
+   */
+  public static final int RECHECK_SAMPLES = 2;
+
+  protected final long slowNanos;
+
+  /**
+   * Member key --> cost, in order of first execution.
+   */
+  protected final Map<String, Cost> costs = new LinkedHashMap<String, Cost>();
+
+  protected final Set<String> quarantined = new LinkedHashSet<String>();
+
+  protected int nrReleased = 0;
+
+
+  /**
+   * Cost of one member.
+   */
+  protected static class Cost {
+    protected final long[] nanos = new long[MAX_SAMPLES];  //ring buffer.
+    protected int nrExecuted = 0;
+    protected long totalNanos = 0;
+    protected long totalBytes = 0;
+    protected int nrMeasuredBytes = 0;
+
+    protected void add(final ExecutionResult result) {
+      nanos[nrExecuted % MAX_SAMPLES] = result.getNanos();
+      nrExecuted += 1;
+      totalNanos += result.getNanos();
+      if (result.getBytes() >= 0) {
+        totalBytes += result.getBytes();
+        nrMeasuredBytes += 1;
+      }
+    }
+
+    protected long getMedianNanos() {
+      final long[] recent = new long[Math.min(nrExecuted, MAX_SAMPLES)];
+      System.arraycopy(nanos, 0, recent, 0, recent.length);
+      Arrays.sort(recent);
+      return (recent.length==0)? 0 : recent[recent.length/2];
+    }
+  }
+
+
+  /**
+   * Constructor
+   *
+   * @param slowMillis median wall time beyond which we quarantine a member,
+   * zero for never.
+   */
+  public CostAccountant(long slowMillis) {
+    check(slowMillis >= 0);
+    this.slowNanos = slowMillis * 1000000;
+  }
+
+
+  /**
+   * @return declaring class, name, and parameter types of the member, see
+   * MemberTable.getSignature.
+   */
+  public static String getKey(final Member member) {
+    return MemberTable.of(notNull(member)).getSignature(member);
+  }
+
+
+  /**
+   * @return key of the member that block tests, i.e., calls last, null if
+   * none.
+   */
+  public static String getKey(final Block<?> block) {
+    final List<BlockStatement> stmts = notNull(block).getBlockStmts();
+    if (stmts.isEmpty()) {
+      return null;
+    }
+    final BlockStatement<?> last = stmts.get(stmts.size()-1);
+    Expression<?> call = null;
+    if (last instanceof ExpressionStatement) {
+      call = ((ExpressionStatement<?>) last).getExpression();
+    }
+    if (last instanceof LocalVariableDeclarationStatement) {
+      call = ((LocalVariableDeclarationStatement<?>) last).getInitPlan();
+    }
+    if (call instanceof MethodCall) {
+      return getKey(((MethodCall<?>) call).getMethod());
+    }
+    if (call instanceof ConstructorCall) {
+      return getKey(((ConstructorCall<?>) call).getConstructor());
+    }
+    return null;
+  }
+
+
+  /**
+   * Records the cost of one test case of the member, quarantining it if
+   * it has become too slow, or releasing it if it has become fast again.
+   */
+  public synchronized void add(final String key, final ExecutionResult result) {
+    notNull(key);
+    notNull(result);
+
+    Cost cost = costs.get(key);
+    if (cost == null) {
+      cost = new Cost();
+      costs.put(key, cost);
+    }
+    cost.add(result);
+    if (slowNanos == 0) {
+      return;  //no threshold to judge by, keep the loaded quarantine.
+    }
+    if (quarantined.contains(key)) {
+      if (cost.nrExecuted >= RECHECK_SAMPLES
+          && cost.getMedianNanos() <= slowNanos)
+      {
+        quarantined.remove(key);
+        nrReleased += 1;
+      }
+    }
+    else if (cost.nrExecuted >= MIN_SAMPLES
+        && cost.getMedianNanos() > slowNanos)
+    {
+      quarantined.add(key);
+    }
+  }
+
+
+  /**
+   * @return whether we stopped executing test cases of the member.
+   */
+  public synchronized boolean isQuarantined(final String key) {
+    return quarantined.contains(key);
+  }
+
+  /**
+   * @return number of members quarantined so far, including loaded ones.
+   */
+  public synchronized int getNrQuarantined() {
+    return quarantined.size();
+  }
+
+  /**
+   * @return number of members we released from quarantine so far.
+   */
+  public synchronized int getNrReleased() {
+    return nrReleased;
+  }
+
+  /**
+   * @return median wall time of the recent test cases of the member, zero
+   * if none.
+   */
+  public synchronized long getMedianNanos(final String key) {
+    final Cost cost = costs.get(key);
+    return (cost==null)? 0 : cost.getMedianNanos();
+  }
+
+
+  /**
+   * Adds the members quarantined in file, if it exists.
+   *
+   * @return number of members read, zero if file is missing or unusable.
+   */
+  public synchronized int load(final File file) {
+    notNull(file);
+
+    if (!file.exists()) {
+      return 0;
+    }
+    BufferedReader in = null;
+    final Set<String> res = new LinkedHashSet<String>();
+    try {
+      in = new BufferedReader(new FileReader(file));
+      for (String line=in.readLine(); line!=null; line=in.readLine()) {
+        line = line.trim();
+        if (line.length() > 0 && !line.startsWith("#")) {
+          res.add(line);
+        }
+      }
+    }
+    catch (IOException e) {
+      return 0;   // unusable quarantine: start without.
+    }
+    finally {
+      if (in != null) {
+        try {
+          in.close();
+        }
+        catch (IOException e) {
+          /* Empty */
+        }
+      }
+    }
+    quarantined.addAll(res);
+    return res.size();
+  }
+
+
+  /**
+   * Writes all quarantined members to file, replacing its content.
+   */
+  public synchronized void save(final File file) throws IOException {
+    notNull(file);
+
+    final File tmp = new File(file.getPath() + ".tmp");
+    final BufferedWriter out = new BufferedWriter(new FileWriter(tmp));
+    try {
+      out.write("# Members JCrasher --execute found too slow to execute.");
+      out.newLine();
+      for (String key: quarantined) {
+        out.write(key);
+        out.newLine();
+      }
+    }
+    finally {
+      out.close();
+    }
+
+    if (file.exists() && !file.delete()) {
+      throw new IOException("Could not replace " + file);
+    }
+    if (!tmp.renameTo(file)) {
+      throw new IOException("Could not rename " + tmp + " to " + file);
+    }
+  }
+
+
+  /**
+   * Prints each quarantined member we executed, with its median wall time
+   * and mean allocation.
+   */
+  public synchronized void report(final PrintStream out) {
+    notNull(out);
+
+    for (Map.Entry<String, Cost> entry: costs.entrySet()) {
+      if (!quarantined.contains(entry.getKey())) {
+        continue;
+      }
+      final Cost cost = entry.getValue();
+      out.println(entry.getKey() + ": median "
+          + (cost.getMedianNanos() / 1000000) + " ms, "
+          + ((cost.nrMeasuredBytes==0)?
+              "allocation unknown" :
+              (cost.totalBytes / cost.nrMeasuredBytes / 1024) + " KB allocated")
+          + " per test case, " + cost.nrExecuted + " executed.");
+    }
+  }
+}
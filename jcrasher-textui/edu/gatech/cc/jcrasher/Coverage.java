@@ -0,0 +1,287 @@
+/*
+ * Coverage.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher;
+
+import static edu.gatech.cc.jcrasher.Assertions.notNull;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.gatech.cc.jcrasher.plans.JavaCode;
+
+/**
+ * Branch probes hit by the code that a CoverageClassLoader instrumented.
+ *
+ * <p>
+ * Each CoverageClassLoader owns one Coverage, so the probes of classes
+ * a run or test instrumented do not mix with those of another loader. An
+ * instrumented method finds the Coverage of its loader through its own
+ * class.
+ *
+ * <p>
+ * Each thread has its own probe map, so that we can tell which of several
+ * concurrently executing test cases hit a probe. An instrumented method
+ * fetches the map of its thread once, on entry, and each probe is a single
+ * array store, which needs no synchronization.
+ *
+ * <p>
+ * A probe map grows when instrumenting a class added probes beyond it.
+ * Methods that fetched the map before still store into the old one, so we
+ * keep it and collect from it as well.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class Coverage {
+
+  /**
+   * Initial size of a probe map.
+   */
+  protected static final int INITIAL_CAPACITY = 1 << 10;
+
+  protected final AtomicInteger nrProbes = new AtomicInteger();
+
+  /**
+   * Probes hit by the test cases collected so far.
+   */
+  protected final BitSet covered = new BitSet();
+
+  protected final ThreadLocal<Hits> hits =
+    new ThreadLocal<Hits>() {
+      @Override
+      protected Hits initialValue() {
+        return new Hits();
+      }
+  };
+
+
+  /**
+   * Called by each instrumented method on entry.
+   *
+   * @param c instrumented class of the method.
+   * @return probe map of the current thread in the Coverage of c's loader.
+   */
+  public static boolean[] probes(final Class<?> c) {
+    return ((CoverageClassLoader) c.getClassLoader()).getCoverage().probes();
+  }
+
+
+  /**
+   * @return Coverage of the classes loader instruments, an empty one if
+   * loader does not instrument.
+   */
+  public static Coverage of(final ClassLoader loader) {
+    if (loader instanceof CoverageClassLoader) {
+      return ((CoverageClassLoader) loader).getCoverage();
+    }
+    return new Coverage();
+  }
+
+
+  /**
+   * @return probe map of the current thread, which has a slot for each
+   * probe inserted so far.
+   */
+  public boolean[] probes() {
+    final Hits res = hits.get();
+    if (res.current.length < nrProbes.get()) {
+      res.grow(nrProbes.get());
+    }
+    return res.current;
+  }
+
+
+  /**
+   * @return id of a new probe.
+   */
+  public int newProbe() {
+    return nrProbes.getAndIncrement();
+  }
+
+
+  /**
+   * Clears the probes the current thread hit.
+   *
+   * @return whether the current thread hit any probe not collected before.
+   */
+  public boolean collect() {
+    final BitSet hit = hits.get().clear();
+    synchronized (covered) {
+      final BitSet res = (BitSet) hit.clone();
+      res.andNot(covered);
+      covered.or(hit);
+      return !res.isEmpty();
+    }
+  }
+
+
+  /**
+   * Clears the probes the current thread hit, like collect.
+   *
+   * @return probes the current thread hit.
+   */
+  public BitSet collectHits() {
+    final BitSet res = hits.get().clear();
+    synchronized (covered) {
+      covered.or(res);
+    }
+    return res;
+  }
+
+
+  /**
+   * @return number of probes inserted so far.
+   */
+  public int getNrProbes() {
+    return nrProbes.get();
+  }
+
+  /**
+   * @return number of probes hit by the test cases collected so far.
+   */
+  public int getNrCovered() {
+    synchronized (covered) {
+      return covered.cardinality();
+    }
+  }
+
+
+  /**
+   * Probe map of a thread, and the maps it replaced since we last
+   * cleared it.
+   */
+  protected static class Hits {
+    protected boolean[] current = new boolean[INITIAL_CAPACITY];
+    protected final List<boolean[]> replaced = new ArrayList<boolean[]>();
+
+    /**
+     * Replaces the current map with one that has a slot for each of
+     * nrProbes probes.
+     */
+    protected void grow(int nrProbes) {
+      int capacity = current.length;
+      while (capacity < nrProbes) {
+        capacity *= 2;
+      }
+      replaced.add(current);
+      current = new boolean[capacity];
+    }
+
+    /**
+     * Clears the current and replaced maps.
+     *
+     * @return probes hit in any of them.
+     */
+    protected BitSet clear() {
+      final BitSet res = new BitSet();
+      replaced.add(current);
+      for (boolean[] map: replaced) {
+        for (int i=0; i<map.length; i++) {
+          if (map[i]) {
+            map[i] = false;
+            res.set(i);
+          }
+        }
+      }
+      replaced.clear();
+      return res;
+    }
+  }
+
+
+  /**
+   * Test case that records whether it hit a probe not hit before.
+   */
+  public static class CoveringCode implements JavaCode<Object> {
+    protected final Coverage coverage;
+    protected final JavaCode<?> code;
+    protected volatile boolean isNew = false;
+
+    /**
+     * Constructor
+     */
+    public CoveringCode(final Coverage coverage, final JavaCode<?> code) {
+      this.coverage = notNull(coverage);
+      this.code = notNull(code);
+    }
+
+    /**
+     * @return whether the last execution hit a probe not hit before.
+     */
+    public boolean isNew() {
+      return isNew;
+    }
+
+    public Object execute() throws InstantiationException,
+    IllegalAccessException, InvocationTargetException
+    {
+      try {
+        return code.execute();
+      }
+      finally {
+        isNew = coverage.collect();
+      }
+    }
+
+    public String text() {
+      return code.text();
+    }
+
+    @Override
+    public String toString() {
+      return text();
+    }
+  }
+
+
+  /**
+   * Test case that records which probes it hit, ignoring what its thread
+   * hit before.
+   */
+  public static class RecordingCode implements JavaCode<Object> {
+    protected final Coverage coverage;
+    protected final JavaCode<?> code;
+    protected volatile BitSet hits = new BitSet();
+
+    /**
+     * Constructor
+     */
+    public RecordingCode(final Coverage coverage, final JavaCode<?> code) {
+      this.coverage = notNull(coverage);
+      this.code = notNull(code);
+    }
+
+    /**
+     * @return probes the last execution hit.
+     */
+    public BitSet getHits() {
+      return hits;
+    }
+
+    public Object execute() throws InstantiationException,
+    IllegalAccessException, InvocationTargetException
+    {
+      coverage.collectHits();
+      try {
+        return code.execute();
+      }
+      finally {
+        hits = coverage.collectHits();
+      }
+    }
+
+    public String text() {
+      return code.text();
+    }
+
+    @Override
+    public String toString() {
+      return text();
+    }
+  }
+}
@@ -0,0 +1,269 @@
+/*
+ * CoverageClassLoader.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher;
+
+import java.io.ByteArrayInputStream;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.apache.bcel.Constants;
+import org.apache.bcel.classfile.Attribute;
+import org.apache.bcel.classfile.ClassParser;
+import org.apache.bcel.classfile.ConstantInterfaceMethodref;
+import org.apache.bcel.classfile.JavaClass;
+import org.apache.bcel.classfile.Method;
+import org.apache.bcel.classfile.Unknown;
+import org.apache.bcel.generic.ALOAD;
+import org.apache.bcel.generic.ASTORE;
+import org.apache.bcel.generic.ArrayType;
+import org.apache.bcel.generic.BranchInstruction;
+import org.apache.bcel.generic.ClassGen;
+import org.apache.bcel.generic.CodeExceptionGen;
+import org.apache.bcel.generic.ConstantPoolGen;
+import org.apache.bcel.generic.INVOKESPECIAL;
+import org.apache.bcel.generic.INVOKESTATIC;
+import org.apache.bcel.generic.IfInstruction;
+import org.apache.bcel.generic.InstructionConstants;
+import org.apache.bcel.generic.InstructionFactory;
+import org.apache.bcel.generic.InstructionHandle;
+import org.apache.bcel.generic.InstructionList;
+import org.apache.bcel.generic.InstructionTargeter;
+import org.apache.bcel.generic.InvokeInstruction;
+import org.apache.bcel.generic.LDC;
+import org.apache.bcel.generic.MethodGen;
+import org.apache.bcel.generic.PUSH;
+import org.apache.bcel.generic.Select;
+import org.apache.bcel.generic.Type;
+
+/**
+ * Loads user classes with branch probes, which record in our Coverage which
+ * branches each test case took.
+ *
+ * <p>
+ * Like CopyCLinitClassLoader, we rewrite classes with BCEL before defining
+ * them, but, like any IsolatingClassLoader, we read them from our parent,
+ * which loads all library and JCrasher classes. On entry, each method fetches the probe map of its
+ * thread, via its own class, into a new local. Then there is a probe at the start of each
+ * branch target, after each conditional branch, and at the start of each
+ * exception handler, so together the probes cover each edge a branch can
+ * take.
+ *
+ * <p>
+ * BCEL cannot compute stack map frames, so we emit each instrumented class
+ * in the Java 5 class file format, which does not need them. We therefore
+ * load unchanged any class we cannot parse, e.g., one that uses
+ * invokedynamic, any class that relies on nest-based access, and any class
+ * that calls an interface method directly, e.g., a static or a super
+ * default method, which needs the Java 8 format.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class CoverageClassLoader extends IsolatingClassLoader {
+
+  /**
+   * Class file attributes of nest-based access, since Java 11.
+   */
+  protected static final String[] NEST_ATTRIBUTES = new String[]{
+    "NestHost", "NestMembers"
+  };
+
+  protected final Coverage coverage = new Coverage();
+
+  protected int nrInstrumented = 0;
+
+
+  /**
+   * Constructor
+   *
+   * @param parent loads the classes we instrument as well.
+   */
+  public CoverageClassLoader(final ClassLoader parent) {
+    super(parent);
+  }
+
+
+  /**
+   * @return probes of the classes we instrumented.
+   */
+  public Coverage getCoverage() {
+    return coverage;
+  }
+
+
+  /**
+   * @return number of classes we instrumented so far.
+   */
+  public synchronized int getNrInstrumented() {
+    return nrInstrumented;
+  }
+
+
+  @Override
+  protected byte[] transform(final String name, final byte[] bytes) {
+    return instrument(name, bytes);
+  }
+
+
+  /**
+   * @return bytes with probes, or bytes if we cannot instrument them.
+   */
+  protected byte[] instrument(final String name, final byte[] bytes) {
+    try {
+      final JavaClass parsed = new ClassParser(
+          new ByteArrayInputStream(bytes), name + ".class").parse();
+      if (parsed.isInterface() || hasNestAttribute(parsed)) {
+        return bytes;
+      }
+
+      final ClassGen clazz = new ClassGen(parsed);
+      final InstructionFactory factory = new InstructionFactory(clazz);
+      for (Method method: clazz.getMethods()) {
+        if (method.isAbstract() || method.isNative()) {
+          continue;
+        }
+        final MethodGen methodGen =
+          new MethodGen(method, clazz.getClassName(), clazz.getConstantPool());
+        if (hasInterfaceCall(methodGen)) {
+          return bytes;
+        }
+        instrument(methodGen, factory);
+        clazz.replaceMethod(method, methodGen.getMethod());
+      }
+      clazz.setMajor(Constants.MAJOR_1_5);
+      clazz.setMinor(Constants.MINOR_1_5);
+
+      final byte[] res = clazz.getJavaClass().getBytes();
+      synchronized (this) {
+        nrInstrumented += 1;
+      }
+      return res;
+    }
+    catch (Exception e) {  //BCEL cannot handle this class.
+      return bytes;
+    }
+  }
+
+
+  protected boolean hasNestAttribute(final JavaClass clazz) {
+    for (Attribute attribute: clazz.getAttributes()) {
+      if (!(attribute instanceof Unknown)) {
+        continue;
+      }
+      for (String nest: NEST_ATTRIBUTES) {
+        if (nest.equals(((Unknown) attribute).getName())) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+
+  /**
+   * @return whether methodGen calls an interface method by invokestatic or
+   * invokespecial, which Java 5 does not allow.
+   */
+  protected boolean hasInterfaceCall(final MethodGen methodGen) {
+    final ConstantPoolGen constants = methodGen.getConstantPool();
+    for (InstructionHandle handle:
+        methodGen.getInstructionList().getInstructionHandles())
+    {
+      if (!(handle.getInstruction() instanceof INVOKESTATIC)
+          && !(handle.getInstruction() instanceof INVOKESPECIAL))
+      {
+        continue;
+      }
+      final int index = ((InvokeInstruction) handle.getInstruction()).getIndex();
+      if (constants.getConstant(index) instanceof ConstantInterfaceMethodref) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+
+  /**
+   * Inserts a probe before each branch target and exception handler, and
+   * after each conditional branch, then fetches the probe map on entry.
+   */
+  protected void instrument(
+      final MethodGen methodGen,
+      final InstructionFactory factory)
+  {
+    final InstructionList code = methodGen.getInstructionList();
+    final ConstantPoolGen constants = methodGen.getConstantPool();
+    final int local = methodGen.getMaxLocals();  //probe map.
+
+    final Set<InstructionHandle> starts = new LinkedHashSet<InstructionHandle>();
+    for (InstructionHandle handle: code.getInstructionHandles()) {
+      if (!(handle.getInstruction() instanceof BranchInstruction)) {
+        continue;
+      }
+      final BranchInstruction branch =
+        (BranchInstruction) handle.getInstruction();
+      starts.add(branch.getTarget());
+      if (branch instanceof Select) {
+        for (InstructionHandle target: ((Select) branch).getTargets()) {
+          starts.add(target);
+        }
+      }
+      if (branch instanceof IfInstruction && handle.getNext() != null) {
+        starts.add(handle.getNext());
+      }
+    }
+    for (CodeExceptionGen handler: methodGen.getExceptionHandlers()) {
+      starts.add(handler.getHandlerPC());
+    }
+
+    for (InstructionHandle start: starts) {
+      final InstructionHandle probe =
+        code.insert(start, createProbe(constants, local));
+      for (InstructionTargeter targeter: start.getTargeters()) {
+        if (targeter instanceof BranchInstruction) {
+          targeter.updateTarget(start, probe);
+        }
+        if (targeter instanceof CodeExceptionGen) {  //keep the end of ranges.
+          final CodeExceptionGen handler = (CodeExceptionGen) targeter;
+          if (handler.getHandlerPC() == start) {
+            handler.setHandlerPC(probe);
+          }
+          if (handler.getStartPC() == start) {
+            handler.setStartPC(probe);
+          }
+        }
+      }
+    }
+
+    final InstructionList entry = new InstructionList();
+    entry.append(new LDC(constants.addClass(methodGen.getClassName())));
+    entry.append(factory.createInvoke(Coverage.class.getName(), "probes",
+        new ArrayType(Type.BOOLEAN, 1), new Type[]{Type.CLASS},
+        Constants.INVOKESTATIC));
+    entry.append(new ASTORE(local));
+    entry.append(createProbe(constants, local));
+    code.insert(entry);
+
+    methodGen.removeCodeAttributes();  //stack map frames are stale now.
+    methodGen.setMaxLocals();
+    methodGen.setMaxStack();
+  }
+
+
+  /**
+   * @return probes[id] = true, for a new id.
+   */
+  protected InstructionList createProbe(
+      final ConstantPoolGen constants,
+      int local)
+  {
+    final InstructionList res = new InstructionList();
+    res.append(new ALOAD(local));
+    res.append(new PUSH(constants, coverage.newProbe()));
+    res.append(InstructionConstants.ICONST_1);
+    res.append(InstructionConstants.BASTORE);
+    return res;
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * CrashDeduplicator.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher;
+
+import static edu.gatech.cc.jcrasher.Assertions.check;
+import static edu.gatech.cc.jcrasher.Assertions.notNull;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the first few crashing test cases per crash signature, while
+ * generating, and counts the others.
+ *
+ * <p>
+ * One bug reached via many argument combinations would otherwise yield
+ * one exported test case per combination, which we would write, compile,
+ * run, and only then group into one failure.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class CrashDeduplicator {
+
+  protected final int maxPerSignature;
+  protected final int depth;
+
+  /**
+   * Signature --> {occurrences, kept}, in order of first occurrence.
+   */
+  protected final Map<CrashSignature, int[]> counts =
+    new LinkedHashMap<CrashSignature, int[]>();
+
+
+  /**
+   * Constructor
+   *
+   * @param maxPerSignature number of crashes kept per signature.
+   * @param depth number of testee frames per signature.
+   */
+  public CrashDeduplicator(int maxPerSignature, int depth) {
+    check(maxPerSignature > 0);
+    check(depth >= 0);
+
+    this.maxPerSignature = maxPerSignature;
+    this.depth = depth;
+  }
+
+
+  /**
+   * Records one crash.
+   *
+   * @param thrown by the testee, null if unknown.
+   * @return whether to keep the crashing test case.
+   */
+  public synchronized boolean keep(final Throwable thrown) {
+    final CrashSignature signature = CrashSignature.of(thrown, depth);
+    int[] count = counts.get(signature);
+    if (count == null) {
+      count = new int[2];
+      counts.put(signature, count);
+    }
+    count[0] += 1;
+    if (count[1] >= maxPerSignature) {
+      return false;
+    }
+    count[1] += 1;
+    return true;
+  }
+
+
+  /**
+   * @return number of distinct signatures so far.
+   */
+  public synchronized int getNrSignatures() {
+    return counts.size();
+  }
+
+  /**
+   * @return number of crashes so far with the signature of thrown.
+   */
+  public synchronized int getCount(final Throwable thrown) {
+    final int[] count = counts.get(CrashSignature.of(thrown, depth));
+    return (count==null)? 0 : count[0];
+  }
+
+  /**
+   * @return number of crashes dropped so far.
+   */
+  public synchronized int getNrDropped() {
+    int res = 0;
+    for (int[] count: counts.values()) {
+      res += count[0] - count[1];
+    }
+    return res;
+  }
+
+
+  /**
+   * Print each signature with its number of occurrences, most frequent
+   * first.
+   */
+  public synchronized void report(final PrintStream out) {
+    notNull(out);
+
+    final List<Map.Entry<CrashSignature, int[]>> entries =
+      new ArrayList<Map.Entry<CrashSignature, int[]>>(counts.entrySet());
+    Collections.sort(entries, new Comparator<Map.Entry<CrashSignature, int[]>>() {
+      public int compare(
+          final Map.Entry<CrashSignature, int[]> e1,
+          final Map.Entry<CrashSignature, int[]> e2)
+      {
+        return e2.getValue()[0] - e1.getValue()[0];  //stable.
+      }
+    });
+    for (Map.Entry<CrashSignature, int[]> entry: entries) {
+      out.println(entry.getValue()[0] + " crash(es), kept "
+          + entry.getValue()[1] + ": " + entry.getKey());
+    }
+  }
+}
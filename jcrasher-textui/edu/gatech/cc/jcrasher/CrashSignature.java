@@ -0,0 +1,126 @@
+/*
+ * CrashSignature.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher;
+
+import static edu.gatech.cc.jcrasher.Assertions.check;
+import static edu.gatech.cc.jcrasher.Assertions.notNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * What identifies a crash: the class of the thrown throwable and the top
+ * stack frames of the testee, like GroupedTestResult.getPrototype does for
+ * executed JUnit tests.
+ *
+ * <p>
+ * The testee's frames are the ones above the first frame of our reflective
+ * call of the testee. A throwable without a stack trace, e.g., one the JIT
+ * preallocated, has no frames, so all such throwables of a class share a
+ * signature.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class CrashSignature {
+
+  /**
+   * Prefixes of classes that call the testee.
+   */
+  protected static final String[] CALLER_PREFIXES = new String[]{
+    "java.lang.reflect.",
+    "sun.reflect.",
+    "jdk.internal.reflect."
+  };
+
+  protected final String className;
+  protected final String[] frames;
+
+
+  /**
+   * Constructor
+   *
+   * @param frames top first.
+   */
+  public CrashSignature(final String className, final String[] frames) {
+    this.className = notNull(className);
+    this.frames = notNull(frames);
+  }
+
+
+  /**
+   * @param thrown by the testee, null if unknown.
+   * @param depth maximum number of testee frames.
+   */
+  public static CrashSignature of(final Throwable thrown, int depth) {
+    check(depth >= 0);
+
+    if (thrown == null) {
+      return new CrashSignature("<unknown>", new String[0]);
+    }
+    final String className = (thrown instanceof ForkedWorker.RemoteThrowable)?
+        ((ForkedWorker.RemoteThrowable) thrown).getClassName()
+        : thrown.getClass().getName();
+
+    final List<String> frames = new ArrayList<String>(depth);
+    final StackTraceElement[] stack = thrown.getStackTrace();
+    for (int i=0; stack!=null && i<stack.length && frames.size()<depth; i++) {
+      if (isCaller(stack[i])) {
+        break;
+      }
+      frames.add(stack[i].getClassName() + "." + stack[i].getMethodName()
+          + ":" + stack[i].getLineNumber());
+    }
+    return new CrashSignature(
+        className, frames.toArray(new String[frames.size()]));
+  }
+
+
+  protected static boolean isCaller(final StackTraceElement frame) {
+    for (String prefix: CALLER_PREFIXES) {
+      if (frame.getClassName().startsWith(prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+
+  public String getClassName() {
+    return className;
+  }
+
+  /**
+   * @return testee frames, top first.
+   */
+  public String[] getFrames() {
+    return frames.clone();
+  }
+
+
+  @Override
+  public boolean equals(final Object obj) {
+    if (!(obj instanceof CrashSignature)) {
+      return false;
+    }
+    final CrashSignature other = (CrashSignature) obj;
+    return className.equals(other.className)
+      && Arrays.equals(frames, other.frames);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * className.hashCode() + Arrays.hashCode(frames);
+  }
+
+  /**
+   * @return class name, then each frame: "C at a.B.m:12 < a.B.n:20".
+   */
+  @Override
+  public String toString() {
+    return CrashSignatureStore.getKey(className, frames);
+  }
+}
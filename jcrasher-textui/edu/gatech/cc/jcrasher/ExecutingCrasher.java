@@ -5,12 +5,11 @@
  */
 package edu.gatech.cc.jcrasher;
 
-import static edu.gatech.cc.jcrasher.Constants.MAX_TEST_CASES_TRIED_CLASS;
-
+import java.io.IOException;
 import java.util.List;
 
 import edu.gatech.cc.jcrasher.plans.stmt.Block;
-import edu.gatech.cc.jcrasher.writer.JUnitTestCaseWriter;
+import edu.gatech.cc.jcrasher.writer.OutputSink;
 import edu.gatech.cc.jcrasher.writer.TestCaseWriter;
 
 /**
@@ -22,16 +21,39 @@ import edu.gatech.cc.jcrasher.writer.TestCaseWriter;
  */
 public class ExecutingCrasher extends AbstractCrasher {	
 	
-	protected final ExecutingCutPlanner executingPlanner =
-		new ExecutingCutPlanner();
+	protected final ExecutingCutPlanner executingPlanner;
 	
 	/**
-	 * Constructor
+	 * Constructor, default settings.
 	 * 
 	 * @param classes to crash. 
 	 */
 	public ExecutingCrasher(Class[] classes) {
-		super(classes);
+		this(classes, RunConfig.DEFAULT);
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param classes to crash. 
+	 */
+	public ExecutingCrasher(Class[] classes, final RunConfig config) {
+		this(classes, config, createSink());
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param classes to crash. 
+	 * @param sink where we write generated test cases to.
+	 */
+	public ExecutingCrasher(
+			Class[] classes,
+			final RunConfig config,
+			final OutputSink sink)
+	{
+		super(classes, config, sink);
+		executingPlanner = new ExecutingCutPlanner(classes, typeGraph, config);
 	}
 
 
@@ -40,11 +62,100 @@ public class ExecutingCrasher extends AbstractCrasher {
 	 */
 	public void crashClasses() {
 		for (Class<?> c: classes) {			
-			final List<Block> blockList = executingPlanner.getBlocks(c, MAX_TEST_CASES_TRIED_CLASS);
+			final List<Block> blockList = executingPlanner.reduce(
+				executingPlanner.getBlocks(c, config.getMaxTestCasesTriedClass()));
 			final Block[] blocks = blockList.toArray(new Block[blockList.size()]);
-			final TestCaseWriter testCaseWriter = new JUnitTestCaseWriter(
-					c, "No comment", Constants.JUNIT_FILTERING, blocks);
+			final TestCaseWriter testCaseWriter = createWriter(
+					c, "No comment", config.isJunitFiltering(), blocks, -1);
 			testCaseWriter.write();
 		}
+		closeSink();
+		executingPlanner.shutdown();
+		
+		if (executingPlanner.getNrExecuted() > 0) {
+			System.out.println("Found " + executingPlanner.getNrUniqueCrashes()
+					+ " unique crash signature(s) in " + executingPlanner.getNrExecuted()
+					+ " executed test case(s), "
+					+ String.format("%.1f", 1000.0 * executingPlanner.getNrUniqueCrashes()
+							/ executingPlanner.getNrExecuted())
+					+ " per 1000.");
+		}
+		if (config.isCoverageGuided() && config.getNrForks() == 0) {
+			System.out.println("Kept " + executingPlanner.getNrCovering()
+					+ " test case(s) for covering "
+					+ executingPlanner.getCoverage().getNrCovered() + " of "
+					+ executingPlanner.getCoverage().getNrProbes() + " branch probes.");
+		}
+		final ValuePool valuePool = executingPlanner.getValuePool();
+		if (valuePool != null) {
+			System.out.println("Reused pooled values " + valuePool.getNrReused()
+					+ " time(s) instead of calling again, "
+					+ valuePool.getNrReplaced() + " of them produced by another plan.");
+		}
+		final IsolatingExecutor isolatingExecutor =
+			executingPlanner.getIsolatingExecutor();
+		if (isolatingExecutor != null) {
+			System.out.println("Isolated static state in "
+					+ isolatingExecutor.getNrSandboxes() + " class loader(s), reset "
+					+ isolatingExecutor.getNrResets() + " time(s).");
+		}
+		final SuiteReducer suiteReducer = executingPlanner.getSuiteReducer();
+		if (suiteReducer != null) {
+			System.out.println("Reduced " + suiteReducer.getNrGiven() + " to "
+					+ suiteReducer.getNrKept() + " test case(s), keeping all branches"
+					+ " and crash signatures they cover.");
+		}
+		final BlockMinimizer minimizer = executingPlanner.getMinimizer();
+		if (minimizer != null) {
+			System.out.println("Shrank " + minimizer.getNrMinimized()
+					+ " crashing test case(s), from " + minimizer.getNrCharsBefore()
+					+ " to " + minimizer.getNrCharsAfter() + " characters of source.");
+		}
+		final CostAccountant costs = executingPlanner.getCosts();
+		if (costs != null && costs.getNrQuarantined() > 0) {
+			System.out.println("Quarantined " + costs.getNrQuarantined()
+					+ " slow member(s), skipped " + executingPlanner.getNrSkipped()
+					+ " of their test case(s):");
+			costs.report(System.out);
+		}
+		if (costs != null && costs.getNrReleased() > 0) {
+			System.out.println("Released " + costs.getNrReleased()
+					+ " quarantined member(s) that got fast again.");
+		}
+		if (costs != null && config.getQuarantineFile() != null) {
+			try {
+				costs.save(config.getQuarantineFile());
+			}
+			catch (IOException e) {
+				System.err.println("Could not write quarantine: " + e);
+			}
+		}
+		if (executingPlanner.getNrHung() > 0) {
+			System.out.println("Abandoned " + executingPlanner.getNrHung()
+					+ " test case(s) that ran longer than "
+					+ config.getTimeoutMillis() + " ms.");
+		}
+		if (executingPlanner.getNrDied() > 0) {
+			System.out.println("Dropped " + executingPlanner.getNrDied()
+					+ " test case(s) that took down their child JVM.");
+		}
+		if (executingPlanner.getNrUnexecuted() > 0) {
+			System.out.println("Could not execute " + executingPlanner.getNrUnexecuted()
+					+ " test case(s) in a child JVM, see the errors above.");
+		}
+		final CrashSignatureStore known = executingPlanner.getKnown();
+		if (known != null) {
+			System.out.println("Did not export " + executingPlanner.getNrKnown()
+					+ " crashing test case(s) of " + executingPlanner.getNrKnownSignatures()
+					+ " crash signature(s) found by earlier runs, now storing "
+					+ known.size() + ".");
+		}
+		final CrashDeduplicator deduplicator = executingPlanner.getDeduplicator();
+		if (deduplicator != null && deduplicator.getNrSignatures() > 0) {
+			System.out.println("Dropped " + deduplicator.getNrDropped()
+					+ " crashing test case(s) beyond " + config.getMaxCrashesPerSignature()
+					+ " per crash signature:");
+			deduplicator.report(System.out);
+		}
 	}
 }
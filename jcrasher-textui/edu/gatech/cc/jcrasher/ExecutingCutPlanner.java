@@ -6,22 +6,30 @@
 package edu.gatech.cc.jcrasher;
 
 import static edu.gatech.cc.jcrasher.Assertions.notNull;
-import static edu.gatech.cc.jcrasher.Constants.MAX_TEST_CASES_TRIED_CLASS;
 
-import java.lang.reflect.InvocationTargetException;
+import java.io.File;
+import java.io.IOException;
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 
 import org.apache.commons.lang.NotImplementedException;
 
+import edu.gatech.cc.jcrasher.planner.AdaptiveSampler;
 import edu.gatech.cc.jcrasher.planner.ClassUnderTest;
 import edu.gatech.cc.jcrasher.planner.ClassUnderTestImpl;
 import edu.gatech.cc.jcrasher.planner.CutPlanner;
 import edu.gatech.cc.jcrasher.planner.CutPlannerImpl;
 import edu.gatech.cc.jcrasher.plans.JavaCode;
 import edu.gatech.cc.jcrasher.plans.stmt.Block;
+import edu.gatech.cc.jcrasher.types.TypeGraph;
 
 /**
  * Executes test cases before returning them.
@@ -30,54 +38,389 @@ import edu.gatech.cc.jcrasher.plans.stmt.Block;
  */
 public class ExecutingCutPlanner {
 	
-	protected static final CutPlanner cutPlanner = CutPlannerImpl.instance();
-	protected static final Random random = new Random();
+	/**
+	 * Number of test cases we sample adaptively before learning from them.
+	 */
+	protected static final int ROUND = 64;
+	
+	/**
+	 * Number of test cases per class we execute of a quarantined member,
+	 * enough to judge whether it is still slow.
+	 */
+	protected static final int QUARANTINE_QUOTA = CostAccountant.RECHECK_SAMPLES;
+	
+	protected final CutPlanner cutPlanner;
+	protected final RunConfig config;
+	protected final Random random = new Random();
+	protected final CandidateExecutor executor;
+	
+	/**
+	 * Executes test cases in child JVMs instead, null if we do not fork.
+	 */
+	protected final ForkedExecutor forkedExecutor;
+	
+	/**
+	 * Executes shared declarations once, null if we execute each test case
+	 * as is.
+	 */
+	protected final PrefixSharing prefixSharing;
+	
+	/**
+	 * Reuses values produced by earlier test cases, null if each test case
+	 * produces its own.
+	 */
+	protected final ValuePool valuePool;
+	
+	/**
+	 * Executes each worker's candidates on its own copy of the user classes,
+	 * null if candidates share static state.
+	 */
+	protected final IsolatingExecutor isolatingExecutor;
+	
+	/**
+	 * Execution cost per member under test, null if we quarantine none.
+	 */
+	protected final CostAccountant costs;
+	
+	/**
+	 * Number of test cases skipped so far, as their member was quarantined.
+	 */
+	protected int nrSkipped = 0;
+	
+	/**
+	 * Also keep test cases that return normally and take new branches.
+	 */
+	protected final boolean isCoverageGuided;
+	
+	/**
+	 * Branch probes of the classes under test, empty if their loader does
+	 * not instrument them.
+	 */
+	protected final Coverage coverage;
+	
+	/**
+	 * Number of test cases kept so far only for taking new branches.
+	 */
+	protected int nrCovering = 0;
+	
+	/**
+	 * Shrinks the crashing test cases we keep, null if we keep them as is.
+	 */
+	protected final BlockMinimizer minimizer;
+	
+	/**
+	 * Drops kept test cases whose branches others take, null if we keep all.
+	 */
+	protected final SuiteReducer suiteReducer;
+	
+	/**
+	 * Drops crashes beyond the first few per signature, null if we keep all.
+	 */
+	protected final CrashDeduplicator deduplicator;
+	
+	/**
+	 * Crash signatures found by earlier runs, null if we export all.
+	 */
+	protected final CrashSignatureStore known;
+	
+	/**
+	 * Crash signature found in this run --> whether an earlier run found it.
+	 */
+	protected final Map<CrashSignature, Boolean> isKnown =
+		new HashMap<CrashSignature, Boolean>();
+	
+	/**
+	 * Number of crashing test cases not exported so far, as an earlier run
+	 * found their signature.
+	 */
+	protected int nrKnown = 0;
+	
+	/**
+	 * Crash signatures found so far, to tell new crashes from known ones.
+	 */
+	protected final Set<CrashSignature> signatures =
+		new HashSet<CrashSignature>();
+	
+	/**
+	 * Number of test cases executed so far.
+	 */
+	protected int nrExecuted = 0;
+	
+	/**
+	 * Number of test cases abandoned so far, as they exceeded the time limit.
+	 */
+	protected int nrHung = 0;
+	
+	/**
+	 * Number of test cases so far that took down their child JVM.
+	 */
+	protected int nrDied = 0;
+
+
+	/**
+	 * Constructor
+	 * 
+	 * @param classes crawled into typeGraph.
+	 */
+	public ExecutingCutPlanner(
+			final Class<?>[] classes,
+			final TypeGraph typeGraph,
+			final RunConfig config) {
+		this.config = notNull(config);
+		this.cutPlanner = new CutPlannerImpl(typeGraph, config);
+		this.executor = new CandidateExecutor(
+				config.getNrThreads(), config.getTimeoutMillis());
+		this.forkedExecutor = (config.getNrForks() > 0)?
+				new ForkedExecutor(classes, config) : null;
+		this.isolatingExecutor = (config.isIsolateStatics() && forkedExecutor == null
+				&& !config.isCoverageGuided())?
+				new IsolatingExecutor(executor, getLoader(classes), classes, typeGraph,
+						config)
+				: null;
+		this.prefixSharing = (config.isSharePrefixes() && forkedExecutor == null)?
+				new PrefixSharing() : null;
+		this.valuePool = (config.getValuePoolSize() > 0 && forkedExecutor == null)?
+				new ValuePool(config.getValuePoolSize(), random) : null;
+		this.costs = (config.getSlowMillis() > 0 || config.getQuarantineFile() != null)?
+				new CostAccountant(config.getSlowMillis()) : null;
+		if (config.getQuarantineFile() != null) {
+			costs.load(config.getQuarantineFile());
+		}
+		this.isCoverageGuided = config.isCoverageGuided() && forkedExecutor == null;
+		this.coverage = Coverage.of(getLoader(classes));
+		this.suiteReducer = (config.isReduceSuite() && forkedExecutor == null)?
+				new SuiteReducer(executor, coverage, config.getSignatureDepth()) : null;
+		this.minimizer = (config.getMinimizeMillis() > 0 && forkedExecutor == null)?
+				new BlockMinimizer(executor, config.getSignatureDepth(),
+						config.getMinimizeMillis()) : null;
+		this.deduplicator = (config.getMaxCrashesPerSignature() > 0)?
+				new CrashDeduplicator(config.getMaxCrashesPerSignature(),
+						config.getSignatureDepth()) : null;
+		this.known = (config.getKnownFile() != null)?
+				open(config.getKnownFile(), config.getStartMillis()) : null;
+	}
+
+
+	/**
+	 * @param runStart negative for now.
+	 * @return store in file, null if we cannot open it.
+	 */
+	protected static CrashSignatureStore open(final File file, long runStart) {
+		try {
+			return new CrashSignatureStore(file, runStart);
+		}
+		catch (IOException e) {
+			System.err.println("Could not open known crash signatures: " + e);
+			return null;   // unusable store: export all.
+		}
+	}
+
+
+	/**
+	 * @return loader of the first user class, to read class files from.
+	 */
+	protected static ClassLoader getLoader(final Class<?>[] classes) {
+		for (Class<?> c: classes) {
+			if (c.getClassLoader() != null) {
+				return c.getClassLoader();
+			}
+		}
+		return ExecutingCutPlanner.class.getClassLoader();
+	}
+
+
+	/**
+	 * @return executes candidates on copies of the user classes, null if
+	 * candidates share static state.
+	 */
+	public IsolatingExecutor getIsolatingExecutor() {
+		return isolatingExecutor;
+	}
+
+
+	/**
+	 * @return number of test cases executed so far.
+	 */
+	public int getNrExecuted() {
+		return nrExecuted;
+	}
+
+
+	/**
+	 * @return number of distinct crash signatures found so far.
+	 */
+	public int getNrUniqueCrashes() {
+		return signatures.size();
+	}
+
+
+	/**
+	 * @return execution cost per member so far, null if we quarantine none.
+	 */
+	public CostAccountant getCosts() {
+		return costs;
+	}
+
+
+	/**
+	 * @return number of test cases skipped so far, as their member was
+	 * quarantined.
+	 */
+	public int getNrSkipped() {
+		return nrSkipped;
+	}
+
+
+	/**
+	 * @return values reused so far, null if we do not pool values.
+	 */
+	public ValuePool getValuePool() {
+		return valuePool;
+	}
+
+
+	/**
+	 * @return drops test cases whose branches others take, null if we keep
+	 * all.
+	 */
+	public SuiteReducer getSuiteReducer() {
+		return suiteReducer;
+	}
+
+
+	/**
+	 * @return shrinks crashing test cases, null if we keep them as is.
+	 */
+	public BlockMinimizer getMinimizer() {
+		return minimizer;
+	}
+
+
+	/**
+	 * @return branch probes of the classes under test.
+	 */
+	public Coverage getCoverage() {
+		return coverage;
+	}
+
+
+	/**
+	 * @return number of test cases kept so far only for taking new branches.
+	 */
+	public int getNrCovering() {
+		return nrCovering;
+	}
+
+
+	/**
+	 * @return number of test cases abandoned so far, as they exceeded the
+	 * time limit.
+	 */
+	public int getNrHung() {
+		return nrHung;
+	}
+
+
+	/**
+	 * @return number of test cases so far that took down their child JVM.
+	 */
+	public int getNrDied() {
+		return nrDied;
+	}
+
+
+	/**
+	 * @return number of test cases so far that no child JVM executed, as
+	 * none started or it planned differently.
+	 */
+	public int getNrUnexecuted() {
+		return (forkedExecutor == null)? 0 : forkedExecutor.getNrUnexecuted();
+	}
+
+
+	/**
+	 * @return crash signatures seen so far, null if we keep all crashes.
+	 */
+	public CrashDeduplicator getDeduplicator() {
+		return deduplicator;
+	}
+
+
+	/**
+	 * @return crash signatures found by this and earlier runs, null if we
+	 * export all crashes.
+	 */
+	public CrashSignatureStore getKnown() {
+		return known;
+	}
+
+
+	/**
+	 * @return number of crashing test cases not exported so far, as an
+	 * earlier run found their signature.
+	 */
+	public int getNrKnown() {
+		return nrKnown;
+	}
+
+
+	/**
+	 * @return number of signatures found so far that an earlier run found.
+	 */
+	public int getNrKnownSignatures() {
+		int res = 0;
+		for (Boolean b: isKnown.values()) {
+			if (b.booleanValue()) {
+				res += 1;
+			}
+		}
+		return res;
+	}
+
+
+	/**
+	 * Release our worker threads.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+		if (forkedExecutor != null) {
+			forkedExecutor.shutdown();
+		}
+		if (known != null) {
+			try {
+				known.close();
+			}
+			catch (IOException e) {
+				System.err.println("Could not write known crash signatures: " + e);
+			}
+		}
+	}
 
 
   /**
-   * @return if we want to keep (export) a testCase.
+   * @return if we want to keep (export) a test case that ended like result.
    */
-  protected boolean shouldExport(final JavaCode<?> testCase) {    
-    notNull(testCase);
-    
-    try {
-      testCase.execute();
-    }
-    
-    /* Execution of test case threw exception, analyze cause */
-    catch(InvocationTargetException e) {
-      Throwable cause = e.getCause();
-      if (cause==null) { //dont know: let runtime filter.
-        return true;
-      }
-      
-      if (cause instanceof RuntimeException) {
-        return true;		//we are interested in RuntimeException.
-      }
-      if (cause instanceof Error) {
-        return true;    //we are interested in Error.
-      }
-      
-      return false;     //not interested in checked exceptions.
-    }
-
-    catch(InstantiationException e) {
-      return false;     //failed to run test properly, suppress.
-    } 
-    catch(IllegalAccessException e) {
-      return false;     //failed to run test properly, suppress.
-    }    
+  protected boolean shouldExport(final ExecutionResult result) {    
+    notNull(result);
     
-    catch(Throwable e) {
-      return false;     //we failed to run the test case properly, suppress.
+    switch (result.getKind()) {
+      case CRASH:
+        return true;    //we are interested in RuntimeException and Error.
+      case HUNG:
+        return false;   //generated test would hang as well, suppress.
+      case DIED:
+        return false;   //generated test would take down JUnit, suppress.
+      default:
+        return false;   //no crash, checked exception, or failed to run.
     }
-    
-    return false;       //no crash, not interested in this test case.
   }
 	
 	
 	/**
+	 * Executes up to maxAmount test cases of classUnderTest on our candidate
+	 * executor, or in child JVMs.
 	 * 
+	 * @return test cases that crashed, ordered by plan index.
 	 */
 	public <T> List<Block> getBlocks(final Class<T> classUnderTest, int maxAmount) {
     notNull(classUnderTest);
@@ -98,24 +441,402 @@ public class ExecutingCutPlanner {
     if (testsTried>testsAvailable)
     	testsTried = testsAvailable;
     
-    /* Try tests */
+    if (config.isAdaptiveSampling()
+        && testsTried >= config.getMaxTestCasesTriedClass())
+    {
+      return getBlocksAdaptively(classUnderTest, classNode, testsTried);
+    }
+
+    /* Pick tests */
+    final List<Block> candidates = new ArrayList<Block>(testsTried);
+    final List<Integer> indices = new ArrayList<Integer>(testsTried);
     for (int i=0; i<testsTried; i++) {
-      final int testIndex = (testsTried<MAX_TEST_CASES_TRIED_CLASS? 
+      final int testIndex = (testsTried<config.getMaxTestCasesTriedClass()? 
       		i : random.nextInt(testsAvailable));
-      Block testCase = null;
       try {
-        testCase = classNode.getBlock(BigInteger.valueOf(testIndex));
+        candidates.add(classNode.getBlock(BigInteger.valueOf(testIndex)));
+        indices.add(Integer.valueOf(testIndex));
       }
       catch(Throwable e) {
         /* Tried to access some non-initializable class or interface */
         continue;
       }
-      if (shouldExport(testCase)) {
-        testCasesSucceeded.add(testCase);
+    }
+
+    /* Try tests, in rounds if we may quarantine members or pool values
+     * meanwhile; pooled values only help later rounds */
+    int round = Math.max(1, candidates.size());
+    if (costs != null) {
+      round = ROUND;
+    }
+    else if (valuePool != null) {
+      round = Math.max(1, config.getNrThreads());
+    }
+    final Map<String, Integer> quotas = new HashMap<String, Integer>();
+    final Map<Integer, BlockMinimizer.Target> targets =
+      new LinkedHashMap<Integer, BlockMinimizer.Target>();
+    for (int from=0; from<candidates.size(); from+=round) {
+      final List<Block> chunk = new ArrayList<Block>(round);
+      final List<Integer> chunkIndices = new ArrayList<Integer>(round);
+      for (int i=from; i<candidates.size() && i<from+round; i++) {
+        if (isWithinQuota(candidates.get(i), quotas)) {
+          chunk.add(candidates.get(i));
+          chunkIndices.add(indices.get(i));
+        }
+      }
+
+      final boolean[] coversNew = new boolean[chunk.size()];
+      final boolean[] isReplaced = new boolean[chunk.size()];
+      final ExecutionResult[] results =
+        execute(classUnderTest, chunk, chunkIndices, coversNew, isReplaced);
+      if (results == null) {
+        return testCasesSucceeded;
+      }
+      for (int i=0; i<results.length; i++) {
+        count(chunk.get(i), results[i]);
+        if (keep(results[i], coversNew[i])) {
+          if (!isReplaced[i]) {
+            addTarget(targets, testCasesSucceeded.size(), chunkIndices.get(i),
+                results[i]);
+          }
+          testCasesSucceeded.add(chunk.get(i));
+        }
       }
     }
 
-    return notNull(testCasesSucceeded);
+    return notNull(minimize(classNode, testCasesSucceeded, targets));
 	}
 
+
+  /**
+   * @param blocks as returned by getBlocks.
+   * @return subset of blocks that takes the same branches and crashes with
+   * the same signatures, or blocks if we do not reduce.
+   */
+  public List<Block> reduce(final List<Block> blocks) {
+    notNull(blocks);
+    
+    if (suiteReducer == null || blocks.isEmpty()) {
+      return blocks;
+    }
+    try {
+      return suiteReducer.reduce(blocks);
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return blocks;
+    }
+  }
+
+
+  /**
+   * Executes testsTried test cases of classUnderTest, in rounds, each
+   * sampled by what the previous rounds found.
+   * 
+   * @return test cases that crashed, in the order we sampled them.
+   */
+  protected <T> List<Block> getBlocksAdaptively(
+      final Class<T> classUnderTest,
+      final ClassUnderTest<T> classNode,
+      int testsTried)
+  {
+    final AdaptiveSampler sampler = new AdaptiveSampler(classNode, random);
+    final List<Block> testCasesSucceeded = new LinkedList<Block>();
+    final Map<String, Integer> quotas = new HashMap<String, Integer>();
+    final Map<Integer, BlockMinimizer.Target> targets =
+      new LinkedHashMap<Integer, BlockMinimizer.Target>();
+    
+    int nrSampled = 0;
+    boolean exhausted = false;
+    while (nrSampled<testsTried && !exhausted) {
+      final List<AdaptiveSampler.Sample> samples =
+        new ArrayList<AdaptiveSampler.Sample>(ROUND);
+      final List<Block> candidates = new ArrayList<Block>(ROUND);
+      final List<Integer> indices = new ArrayList<Integer>(ROUND);
+      while (candidates.size()<ROUND && nrSampled<testsTried) {
+        final AdaptiveSampler.Sample sample = sampler.next();
+        if (sample == null) {  //keeps drawing old samples.
+          exhausted = true;
+          break;
+        }
+        nrSampled += 1;
+        Block candidate = null;
+        try {
+          candidate = classNode.getBlock(sample.getIndex());
+        }
+        catch(Throwable e) {
+          /* Tried to access some non-initializable class or interface */
+          sampler.reward(sample, 0);
+          continue;
+        }
+        if (!isWithinQuota(candidate, quotas)) {
+          sampler.reward(sample, 0);
+          continue;
+        }
+        candidates.add(candidate);
+        indices.add(Integer.valueOf(sample.getIndex().intValue()));
+        samples.add(sample);
+      }
+
+      final boolean[] coversNew = new boolean[candidates.size()];
+      final boolean[] isReplaced = new boolean[candidates.size()];
+      final ExecutionResult[] results =
+        execute(classUnderTest, candidates, indices, coversNew, isReplaced);
+      if (results == null) {
+        return testCasesSucceeded;
+      }
+      for (int i=0; i<results.length; i++) {
+        final boolean isNewCrash = count(candidates.get(i), results[i]);
+        sampler.reward(samples.get(i), getReward(results[i], isNewCrash));
+        if (keep(results[i], coversNew[i])) {
+          if (!isReplaced[i]) {
+            addTarget(targets, testCasesSucceeded.size(), indices.get(i),
+                results[i]);
+          }
+          testCasesSucceeded.add(candidates.get(i));
+        }
+      }
+    }
+
+    return minimize(classNode, testCasesSucceeded, targets);
+  }
+
+
+  /**
+   * @return how much we want more test cases like the one that ended like
+   * result, in [0..1].
+   */
+  protected double getReward(final ExecutionResult result, boolean isNewCrash) {
+    notNull(result);
+    
+    switch (result.getKind()) {
+      case CRASH:
+        return isNewCrash? 1 : 0.1;
+      case NORMAL:
+        return 0.1;     //valid setup, other arguments may crash.
+      default:
+        return 0;       //checked exception, invalid setup, hung, or died.
+    }
+  }
+
+
+  /**
+   * Executes candidates on our candidate executor, or in child JVMs.
+   * 
+   * @param indices plan index of each candidate.
+   * @param coversNew filled with whether each candidate took a new branch,
+   * if we are coverage-guided.
+   * @param isReplaced filled with whether the value pool replaced a plan of
+   * each candidate, which then no longer matches its plan index.
+   * @return result of each candidate, null if interrupted.
+   */
+  protected ExecutionResult[] execute(
+      final Class<?> classUnderTest,
+      final List<Block> candidates,
+      final List<Integer> indices,
+      final boolean[] coversNew,
+      final boolean[] isReplaced)
+  {
+    try {
+      final Block[] blocks = candidates.toArray(new Block[candidates.size()]);
+      if (forkedExecutor == null && isolatingExecutor != null) {
+        return isolatingExecutor.executeAll(classUnderTest, indices, blocks);
+      }
+      if (forkedExecutor == null) {
+        JavaCode<?>[] codes = blocks;
+        if (prefixSharing != null) {
+          codes = prefixSharing.share(blocks);
+        }
+        else if (valuePool != null) {
+          codes = valuePool.draw(classUnderTest, blocks);
+          for (int i=0; i<codes.length; i++) {
+            isReplaced[i] = (codes[i] instanceof ValuePool.PooledBlock)
+              && ((ValuePool.PooledBlock) codes[i]).isReplaced();
+          }
+        }
+        ExecutionResult[] res = null;
+        if (!isCoverageGuided) {
+          res = executor.executeAll(codes);
+        }
+        else {
+          final Coverage.CoveringCode[] covering =
+            new Coverage.CoveringCode[codes.length];
+          for (int i=0; i<codes.length; i++) {
+            covering[i] = new Coverage.CoveringCode(coverage, codes[i]);
+          }
+          res = executor.executeAll(covering);
+          for (int i=0; i<covering.length; i++) {
+            coversNew[i] = covering[i].isNew();
+          }
+        }
+        if (valuePool != null) {
+          valuePool.harvest(codes, res);
+        }
+        return res;
+      }
+      final int[] planIndices = new int[indices.size()];
+      for (int i=0; i<planIndices.length; i++) {
+        planIndices[i] = indices.get(i).intValue();
+      }
+      return forkedExecutor.executeAll(classUnderTest, planIndices, blocks);
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    }
+  }
+
+
+  /**
+   * Remembers to shrink the kept test case at position, if it crashed.
+   */
+  protected void addTarget(
+      final Map<Integer, BlockMinimizer.Target> targets,
+      int position,
+      final Integer planIndex,
+      final ExecutionResult result)
+  {
+    if (minimizer != null && result.getKind() == ExecutionResult.Kind.CRASH
+        && result.getThrown() != null)
+    {
+      targets.put(Integer.valueOf(position), new BlockMinimizer.Target(
+          BigInteger.valueOf(planIndex.intValue()),
+          CrashSignature.of(result.getThrown(), config.getSignatureDepth())));
+    }
+  }
+
+
+  /**
+   * @param targets position in blocks --> crashing test case to shrink.
+   * @return blocks, with each target replaced by its shrunk version.
+   */
+  protected List<Block> minimize(
+      final ClassUnderTest<?> classNode,
+      final List<Block> blocks,
+      final Map<Integer, BlockMinimizer.Target> targets)
+  {
+    if (targets.isEmpty()) {
+      return blocks;
+    }
+    final List<Block> res = new ArrayList<Block>(blocks);
+    try {
+      final Block<?>[] minimized = minimizer.minimize(
+          classNode, new ArrayList<BlockMinimizer.Target>(targets.values()));
+      int i = 0;
+      for (Integer position: targets.keySet()) {
+        res.set(position.intValue(), minimized[i++]);
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return res;
+  }
+
+
+  /**
+   * @param quotas member key --> number of its test cases of the current
+   * class we executed while it was quarantined.
+   * @return whether to execute candidate, i.e., whether its member is not
+   * quarantined or still within the quarantine quota.
+   */
+  protected boolean isWithinQuota(
+      final Block candidate,
+      final Map<String, Integer> quotas)
+  {
+    if (costs == null) {
+      return true;
+    }
+    final String key = CostAccountant.getKey(candidate);
+    if (key == null || !costs.isQuarantined(key)) {
+      return true;
+    }
+    final Integer used = quotas.get(key);
+    if (used != null && used.intValue() >= QUARANTINE_QUOTA) {
+      nrSkipped += 1;
+      return false;
+    }
+    quotas.put(key, Integer.valueOf((used==null)? 1 : used.intValue()+1));
+    return true;
+  }
+
+
+  /**
+   * Counts one executed test case.
+   * 
+   * @return whether it crashed with a signature not seen before.
+   */
+  protected boolean count(final Block candidate, final ExecutionResult result) {
+    nrExecuted += 1;
+    if (costs != null) {
+      final String key = CostAccountant.getKey(candidate);
+      if (key != null) {
+        costs.add(key, result);
+      }
+    }
+    switch (result.getKind()) {
+      case HUNG:
+        nrHung += 1;
+        return false;
+      case DIED:
+        nrDied += 1;
+        return false;
+      case CRASH:
+        return signatures.add(
+            CrashSignature.of(result.getThrown(), config.getSignatureDepth()));
+      default:
+        return false;
+    }
+  }
+
+
+  /**
+   * @param coversNew whether the test case took a branch no earlier test
+   * case took.
+   * @return whether to export a test case that ended like result.
+   */
+  protected boolean keep(final ExecutionResult result, boolean coversNew) {
+    if (isCoverageGuided && coversNew
+        && result.getKind() == ExecutionResult.Kind.NORMAL)
+    {
+      nrCovering += 1;
+      return true;
+    }
+    return shouldExport(result)
+      && !isKnown(result)
+      && (deduplicator == null || deduplicator.keep(result.getThrown()));
+  }
+
+
+  /**
+   * Records the signature of a crash in our store, on its first crash in
+   * this run.
+   * 
+   * @return whether an earlier run found the signature of result.
+   */
+  protected boolean isKnown(final ExecutionResult result) {
+    if (known == null || result.getKind() != ExecutionResult.Kind.CRASH
+        || result.getThrown() == null)
+    {
+      return false;
+    }
+    final CrashSignature signature =
+      CrashSignature.of(result.getThrown(), config.getSignatureDepth());
+    Boolean res = isKnown.get(signature);
+    if (res == null) {
+      try {
+        known.record(signature.toString(), System.currentTimeMillis());
+        res = Boolean.valueOf(known.isKnown(signature.toString()));
+      }
+      catch (IOException e) {
+        res = Boolean.FALSE;
+      }
+      isKnown.put(signature, res);
+    }
+    if (res.booleanValue()) {
+      nrKnown += 1;
+    }
+    return res.booleanValue();
+  }
+
 }
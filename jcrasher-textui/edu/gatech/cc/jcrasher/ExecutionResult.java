@@ -0,0 +1,140 @@
+/*
+ * ExecutionResult.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher;
+
+import static edu.gatech.cc.jcrasher.Assertions.notNull;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Outcome of executing one candidate test case.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class ExecutionResult {
+
+  /**
+   * How the execution ended.
+   */
+  public static enum Kind {
+    /** returned normally */
+    NORMAL,
+
+    /** testee threw a runtime exception or error, or an unknown cause */
+    CRASH,
+
+    /** testee threw a checked exception */
+    EXPECTED,
+
+    /** we failed to run the test case properly */
+    INVALID,
+
+    /** did not finish within the time limit, abandoned */
+    HUNG,
+
+    /** took down the child JVM executing it, e.g., via System.exit */
+    DIED
+  }
+
+
+  protected final Kind kind;
+  protected final Throwable thrown;
+  protected final long nanos;
+  protected final long bytes;
+
+
+  /**
+   * Constructor
+   *
+   * @param thrown null if none.
+   */
+  public ExecutionResult(final Kind kind, final Throwable thrown, long nanos) {
+    this(kind, thrown, nanos, -1);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param thrown null if none.
+   * @param bytes allocated, -1 if unknown.
+   */
+  public ExecutionResult(
+      final Kind kind,
+      final Throwable thrown,
+      long nanos,
+      long bytes)
+  {
+    this.kind = notNull(kind);
+    this.thrown = thrown;
+    this.nanos = nanos;
+    this.bytes = bytes;
+  }
+
+
+  /**
+   * Classifies the outcome of a JavaCode.execute() call.
+   *
+   * @param thrown what execute threw, null if it returned normally.
+   */
+  public static ExecutionResult of(final Throwable thrown, long nanos) {
+    if (thrown == null) {
+      return new ExecutionResult(Kind.NORMAL, null, nanos);
+    }
+
+    if (thrown instanceof InvocationTargetException) {
+      final Throwable cause = thrown.getCause();
+      if (cause == null) {  //dont know: let runtime filter.
+        return new ExecutionResult(Kind.CRASH, null, nanos);
+      }
+      if (cause instanceof RuntimeException || cause instanceof Error) {
+        return new ExecutionResult(Kind.CRASH, cause, nanos);
+      }
+      return new ExecutionResult(Kind.EXPECTED, cause, nanos);
+    }
+
+    /* InstantiationException, IllegalAccessException, or anything else */
+    return new ExecutionResult(Kind.INVALID, thrown, nanos);
+  }
+
+
+  public Kind getKind() {
+    return kind;
+  }
+
+  /**
+   * @return throwable thrown by the testee, or by our attempt to execute it;
+   * null if none or unknown.
+   */
+  public Throwable getThrown() {
+    return thrown;
+  }
+
+  /**
+   * @return wall-clock execution time, up to abandoning for HUNG.
+   */
+  public long getNanos() {
+    return nanos;
+  }
+
+  /**
+   * @return bytes allocated by the executing thread, -1 if unknown.
+   */
+  public long getBytes() {
+    return bytes;
+  }
+
+  /**
+   * @return this result, with bytes allocated.
+   */
+  public ExecutionResult withBytes(long allocated) {
+    return new ExecutionResult(kind, thrown, nanos, allocated);
+  }
+
+  @Override
+  public String toString() {
+    return kind + ((thrown==null)? "" : " " + thrown.getClass().getName());
+  }
+}
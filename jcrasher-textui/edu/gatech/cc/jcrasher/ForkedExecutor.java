@@ -0,0 +1,451 @@
+/*
+ * ForkedExecutor.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher;
+
+import static edu.gatech.cc.jcrasher.Assertions.check;
+import static edu.gatech.cc.jcrasher.Assertions.notNull;
+import static edu.gatech.cc.jcrasher.Constants.FS;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.gatech.cc.jcrasher.plans.stmt.Block;
+
+/**
+ * Executes candidate test cases in a pool of child JVMs, see ForkedWorker.
+ * A testee that calls System.exit, leaks threads, exhausts the heap, or
+ * corrupts static state only takes down or poisons its child.
+ *
+ * <p>
+ * Each child executes one candidate at a time. A child that died or
+ * exceeded the time limit is killed and restarted with the next candidate,
+ * as is a child that has executed RunConfig.getForkRecycle() candidates.
+ *
+ * <p>
+ * If a child does not start, we retry after a growing pause, and give up
+ * on that worker after MAX_START_FAILURES failures in a row. We count the
+ * candidates no child executed, see getNrUnexecuted().
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class ForkedExecutor {
+
+  /**
+   * Time limit for starting a child and for planning a candidate in it.
+   */
+  protected static final long START_MILLIS = 60000;
+
+  /**
+   * Pause before the first retry of a failed start, doubled for each
+   * further one.
+   */
+  protected static final long START_BACKOFF_MILLIS = 100;
+
+  /**
+   * Failed starts in a row after which a worker gives up.
+   */
+  protected static final int MAX_START_FAILURES = 5;
+
+  protected final RunConfig config;
+
+  /**
+   * Classes each child crawls, to plan the same candidates we plan.
+   */
+  protected final String[] classNames;
+
+  protected final Worker[] workers;
+
+  /**
+   * One thread per child, feeding it candidates.
+   */
+  protected final ExecutorService drivers;
+
+  protected final ScheduledExecutorService watchdog =
+    Executors.newSingleThreadScheduledExecutor(
+        new CandidateExecutor.DaemonFactory("jcrasher-fork-watchdog"));
+
+  protected final AtomicInteger nrStarts = new AtomicInteger(0);
+  protected final AtomicInteger nrStartFailures = new AtomicInteger(0);
+  protected final AtomicInteger nrUnexecuted = new AtomicInteger(0);
+
+  /**
+   * ForkedWorker.fingerprint of our classes, which each child must match.
+   */
+  protected final int fingerprint;
+
+
+  /**
+   * Constructor, starts children lazily.
+   *
+   * @param classes crawled by the planner of our candidates.
+   */
+  public ForkedExecutor(final Class<?>[] classes, final RunConfig config) {
+    notNull(classes);
+    this.config = notNull(config);
+    check(config.getNrForks() > 0);
+
+    classNames = new String[classes.length];
+    for (int i=0; i<classes.length; i++) {
+      classNames[i] = classes[i].getName();
+    }
+    fingerprint = ForkedWorker.fingerprint(classes);
+    workers = new Worker[config.getNrForks()];
+    for (int i=0; i<workers.length; i++) {
+      workers[i] = new Worker();
+    }
+    drivers = Executors.newFixedThreadPool(workers.length,
+        new CandidateExecutor.DaemonFactory("jcrasher-fork-driver"));
+  }
+
+
+  /**
+   * Executes each candidate once.
+   *
+   * @param indices plan index of each candidate in testee's plan space.
+   * @return result of candidates[i] at index i.
+   */
+  public ExecutionResult[] executeAll(
+      final Class<?> testee,
+      final int[] indices,
+      final Block<?>[] candidates) throws InterruptedException
+  {
+    notNull(testee);
+    notNull(indices);
+    notNull(candidates);
+    check(indices.length == candidates.length);
+
+    final ExecutionResult[] res = new ExecutionResult[candidates.length];
+    final AtomicInteger next = new AtomicInteger(0);
+    final List<Future<?>> drives = new ArrayList<Future<?>>(workers.length);
+    for (final Worker worker: workers) {
+      drives.add(drivers.submit(new Runnable() {
+        public void run() {
+          for (int i = next.getAndIncrement(); i < res.length;
+              i = next.getAndIncrement())
+          {
+            res[i] = worker.execute(
+                testee.getName(), indices[i], candidates[i].text().hashCode());
+          }
+        }
+      }));
+    }
+
+    for (Future<?> drive: drives) {
+      try {
+        drive.get();
+      }
+      catch (ExecutionException e) {
+        throw new IllegalStateException(e.getCause());
+      }
+    }
+    return res;
+  }
+
+
+  /**
+   * @return number of children started so far.
+   */
+  public int getNrStarts() {
+    return nrStarts.get();
+  }
+
+  /**
+   * @return number of times a child did not start so far.
+   */
+  public int getNrStartFailures() {
+    return nrStartFailures.get();
+  }
+
+  /**
+   * @return number of candidates so far that no child executed, as none
+   * started or the child planned a different candidate, reported as
+   * INVALID.
+   */
+  public int getNrUnexecuted() {
+    return nrUnexecuted.get();
+  }
+
+
+  /**
+   * Starts a child JVM running ForkedWorker.
+   */
+  protected Process startProcess() throws IOException {
+    final String java =
+      System.getProperty("java.home") + FS + "bin" + FS + "java";
+    return new ProcessBuilder(
+        java,
+        "-cp", System.getProperty("java.class.path"),
+        ForkedWorker.class.getName()).start();
+  }
+
+
+  /**
+   * Kills the children and stops our threads.
+   */
+  public void shutdown() {
+    drivers.shutdown();
+    try {
+      drivers.awaitTermination(START_MILLIS, TimeUnit.MILLISECONDS);
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    for (Worker worker: workers) {
+      worker.stop();
+    }
+    watchdog.shutdownNow();
+  }
+
+
+  /**
+   * Kills process unless stopped in time.
+   */
+  protected class Watch implements Runnable {
+    protected final Process process;
+    protected final AtomicBoolean over = new AtomicBoolean(false);
+    protected final ScheduledFuture<?> alarm;
+
+    protected Watch(final Process process, long millis) {
+      this.process = notNull(process);
+      alarm = watchdog.schedule(this, millis, TimeUnit.MILLISECONDS);
+    }
+
+    public void run() {
+      if (over.compareAndSet(false, true)) {
+        process.destroy();
+      }
+    }
+
+    /**
+     * @return whether we stopped before the watchdog killed process.
+     */
+    protected boolean stop() {
+      alarm.cancel(false);
+      return over.compareAndSet(false, true);
+    }
+  }
+
+
+  /**
+   * Parent side of one child JVM. Only used by one driver thread at a time.
+   */
+  protected class Worker {
+    protected Process process = null;
+    protected DataInputStream in = null;
+    protected DataOutputStream out = null;
+    protected int nrExecuted = 0;
+
+    /**
+     * Number of failed starts since the last successful one.
+     */
+    protected int nrFailedStarts = 0;
+
+    /**
+     * Why we gave up on starting children, null while we still try.
+     */
+    protected IOException startFailure = null;
+
+
+    /**
+     * Start child and let it crawl our classes.
+     */
+    protected void start() throws IOException {
+      process = startProcess();
+      nrStarts.incrementAndGet();
+      nrExecuted = 0;
+      new Forwarder(process.getErrorStream()).start();
+      in = new DataInputStream(
+          new BufferedInputStream(process.getInputStream()));
+      out = new DataOutputStream(
+          new BufferedOutputStream(process.getOutputStream()));
+
+      final Watch watch = new Watch(process, START_MILLIS);
+      out.writeInt(config.getMaxPlanRecursion());
+      out.writeBoolean(config.isSuppressNullLiterals());
+      out.writeUTF(config.getVisTested().name());
+      out.writeUTF(config.getVisUsed().name());
+      out.writeInt(classNames.length);
+      for (String className: classNames) {
+        out.writeUTF(className);
+      }
+      out.flush();
+      final int tag = in.readInt();
+      final int childFingerprint = in.readInt();
+      if (!watch.stop() || tag != ForkedWorker.READY) {
+        throw new IOException("Child JVM did not start properly.");
+      }
+      if (childFingerprint != fingerprint) {
+        throw new IOException(
+            "Child JVM sees different members of the classes under test.");
+      }
+    }
+
+
+    /**
+     * Starts a child, retrying after a growing pause.
+     *
+     * @return why we gave up, null if the child started.
+     */
+    protected IOException startRetrying() {
+      while (true) {
+        try {
+          start();
+          nrFailedStarts = 0;
+          return null;
+        }
+        catch (IOException e) {
+          stop();
+          nrStartFailures.incrementAndGet();
+          nrFailedStarts += 1;
+          if (nrFailedStarts >= MAX_START_FAILURES) {
+            System.err.println("Gave up starting child JVM after "
+                + nrFailedStarts + " attempts: " + e.getMessage());
+            return e;
+          }
+          System.err.println("Could not start child JVM, retrying: "
+              + e.getMessage());
+          try {
+            Thread.sleep(START_BACKOFF_MILLIS << (nrFailedStarts-1));
+          }
+          catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return e;
+          }
+        }
+      }
+    }
+
+
+    /**
+     * Kill child, if any.
+     */
+    protected void stop() {
+      if (process != null) {
+        process.destroy();
+        process = null;
+      }
+    }
+
+
+    /**
+     * Have our child plan and execute one candidate.
+     * Starts a new child if needed.
+     */
+    protected ExecutionResult execute(
+        final String className,
+        int index,
+        int textHash)
+    {
+      if (startFailure != null) {
+        nrUnexecuted.incrementAndGet();
+        return new ExecutionResult(ExecutionResult.Kind.INVALID, startFailure, 0);
+      }
+      if (process != null && nrExecuted >= config.getForkRecycle()) {
+        stop();
+      }
+      if (process == null) {
+        final IOException failure = startRetrying();
+        if (failure != null) {
+          startFailure = failure;
+          nrUnexecuted.incrementAndGet();
+          return new ExecutionResult(ExecutionResult.Kind.INVALID, failure, 0);
+        }
+      }
+      nrExecuted += 1;
+
+      final long start = System.nanoTime();
+      Watch watch = new Watch(process, START_MILLIS);
+      try {
+        out.writeUTF(className);
+        out.writeInt(index);
+        out.writeInt(textHash);
+        out.flush();
+
+        int tag = in.readInt();
+        final boolean planned = (tag == ForkedWorker.PLANNED);
+        if (planned) {
+          if (!watch.stop()) {
+            throw new IOException("Killed while planning.");
+          }
+          watch = new Watch(process, config.getTimeoutMillis());
+          tag = in.readInt();
+        }
+        if (tag != ForkedWorker.RESULT) {
+          throw new IOException("Unexpected message " + tag);
+        }
+        final ExecutionResult res = readResult();
+        if (!watch.stop()) {  //killed right after answering.
+          stop();
+        }
+        if (!planned) {  //could not plan it.
+          nrUnexecuted.incrementAndGet();
+        }
+        return res;
+      }
+      catch (IOException e) {
+        final boolean hung = !watch.stop();
+        stop();
+        return new ExecutionResult(
+            hung? ExecutionResult.Kind.HUNG : ExecutionResult.Kind.DIED,
+            null,
+            System.nanoTime() - start);
+      }
+    }
+
+
+    protected ExecutionResult readResult() throws IOException {
+      final ExecutionResult.Kind kind =
+        ExecutionResult.Kind.values()[in.readInt()];
+      final long nanos = in.readLong();
+      final Throwable thrown =
+        in.readBoolean()? ForkedWorker.readThrowable(in) : null;
+      return new ExecutionResult(kind, thrown, nanos);
+    }
+  }
+
+
+  /**
+   * Copies a child's stderr, which also receives its testees' stdout,
+   * to our stderr.
+   */
+  protected static class Forwarder extends Thread {
+    protected final InputStream from;
+
+    protected Forwarder(final InputStream from) {
+      super("jcrasher-fork-stderr");
+      this.from = notNull(from);
+      setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+      final byte[] buffer = new byte[4096];
+      try {
+        for (int n = from.read(buffer); n >= 0; n = from.read(buffer)) {
+          System.err.write(buffer, 0, n);
+        }
+      }
+      catch (IOException e) {
+        /* child killed */
+      }
+    }
+  }
+}
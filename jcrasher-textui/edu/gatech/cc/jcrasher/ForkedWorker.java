@@ -0,0 +1,336 @@
+/*
+ * ForkedWorker.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher;
+
+import static edu.gatech.cc.jcrasher.Assertions.notNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Member;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import edu.gatech.cc.jcrasher.Constants.Visibility;
+import edu.gatech.cc.jcrasher.planner.ClassUnderTest;
+import edu.gatech.cc.jcrasher.planner.CutPlanner;
+import edu.gatech.cc.jcrasher.planner.CutPlannerImpl;
+import edu.gatech.cc.jcrasher.plans.stmt.Block;
+import edu.gatech.cc.jcrasher.types.ClassSourceImpl;
+import edu.gatech.cc.jcrasher.types.MemberTable;
+import edu.gatech.cc.jcrasher.types.TypeGraph;
+import edu.gatech.cc.jcrasher.types.TypeGraphImpl;
+
+/**
+ * Child JVM of a ForkedExecutor, executes candidate test cases one at a time.
+ *
+ * <p>
+ * Protocol, over the child's stdin and stdout:
+ * <ol>
+ * <li>Parent sends the planning settings and the names of the classes to
+ * crawl. Child crawls them and answers READY and their fingerprint.
+ * <li>Per candidate, parent sends class name, plan index, and hash code of
+ * the candidate's text. Child plans the same candidate and answers PLANNED,
+ * executes it, and answers RESULT with the kind of ExecutionResult, its
+ * duration, and the class name, message, and stack trace of the throwable,
+ * if any.
+ * </ol>
+ * Planning is deterministic, as MemberTable orders members by signature,
+ * so an index identifies a candidate. The fingerprint guards against a
+ * child that sees different classes, the text hash against a child that
+ * planned a candidate differently all the same.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class ForkedWorker {
+
+  /** Child to parent: crawled the type graph. */
+  public static final int READY = 0x4A430001;
+
+  /** Child to parent: planned the candidate, now executing it. */
+  public static final int PLANNED = 0x4A430002;
+
+  /** Child to parent: outcome of a candidate follows. */
+  public static final int RESULT = 0x4A430003;
+
+  /**
+   * Exception messages are cut to this length.
+   */
+  protected static final int MAX_MESSAGE = 1000;
+
+
+  protected final DataInputStream in;
+  protected final DataOutputStream out;
+  protected CutPlanner planner = null;
+
+  /**
+   * Class name --> plan space, planned on first use.
+   */
+  protected final Map<String, ClassUnderTest<?>> classNodes =
+    new HashMap<String, ClassUnderTest<?>>();
+
+
+  /**
+   * Constructor
+   */
+  protected ForkedWorker(final DataInputStream in, final DataOutputStream out) {
+    this.in = notNull(in);
+    this.out = notNull(out);
+  }
+
+
+  /**
+   * Receive settings and classes, crawl them.
+   */
+  protected void init() throws IOException {
+    final RunConfig config = new RunConfig.Builder()
+      .maxPlanRecursion(in.readInt())
+      .suppressNullLiterals(in.readBoolean())
+      .visTested(Visibility.valueOf(in.readUTF()))
+      .visUsed(Visibility.valueOf(in.readUTF()))
+      .build();
+
+    final Set<Class<?>> classes = new LinkedHashSet<Class<?>>();
+    final int nrClasses = in.readInt();
+    for (int i=0; i<nrClasses; i++) {
+      final String className = in.readUTF();
+      final Class<?> c = ClassSourceImpl.instance().load(className);
+      if (c == null) {
+        throw new IOException("Could not load " + className);
+      }
+      classes.add(c);
+    }
+
+    final TypeGraph typeGraph = new TypeGraphImpl();
+    typeGraph.crawl(classes, config.getVisUsed());
+    planner = new CutPlannerImpl(typeGraph, config);
+
+    out.writeInt(READY);
+    out.writeInt(fingerprint(classes.toArray(new Class[classes.size()])));
+    out.flush();
+  }
+
+
+  /**
+   * @return hash of the signatures of the constructors and methods of
+   * classes, in the order we plan them.
+   */
+  public static int fingerprint(final Class<?>[] classes) {
+    notNull(classes);
+
+    final List<String> signatures = new ArrayList<String>();
+    for (Class<?> c: classes) {
+      final MemberTable<?> table = MemberTable.get(c);
+      for (Member member: table.getConstructors()) {
+        signatures.add(table.getSignature(member));
+      }
+      for (Member member: table.getMethods()) {
+        signatures.add(table.getSignature(member));
+      }
+    }
+    return signatures.hashCode();
+  }
+
+
+  /**
+   * Execute candidates until the parent closes our stdin.
+   */
+  protected void serve() throws IOException {
+    while (true) {
+      String className = null;
+      try {
+        className = in.readUTF();
+      }
+      catch (EOFException e) {
+        return;
+      }
+      final int index = in.readInt();
+      final int textHash = in.readInt();
+      write(execute(className, index, textHash));
+    }
+  }
+
+
+  /**
+   * Plan and execute one candidate.
+   */
+  protected ExecutionResult execute(
+      final String className,
+      int index,
+      int textHash) throws IOException
+  {
+    Block<?> block = null;
+    try {
+      ClassUnderTest<?> classNode = classNodes.get(className);
+      if (classNode == null) {
+        classNode = planner.getPlanSpace(
+            ClassSourceImpl.instance().load(className));
+        classNodes.put(className, classNode);
+      }
+      block = classNode.getBlock(BigInteger.valueOf(index));
+    }
+    catch (Throwable t) {
+      return new ExecutionResult(ExecutionResult.Kind.INVALID, t, 0);
+    }
+    if (block.text().hashCode() != textHash) {
+      return new ExecutionResult(ExecutionResult.Kind.INVALID,
+          new IllegalStateException(
+              "Planned a different test case " + index + " of " + className), 0);
+    }
+
+    out.writeInt(PLANNED);
+    out.flush();
+
+    final long start = System.nanoTime();
+    Throwable thrown = null;
+    try {
+      block.execute();
+    }
+    catch (Throwable t) {
+      thrown = t;
+    }
+    return ExecutionResult.of(thrown, System.nanoTime() - start);
+  }
+
+
+  protected void write(final ExecutionResult result) throws IOException {
+    out.writeInt(RESULT);
+    out.writeInt(result.getKind().ordinal());
+    out.writeLong(result.getNanos());
+    final Throwable thrown = result.getThrown();
+    out.writeBoolean(thrown != null);
+    if (thrown != null) {
+      write(thrown);
+    }
+    out.flush();
+  }
+
+
+  protected void write(final Throwable thrown) throws IOException {
+    String message = null;
+    try {
+      message = thrown.getMessage();
+    }
+    catch (Throwable t) {
+      /* Testee-defined getMessage */
+    }
+    out.writeUTF(thrown.getClass().getName());
+    out.writeUTF(abbreviate(message));
+    final StackTraceElement[] frames = thrown.getStackTrace();
+    out.writeInt(frames.length);
+    for (StackTraceElement frame: frames) {
+      out.writeUTF(frame.getClassName());
+      out.writeUTF(frame.getMethodName());
+      out.writeUTF(abbreviate(frame.getFileName()));
+      out.writeInt(frame.getLineNumber());
+    }
+  }
+
+
+  /**
+   * @return s cut to a length writeUTF accepts, empty for null.
+   */
+  protected static String abbreviate(final String s) {
+    if (s == null) {
+      return "";
+    }
+    return (s.length() > MAX_MESSAGE)? s.substring(0, MAX_MESSAGE) : s;
+  }
+
+
+  /**
+   * Reads what write(Throwable) wrote.
+   */
+  protected static RemoteThrowable readThrowable(final DataInputStream in)
+  throws IOException {
+    final String className = in.readUTF();
+    final String message = in.readUTF();
+    final StackTraceElement[] frames = new StackTraceElement[in.readInt()];
+    for (int i=0; i<frames.length; i++) {
+      final String declaringClass = in.readUTF();
+      final String methodName = in.readUTF();
+      final String fileName = in.readUTF();
+      frames[i] = new StackTraceElement(
+          declaringClass,
+          methodName,
+          (fileName.length()==0)? null : fileName,
+          in.readInt());
+    }
+    return new RemoteThrowable(
+        className, (message.length()==0)? null : message, frames);
+  }
+
+
+  /**
+   * Throwable thrown in a child JVM.
+   */
+  public static class RemoteThrowable extends Throwable {
+    private static final long serialVersionUID = 1L;
+
+    protected final String className;
+
+    /**
+     * Constructor
+     */
+    public RemoteThrowable(
+        final String className,
+        final String message,
+        final StackTraceElement[] frames)
+    {
+      super(message);
+      this.className = notNull(className);
+      setStackTrace(notNull(frames));
+    }
+
+    /**
+     * @return name of the class of the throwable we stand in for.
+     */
+    public String getClassName() {
+      return className;
+    }
+
+    @Override
+    public String toString() {
+      return className + ((getMessage()==null)? "" : ": " + getMessage());
+    }
+  }
+
+
+  /**
+   * Started by ForkedExecutor.
+   */
+  public static void main(final String[] args) {
+    final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+        new FileOutputStream(FileDescriptor.out)));
+    final DataInputStream in =
+      new DataInputStream(new BufferedInputStream(System.in));
+
+    /* Keep testees off our protocol streams */
+    System.setOut(System.err);
+    System.setIn(new ByteArrayInputStream(new byte[0]));
+
+    final ForkedWorker worker = new ForkedWorker(in, out);
+    try {
+      worker.init();
+      worker.serve();
+    }
+    catch (IOException e) {
+      e.printStackTrace();
+    }
+    System.exit(0);  //even if a testee left non-daemon threads running.
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * IsolatingClassLoader.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher;
+
+import static edu.gatech.cc.jcrasher.Assertions.notNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads its own copy of each user class, so that the copies have their own
+ * static state.
+ *
+ * <p>
+ * We read class files from our parent, which loads all library and JCrasher
+ * classes, and define user classes ourselves, after passing them through
+ * transform. Several instances of this loader with the same parent
+ * therefore load distinct classes of the same name.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class IsolatingClassLoader extends ClassLoader {
+
+  /**
+   * Packages we leave to our parent.
+   */
+  protected static final String[] IGNORED_PACKAGES = new String[]{
+    "java.", "javax.", "sun.", "com.sun.", "jdk.",
+    "junit.", "gnu.getopt.", "org.apache.bcel.", "org.apache.commons.lang.",
+    "edu.gatech.cc.jcrasher.", "edu.gatech.cc.junit."
+  };
+
+  /**
+   * Classes we defined, in order.
+   */
+  protected final List<Class<?>> defined = new ArrayList<Class<?>>();
+
+
+  /**
+   * Constructor
+   *
+   * @param parent loads the classes we define as well.
+   */
+  public IsolatingClassLoader(final ClassLoader parent) {
+    super(notNull(parent));
+  }
+
+
+  /**
+   * @return classes we defined so far, in order.
+   */
+  public synchronized List<Class<?>> getDefinedClasses() {
+    return new ArrayList<Class<?>>(defined);
+  }
+
+
+  @Override
+  protected synchronized Class<?> loadClass(final String name, boolean resolve)
+  throws ClassNotFoundException
+  {
+    Class<?> res = findLoadedClass(name);
+    if (res == null && isIgnored(name)) {
+      return super.loadClass(name, resolve);
+    }
+    if (res == null) {
+      final byte[] bytes = read(name);
+      if (bytes == null) {  //not a class file our parent can see.
+        return super.loadClass(name, resolve);
+      }
+      final byte[] transformed = transform(name, bytes);
+      res = defineClass(name, transformed, 0, transformed.length);
+      defined.add(res);
+    }
+    if (resolve) {
+      resolveClass(res);
+    }
+    return res;
+  }
+
+
+  protected boolean isIgnored(final String name) {
+    for (String prefix: IGNORED_PACKAGES) {
+      if (name.startsWith(prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+
+  /**
+   * @return class file of name, as our parent sees it, null if none.
+   */
+  protected byte[] read(final String name) {
+    final InputStream in =
+      getParent().getResourceAsStream(name.replace('.', '/') + ".class");
+    if (in == null) {
+      return null;
+    }
+    try {
+      try {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[4096];
+        for (int n=in.read(buffer); n>=0; n=in.read(buffer)) {
+          out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+      }
+      finally {
+        in.close();
+      }
+    }
+    catch (IOException e) {
+      return null;
+    }
+  }
+
+
+  /**
+   * @return class file we define for name, bytes by default.
+   */
+  protected byte[] transform(final String name, final byte[] bytes) {
+    return bytes;
+  }
+}
@@ -0,0 +1,360 @@
+/*
+ * IsolatingExecutor.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher;
+
+import static edu.gatech.cc.jcrasher.Assertions.check;
+import static edu.gatech.cc.jcrasher.Assertions.notNull;
+
+import java.lang.reflect.InvocationTargetException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import edu.gatech.cc.jcrasher.planner.ClassUnderTest;
+import edu.gatech.cc.jcrasher.planner.CutPlanner;
+import edu.gatech.cc.jcrasher.planner.CutPlannerImpl;
+import edu.gatech.cc.jcrasher.plans.JavaCode;
+import edu.gatech.cc.jcrasher.plans.stmt.Block;
+import edu.gatech.cc.jcrasher.types.TypeGraph;
+import edu.gatech.cc.jcrasher.types.TypeGraphCache;
+import edu.gatech.cc.jcrasher.types.TypeGraphImpl;
+
+/**
+ * Executes candidates on a CandidateExecutor, each concurrent candidate on
+ * its own copy of the user classes, so that candidates do not see the static
+ * state earlier candidates left behind.
+ *
+ * <p>
+ * Each executing candidate borrows an idle sandbox, or creates one if there
+ * is none, so there are about as many sandboxes as worker threads. A
+ * sandbox is an IsolatingClassLoader, and a type graph and planner over the
+ * classes it loaded. We copy the type graph from the one the caller
+ * crawled, so a sandbox does not crawl. Like a ForkedWorker, a
+ * sandbox plans the candidate of a given plan index again, checks that it
+ * planned the same text, and executes its own copy. Before executing, the
+ * sandbox initializes all classes it loaded so far, for crawling or
+ * planning, and records their static state, see StaticState: their static
+ * fields and the objects these reach, such as collections and arrays.
+ * After each candidate, we compare the state with the record. If the
+ * candidate changed it, we restore it by reflection, like ClassRegistry
+ * resets static fields, which is much cheaper than a new sandbox. After
+ * MAX_RESETS restores, or state we cannot record or restore, we drop the
+ * sandbox.
+ *
+ * <p>
+ * We also drop the sandbox if the candidate loaded a class, as we have no
+ * record of that class's initial state. We remember the class, so that
+ * later sandboxes load it before their candidates run. The check does not
+ * cover library classes.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class IsolatingExecutor {
+
+  /**
+   * Number of times we restore a sandbox before replacing it.
+   */
+  protected static final int MAX_RESETS = 64;
+
+  protected final CandidateExecutor executor;
+  protected final ClassLoader parent;
+  protected final String[] classNames;
+  protected final TypeGraph typeGraph;
+  protected final RunConfig config;
+
+  /**
+   * Names of the classes candidates loaded, which sandboxes load before
+   * their candidates run.
+   */
+  protected final Set<String> lateClassNames = new LinkedHashSet<String>();
+
+  /**
+   * Sandboxes no candidate is executing in.
+   */
+  protected final LinkedList<Sandbox> idle = new LinkedList<Sandbox>();
+
+  protected int nrSandboxes = 0;
+  protected int nrResets = 0;
+
+
+  /**
+   * Constructor
+   *
+   * @param parent loads classes.
+   * @param classes to plan in each sandbox.
+   * @param typeGraph crawled from classes, which each sandbox copies.
+   */
+  public IsolatingExecutor(
+      final CandidateExecutor executor,
+      final ClassLoader parent,
+      final Class<?>[] classes,
+      final TypeGraph typeGraph,
+      final RunConfig config)
+  {
+    this.executor = notNull(executor);
+    this.parent = notNull(parent);
+    this.typeGraph = notNull(typeGraph);
+    this.config = notNull(config);
+    this.classNames = new String[notNull(classes).length];
+    for (int i=0; i<classes.length; i++) {
+      classNames[i] = classes[i].getName();
+    }
+  }
+
+
+  /**
+   * Executes each candidate once, in a sandbox.
+   *
+   * @param planIndices plan index of each candidate in classUnderTest.
+   * @return result of candidates[i] at index i.
+   */
+  public ExecutionResult[] executeAll(
+      final Class<?> classUnderTest,
+      final List<Integer> planIndices,
+      final JavaCode<?>[] candidates)
+  throws InterruptedException
+  {
+    notNull(classUnderTest);
+    check(notNull(planIndices).size() == notNull(candidates).length);
+
+    final JavaCode<?>[] isolated = new JavaCode[candidates.length];
+    for (int i=0; i<candidates.length; i++) {
+      isolated[i] = new IsolatedCode(
+          classUnderTest.getName(), planIndices.get(i).intValue(), candidates[i]);
+    }
+    return executor.executeAll(isolated);
+  }
+
+
+  /**
+   * @return number of sandboxes created so far.
+   */
+  public synchronized int getNrSandboxes() {
+    return nrSandboxes;
+  }
+
+  /**
+   * @return number of times we restored a sandbox's static state so far.
+   */
+  public synchronized int getNrResets() {
+    return nrResets;
+  }
+
+
+  /**
+   * @return idle or new sandbox, for the caller only.
+   */
+  protected Sandbox borrow() throws ClassNotFoundException {
+    synchronized (this) {
+      if (!idle.isEmpty()) {
+        return idle.removeFirst();
+      }
+      nrSandboxes += 1;
+    }
+    return new Sandbox();
+  }
+
+
+  /**
+   * After executing a candidate in sandbox, cleans it and makes it
+   * available again, unless we cannot clean it.
+   */
+  protected void giveBack(final Sandbox sandbox) {
+    final List<String> loaded = sandbox.getLateClassNames();
+    if (!loaded.isEmpty()) {
+      synchronized (this) {
+        lateClassNames.addAll(loaded);
+      }
+      return;
+    }
+    if (!sandbox.state.isComplete()) {
+      return;
+    }
+    if (sandbox.isDirty()) {
+      if (sandbox.nrResets >= MAX_RESETS || !sandbox.reset()) {
+        return;
+      }
+      synchronized (this) {
+        nrResets += 1;
+      }
+    }
+    synchronized (this) {
+      idle.addFirst(sandbox);
+    }
+  }
+
+
+  /**
+   * Copy of the user classes, and their static state after initialization.
+   */
+  protected class Sandbox {
+    protected final IsolatingClassLoader loader =
+      new IsolatingClassLoader(parent);
+    protected final CutPlanner planner;
+    protected final StaticState state = new StaticState(loader);
+
+    /**
+     * Class name --> plan space, planned on first use.
+     */
+    protected final Map<String, ClassUnderTest<?>> classNodes =
+      new HashMap<String, ClassUnderTest<?>>();
+
+    /**
+     * Number of classes whose state we recorded, in definition order.
+     */
+    protected int nrRecorded = 0;
+
+    protected int nrResets = 0;
+
+    protected Sandbox() throws ClassNotFoundException {
+      final Set<Class<?>> classes = new LinkedHashSet<Class<?>>();
+      for (String className: classNames) {
+        classes.add(loader.loadClass(className));
+      }
+      final TypeGraphImpl copy = new TypeGraphImpl();
+      TypeGraphCache.copy(typeGraph, copy, loader);
+      copy.crawl(classes, config.getVisUsed());
+      planner = new CutPlannerImpl(copy, config);
+      prepare();
+    }
+
+    /**
+     * Loads the classes earlier candidates loaded, and records the state of
+     * the classes we loaded since, before a candidate's own code runs.
+     */
+    protected void prepare() {
+      final String[] late;
+      synchronized (IsolatingExecutor.this) {
+        late = lateClassNames.toArray(new String[lateClassNames.size()]);
+      }
+      for (String name: late) {
+        try {
+          loader.loadClass(name);
+        }
+        catch (Throwable e) {  //e.g., a class the candidate generated.
+          continue;
+        }
+      }
+
+      final List<Class<?>> defined = loader.getDefinedClasses();
+      for (; nrRecorded < defined.size(); nrRecorded++) {
+        final Class<?> c = defined.get(nrRecorded);
+        try {
+          Class.forName(c.getName(), true, loader);
+          state.add(c);
+        }
+        catch (Throwable e) {  //failed to initialize, or inaccessible field.
+          continue;
+        }
+      }
+    }
+
+    /**
+     * @return names of the classes we defined since prepare.
+     */
+    protected List<String> getLateClassNames() {
+      final List<Class<?>> defined = loader.getDefinedClasses();
+      final List<String> res = new ArrayList<String>();
+      for (Class<?> c: defined.subList(nrRecorded, defined.size())) {
+        res.add(c.getName());
+      }
+      return res;
+    }
+
+    /**
+     * @return block of plan index in our copy of className.
+     */
+    protected Block<?> getBlock(final String className, int index)
+    throws ClassNotFoundException
+    {
+      ClassUnderTest<?> classNode = classNodes.get(className);
+      if (classNode == null) {
+        classNode = planner.getPlanSpace(loader.loadClass(className));
+        classNodes.put(className, classNode);
+      }
+      return classNode.getBlock(BigInteger.valueOf(index));
+    }
+
+    /**
+     * @return whether the candidate changed the recorded static state.
+     */
+    protected boolean isDirty() {
+      return state.isChanged();
+    }
+
+    /**
+     * Restores the recorded static state.
+     *
+     * @return whether we restored all of it.
+     */
+    protected boolean reset() {
+      nrResets += 1;
+      return state.restore();
+    }
+  }
+
+
+  /**
+   * Candidate we plan and execute again in a sandbox.
+   */
+  protected class IsolatedCode implements JavaCode<Object> {
+    protected final String className;
+    protected final int index;
+    protected final JavaCode<?> candidate;
+
+    protected IsolatedCode(
+        final String className,
+        int index,
+        final JavaCode<?> candidate)
+    {
+      this.className = notNull(className);
+      this.index = index;
+      this.candidate = notNull(candidate);
+    }
+
+    public Object execute() throws InstantiationException,
+    IllegalAccessException, InvocationTargetException
+    {
+      Sandbox sandbox = null;
+      try {
+        sandbox = borrow();
+      }
+      catch (ClassNotFoundException e) {
+        throw new IllegalStateException(e);
+      }
+
+      try {
+        final Block<?> block = sandbox.getBlock(className, index);
+        if (!block.text().equals(candidate.text())) {
+          throw new IllegalStateException(
+              "Planned a different test case " + index + " of " + className);
+        }
+        sandbox.prepare();  //classes planning or earlier candidates loaded.
+        return block.execute();
+      }
+      catch (ClassNotFoundException e) {
+        throw new IllegalStateException(e);
+      }
+      finally {
+        giveBack(sandbox);
+      }
+    }
+
+    public String text() {
+      return candidate.text();
+    }
+
+    @Override
+    public String toString() {
+      return text();
+    }
+  }
+}
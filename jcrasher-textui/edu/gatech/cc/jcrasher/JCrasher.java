@@ -11,6 +11,7 @@ import static edu.gatech.cc.jcrasher.Constants.FS;
 import static edu.gatech.cc.jcrasher.Constants.PS;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
@@ -24,6 +25,14 @@ import java.util.logging.Logger;
 import gnu.getopt.Getopt;
 import gnu.getopt.LongOpt;
 
+import edu.gatech.cc.jcrasher.planner.ClassUnderTestImpl;
+import edu.gatech.cc.jcrasher.types.ClassSourceImpl;
+import edu.gatech.cc.jcrasher.types.ClassWrapperImpl;
+import edu.gatech.cc.jcrasher.writer.AsyncOutputSink;
+import edu.gatech.cc.jcrasher.writer.MemoryOutputSink;
+import edu.gatech.cc.jcrasher.writer.OutputSink;
+import edu.gatech.cc.jcrasher.writer.ZipOutputSink;
+
 /**
  * Starts JCrasher
  *
@@ -37,15 +46,45 @@ public class JCrasher {
 		"every PACKAGE and their sub-packages.\n" +
 		"Example: java edu.gatech.cc.jcrasher.JCrasher p1.C p2\n\n" +
 
+		"  -a, --adaptive       sample test cases by what earlier ones found with --execute\n" +
+		"  -b, --classfiles     write test cases as class files instead of sources\n" +
+		"  -c, --cache=FILE     reuse the type graph crawled by previous runs, stored in FILE\n" +
 		"  -e, --execute        execute test cases while generating to suppress boring ones\n" +
 		"  -d, --depth=INT      maximal depth of method chaining (default 3)\n" +
     "  -f, --files=INT      maximal nr of test files created (default 4000)\n" +
+		"  -F, --fork=INT       execute test cases in INT child JVMs with --execute\n" +
+		"  -g, --coverage       also keep test cases covering new branches with --execute\n" +
 		"  -h, --help           print these instructions\n" +
+		"  -i, --isolate        give each --execute thread its own static state of user classes\n" +
+		"  -J, --outjar=FILE    write all generated files into jar FILE instead of --outdir\n" +
 		"  -j, --junitFiltering make generated test cases extend FilteringTestCase\n" +
+		"  -k, --keep=INT       keep INT crashing test cases per crash signature with --execute\n" +
+		"  -K, --known=FILE     do not export crash signatures stored in FILE, add new ones, with --execute\n" +
+		"  -L, --zipLevel=INT   compress --outzip and --outjar entries at level 0-9 (default 6)\n" +
 		"  -l, --log            generate detailed log\n" +		
+		"  -m, --minimize=INT   spend up to INT ms shrinking each crashing test case with --execute\n" +
+		"  -n, --shards=INT     spread test classes over suites JUnitAll_1 to JUnitAll_INT\n" +
 		"  -o, --outdir=DIR     where JCrasher writes test case sources to (default .)\n" +
+		"  -P, --pool=INT       reuse up to INT values per type across test cases with --execute\n" +
+		"  -p, --sharePrefixes  execute leading declarations shared by test cases once\n" +
+		"  -r, --reduce         drop test cases whose branches others take with --execute\n" +
+		"  -R, --reinit         reset static state before each test case with --pipeline\n" +
+		"  -q, --slow=INT       quarantine members taking over INT ms per test case with --execute\n" +
+		"  -Q, --quarantine=FILE  read and update the quarantined members in FILE with --execute\n" +
+		"  -S, --sources        also write the sources of --classfiles, for debugging\n" +
     "  -s, --suppressNull   do not include any null literals in generated test cases.\n" +
-		"  -v, --version        print version number\n";
+		"  -t, --threads=INT    nr test cases executed at once with --execute (default 1),\n" +
+		"                       more than 1 only with --fork or --isolate\n" +
+		"  -T, --timeout=INT    ms after which --execute abandons a test case (default 1000)\n" +
+		"  -v, --version        print version number\n" +
+		"  -w, --timings=FILE   balance --shards by test times in FILE, which --pipeline updates\n" +
+		"  -x, --pipeline       compile and run test cases in this JVM, on disk only with --outdir\n" +
+		"  -z, --outzip=FILE    write all generated files into zip FILE instead of --outdir\n\n" +
+
+		"Options for --execute, including --isolate and --sharePrefixes, need --execute.\n" +
+		"Some --execute options exclude others: --fork excludes --isolate, --sharePrefixes,\n" +
+		"--pool, --coverage, --reduce, and --minimize. --isolate excludes --coverage,\n" +
+		"--sharePrefixes, and --pool. --sharePrefixes excludes --pool.\n";
 
   protected final static String copyright = 
     "(C) Copyright 2002-2007 Christoph Csallner and Yannis Smaragdakis.";
@@ -60,7 +99,23 @@ public class JCrasher {
 	/**
 	 * Execute test cases to improve filtering.
 	 */
-	protected static boolean execute = false; 
+	protected boolean execute = false; 
+	
+	/**
+	 * Loads the classes under test, instrumenting them for --coverage.
+	 */
+	protected ClassLoader loader = JCrasher.class.getClassLoader();
+	
+	/**
+	 * Settings parsed from the command line.
+	 */
+	protected final RunConfig.Builder config = new RunConfig.Builder();
+	
+	/**
+	 * Settings built once the options are parsed, which class discovery
+	 * reads.
+	 */
+	protected RunConfig parsed = null;
 	
 	/**
 	 * Set the log level globally.
@@ -99,13 +154,50 @@ public class JCrasher {
 		System.exit(0);
 	}
 	
+	/**
+	 * Load, but do not initialize, the class of the given name and decide on
+	 * its metadata whether to test it. Classes we test are initialized later,
+	 * when the type graph is built from them.
+	 * 
+	 * @return class of given name or null if it could not be loaded, is
+	 * anonymous, a library type, or has nothing to test.
+	 */
+	protected Class<?> discover(final String className) {
+		final Class<?> res = ClassSourceImpl.instance().load(className, loader);
+		if (res == null || !isWorthTesting(res)) {
+			return null;
+		}
+		return res;
+	}
+	
+	
+	/**
+	 * Decides on metadata only, i.e., does not initialize c. Only filters
+	 * the classes we discover in user-specified packages: a class the user
+	 * names is tested regardless.
+	 * 
+	 * @return whether c is neither a library type nor without anything to test.
+	 */
+	protected boolean isWorthTesting(final Class<?> c) {
+		if (ClassWrapperImpl.isLibraryType(c)) {
+			log.fine("Skipping library type "+c.getName()+".");
+			return false;
+		}
+		if (!ClassUnderTestImpl.hasTestees(c, parsed.getVisTested())) {
+			log.fine("Skipping "+c.getName()+", which has nothing to test.");
+			return false;
+		}
+		return true;
+	}
+	
+	
 	/**
 	 * Load all classes from the jar file that are in one of the
 	 * defined packages or their sub-packages.
 	 * 
 	 * @param packages ::= (package name)+
 	 */
-	protected static Set<Class<?>> loadFromJar(
+	protected Set<Class<?>> loadFromJar(
 			final String jarName,
 			final Set<String> packages) {
 		notNull(jarName);
@@ -128,13 +220,14 @@ public class JCrasher {
 				
 				for (String pack: packages) {
 					if (entryName.startsWith(pack+".")) {
-						try {
-							res.add(Class.forName(entryName));
+						final Class<?> c = discover(entryName);
+						if (c != null) {
+							res.add(c);
 							log.fine("Loaded "+entryName+" from "+jarName 
 									+ " as a class belonging to user-specified " +pack+".");
 						}
-						catch (Throwable t) {
-							log.fine("Could not load "+entryName+" from "+jarName 
+						else {
+							log.fine("Could not use "+entryName+" from "+jarName 
 									+ " (for user-specified " +pack+").");							
 						}
 					}
@@ -156,7 +249,7 @@ public class JCrasher {
 	 * 
 	 * @param pack name of package represented by dir
 	 */
-	protected static Set<Class<?>> loadFromDir(final File dir, final String pack) {
+	protected Set<Class<?>> loadFromDir(final File dir, final String pack) {
 		notNull(dir);
 		check(dir.exists());
 		
@@ -170,13 +263,14 @@ public class JCrasher {
 				String simpleClassName = elem.getName().replace(PS, ".");
 				simpleClassName = simpleClassName.substring(0,simpleClassName.length()-6);
 				final String qualClassName = pack+"."+simpleClassName;
-				try {
-					res.add(Class.forName(qualClassName));
+				final Class<?> c = discover(qualClassName);
+				if (c != null) {
+					res.add(c);
 					log.fine("Loaded "+qualClassName+" from "+dir.getAbsolutePath() 
 							+ " as a class belonging to user-specified " +pack+".");
 				}
-				catch (Throwable e) {
-					log.fine("Could not load "+qualClassName+" from "+dir.getAbsolutePath() 
+				else {
+					log.fine("Could not use "+qualClassName+" from "+dir.getAbsolutePath() 
 							+ " (for user-specified " +pack+").");	
 				}
 			}
@@ -197,7 +291,7 @@ public class JCrasher {
 	 * 
 	 * @param userSpec ::= (package name)+
 	 */
-	protected static Set<Class<?>> loadFromDir(
+	protected Set<Class<?>> loadFromDir(
 			final String dirName,
 			final Set<String> packages) {
 		notNull(dirName);
@@ -234,10 +328,10 @@ public class JCrasher {
 		final Set<String> packageSpecs = new LinkedHashSet<String>();	//avoid multiple entires
 		for (String userSpec: userSpecs) {
 			try {
-				res.add(Class.forName(userSpec));
+				res.add(Class.forName(userSpec, false, loader));	//defer initialization
 				log.fine("Loaded "+userSpec+" directly from the classpath.");
 			}
-			catch (Exception e) {	//Could not be loaded as a class
+			catch (Throwable e) {	//Could not be loaded as a class
 				packageSpecs.add(userSpec);
 				log.fine("Could not load "+userSpec+" directly as a class.");
 			}
@@ -269,7 +363,7 @@ public class JCrasher {
 
 	
 	/** 
-	 * set Constants.MAX_PLAN_RECURSION according to user param 
+	 * set the maximal plan recursion according to user param 
 	 */
 	protected void parseDepth(final String arg) {
 		int maxDepth = 0;
@@ -284,13 +378,13 @@ public class JCrasher {
 			die(arg +" must be greater than zero");
 		}
 		else {
-			Constants.MAX_PLAN_RECURSION = maxDepth;
+			config.maxPlanRecursion(maxDepth);
 		}	  		
 	}
   
   
   /** 
-   * set Constants.MAX_NR_TEST_CLASSES according to user param 
+   * set the maximal nr test classes according to user param 
    */
   protected void parseFiles(final String arg) {
     int maxFiles = 0;
@@ -305,21 +399,60 @@ public class JCrasher {
       die(arg +" must be greater than zero");
     }
     else {
-      Constants.MAX_NR_TEST_CLASSES = maxFiles;
+      config.maxNrTestClasses(maxFiles);
     }       
   }
 	
 	
+  /** 
+   * @return user param, which must be greater than zero.
+   */
+  protected int parsePositive(final String arg) {
+    int res = 0;
+    try {
+      res = Integer.parseInt(arg);
+    }
+    catch(NumberFormatException e) {
+      die(arg +" must be greater than zero");
+    }
+    
+    if (res <= 0) {
+      die(arg +" must be greater than zero");
+    }
+    return res;
+  }
+	
+	
+  /** 
+   * @return user param, a deflate level from 0 to 9.
+   */
+  protected int parseLevel(final String arg) {
+    int res = -1;
+    try {
+      res = Integer.parseInt(arg);
+    }
+    catch(NumberFormatException e) {
+      die(arg +" must be between 0 and 9");
+    }
+    
+    if (res < 0 || res > 9) {
+      die(arg +" must be between 0 and 9");
+    }
+    return res;
+  }
+	
+	
 	/**
-	 * Sets Constants.OUT_DIR according to user param.
+	 * Sets the output directory according to user param.
    * 
    * Only public to allow access from Check 'n' Crash.
 	 */
 	public void parseOutDir(final String arg) {
-		Constants.OUT_DIR = new File(arg);
-		if (Constants.OUT_DIR.isDirectory()==false) {
+		final File outDir = new File(arg);
+		if (outDir.isDirectory()==false) {
 			die(arg +" is not a directory.");
 		}
+		config.outDir(outDir);
 	}
 	
 	
@@ -338,21 +471,57 @@ public class JCrasher {
 	 */
 	protected Class<?>[] parse(final String[] args){
 		LongOpt[] longopts = new LongOpt[]{
+				new LongOpt("adaptive", LongOpt.NO_ARGUMENT, null, 'a'),
+				new LongOpt("classfiles", LongOpt.NO_ARGUMENT, null, 'b'),
+				new LongOpt("cache", LongOpt.REQUIRED_ARGUMENT, null, 'c'),
 				new LongOpt("execute", LongOpt.NO_ARGUMENT, null, 'e'),
 				new LongOpt("depth", LongOpt.REQUIRED_ARGUMENT, null, 'd'),
         new LongOpt("files", LongOpt.REQUIRED_ARGUMENT, null, 'f'),
+        new LongOpt("fork", LongOpt.REQUIRED_ARGUMENT, null, 'F'),
+				new LongOpt("coverage", LongOpt.NO_ARGUMENT, null, 'g'),
 				new LongOpt("help", LongOpt.NO_ARGUMENT, null, 'h'),				
+        new LongOpt("isolate", LongOpt.NO_ARGUMENT, null, 'i'),
 				new LongOpt("junitFiltering", LongOpt.NO_ARGUMENT, null, 'j'),
+        new LongOpt("outjar", LongOpt.REQUIRED_ARGUMENT, null, 'J'),
+				new LongOpt("keep", LongOpt.REQUIRED_ARGUMENT, null, 'k'),
+        new LongOpt("known", LongOpt.REQUIRED_ARGUMENT, null, 'K'),
 				new LongOpt("log", LongOpt.NO_ARGUMENT, null, 'l'),
+        new LongOpt("zipLevel", LongOpt.REQUIRED_ARGUMENT, null, 'L'),
+        new LongOpt("minimize", LongOpt.REQUIRED_ARGUMENT, null, 'm'),
+        new LongOpt("shards", LongOpt.REQUIRED_ARGUMENT, null, 'n'),
 	   		new LongOpt("outdir", LongOpt.REQUIRED_ARGUMENT, null, 'o'),
+        new LongOpt("pool", LongOpt.REQUIRED_ARGUMENT, null, 'P'),
+        new LongOpt("sharePrefixes", LongOpt.NO_ARGUMENT, null, 'p'),
+        new LongOpt("reduce", LongOpt.NO_ARGUMENT, null, 'r'),
+        new LongOpt("reinit", LongOpt.NO_ARGUMENT, null, 'R'),
+        new LongOpt("slow", LongOpt.REQUIRED_ARGUMENT, null, 'q'),
+        new LongOpt("quarantine", LongOpt.REQUIRED_ARGUMENT, null, 'Q'),
+        new LongOpt("sources", LongOpt.NO_ARGUMENT, null, 'S'),
         new LongOpt("suppressNull", LongOpt.NO_ARGUMENT, null, 's'),
-				new LongOpt("version", LongOpt.NO_ARGUMENT, null, 'v')
+        new LongOpt("threads", LongOpt.REQUIRED_ARGUMENT, null, 't'),
+        new LongOpt("timeout", LongOpt.REQUIRED_ARGUMENT, null, 'T'),
+				new LongOpt("version", LongOpt.NO_ARGUMENT, null, 'v'),
+        new LongOpt("timings", LongOpt.REQUIRED_ARGUMENT, null, 'w'),
+        new LongOpt("pipeline", LongOpt.NO_ARGUMENT, null, 'x'),
+        new LongOpt("outzip", LongOpt.REQUIRED_ARGUMENT, null, 'z')
 	  };
-	  Getopt g = new Getopt("JCrasher 2", args, "ed:f:hjlo:sv;", longopts);
+	  Getopt g = new Getopt("JCrasher 2", args, "abc:ed:f:F:ghiJ:jk:K:L:lm:n:o:P:pq:Q:rRSst:T:vw:xz:;", longopts);
 	  int opt = 0;
 	  while ((opt = g.getopt()) != -1) {
 	  	switch (opt) {
 	  		
+	  		case 'a':  //--adaptive .. sample by feedback.
+	  			config.adaptiveSampling(true);
+	  			break;
+	  		
+	  		case 'b':  //--classfiles .. write test cases as class files.
+	  			config.emitClassFiles(true);
+	  			break;
+	  		
+	  		case 'c':  //--cache .. type graph cache file.
+	  			config.typeGraphCache(new File(g.getOptarg()));
+	  			break;
+	  		
 	  		case 'e':  //--execute
 	  			execute = true;
 	  			break;
@@ -364,28 +533,112 @@ public class JCrasher {
         case 'f':  //--files .. maximum number of test files.
           parseFiles(g.getOptarg());
           break;          
+          
+        case 'F':  //--fork .. nr child JVMs executing test cases.
+          config.nrForks(parsePositive(g.getOptarg()));
+          break;
+	  			
+	  		case 'g':  //--coverage .. keep test cases covering new branches.
+	  			config.coverageGuided(true);
+	  			break;
 	  			
 	  		case 'j':  //--junitFiltering .. FilteringTestCase.
-	  			Constants.JUNIT_FILTERING = true;
+	  			config.junitFiltering(true);
+	  			break;
+	  			
+	  		case 'k':  //--keep .. crashing test cases per signature.
+	  			config.maxCrashesPerSignature(parsePositive(g.getOptarg()));
 	  			break;
 	  			
 	  		case 'l':	//--log
 	  			setLogLevel(Level.FINE); 
 	  			break;
 	      
+        case 'm':  //--minimize .. ms spent shrinking each crashing test case.
+          config.minimizeMillis(parsePositive(g.getOptarg()));
+          break;
+
 	      case 'o':  //--outdir .. write test sources to.
 	      	parseOutDir(g.getOptarg());
 	      	break;
 
+        case 'P':  //--pool .. values per type reused across test cases.
+          config.valuePoolSize(parsePositive(g.getOptarg()));
+          break;
+
+        case 'p':  //--sharePrefixes .. execute shared declarations once.
+          config.sharePrefixes(true);
+          break;
+
+        case 'i':  //--isolate .. static state per executing thread.
+          config.isolateStatics(true);
+          break;
+
+        case 'r':  //--reduce .. drop test cases covering no extra branches.
+          config.reduceSuite(true);
+          break;
+
+        case 'n':  //--shards .. nr of JUnitAll_k suites.
+          config.nrShards(parsePositive(g.getOptarg()));
+          break;
+
+        case 'w':  //--timings .. test times of an earlier run.
+          config.timingsFile(new File(g.getOptarg()));
+          break;
+
+        case 'J':  //--outjar .. jar file to write to.
+          config.outArchive(new File(g.getOptarg()), true);
+          break;
+
+        case 'z':  //--outzip .. zip file to write to.
+          config.outArchive(new File(g.getOptarg()), false);
+          break;
+
+        case 'L':  //--zipLevel .. compression of --outzip, --outjar.
+          config.archiveLevel(parseLevel(g.getOptarg()));
+          break;
+
+        case 'R':  //--reinit .. static state per test case with --pipeline.
+          config.reinit(true);
+          break;
+
+        case 'q':  //--slow .. ms per test case beyond which we quarantine.
+          config.slowMillis(parsePositive(g.getOptarg()));
+          break;
+
+        case 'Q':  //--quarantine .. file of quarantined members.
+          config.quarantineFile(new File(g.getOptarg()));
+          break;
+
+        case 'K':  //--known .. file of crash signatures found before.
+          config.knownFile(new File(g.getOptarg()));
+          break;
+
 	      case 'h':  //--help .. print usage instructions.
 	      	System.out.println(usage);
 	      	exit();
 	      	break;	//TODO(csallner): dead code.
 	      
+        case 'S': //--sources .. also write sources of class files.
+          config.withSources(true);
+          break;
+          
         case 's': //--suppressNull
-          Constants.SUPPRESS_NULL_LITERALS = true; 
+          config.suppressNullLiterals(true);
           break;  
           
+        case 't': //--threads .. nr test cases executed at once.
+          config.nrThreads(parsePositive(g.getOptarg()));
+          break;
+          
+        case 'T': //--timeout .. ms per executed test case.
+          config.timeoutMillis(parsePositive(g.getOptarg()));
+          break;
+          
+        case 'x': //--pipeline .. compile and run test cases in this JVM.
+          config.pipeline(true);
+          break;
+          
 	      case 'v':  //--version .. print version number.
 	      	//TODO(csallner): get version from jar file name.
 	      	//System.out.println(name);
@@ -402,6 +655,17 @@ public class JCrasher {
 	  	}
 	  }
 	  
+	  parsed = config.build();
+	  checkExclusions(parsed, execute);
+	  if (parsed.getOutArchive() != null && parsed.getOutDir() == null) {
+	  	config.outDir(new File(System.getProperty("user.dir")));  //only names entries.
+	  }
+	  if (execute && (parsed.isCoverageGuided() || parsed.isReduceSuite())
+	  		&& parsed.getNrForks() == 0)
+	  {
+	  	loader = new CoverageClassLoader(loader);  //probes for ExecutingCutPlanner.
+	  }
+	  
 	  if (g.getOptind() >= args.length) {  //no class specified
 	  	die("no class specified");
 	  }
@@ -412,6 +676,127 @@ public class JCrasher {
 	}
 	
 	
+	/**
+	 * Dies if config combines options of which the planner would silently
+	 * ignore one, sets --execute options without --execute, or executes
+	 * in several threads that share static state.
+	 */
+	protected static void checkExclusions(final RunConfig config, boolean execute) {
+		if (!execute) {
+			require(config.isAdaptiveSampling(), "--adaptive", "--execute");
+			require(config.getNrForks() > 0, "--fork", "--execute");
+			require(config.isCoverageGuided(), "--coverage", "--execute");
+			require(config.isIsolateStatics(), "--isolate", "--execute");
+			require(config.getMaxCrashesPerSignature() > 0, "--keep", "--execute");
+			require(config.getKnownFile() != null, "--known", "--execute");
+			require(config.getMinimizeMillis() > 0, "--minimize", "--execute");
+			require(config.getValuePoolSize() > 0, "--pool", "--execute");
+			require(config.isSharePrefixes(), "--sharePrefixes", "--execute");
+			require(config.isReduceSuite(), "--reduce", "--execute");
+			require(config.getSlowMillis() > 0, "--slow", "--execute");
+			require(config.getQuarantineFile() != null, "--quarantine", "--execute");
+			require(config.getNrThreads() > 1, "--threads", "--execute");
+		}
+		require(config.getNrThreads() > 1 && config.getNrForks() == 0
+				&& !config.isIsolateStatics(), "--threads", "--fork or --isolate");
+		if (config.getNrForks() > 0) {
+			exclude("--fork", config.isIsolateStatics(), "--isolate");
+			exclude("--fork", config.isSharePrefixes(), "--sharePrefixes");
+			exclude("--fork", config.getValuePoolSize() > 0, "--pool");
+			exclude("--fork", config.isCoverageGuided(), "--coverage");
+			exclude("--fork", config.isReduceSuite(), "--reduce");
+			exclude("--fork", config.getMinimizeMillis() > 0, "--minimize");
+		}
+		if (config.isIsolateStatics()) {
+			exclude("--isolate", config.isCoverageGuided(), "--coverage");
+			exclude("--isolate", config.isSharePrefixes(), "--sharePrefixes");
+			exclude("--isolate", config.getValuePoolSize() > 0, "--pool");
+		}
+		if (config.isSharePrefixes()) {
+			exclude("--sharePrefixes", config.getValuePoolSize() > 0, "--pool");
+		}
+	}
+	
+	
+	/**
+	 * Dies if option is set, as it needs other.
+	 */
+	protected static void require(
+			boolean isSet,
+			final String option,
+			final String other)
+	{
+		if (isSet) {
+			die(option + " needs " + other);
+		}
+	}
+	
+	
+	/**
+	 * Dies if the other option is set.
+	 */
+	protected static void exclude(
+			final String option,
+			boolean isOtherSet,
+			final String other)
+	{
+		if (isOtherSet) {
+			die(option + " cannot be combined with " + other);
+		}
+	}
+	
+	
+	/**
+	 * @return sink writing test cases to the out archive, if any, otherwise
+	 * to the out dir, null for nowhere.
+	 */
+	protected static OutputSink createSink(final RunConfig config) {
+		if (config.getOutArchive() != null) {
+			try {
+				return new AsyncOutputSink(  //one writer, as entries are sequential.
+						new ZipOutputSink(config.getOutArchive(), config.getOutDir(),
+								config.getArchiveLevel(), config.isOutJar()),
+						1, AbstractCrasher.WRITER_QUEUE);
+			}
+			catch (IOException e) {
+				die("Could not create " + config.getOutArchive() + ": " + e);
+			}
+		}
+		if (config.isPipeline() && config.getOutDir()==null) {
+			return null;  //disk only if asked for.
+		}
+		return AbstractCrasher.createSink();
+	}
+	
+	
+	/**
+	 * Compile and run the test cases in sink, in this JVM.
+	 * 
+	 * @param target also gets the files of sink and the class files we
+	 * compiled, null for none.
+	 */
+	protected void runPipeline(
+			final MemoryOutputSink sink,
+			final RunConfig config,
+			final OutputSink target)
+	{
+		final TestPipeline pipeline = new TestPipeline(loader, config);
+		try {
+			final MemoryClassLoader compiled = pipeline.compile(sink);
+			if (target != null) {
+				pipeline.write(sink, compiled, target);
+			}
+			pipeline.run(compiled);
+		}
+		catch (IOException e) {
+			die(e.getMessage());
+		}
+		catch (ClassNotFoundException e) {
+			die("--pipeline needs the JCrasher runtime on the class path");
+		}
+	}
+	
+	
 	/**
 	 * Main - called via jvm if started as an application
 	 */
@@ -425,17 +810,29 @@ public class JCrasher {
 
 		/* Load classes of given name with system class-loader */
 		final JCrasher main = new JCrasher();
+		main.config.startMillis(startTime);  //also for --pipeline.
 		final Class<?>[] classes = main.parse(args);
 			
 		/* Crash loaded class */
 		if (classes!=null && classes.length>0) {
-			final Crasher crasher = execute? 
-					new ExecutingCrasher(classes) : new NonExecutingCrasher(classes);
+			final RunConfig config = main.config.build();
+			final OutputSink target = createSink(config);
+			final MemoryOutputSink memory =
+				config.isPipeline()? new MemoryOutputSink() : null;
+			final OutputSink sink = (memory!=null)? memory : target;
+			final Crasher crasher = main.execute? 
+					new ExecutingCrasher(classes, config, sink) :
+					new NonExecutingCrasher(classes, config, sink);
 			crasher.crashClasses();
+			if (memory != null) {
+				main.runPipeline(memory, config, target);
+			}
 		}
 		else { 
 			log.fine("Could not load any classes.");
 		}
+		ClassSourceImpl.instance().getReport().print(
+				System.out, log.isLoggable(Level.FINE));	//details with --log
 		
 		/* Test planning time measurement. */
 		final long endTime= System.currentTimeMillis();
@@ -0,0 +1,109 @@
+/*
+ * MemoryClassLoader.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher;
+
+import static edu.gatech.cc.jcrasher.Assertions.notNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Defines classes from class files we hold in memory, and leaves all other
+ * classes to our parent.
+ *
+ * <p>
+ * We define our classes before asking our parent, so that stale class files
+ * of the same name on the class path, e.g., of an earlier run, do not hide
+ * them. We also serve our class files as resources, which lets a
+ * CopyCLinitClassLoader read and instrument them.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class MemoryClassLoader extends ClassLoader {
+
+  /**
+   * Binary class name --> class file.
+   */
+  protected final Map<String, byte[]> classFiles =
+    new LinkedHashMap<String, byte[]>();
+
+
+  /**
+   * Constructor
+   *
+   * @param parent loads all classes we do not hold.
+   */
+  public MemoryClassLoader(final ClassLoader parent) {
+    super(notNull(parent));
+  }
+
+
+  /**
+   * Adds a class we define when first asked for it.
+   */
+  public synchronized void add(final String name, final byte[] classFile) {
+    classFiles.put(notNull(name), notNull(classFile));
+  }
+
+  /**
+   * @return binary names of the classes we hold, in the order added.
+   */
+  public synchronized String[] getClassNames() {
+    return classFiles.keySet().toArray(new String[classFiles.size()]);
+  }
+
+  /**
+   * @return class file of name, null if we do not hold it.
+   */
+  public synchronized byte[] getClassFile(final String name) {
+    return classFiles.get(notNull(name));
+  }
+
+
+  @Override
+  protected synchronized Class<?> loadClass(final String name, boolean resolve)
+  throws ClassNotFoundException
+  {
+    if (getClassFile(name) == null) {
+      return super.loadClass(name, resolve);
+    }
+    Class<?> res = findLoadedClass(name);
+    if (res == null) {
+      res = findClass(name);
+    }
+    if (resolve) {
+      resolveClass(res);
+    }
+    return res;
+  }
+
+
+  @Override
+  protected Class<?> findClass(final String name)
+  throws ClassNotFoundException
+  {
+    final byte[] bytes = getClassFile(name);
+    if (bytes == null) {
+      throw new ClassNotFoundException(name);
+    }
+    return defineClass(name, bytes, 0, bytes.length);
+  }
+
+
+  @Override
+  public InputStream getResourceAsStream(final String name) {
+    if (name.endsWith(".class")) {
+      final byte[] bytes = getClassFile(
+          name.substring(0, name.length()-6).replace('/', '.'));
+      if (bytes != null) {
+        return new ByteArrayInputStream(bytes);
+      }
+    }
+    return super.getResourceAsStream(name);
+  }
+}
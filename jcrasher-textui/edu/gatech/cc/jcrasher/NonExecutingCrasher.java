@@ -9,8 +9,8 @@ import static edu.gatech.cc.jcrasher.Assertions.check;
 import static edu.gatech.cc.jcrasher.Assertions.isArrayIndex;
 import static edu.gatech.cc.jcrasher.Assertions.isNonNeg;
 import static edu.gatech.cc.jcrasher.Assertions.notNull;
-import static edu.gatech.cc.jcrasher.Constants.MAX_NR_TEST_METHS_PER_CLASS;
 
+import java.io.IOException;
 import java.lang.reflect.Member;
 import java.math.BigDecimal;
 import java.math.BigInteger;
@@ -22,7 +22,8 @@ import edu.gatech.cc.jcrasher.planner.ClassUnderTestImpl;
 import edu.gatech.cc.jcrasher.plans.stmt.Block;
 import edu.gatech.cc.jcrasher.writer.JUnitAll;
 import edu.gatech.cc.jcrasher.writer.JUnitAllImpl;
-import edu.gatech.cc.jcrasher.writer.JUnitTestCaseWriter;
+import edu.gatech.cc.jcrasher.writer.OutputSink;
+import edu.gatech.cc.jcrasher.writer.ShardedJUnitAll;
 import edu.gatech.cc.jcrasher.writer.TestCaseWriter;
 
 
@@ -38,22 +39,73 @@ import edu.gatech.cc.jcrasher.writer.TestCaseWriter;
  */
 public class NonExecutingCrasher extends AbstractCrasher {
 	
+	/**
+	 * With shards, test classes per shard we aim for, so that shards take
+	 * about the same time to compile as well.
+	 */
+	protected static final int FILES_PER_SHARD = 4;
+	
+	/**
+	 * With shards, test methods per class below which compiling more
+	 * classes costs more than it balances.
+	 */
+	protected static final int MIN_TESTS_PER_FILE = 20;
+	
 	protected NonExecutingCutPlanner planner;
 	
+	/**
+	 * Number of test suites JUnitAll_k we spread test classes over.
+	 */
+	protected final int nrShards;
+	
 	/**
 	 * Aggregate test suite
 	 */
-	protected final JUnitAll junitAll = new JUnitAllImpl();
+	protected final JUnitAll junitAll;
 	
 	/**
-	 * Constructor
+	 * Max nr test methods per test class.
+	 */
+	protected int maxTestsPerFile;
+	
+	/**
+	 * Constructor, default settings.
 	 * 
 	 * Crawl classes to discover the type graph they imply.
 	 */
 	public NonExecutingCrasher(Class<?>[] classes) {
-		super(classes);
+		this(classes, RunConfig.DEFAULT);
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * Crawl classes to discover the type graph they imply.
+	 */
+	public NonExecutingCrasher(Class<?>[] classes, final RunConfig config) {
+		this(classes, config, createSink());
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * Crawl classes to discover the type graph they imply.
+	 * 
+	 * @param sink where we write generated test cases to.
+	 */
+	public NonExecutingCrasher(
+			Class<?>[] classes,
+			final RunConfig config,
+			final OutputSink sink)
+	{
+		super(classes, config, sink);
+		nrShards = config.getNrShards();
+		maxTestsPerFile = config.getMaxNrTestMethsPerClass();
+		junitAll = (nrShards>1)?
+				new ShardedJUnitAll(sink, nrShards, readTimings()) :
+				new JUnitAllImpl(sink);
     
-    planner = new NonExecutingCutPlanner(classes);
+    planner = new NonExecutingCutPlanner(classes, typeGraph, config);
 	}
 
   
@@ -162,7 +214,7 @@ public class NonExecutingCrasher extends AbstractCrasher {
    * @param testeeIndex index into classes array.
    * @param testMethodStartIndex first test case index to return
    * @return test methods for pClass.
-   * The length of the returned array is MAX_NR_TEST_METHS_PER_CLASS
+   * The length of the returned array is the maximum nr test meths per class
    * or less (the remainder of the number of picked test methods).
 	 */
 	protected Block<?>[] getTestBlocks(
@@ -179,8 +231,8 @@ public class NonExecutingCrasher extends AbstractCrasher {
     check(testMethodStartIndex < nrTestMethodsPicked);
 		
     int amount = nrTestMethodsPicked - testMethodStartIndex;
-    if (amount>MAX_NR_TEST_METHS_PER_CLASS)
-      amount = MAX_NR_TEST_METHS_PER_CLASS;    
+    if (amount>maxTestsPerFile)
+      amount = maxTestsPerFile;
     
     if(planner.isEveryAvailablePlan())
       /* Enumerate all available test methods */
@@ -231,14 +283,15 @@ public class NonExecutingCrasher extends AbstractCrasher {
       
       Block<?>[] methBlocks = new Block[i-firstMethIndex];
       System.arraycopy(blocks, firstMethIndex, methBlocks, 0, methBlocks.length);
-      TestCaseWriter codeWriter = new JUnitTestCaseWriter(
+      TestCaseWriter codeWriter = createWriter(
           testee,
           "Test cases for "+blocks[firstMethIndex].getTestee().getName(),
           true,
           methBlocks,
           nextClassSeqNr);
       codeWriter.write();
-      junitAll.addTestSuite(testee.getName()+"Test"+nextClassSeqNr);
+      junitAll.addTestSuite(
+          testee.getName()+"Test"+nextClassSeqNr, methBlocks.length);
       
       firstMethIndex = i;
       nextClassSeqNr += 1;
@@ -247,6 +300,43 @@ public class NonExecutingCrasher extends AbstractCrasher {
   }
   
   
+  /**
+   * @return timings of an earlier run, empty if none.
+   */
+  protected TestTimings readTimings() {
+    if (config.getTimingsFile() != null && config.getTimingsFile().exists()) {
+      try {
+        return TestTimings.read(config.getTimingsFile());
+      }
+      catch (IOException e) {
+        System.err.println("Could not read test timings: " + e);
+      }
+    }
+    return new TestTimings();
+  }
+  
+  
+  /**
+   * With shards, shrinks test classes until each shard gets about
+   * FILES_PER_SHARD of them, but not below MIN_TESTS_PER_FILE test methods.
+   * 
+   * @param nrTestMethods number of test methods per class under test.
+   * @return max nr test methods per test class.
+   */
+  protected int getMaxTestsPerFile(int[] nrTestMethods) {
+    final int max = config.getMaxNrTestMethsPerClass();
+    if (nrShards<=1)
+      return max;
+    
+    long total = 0;
+    for (int nr: nrTestMethods)
+      total += nr;
+    final long nrFiles = (long) FILES_PER_SHARD * nrShards;
+    final long perFile = (total + nrFiles - 1) / nrFiles;
+    return (int) Math.min(max, Math.max(MIN_TESTS_PER_FILE, perFile));
+  }
+  
+  
   /**
    * Picks test methods and writes them to disk.
    */
@@ -255,12 +345,13 @@ public class NonExecutingCrasher extends AbstractCrasher {
     
     int[] nrTestMethods = planner.getChosenPlans();
     check(classes.length==nrTestMethods.length);
+    maxTestsPerFile = getMaxTestsPerFile(nrTestMethods);
     
     /* Generate aggregate test suite */
-    if (Constants.OUT_DIR==null)
+    if (config.getOutDir()==null)
       junitAll.create(classes[0]);
     else
-      junitAll.create(Constants.OUT_DIR.getAbsolutePath());
+      junitAll.create(config.getOutDir().getAbsolutePath());
       
     
     /* Generate individual test classes */
@@ -282,5 +373,6 @@ public class NonExecutingCrasher extends AbstractCrasher {
     }
     
     junitAll.finish();
+    closeSink();
   }  
 }
@@ -6,14 +6,14 @@
 package edu.gatech.cc.jcrasher;
 
 import static edu.gatech.cc.jcrasher.Assertions.check;
-import static edu.gatech.cc.jcrasher.Constants.MAX_NR_TEST_CLASSES;
-import static edu.gatech.cc.jcrasher.Constants.MAX_NR_TEST_METHS_PER_CLASS;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.math.RoundingMode;
 
 import edu.gatech.cc.jcrasher.planner.CutPlannerImpl;
+import edu.gatech.cc.jcrasher.types.MemberTable;
+import edu.gatech.cc.jcrasher.types.TypeGraph;
 
 /**
  * @author csallner@gatech.edu (Christoph Csallner)
@@ -39,7 +39,12 @@ public class NonExecutingCutPlanner extends CutPlannerImpl {
   /**
    * Constructor
    */
-  public NonExecutingCutPlanner(Class<?>[] classes) {
+  public NonExecutingCutPlanner(
+      Class<?>[] classes,
+      final TypeGraph typeGraph,
+      final RunConfig config)
+  {
+    super(typeGraph, config);
     this.classes = classes;
     this.testMethodsSelected = new int[classes.length];  //sum <= two million.
     
@@ -74,14 +79,14 @@ public class NonExecutingCutPlanner extends CutPlannerImpl {
    * for each testee class.
    * The resulting array has as many entries as there are testees.
    * The sum of the elements is less than 
-   * MAX_NR_TEST_CLASSES * MAX_NR_TEST_METHS_PER_CLASS.
+   * config.getMaxNrTestClasses() * config.getMaxNrTestMethsPerClass().
    */
   protected void choosePlans() {
     testMethodsAvailableTotal = BigInteger.ZERO;
     testMethodsSelectedTotal = 0;
     
     BigInteger testMethodsLimit = BigInteger.valueOf(
-        MAX_NR_TEST_CLASSES * MAX_NR_TEST_METHS_PER_CLASS); // two million.
+        config.getMaxNrTestClasses() * config.getMaxNrTestMethsPerClass());
     
     /* Number of different test cases available. */
     BigInteger[] testMethodsAvailable = new BigInteger[classes.length];
@@ -178,8 +183,7 @@ public class NonExecutingCutPlanner extends CutPlannerImpl {
       if (nrSelectedFunctionsLength > nrSelectedFunctionsLengthMax)
         nrSelectedFunctionsLengthMax = nrSelectedFunctionsLength;      
       
-      nrDeclaredFunctions[i] = 
-        classes[i].getDeclaredConstructors().length + classes[i].getDeclaredMethods().length;
+      nrDeclaredFunctions[i] = MemberTable.get(classes[i]).getNrFunctions();
       functionsDeclaredTotal += nrDeclaredFunctions[i];
       int nrDeclaredFunctionsLength = Integer.toString(nrDeclaredFunctions[i]).length();
       if (nrDeclaredFunctionsLength > nrDeclaredFunctionsLengthMax)
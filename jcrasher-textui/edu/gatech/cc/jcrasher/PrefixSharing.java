@@ -0,0 +1,290 @@
+/*
+ * PrefixSharing.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher;
+
+import static edu.gatech.cc.jcrasher.Assertions.check;
+import static edu.gatech.cc.jcrasher.Assertions.notNull;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.gatech.cc.jcrasher.plans.JavaCode;
+import edu.gatech.cc.jcrasher.plans.expr.ArrayCreateAndInit;
+import edu.gatech.cc.jcrasher.plans.expr.ConstructorCall;
+import edu.gatech.cc.jcrasher.plans.expr.DotClass;
+import edu.gatech.cc.jcrasher.plans.expr.Expression;
+import edu.gatech.cc.jcrasher.plans.expr.MethodCall;
+import edu.gatech.cc.jcrasher.plans.expr.Variable;
+import edu.gatech.cc.jcrasher.plans.expr.literals.NullLiteral;
+import edu.gatech.cc.jcrasher.plans.expr.literals.PrimitiveLiteral;
+import edu.gatech.cc.jcrasher.plans.expr.literals.StringLiteral;
+import edu.gatech.cc.jcrasher.plans.stmt.Block;
+import edu.gatech.cc.jcrasher.plans.stmt.BlockStatement;
+import edu.gatech.cc.jcrasher.plans.stmt.LocalVariableDeclarationStatement;
+import edu.gatech.cc.jcrasher.types.ImmutableTypes;
+
+/**
+ * Executes the statements that several candidate blocks start with only
+ * once, for all of them.
+ *
+ * <p>
+ * Blocks of one method often declare the same receiver and differ only in
+ * their last arguments. We group blocks by the text of their leading
+ * declarations, execute such a shared prefix for the first block of its
+ * group that runs, and give the other blocks copies of the declared values.
+ * A declaration is only shared if it is pure: its value is of an immutable
+ * type, so that no block can change it for the others, and it only calls
+ * members of pure classes, so that executing it once leaves the same state
+ * behind as executing it for each block. Any other block is executed as is.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class PrefixSharing {
+
+  protected int nrShared = 0;
+  protected int nrSaved = 0;
+
+
+  /**
+   * @return candidates that execute like blocks, at the same indices.
+   */
+  public JavaCode<?>[] share(final Block<?>[] blocks) {
+    notNull(blocks);
+
+    /* Text of each shareable prefix of each block */
+    final String[][] prefixes = new String[blocks.length][];
+    final Map<String, Integer> counts = new HashMap<String, Integer>();
+    for (int i=0; i<blocks.length; i++) {
+      final List<BlockStatement> stmts = notNull(blocks[i]).getBlockStmts();
+      prefixes[i] = new String[getShareableLength(stmts)];
+      final StringBuilder sb = new StringBuilder();
+      for (int j=0; j<prefixes[i].length; j++) {
+        sb.append(stmts.get(j).text()).append('\n');
+        prefixes[i][j] = sb.toString();
+        final Integer count = counts.get(prefixes[i][j]);
+        counts.put(prefixes[i][j],
+            Integer.valueOf((count==null)? 1 : count.intValue()+1));
+      }
+    }
+
+    /* Share the longest prefix another block starts with as well */
+    final JavaCode<?>[] res = new JavaCode[blocks.length];
+    final Map<String, Prefix> shared = new HashMap<String, Prefix>();
+    for (int i=0; i<blocks.length; i++) {
+      res[i] = blocks[i];
+      for (int length=prefixes[i].length; length>0; length--) {
+        final String key = prefixes[i][length-1];
+        if (counts.get(key).intValue() < 2) {
+          continue;
+        }
+        Prefix prefix = shared.get(key);
+        if (prefix == null) {
+          prefix = new Prefix(blocks[i], length);
+          shared.put(key, prefix);
+        }
+        else {
+          nrShared += 1;
+          nrSaved += length;
+        }
+        res[i] = new SharedPrefixBlock(prefix, blocks[i]);
+        break;
+      }
+    }
+    return res;
+  }
+
+
+  /**
+   * @return number of candidates so far that reuse the prefix of another.
+   */
+  public int getNrShared() {
+    return nrShared;
+  }
+
+  /**
+   * @return number of statement executions saved so far.
+   */
+  public int getNrSaved() {
+    return nrSaved;
+  }
+
+
+  /**
+   * @return number of leading pure declarations, excluding the last
+   * statement, which calls the method under test.
+   */
+  protected int getShareableLength(final List<BlockStatement> stmts) {
+    int res = 0;
+    while (res < stmts.size()-1) {
+      final BlockStatement<?> stmt = stmts.get(res);
+      if (!(stmt instanceof LocalVariableDeclarationStatement)) {
+        break;
+      }
+      final LocalVariableDeclarationStatement<?> decl =
+        (LocalVariableDeclarationStatement<?>) stmt;
+      if (!ImmutableTypes.isImmutable(decl.getVariable().getReturnType())
+          || !isPure(decl.getInitPlan()))
+      {
+        break;
+      }
+      res += 1;
+    }
+    return res;
+  }
+
+
+  /**
+   * @return whether executing expr once leaves the same state behind as
+   * executing it repeatedly.
+   */
+  protected static boolean isPure(final Expression<?> expr) {
+    if (expr instanceof PrimitiveLiteral
+        || expr instanceof StringLiteral
+        || expr instanceof NullLiteral
+        || expr instanceof DotClass
+        || expr instanceof Variable)
+    {
+      return true;
+    }
+    if (expr instanceof MethodCall) {
+      final MethodCall<?> call = (MethodCall<?>) expr;
+      return ImmutableTypes.isPure(call.getMethod().getDeclaringClass())
+        && (call.getReceiverPlan() == null || isPure(call.getReceiverPlan()))
+        && isPure(call.getParamPlans());
+    }
+    if (expr instanceof ConstructorCall) {
+      final ConstructorCall<?> call = (ConstructorCall<?>) expr;
+      return ImmutableTypes.isPure(call.getConstructor().getDeclaringClass())
+        && (call.getEnclosingPlan() == null || isPure(call.getEnclosingPlan()))
+        && isPure(call.getParamPlans());
+    }
+    if (expr instanceof ArrayCreateAndInit) {  //fresh array, passed on.
+      return isPure(((ArrayCreateAndInit<?>) expr).getComponentPlans());
+    }
+    return false;
+  }
+
+  protected static boolean isPure(final Expression<?>[] exprs) {
+    for (Expression<?> expr: exprs) {
+      if (!isPure(expr)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+
+  /**
+   * Leading declarations of a block, executed at most once.
+   */
+  protected static class Prefix {
+    protected final Block<?> block;
+    protected final int length;
+
+    protected boolean executed = false;   // guarded by this.
+    protected Object[] values = null;     // guarded by this.
+    protected Throwable thrown = null;    // guarded by this.
+
+    protected Prefix(final Block<?> block, int length) {
+      this.block = notNull(block);
+      check(length > 0);
+      this.length = length;
+    }
+
+    /**
+     * Executes our declarations on the first call.
+     *
+     * @return value of each declaration.
+     */
+    protected synchronized Object[] execute() throws InstantiationException,
+    IllegalAccessException, InvocationTargetException
+    {
+      if (!executed) {
+        executed = true;
+        final List<BlockStatement> stmts = block.getBlockStmts();
+        final Object[] res = new Object[length];
+        try {
+          for (int i=0; i<length; i++) {
+            res[i] = stmts.get(i).execute();
+          }
+          values = res;
+        }
+        catch (Throwable e) {
+          thrown = e;
+        }
+      }
+
+      if (thrown instanceof InstantiationException) {
+        throw (InstantiationException) thrown;
+      }
+      if (thrown instanceof IllegalAccessException) {
+        throw (IllegalAccessException) thrown;
+      }
+      if (thrown instanceof InvocationTargetException) {
+        throw (InvocationTargetException) thrown;
+      }
+      if (thrown instanceof RuntimeException) {
+        throw (RuntimeException) thrown;
+      }
+      if (thrown instanceof Error) {
+        throw (Error) thrown;
+      }
+      check(thrown == null);  //statements throw nothing else.
+      return values;
+    }
+  }
+
+
+  /**
+   * Block that takes the values of its leading declarations from a shared
+   * prefix.
+   */
+  public static class SharedPrefixBlock implements JavaCode<Object> {
+    protected final Prefix prefix;
+    protected final Block<?> block;
+
+    protected SharedPrefixBlock(final Prefix prefix, final Block<?> block) {
+      this.prefix = notNull(prefix);
+      this.block = notNull(block);
+    }
+
+    /**
+     * @return the block we execute.
+     */
+    public Block<?> getBlock() {
+      return block;
+    }
+
+    public Object execute() throws InstantiationException,
+    IllegalAccessException, InvocationTargetException
+    {
+      final Object[] values = prefix.execute();
+      final List<BlockStatement> stmts = block.getBlockStmts();
+      for (int i=0; i<values.length; i++) {
+        final Variable<Object> var = (Variable<Object>)
+          ((LocalVariableDeclarationStatement<?>) stmts.get(i)).getVariable();
+        var.assign(values[i]);
+      }
+
+      Object res = null;
+      for (int i=values.length; i<stmts.size(); i++) {
+        res = stmts.get(i).execute();
+      }
+      return res;
+    }
+
+    public String text() {
+      return block.text();
+    }
+
+    @Override
+    public String toString() {
+      return text();
+    }
+  }
+}
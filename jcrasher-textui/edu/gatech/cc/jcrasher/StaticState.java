@@ -0,0 +1,443 @@
+/*
+ * StaticState.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher;
+
+import static edu.gatech.cc.jcrasher.Assertions.notNull;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.gatech.cc.jcrasher.types.ImmutableTypes;
+
+/**
+ * Static fields of some classes and the state of the mutable objects they
+ * reach, as of when we added the classes, which we compare with the current
+ * state and restore.
+ *
+ * <p>
+ * For an object of a class our loader defined we record its instance
+ * fields, for an array its elements, and for a collection or map its
+ * elements or entries, in order. We restore the latter through their own
+ * clear and add methods, as the fields of library classes are closed to
+ * reflection. We do not look into immutable objects. We give up on any other
+ * object, e.g., a StringBuilder, and beyond MAX_OBJECTS objects, see
+ * isComplete.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class StaticState {
+
+  /**
+   * Number of objects we record at most.
+   */
+  protected static final int MAX_OBJECTS = 10000;
+
+  /**
+   * Defines the classes whose objects we record field by field.
+   */
+  protected final ClassLoader loader;
+
+  /**
+   * Non-final static field --> value when we added its class.
+   */
+  protected final Map<Field, Object> statics = new LinkedHashMap<Field, Object>();
+
+  /**
+   * Reachable mutable object --> its recorded state, by identity.
+   */
+  protected final Map<Object, Image> images = new IdentityHashMap<Object, Image>();
+
+  /**
+   * Objects in the order we recorded them.
+   */
+  protected final List<Image> order = new ArrayList<Image>();
+
+  protected boolean isComplete = true;
+
+
+  /**
+   * Constructor
+   *
+   * @param loader defines the classes we add.
+   */
+  public StaticState(final ClassLoader loader) {
+    this.loader = notNull(loader);
+  }
+
+
+  /**
+   * @return whether we recorded all state reachable from the static fields
+   * of the classes we added.
+   */
+  public boolean isComplete() {
+    return isComplete;
+  }
+
+
+  /**
+   * Records the static fields of initialized class c and what they reach.
+   */
+  public void add(final Class<?> c) throws IllegalAccessException {
+    notNull(c);
+
+    for (Field field: c.getDeclaredFields()) {
+      final int modifiers = field.getModifiers();
+      if (!Modifier.isStatic(modifiers) || field.isSynthetic()) {
+        continue;  //e.g., the values array of an enum.
+      }
+      field.setAccessible(true);
+      final Object value = field.get(null);
+      if (!Modifier.isFinal(modifiers)) {
+        statics.put(field, value);
+      }
+      if (!field.getType().isPrimitive()) {
+        record(value);
+      }
+    }
+  }
+
+
+  /**
+   * Records the state of o and of the objects it reaches, unless we did
+   * already.
+   */
+  protected void record(final Object o) {
+    final List<Object> work = new ArrayList<Object>();
+    work.add(o);
+    while (!work.isEmpty() && isComplete) {
+      final Object next = work.remove(work.size()-1);
+      if (next == null || next instanceof Class || images.containsKey(next)
+          || ImmutableTypes.isImmutable(next.getClass()))
+      {
+        continue;
+      }
+      if (images.size() >= MAX_OBJECTS) {
+        isComplete = false;
+        return;
+      }
+      final Image image = createImage(next);
+      if (image == null) {
+        isComplete = false;
+        return;
+      }
+      images.put(next, image);
+      order.add(image);
+      work.addAll(image.getReferences());
+    }
+  }
+
+
+  /**
+   * @return current state of o, null if we cannot record it.
+   */
+  protected Image createImage(final Object o) {
+    try {
+      if (o.getClass().isArray()) {
+        return new ArrayImage(o);
+      }
+      if (o instanceof Map) {
+        return new MapImage((Map<Object, Object>) o);
+      }
+      if (o instanceof Collection) {
+        return new CollectionImage((Collection<Object>) o);
+      }
+      if (isDefined(o.getClass())) {
+        return new FieldImage(o);
+      }
+    }
+    catch (Throwable e) {  //e.g., a concurrent change or inaccessible field.
+      return null;
+    }
+    return null;
+  }
+
+
+  /**
+   * @return whether we defined c and the superclasses that have instance
+   * fields.
+   */
+  protected boolean isDefined(final Class<?> c) {
+    for (Class<?> k = c; k != null && k != Object.class && k != Enum.class;
+        k = k.getSuperclass())
+    {
+      if (k.getClassLoader() != loader) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+
+  /**
+   * @return whether a static field or recorded object no longer has its
+   * recorded state.
+   */
+  public boolean isChanged() {
+    try {
+      for (Map.Entry<Field, Object> entry: statics.entrySet()) {
+        if (!isSame(entry.getValue(), entry.getKey().get(null))) {
+          return true;
+        }
+      }
+      for (Image image: order) {
+        if (image.isChanged()) {
+          return true;
+        }
+      }
+    }
+    catch (Throwable e) {
+      return true;
+    }
+    return false;
+  }
+
+
+  /**
+   * Restores the recorded objects, then the static fields. We restore
+   * collections last, as hashing their elements depends on their state.
+   *
+   * @return whether we restored everything.
+   */
+  public boolean restore() {
+    try {
+      for (Image image: order) {
+        if (!image.isCollection()) {
+          image.restore();
+        }
+      }
+      for (Image image: order) {
+        if (image.isCollection()) {
+          image.restore();
+        }
+      }
+      for (Map.Entry<Field, Object> entry: statics.entrySet()) {
+        entry.getKey().set(null, entry.getValue());
+      }
+    }
+    catch (Throwable e) {
+      return false;
+    }
+    return true;
+  }
+
+
+  /**
+   * @return whether a and b are the same reference or equal boxed values.
+   */
+  protected static boolean isSame(final Object a, final Object b) {
+    if (a == b) {
+      return true;
+    }
+    return (a instanceof Number || a instanceof Boolean || a instanceof Character)
+      && a.equals(b);
+  }
+
+
+  /**
+   * Recorded state of one object.
+   */
+  protected static abstract class Image {
+    protected abstract List<Object> getReferences();
+    protected abstract boolean isChanged() throws Exception;
+    protected abstract void restore() throws Exception;
+
+    protected boolean isCollection() {
+      return false;
+    }
+  }
+
+
+  /**
+   * Instance fields of an object of a class our loader defined.
+   */
+  protected static class FieldImage extends Image {
+    protected final Object object;
+    protected final List<Field> fields = new ArrayList<Field>();
+    protected final List<Object> values = new ArrayList<Object>();
+
+    protected FieldImage(final Object object) throws IllegalAccessException {
+      this.object = object;
+      for (Class<?> k = object.getClass(); k != null && k != Object.class
+          && k != Enum.class; k = k.getSuperclass())
+      {
+        for (Field field: k.getDeclaredFields()) {
+          if (Modifier.isStatic(field.getModifiers())) {
+            continue;
+          }
+          field.setAccessible(true);
+          fields.add(field);
+          values.add(field.get(object));
+        }
+      }
+    }
+
+    @Override
+    protected List<Object> getReferences() {
+      return values;
+    }
+
+    @Override
+    protected boolean isChanged() throws IllegalAccessException {
+      for (int i=0; i<fields.size(); i++) {
+        if (!isSame(values.get(i), fields.get(i).get(object))) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    protected void restore() throws IllegalAccessException {
+      for (int i=0; i<fields.size(); i++) {
+        fields.get(i).set(object, values.get(i));
+      }
+    }
+  }
+
+
+  /**
+   * Elements of an array.
+   */
+  protected static class ArrayImage extends Image {
+    protected final Object array;
+    protected final List<Object> elements = new ArrayList<Object>();
+
+    protected ArrayImage(final Object array) {
+      this.array = array;
+      for (int i=0; i<Array.getLength(array); i++) {
+        elements.add(Array.get(array, i));
+      }
+    }
+
+    @Override
+    protected List<Object> getReferences() {
+      return array.getClass().getComponentType().isPrimitive()?
+          new ArrayList<Object>() : elements;
+    }
+
+    @Override
+    protected boolean isChanged() {
+      for (int i=0; i<elements.size(); i++) {
+        if (!isSame(elements.get(i), Array.get(array, i))) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    protected void restore() {
+      for (int i=0; i<elements.size(); i++) {
+        Array.set(array, i, elements.get(i));
+      }
+    }
+  }
+
+
+  /**
+   * Elements of a collection, in iteration order.
+   */
+  protected static class CollectionImage extends Image {
+    protected final Collection<Object> collection;
+    protected final List<Object> elements;
+
+    protected CollectionImage(final Collection<Object> collection) {
+      this.collection = collection;
+      this.elements = new ArrayList<Object>(collection);
+    }
+
+    @Override
+    protected List<Object> getReferences() {
+      return elements;
+    }
+
+    @Override
+    protected boolean isCollection() {
+      return true;
+    }
+
+    @Override
+    protected boolean isChanged() {
+      if (collection.size() != elements.size()) {
+        return true;
+      }
+      final Iterator<Object> it = collection.iterator();
+      for (Object element: elements) {
+        if (!it.hasNext() || it.next() != element) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    protected void restore() {
+      collection.clear();
+      collection.addAll(elements);
+    }
+  }
+
+
+  /**
+   * Entries of a map, in iteration order.
+   */
+  protected static class MapImage extends Image {
+    protected final Map<Object, Object> map;
+    protected final List<Object> keys = new ArrayList<Object>();
+    protected final List<Object> values = new ArrayList<Object>();
+
+    protected MapImage(final Map<Object, Object> map) {
+      this.map = map;
+      for (Map.Entry<Object, Object> entry: map.entrySet()) {
+        keys.add(entry.getKey());
+        values.add(entry.getValue());
+      }
+    }
+
+    @Override
+    protected List<Object> getReferences() {
+      final List<Object> res = new ArrayList<Object>(keys);
+      res.addAll(values);
+      return res;
+    }
+
+    @Override
+    protected boolean isCollection() {
+      return true;
+    }
+
+    @Override
+    protected boolean isChanged() {
+      if (map.size() != keys.size()) {
+        return true;
+      }
+      int i = 0;
+      for (Map.Entry<Object, Object> entry: map.entrySet()) {
+        if (entry.getKey() != keys.get(i) || entry.getValue() != values.get(i)) {
+          return true;
+        }
+        i += 1;
+      }
+      return false;
+    }
+
+    @Override
+    protected void restore() {
+      map.clear();
+      for (int i=0; i<keys.size(); i++) {
+        map.put(keys.get(i), values.get(i));
+      }
+    }
+  }
+}
@@ -0,0 +1,178 @@
+/*
+ * SuiteReducer.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher;
+
+import static edu.gatech.cc.jcrasher.Assertions.check;
+import static edu.gatech.cc.jcrasher.Assertions.notNull;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import edu.gatech.cc.jcrasher.plans.stmt.Block;
+
+/**
+ * Drops generated test cases whose branches other test cases already take.
+ *
+ * <p>
+ * We execute each test case once more, recording the branch probes it hits
+ * in the Coverage of the CoverageClassLoader that loaded its classes. We
+ * first keep one test case per crash signature, the one hitting most
+ * probes, and then greedily add the test case that hits most probes not
+ * yet hit, until the kept test cases hit all probes the whole suite hits. Test cases that hang or kill their thread are kept
+ * as is, as we cannot tell what they cover.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class SuiteReducer {
+
+  protected final CandidateExecutor executor;
+  protected final Coverage coverage;
+  protected final int signatureDepth;
+
+  protected int nrGiven = 0;
+  protected int nrKept = 0;
+
+
+  /**
+   * Constructor
+   */
+  public SuiteReducer(
+      final CandidateExecutor executor,
+      final Coverage coverage,
+      int signatureDepth)
+  {
+    check(signatureDepth > 0);
+    this.executor = notNull(executor);
+    this.coverage = notNull(coverage);
+    this.signatureDepth = signatureDepth;
+  }
+
+
+  /**
+   * @return subset of blocks, in their order, that hits the same probes and
+   * crashes with the same signatures as blocks.
+   */
+  public List<Block> reduce(final List<Block> blocks)
+  throws InterruptedException
+  {
+    notNull(blocks);
+
+    final Coverage.RecordingCode[] codes = new Coverage.RecordingCode[blocks.size()];
+    for (int i=0; i<codes.length; i++) {
+      codes[i] = new Coverage.RecordingCode(coverage, blocks.get(i));
+    }
+    final ExecutionResult[] results = executor.executeAll(codes);
+
+    final boolean[] isKept = new boolean[codes.length];
+    final BitSet total = new BitSet();
+    for (Coverage.RecordingCode code: codes) {
+      total.or(code.getHits());
+    }
+
+    /* Most covering test case of each crash signature, and the unknowns */
+    final Set<CrashSignature> signatures = new HashSet<CrashSignature>();
+    final BitSet covered = new BitSet();
+    final int[] order = sortByHits(codes);
+    for (int i: order) {
+      switch (results[i].getKind()) {
+        case CRASH:
+          isKept[i] = results[i].getThrown() == null || signatures.add(
+              CrashSignature.of(results[i].getThrown(), signatureDepth));
+          break;
+        case HUNG:
+        case DIED:
+          isKept[i] = true;
+          break;
+        default:
+          break;
+      }
+      if (isKept[i]) {
+        covered.or(codes[i].getHits());
+      }
+    }
+
+    /* Greedy set cover of the remaining probes */
+    while (!isSubset(total, covered)) {
+      int best = -1;
+      int bestGain = 0;
+      for (int i=0; i<codes.length; i++) {
+        if (isKept[i]) {
+          continue;
+        }
+        final BitSet gain = (BitSet) codes[i].getHits().clone();
+        gain.andNot(covered);
+        if (gain.cardinality() > bestGain) {
+          best = i;
+          bestGain = gain.cardinality();
+        }
+      }
+      check(best >= 0);
+      isKept[best] = true;
+      covered.or(codes[best].getHits());
+    }
+
+    final List<Block> res = new ArrayList<Block>();
+    for (int i=0; i<isKept.length; i++) {
+      if (isKept[i]) {
+        res.add(blocks.get(i));
+      }
+    }
+    synchronized (this) {
+      nrGiven += blocks.size();
+      nrKept += res.size();
+    }
+    return res;
+  }
+
+
+  /**
+   * @return indices of codes, most hits first, stable.
+   */
+  protected int[] sortByHits(final Coverage.RecordingCode[] codes) {
+    final List<Integer> res = new ArrayList<Integer>(codes.length);
+    for (int i=0; i<codes.length; i++) {
+      res.add(Integer.valueOf(i));
+    }
+    Collections.sort(res, new Comparator<Integer>() {
+      public int compare(final Integer a, final Integer b) {
+        return codes[b.intValue()].getHits().cardinality()
+          - codes[a.intValue()].getHits().cardinality();
+      }
+    });
+    final int[] order = new int[codes.length];
+    for (int i=0; i<order.length; i++) {
+      order[i] = res.get(i).intValue();
+    }
+    return order;
+  }
+
+
+  protected boolean isSubset(final BitSet a, final BitSet b) {
+    final BitSet rest = (BitSet) a.clone();
+    rest.andNot(b);
+    return rest.isEmpty();
+  }
+
+
+  /**
+   * @return number of test cases given so far.
+   */
+  public synchronized int getNrGiven() {
+    return nrGiven;
+  }
+
+  /**
+   * @return number of test cases kept so far.
+   */
+  public synchronized int getNrKept() {
+    return nrKept;
+  }
+}
@@ -0,0 +1,406 @@
+/*
+ * TestPipeline.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher;
+
+import static edu.gatech.cc.jcrasher.Assertions.notNull;
+import static edu.gatech.cc.jcrasher.Constants.NL;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import javax.tools.JavaFileObject.Kind;
+
+import org.apache.bcel.classfile.ClassParser;
+
+import edu.gatech.cc.jcrasher.writer.MemoryOutputSink;
+import edu.gatech.cc.jcrasher.writer.OutputSink;
+
+/**
+ * Compiles the test cases a crasher wrote to a MemoryOutputSink and runs
+ * them with RaGTestRunner, all in this JVM, which thereby shares its class
+ * metadata and JIT warm-up between generating and running test cases.
+ *
+ * <p>
+ * We hand the compiler BATCH_SIZE sources at a time, in the order written,
+ * and keep its class files in a MemoryClassLoader, which also shows them to
+ * the compiler, so that a later batch can refer to the classes of an earlier
+ * one, as JUnitAll does. We only need RaGTestRunner when running, so we load
+ * it by name, and JCrasher works without the JCrasher runtime otherwise.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class TestPipeline {
+
+  /**
+   * Number of sources we compile at once.
+   */
+  protected static final int BATCH_SIZE = 256;
+
+  protected static final String RUNNER =
+    "edu.gatech.cc.junit.textui.RaGTestRunner";
+
+  protected static final String SUITE = "JUnitAll";
+
+  protected static final Pattern PACKAGE =
+    Pattern.compile("^\\s*package\\s+([\\w.]+)\\s*;", Pattern.MULTILINE);
+
+  protected final ClassLoader parent;
+  protected final RunConfig config;
+
+
+  /**
+   * Constructor
+   *
+   * @param parent loads the classes under test, JUnit, and our runtime.
+   */
+  public TestPipeline(final ClassLoader parent, final RunConfig config) {
+    this.parent = notNull(parent);
+    this.config = notNull(config);
+  }
+
+
+  /**
+   * @return binary name of the top-level class source declares, assuming
+   * the file is named after it.
+   */
+  protected static String getClassName(final File file, final String source) {
+    final String simpleName =
+      file.getName().substring(0, file.getName().lastIndexOf('.'));
+    final Matcher matcher = PACKAGE.matcher(source);
+    return matcher.find()? matcher.group(1) + "." + simpleName : simpleName;
+  }
+
+  /**
+   * @return binary name of the class classFile defines.
+   */
+  protected static String getClassName(final byte[] classFile)
+  throws IOException
+  {
+    return new ClassParser(new ByteArrayInputStream(classFile), "memory")
+      .parse().getClassName();
+  }
+
+
+  /**
+   * Compiles the sources of sink, except those sink holds the class files
+   * of already, as with --classfiles --sources.
+   *
+   * @return loader of the class files of sink and the compiled ones.
+   * @throws IOException if a source does not compile.
+   */
+  public MemoryClassLoader compile(final MemoryOutputSink sink)
+  throws IOException
+  {
+    final MemoryClassLoader loader = new MemoryClassLoader(parent);
+    for (byte[] classFile: sink.getClassFiles().values()) {
+      loader.add(getClassName(classFile), classFile);
+    }
+
+    final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    if (compiler == null) {
+      throw new IOException("Found no Java compiler, --pipeline needs a JDK");
+    }
+    final MemoryFileManager fileManager = new MemoryFileManager(
+        compiler.getStandardFileManager(null, null, null), loader);
+    try {
+      final List<JavaFileObject> batch = new ArrayList<JavaFileObject>();
+      for (Map.Entry<File, String> entry: sink.getSources().entrySet()) {
+        if (!entry.getKey().getName().endsWith(".java")) {  //shard manifest.
+          continue;
+        }
+        final String className =
+          getClassName(entry.getKey(), entry.getValue());
+        if (loader.getClassFile(className) != null) {
+          continue;
+        }
+        batch.add(new SourceFile(entry.getKey(), entry.getValue()));
+        if (batch.size() == BATCH_SIZE) {
+          compile(compiler, fileManager, batch);
+          batch.clear();
+        }
+      }
+      if (!batch.isEmpty()) {
+        compile(compiler, fileManager, batch);
+      }
+    }
+    finally {
+      fileManager.close();
+    }
+    return loader;
+  }
+
+
+  protected void compile(
+      final JavaCompiler compiler,
+      final MemoryFileManager fileManager,
+      final List<JavaFileObject> batch)
+  throws IOException
+  {
+    final StringWriter out = new StringWriter();
+    final Boolean ok = compiler.getTask(out, fileManager, null,
+        Arrays.asList("-g", "-nowarn", "-proc:none"), null, batch).call();
+    if (!Boolean.TRUE.equals(ok)) {
+      throw new IOException("Could not compile generated test cases:" + NL + out);
+    }
+  }
+
+
+  /**
+   * Writes the files of sink to target, and the class files we compiled
+   * from them below the out dir, then closes target.
+   *
+   * @param loader result of compile(sink).
+   */
+  public void write(
+      final MemoryOutputSink sink,
+      final MemoryClassLoader loader,
+      final OutputSink target)
+  throws IOException
+  {
+    notNull(sink);
+    notNull(loader);
+    notNull(target);
+    notNull(config.getOutDir());
+
+    try {
+      for (Map.Entry<File, String> entry: sink.getSources().entrySet()) {
+        target.write(entry.getKey(), entry.getValue());
+      }
+      final Set<String> written = new HashSet<String>();
+      for (Map.Entry<File, byte[]> entry: sink.getClassFiles().entrySet()) {
+        target.write(entry.getKey(), entry.getValue());
+        written.add(getClassName(entry.getValue()));
+      }
+      for (String name: loader.getClassNames()) {
+        if (!written.contains(name)) {
+          target.write(new File(config.getOutDir(),
+              name.replace('.', '/') + ".class"), loader.getClassFile(name));
+        }
+      }
+    }
+    finally {
+      target.close();
+    }
+  }
+
+
+  /**
+   * @return JUnitAll if loader holds it, otherwise all top-level classes
+   * of loader.
+   */
+  protected String[] getTestNames(final MemoryClassLoader loader) {
+    final String[] names = loader.getClassNames();
+    final List<String> res = new ArrayList<String>();
+    for (String name: names) {
+      if (name.equals(SUITE)) {
+        return new String[]{SUITE};
+      }
+      if (name.indexOf('$') < 0) {
+        res.add(name);
+      }
+    }
+    return res.toArray(new String[res.size()]);
+  }
+
+
+  /**
+   * Runs the test cases loader holds with RaGTestRunner, which prints what
+   * they found.
+   *
+   * @throws ClassNotFoundException if the JCrasher runtime is missing.
+   */
+  public void run(final MemoryClassLoader loader)
+  throws ClassNotFoundException
+  {
+    notNull(loader);
+
+    final List<String> args = new ArrayList<String>();
+    if (config.isReinit()) {
+      args.add("-reinit");
+    }
+    if (config.getKnownFile() != null) {  //what execute mode found is new.
+      args.add("-known");
+      args.add(config.getKnownFile().getPath());
+      args.add("-since");
+      args.add(String.valueOf(config.getStartMillis()));
+    }
+    if (config.getTimingsFile() != null) {  //for balancing the next run.
+      args.add("-timings");
+      args.add(config.getTimingsFile().getPath());
+    }
+    args.addAll(Arrays.asList(getTestNames(loader)));
+
+    final Class<?> runner = Class.forName(RUNNER, true, parent);
+    try {
+      final Method run =
+        runner.getMethod("run", ClassLoader.class, String[].class);
+      run.invoke(null, loader, args.toArray(new String[args.size()]));
+    }
+    catch (InvocationTargetException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+    catch (NoSuchMethodException e) {  //older runtime.
+      throw new ClassNotFoundException(RUNNER, e);
+    }
+    catch (IllegalAccessException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+
+  /**
+   * Source we hold in memory.
+   */
+  protected static class SourceFile extends SimpleJavaFileObject {
+    protected final String content;
+
+    protected SourceFile(final File file, final String content) {
+      super(file.toURI(), Kind.SOURCE);
+      this.content = notNull(content);
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+      return content;
+    }
+  }
+
+
+  /**
+   * Class file a MemoryClassLoader holds, or will hold once the compiler
+   * wrote it.
+   */
+  protected static class ClassFile extends SimpleJavaFileObject {
+    protected final String name;
+    protected final MemoryClassLoader loader;
+
+    protected ClassFile(final String name, final MemoryClassLoader loader) {
+      super(URI.create("memory:///" + name.replace('.', '/') + ".class"),
+          Kind.CLASS);
+      this.name = notNull(name);
+      this.loader = notNull(loader);
+    }
+
+    @Override
+    public InputStream openInputStream() throws IOException {
+      final byte[] bytes = loader.getClassFile(name);
+      if (bytes == null) {
+        throw new IOException("Not written yet: " + name);
+      }
+      return new ByteArrayInputStream(bytes);
+    }
+
+    @Override
+    public OutputStream openOutputStream() {
+      return new ByteArrayOutputStream() {
+        @Override
+        public void close() {
+          loader.add(name, toByteArray());
+        }
+      };
+    }
+  }
+
+
+  /**
+   * Writes class files to a MemoryClassLoader, and lists the ones it holds
+   * on the class path, before any of the same name on disk.
+   */
+  protected static class MemoryFileManager
+  extends ForwardingJavaFileManager<StandardJavaFileManager>
+  {
+    protected final MemoryClassLoader loader;
+
+    protected MemoryFileManager(
+        final StandardJavaFileManager fileManager,
+        final MemoryClassLoader loader)
+    {
+      super(fileManager);
+      this.loader = notNull(loader);
+    }
+
+    @Override
+    public JavaFileObject getJavaFileForOutput(
+        final Location location,
+        final String className,
+        final Kind kind,
+        final FileObject sibling)
+    throws IOException
+    {
+      if (kind != Kind.CLASS) {
+        return super.getJavaFileForOutput(location, className, kind, sibling);
+      }
+      return new ClassFile(className, loader);
+    }
+
+    @Override
+    public Iterable<JavaFileObject> list(
+        final Location location,
+        final String packageName,
+        final Set<Kind> kinds,
+        boolean recurse)
+    throws IOException
+    {
+      final Iterable<JavaFileObject> files =
+        super.list(location, packageName, kinds, recurse);
+      if (location != StandardLocation.CLASS_PATH
+          || !kinds.contains(Kind.CLASS))
+      {
+        return files;
+      }
+
+      final List<JavaFileObject> res = new ArrayList<JavaFileObject>();
+      for (String name: loader.getClassNames()) {
+        final int dot = name.lastIndexOf('.');
+        final String pack = (dot < 0)? "" : name.substring(0, dot);
+        if (pack.equals(packageName) || (recurse
+            && (packageName.length() == 0 || pack.startsWith(packageName + "."))))
+        {
+          res.add(new ClassFile(name, loader));
+        }
+      }
+      for (JavaFileObject file: files) {
+        res.add(file);
+      }
+      return res;
+    }
+
+    @Override
+    public String inferBinaryName(
+        final Location location,
+        final JavaFileObject file)
+    {
+      if (file instanceof ClassFile) {
+        return ((ClassFile) file).name;
+      }
+      return super.inferBinaryName(location, file);
+    }
+  }
+}
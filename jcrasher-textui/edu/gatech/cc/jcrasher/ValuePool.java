@@ -0,0 +1,537 @@
+/*
+ * ValuePool.java
+ *
+ * Copyright 2007 Christoph Csallner and Yannis Smaragdakis.
+ */
+package edu.gatech.cc.jcrasher;
+
+import static edu.gatech.cc.jcrasher.Assertions.check;
+import static edu.gatech.cc.jcrasher.Assertions.notNull;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import edu.gatech.cc.jcrasher.plans.JavaCode;
+import edu.gatech.cc.jcrasher.plans.expr.ArrayCreateAndInit;
+import edu.gatech.cc.jcrasher.plans.expr.ConstructorCall;
+import edu.gatech.cc.jcrasher.plans.expr.DotClass;
+import edu.gatech.cc.jcrasher.plans.expr.Expression;
+import edu.gatech.cc.jcrasher.plans.expr.MethodCall;
+import edu.gatech.cc.jcrasher.plans.expr.Variable;
+import edu.gatech.cc.jcrasher.plans.expr.literals.NullLiteral;
+import edu.gatech.cc.jcrasher.plans.expr.literals.PrimitiveLiteral;
+import edu.gatech.cc.jcrasher.plans.expr.literals.StringLiteral;
+import edu.gatech.cc.jcrasher.plans.stmt.Block;
+import edu.gatech.cc.jcrasher.plans.stmt.BlockStatement;
+import edu.gatech.cc.jcrasher.plans.stmt.LocalVariableDeclarationStatement;
+import edu.gatech.cc.jcrasher.types.ImmutableTypes;
+
+/**
+ * Values produced by the constructor and method calls of executed test
+ * cases, reused by later test cases instead of calling again.
+ *
+ * <p>
+ * The pool is keyed by type. Each pooled value remembers the plan that
+ * produced it, with the plans of the variables it used inlined. A later
+ * test case that declares a variable of the same type may draw any pooled
+ * value of that type, whichever plan its own declaration had. We then
+ * replace the declaration's plan with the remembered one, so the test
+ * case's source still reconstructs the value it was executed with, and
+ * exporting it needs nothing from the pool. A declaration whose plan equals
+ * the remembered plan of a pooled value always takes that value.
+ *
+ * <p>
+ * Like PrefixSharing, we only pool values of immutable types produced by
+ * pure plans, so that neither a test case using a value nor skipping the
+ * calls that produced it can change what later test cases observe. The pool
+ * holds a bounded number of values per type and evicts a random one when
+ * full.
+ *
+ * @author csallner@gatech.edu (Christoph Csallner)
+ */
+public class ValuePool {
+
+  /**
+   * Chance that a declaration takes a pooled value produced by another plan.
+   */
+  protected static final double REUSE_PROBABILITY = 0.5;
+
+  protected final int maxPerType;
+  protected final Random random;
+
+  /**
+   * Type --> pooled values of exactly this type.
+   */
+  protected final Map<Class<?>, List<Entry>> entries =
+    new HashMap<Class<?>, List<Entry>>();
+
+  /**
+   * Key of producing plan --> pooled value.
+   */
+  protected final Map<String, Entry> byPlan = new HashMap<String, Entry>();
+
+  protected int nrPooled = 0;
+  protected int nrReused = 0;
+  protected int nrReplaced = 0;
+
+
+  /**
+   * Value and the plan that produced it.
+   */
+  protected static class Entry {
+    protected final Class<?> type;
+    protected final String key;
+
+    /**
+     * Producing plan, without variables.
+     */
+    protected final Expression<?> plan;
+    protected final Object value;
+
+    protected Entry(
+        final Class<?> type,
+        final String key,
+        final Expression<?> plan,
+        final Object value)
+    {
+      this.type = notNull(type);
+      this.key = notNull(key);
+      this.plan = notNull(plan);
+      this.value = notNull(value);
+    }
+  }
+
+
+  /**
+   * Constructor
+   *
+   * @param maxPerType number of values pooled per type.
+   */
+  public ValuePool(int maxPerType, final Random random) {
+    check(maxPerType > 0);
+    this.maxPerType = maxPerType;
+    this.random = notNull(random);
+  }
+
+
+  /**
+   * Replaces the plans of the declarations of blocks that take a pooled
+   * value produced by another plan with the remembered plan.
+   *
+   * @param testeeType class under test, whose test class will contain
+   * blocks.
+   * @return candidates that execute like blocks, at the same indices,
+   * taking pooled values where they can.
+   */
+  public JavaCode<?>[] draw(
+      final Class<?> testeeType,
+      final Block<?>[] blocks)
+  {
+    notNull(testeeType);
+    notNull(blocks);
+
+    final JavaCode<?>[] res = new JavaCode[blocks.length];
+    for (int i=0; i<blocks.length; i++) {
+      final List<BlockStatement> stmts =
+        new ArrayList<BlockStatement>(notNull(blocks[i]).getBlockStmts());
+      final int length = Math.max(0, stmts.size()-1);  //not the testee call.
+      final String[] keys = new String[length];
+      final Expression<?>[] plans = new Expression[length];
+      final Object[] values = new Object[length];
+      final Map<Variable<?>, String> varKeys =
+        new IdentityHashMap<Variable<?>, String>();
+      final Map<Variable<?>, Expression<?>> varPlans =
+        new IdentityHashMap<Variable<?>, Expression<?>>();
+      boolean isPoolable = false;
+      boolean isReplaced = false;
+      for (int j=0; j<length; j++) {
+        if (!(stmts.get(j) instanceof LocalVariableDeclarationStatement)) {
+          continue;
+        }
+        final LocalVariableDeclarationStatement<?> decl =
+          (LocalVariableDeclarationStatement<?>) stmts.get(j);
+        final Variable<?> var = decl.getVariable();
+        String key = getKey(decl.getInitPlan(), varKeys);
+        Expression<?> plan = inline(decl.getInitPlan(), varPlans, testeeType);
+        if (key == null || plan == null) {
+          continue;
+        }
+        if (isPoolable(decl)) {
+          isPoolable = true;
+          Entry entry = byPlan.get(key);
+          if (entry == null && random.nextDouble() < REUSE_PROBABILITY) {
+            entry = pick(var.getReturnType());
+            if (entry != null) {
+              key = entry.key;
+              plan = inline(entry.plan, varPlans, testeeType);
+              stmts.set(j, declare(var, plan));
+              isReplaced = true;
+              nrReplaced += 1;
+            }
+          }
+          keys[j] = key;
+          plans[j] = plan;
+          if (entry != null) {
+            values[j] = entry.value;
+            nrReused += 1;
+          }
+        }
+        varKeys.put(var, key);
+        varPlans.put(var, plan);
+      }
+      if (isReplaced) {
+        blocks[i].setBlockStmts(stmts);
+      }
+      res[i] = isPoolable?
+          new PooledBlock(blocks[i], keys, plans, values, isReplaced)
+          : blocks[i];
+    }
+    return res;
+  }
+
+
+  /**
+   * Pools the values that candidates produced by calling, unless they
+   * hung or died.
+   *
+   * @param candidates as returned by draw.
+   */
+  public void harvest(
+      final JavaCode<?>[] candidates,
+      final ExecutionResult[] results)
+  {
+    check(notNull(candidates).length == notNull(results).length);
+
+    for (int i=0; i<candidates.length; i++) {
+      if (!(candidates[i] instanceof PooledBlock)
+          || results[i].getKind() == ExecutionResult.Kind.HUNG
+          || results[i].getKind() == ExecutionResult.Kind.DIED)
+      {
+        continue;
+      }
+      final PooledBlock block = (PooledBlock) candidates[i];
+      final List<BlockStatement> stmts = block.block.getBlockStmts();
+      for (int j=0; j<block.keys.length; j++) {
+        if (block.keys[j] == null || block.values[j] != null) {
+          continue;
+        }
+        final Variable<?> var =
+          ((LocalVariableDeclarationStatement<?>) stmts.get(j)).getVariable();
+        final Object value = var.execute();  //null if not executed.
+        if (value != null) {
+          add(new Entry(var.getReturnType(), block.keys[j], block.plans[j],
+              value));
+        }
+      }
+    }
+  }
+
+
+  protected void add(final Entry entry) {
+    if (byPlan.containsKey(entry.key)) {
+      return;
+    }
+    List<Entry> pooled = entries.get(entry.type);
+    if (pooled == null) {
+      pooled = new ArrayList<Entry>(maxPerType);
+      entries.put(entry.type, pooled);
+    }
+    if (pooled.size() >= maxPerType) {  //evict a random one.
+      final int victim = random.nextInt(pooled.size());
+      byPlan.remove(pooled.get(victim).key);
+      pooled.set(victim, pooled.get(pooled.size()-1));
+      pooled.remove(pooled.size()-1);
+      nrPooled -= 1;
+    }
+    pooled.add(entry);
+    byPlan.put(entry.key, entry);
+    nrPooled += 1;
+  }
+
+
+  /**
+   * @return random pooled value of exactly type, null if none.
+   */
+  protected Entry pick(final Class<?> type) {
+    final List<Entry> pooled = entries.get(type);
+    if (pooled == null || pooled.isEmpty()) {
+      return null;
+    }
+    return pooled.get(random.nextInt(pooled.size()));
+  }
+
+
+  /**
+   * @return number of values pooled now.
+   */
+  public int getNrPooled() {
+    return nrPooled;
+  }
+
+  /**
+   * @return number of pooled values of exactly type.
+   */
+  public int getNrPooled(final Class<?> type) {
+    final List<Entry> pooled = entries.get(type);
+    return (pooled==null)? 0 : pooled.size();
+  }
+
+  /**
+   * @return number of calls so far replaced by a pooled value.
+   */
+  public int getNrReused() {
+    return nrReused;
+  }
+
+  /**
+   * @return number of reused values so far produced by another plan than
+   * the one of the declaration that took them.
+   */
+  public int getNrReplaced() {
+    return nrReplaced;
+  }
+
+
+  /**
+   * @return whether we may pool the value decl declares, excluding the
+   * last statement, which calls the method under test.
+   */
+  protected boolean isPoolable(final LocalVariableDeclarationStatement<?> decl) {
+    final Expression<?> init = decl.getInitPlan();
+    return (init instanceof ConstructorCall || init instanceof MethodCall)
+      && ImmutableTypes.isImmutable(decl.getVariable().getReturnType())
+      && PrefixSharing.isPure(init);
+  }
+
+
+  /**
+   * @return declaration of var, initialized by plan.
+   */
+  protected static <V> LocalVariableDeclarationStatement<V> declare(
+      final Variable<V> var,
+      final Expression<?> plan)
+  {
+    return new LocalVariableDeclarationStatement<V>(
+        var, (Expression<? extends V>) plan);
+  }
+
+
+  /**
+   * @return copy of expr for a test case of testeeType, with each variable
+   * replaced by a copy of its plan, null if we cannot tell.
+   */
+  protected static Expression<?> inline(
+      final Expression<?> expr,
+      final Map<Variable<?>, Expression<?>> plans,
+      final Class<?> testeeType)
+  {
+    if (expr instanceof Variable) {
+      final Expression<?> plan = plans.get(expr);
+      return (plan==null)? null : inline(plan, plans, testeeType);
+    }
+    if (expr instanceof MethodCall) {
+      final MethodCall<?> call = (MethodCall<?>) expr;
+      final Expression<?>[] params =
+        inline(call.getParamPlans(), plans, testeeType);
+      if (params == null) {
+        return null;
+      }
+      if (call.getReceiverPlan() == null) {
+        return new MethodCall<Object>(testeeType, call.getMethod(), params);
+      }
+      final Expression<?> receiver =
+        inline(call.getReceiverPlan(), plans, testeeType);
+      return (receiver==null)? null
+          : new MethodCall<Object>(testeeType, call.getMethod(), params, receiver);
+    }
+    if (expr instanceof ConstructorCall) {
+      final ConstructorCall<?> call = (ConstructorCall<?>) expr;
+      final Expression<?>[] params =
+        inline(call.getParamPlans(), plans, testeeType);
+      if (params == null) {
+        return null;
+      }
+      if (call.getEnclosingPlan() == null) {
+        return new ConstructorCall(testeeType, call.getConstructor(), params);
+      }
+      final Expression<?> enclosing =
+        inline(call.getEnclosingPlan(), plans, testeeType);
+      return (enclosing==null)? null
+          : new ConstructorCall(testeeType, call.getConstructor(), params,
+              enclosing);
+    }
+    if (expr instanceof ArrayCreateAndInit) {
+      final Expression<?>[] components = inline(
+          ((ArrayCreateAndInit<?>) expr).getComponentPlans(), plans, testeeType);
+      if (components == null) {
+        return null;
+      }
+      final ArrayCreateAndInit<?> res =
+        new ArrayCreateAndInit(expr.getReturnType(), testeeType);
+      res.setComponentPlans(components);
+      return res;
+    }
+    if (expr instanceof NullLiteral) {
+      return new NullLiteral(expr.getReturnType(), testeeType);
+    }
+    if (expr instanceof PrimitiveLiteral
+        || expr instanceof StringLiteral
+        || expr instanceof DotClass)
+    {
+      return expr;  //same text in any test class.
+    }
+    return null;
+  }
+
+  protected static Expression<?>[] inline(
+      final Expression<?>[] exprs,
+      final Map<Variable<?>, Expression<?>> plans,
+      final Class<?> testeeType)
+  {
+    final Expression<?>[] res = new Expression[exprs.length];
+    for (int i=0; i<exprs.length; i++) {
+      res[i] = inline(exprs[i], plans, testeeType);
+      if (res[i] == null) {
+        return null;
+      }
+    }
+    return res;
+  }
+
+
+  /**
+   * @return expr with each variable replaced by the key of its plan, null
+   * if we cannot tell.
+   */
+  protected String getKey(
+      final Expression<?> expr,
+      final Map<Variable<?>, String> keys)
+  {
+    if (expr instanceof Variable) {
+      return keys.get(expr);
+    }
+    if (expr instanceof MethodCall) {
+      final MethodCall<?> call = (MethodCall<?>) expr;
+      final String receiver = (call.getReceiverPlan() == null)?
+          "" : getKey(call.getReceiverPlan(), keys);
+      final String params = getKeys(call.getParamPlans(), keys);
+      return (receiver==null || params==null)?
+          null : call.getMethod() + "<" + receiver + ">(" + params + ")";
+    }
+    if (expr instanceof ConstructorCall) {
+      final ConstructorCall<?> call = (ConstructorCall<?>) expr;
+      final String enclosing = (call.getEnclosingPlan() == null)?
+          "" : getKey(call.getEnclosingPlan(), keys);
+      final String params = getKeys(call.getParamPlans(), keys);
+      return (enclosing==null || params==null)?
+          null : call.getConstructor() + "<" + enclosing + ">(" + params + ")";
+    }
+    if (expr instanceof ArrayCreateAndInit) {
+      final String components = getKeys(
+          ((ArrayCreateAndInit<?>) expr).getComponentPlans(), keys);
+      return (components==null)?
+          null : expr.getReturnType().getName() + "{" + components + "}";
+    }
+    return expr.getReturnType().getName() + ":" + expr.text();  //literal.
+  }
+
+  protected String getKeys(
+      final Expression<?>[] exprs,
+      final Map<Variable<?>, String> keys)
+  {
+    final StringBuilder sb = new StringBuilder();
+    for (Expression<?> expr: exprs) {
+      final String key = getKey(expr, keys);
+      if (key == null) {
+        return null;
+      }
+      sb.append(key).append(',');
+    }
+    return sb.toString();
+  }
+
+
+  /**
+   * Block that takes some declared values from the pool.
+   */
+  public static class PooledBlock implements JavaCode<Object> {
+    protected final Block<?> block;
+
+    /**
+     * Key of each declaration we may pool, null for others.
+     */
+    protected final String[] keys;
+
+    /**
+     * Plan of each declaration we may pool, without variables.
+     */
+    protected final Expression<?>[] plans;
+
+    /**
+     * Pooled value of each declaration, null if we execute it.
+     */
+    protected final Object[] values;
+
+    protected final boolean isReplaced;
+
+    protected PooledBlock(
+        final Block<?> block,
+        final String[] keys,
+        final Expression<?>[] plans,
+        final Object[] values,
+        boolean isReplaced)
+    {
+      this.block = notNull(block);
+      this.keys = notNull(keys);
+      this.plans = notNull(plans);
+      this.values = notNull(values);
+      this.isReplaced = isReplaced;
+    }
+
+    /**
+     * @return the block we execute.
+     */
+    public Block<?> getBlock() {
+      return block;
+    }
+
+    /**
+     * @return whether draw replaced the plan of one of our declarations,
+     * so the block no longer matches its plan index.
+     */
+    public boolean isReplaced() {
+      return isReplaced;
+    }
+
+    public Object execute() throws InstantiationException,
+    IllegalAccessException, InvocationTargetException
+    {
+      final List<BlockStatement> stmts = block.getBlockStmts();
+      Object res = null;
+      for (int i=0; i<stmts.size(); i++) {
+        if (i < values.length && values[i] != null) {
+          final Variable<Object> var = (Variable<Object>)
+            ((LocalVariableDeclarationStatement<?>) stmts.get(i)).getVariable();
+          var.assign(values[i]);
+          continue;
+        }
+        res = stmts.get(i).execute();
+      }
+      return res;
+    }
+
+    public String text() {
+      return block.text();
+    }
+
+    @Override
+    public String toString() {
+      return text();
+    }
+  }
+}